@@ -0,0 +1,93 @@
+package org.reactome.release.benchmarks;
+
+import org.neo4j.driver.AuthTokens;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.GraphDatabase;
+import org.neo4j.driver.Session;
+import org.neo4j.harness.Neo4j;
+import org.neo4j.harness.Neo4jBuilders;
+import org.openjdk.jmh.annotations.*;
+import org.reactome.release.Main;
+import org.reactome.release.SyntheticModels2Pathways;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end BioModels insertion into an in-process Neo4j database seeded with a synthetic Reactome graph.  The nodes
+ * created by an insertion are deleted before the next one, so every invocation inserts into the same graph.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class InsertionBenchmark {
+
+    @Param({"10000", "100000"})
+    private long rows;
+
+    @Param({"single", "batched"})
+    private String writeMode;
+
+    private Path directory;
+    private Path configFile;
+    private Path models2Pathways;
+    private Neo4j neo4j;
+    private Driver driver;
+    private long seededMaxDbId;
+
+    @Setup(Level.Trial)
+    public void startDatabase() throws IOException {
+        int bioModelsIdCount = (int) Math.max(1, rows / 4);
+        SyntheticModels2Pathways generator = new SyntheticModels2Pathways(42L, 20000, bioModelsIdCount);
+
+        directory = Files.createTempDirectory("biomodels-insertion-benchmark");
+        models2Pathways = directory.resolve("models2pathways.tsv");
+        generator.writeTsv(models2Pathways, rows);
+
+        neo4j = Neo4jBuilders.newInProcessBuilder(directory).withDisabledServer().build();
+        driver = GraphDatabase.driver(neo4j.boltURI(), AuthTokens.none());
+        try (Session session = driver.session()) {
+            generator.seedGraph(session);
+        }
+        seededMaxDbId = generator.getMaxDbId();
+
+        Properties props = new Properties();
+        props.setProperty("host", neo4j.boltURI().getHost());
+        props.setProperty("port", String.valueOf(neo4j.boltURI().getPort()));
+        props.setProperty("personId", String.valueOf(SyntheticModels2Pathways.PERSON_DB_ID));
+        props.setProperty("writeMode", writeMode);
+        props.setProperty("rejectReportFile", directory.resolve("rejects.tsv").toString());
+        configFile = directory.resolve("config.properties");
+        try (OutputStream outputStream = Files.newOutputStream(configFile)) {
+            props.store(outputStream, "InsertionBenchmark");
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void deleteInsertedNodes() {
+        try (Session session = driver.session()) {
+            session.run("MATCH (n:DatabaseObject) WHERE n.dbId > $seededMaxDbId " +
+                    "CALL { WITH n DETACH DELETE n } IN TRANSACTIONS OF 10000 ROWS",
+                    Collections.singletonMap("seededMaxDbId", seededMaxDbId)).consume();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopDatabase() {
+        driver.close();
+        neo4j.close();
+    }
+
+    @Benchmark
+    public void insert() {
+        Main.main(new String[]{configFile.toString(), models2Pathways.toString()});
+    }
+}
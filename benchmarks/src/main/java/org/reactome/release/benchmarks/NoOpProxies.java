@@ -0,0 +1,42 @@
+package org.reactome.release.benchmarks;
+
+import java.lang.reflect.Proxy;
+
+/**
+ * Creates driver objects (e.g. a Transaction) whose methods do nothing, so the client side cost of building and
+ * sending statements can be measured without a database.  Methods returning an interface return another no-op proxy,
+ * so chains like 'tx.run(...).single().get("n").asNode()' work.
+ */
+final class NoOpProxies {
+
+    private NoOpProxies() { }
+
+    static <T> T create(Class<T> type) {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            Class<?> returnType = method.getReturnType();
+            if (method.getName().equals("hashCode") && method.getParameterCount() == 0) {
+                return System.identityHashCode(self);
+            }
+            if (method.getName().equals("equals") && method.getParameterCount() == 1) {
+                return self == args[0];
+            }
+            if (returnType.isInterface()) {
+                return create(returnType);
+            }
+            if (returnType == boolean.class) {
+                return false;
+            }
+            if (returnType == int.class) {
+                return 0;
+            }
+            if (returnType == long.class) {
+                return 0L;
+            }
+            if (returnType == double.class) {
+                return 0.0d;
+            }
+            return null;
+        });
+        return type.cast(proxy);
+    }
+}
@@ -0,0 +1,57 @@
+package org.reactome.release.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.reactome.release.ModelsTSVParser;
+import org.reactome.release.RejectReport;
+import org.reactome.release.SyntheticModels2Pathways;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of synthetic models2pathways files of 10k, 1M and 10M rows, sequentially and in parallel
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ParserBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    private long rows;
+
+    @Param({"1", "4"})
+    private int parallelism;
+
+    @Param({"false", "true"})
+    private boolean gzipped;
+
+    private Path directory;
+    private Path models2Pathways;
+
+    @Setup(Level.Trial)
+    public void generateFile() throws IOException {
+        directory = Files.createTempDirectory("biomodels-parser-benchmark");
+        models2Pathways = directory.resolve(gzipped ? "models2pathways.tsv.gz" : "models2pathways.tsv");
+        // About one BioModels id per four rows and twice as many pathways, as in the published file
+        int bioModelsIdCount = (int) Math.max(1, rows / 4);
+        new SyntheticModels2Pathways(42L, bioModelsIdCount * 2, bioModelsIdCount).writeTsv(models2Pathways, rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(models2Pathways);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public Map<String, Set<String>> parse() {
+        return ModelsTSVParser.parse(models2Pathways.toString(), new RejectReport(), parallelism);
+    }
+}
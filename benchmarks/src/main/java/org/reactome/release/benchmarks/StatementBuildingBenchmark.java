@@ -0,0 +1,81 @@
+package org.reactome.release.benchmarks;
+
+import org.gk.model.ReactomeJavaConstants;
+import org.neo4j.driver.Transaction;
+import org.openjdk.jmh.annotations.*;
+import org.reactome.release.BatchedBioModelsWriter;
+import org.reactome.release.BioModelsUtilities;
+import org.reactome.release.BioModelsWriter;
+import org.reactome.release.CypherTemplates;
+import org.reactome.release.SingleStatementBioModelsWriter;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client side cost of building the statements of the insertion and of the write paths, measured against a
+ * transaction which does nothing
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatementBuildingBenchmark {
+    private static final List<String> DATABASE_IDENTIFIER = Collections.singletonList(ReactomeJavaConstants.DatabaseIdentifier);
+    private static final int PATHWAY_IDENTIFIERS = 100;
+
+    @Param({"single", "batched"})
+    private String writeMode;
+
+    private Transaction transaction;
+    private long dbId;
+
+    @Setup(Level.Trial)
+    public void createTransaction() {
+        transaction = NoOpProxies.create(Transaction.class);
+    }
+
+    @Benchmark
+    public String nodeTemplate() {
+        return CypherTemplates.node(ReactomeJavaConstants.DatabaseIdentifier);
+    }
+
+    @Benchmark
+    public String relationshipTemplate() {
+        return CypherTemplates.relationship(ReactomeJavaConstants.crossReference);
+    }
+
+    @Benchmark
+    public String dateTime() {
+        return BioModelsUtilities.getDateTime();
+    }
+
+    /**
+     * Writes the DatabaseIdentifiers and relationships of a pathway with 100 BioModels ids, as Main does
+     */
+    @Benchmark
+    public void writePathway() {
+        BioModelsWriter writer = writeMode.equals("batched") ?
+                new BatchedBioModelsWriter(transaction, 1000) : new SingleStatementBioModelsWriter(transaction);
+        for (int i = 0; i < PATHWAY_IDENTIFIERS; i++) {
+            long identifierDbId = ++dbId;
+            String bioModelsId = String.format("BIOMD%010d", identifierDbId);
+            HashMap<String, Object> props = new HashMap<>();
+            props.put(BioModelsUtilities.DATABASE_NAME, "BioModels Database");
+            props.put(BioModelsUtilities.DBID, identifierDbId);
+            props.put(BioModelsUtilities.DISPLAY_NAME, "BioModels Database:" + bioModelsId);
+            props.put(ReactomeJavaConstants.identifier, bioModelsId);
+            props.put(BioModelsUtilities.SCHEMA_CLASS, ReactomeJavaConstants.DatabaseIdentifier);
+            props.put(ReactomeJavaConstants.url, "https://www.ebi.ac.uk/biomodels/" + bioModelsId);
+            writer.createNode(DATABASE_IDENTIFIER, props);
+            writer.createRelationship(2L, identifierDbId, ReactomeJavaConstants.created, 0, 1);
+            writer.createRelationship(identifierDbId, 3L, ReactomeJavaConstants.referenceDatabase, 0, 1);
+            writer.createRelationship(1L, identifierDbId, ReactomeJavaConstants.crossReference, i, 1);
+        }
+        writer.flush();
+    }
+}
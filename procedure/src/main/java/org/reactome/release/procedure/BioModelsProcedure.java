@@ -0,0 +1,131 @@
+package org.reactome.release.procedure;
+
+import org.gk.model.ReactomeJavaConstants;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.logging.Log;
+import org.neo4j.procedure.Context;
+import org.neo4j.procedure.Description;
+import org.neo4j.procedure.Mode;
+import org.neo4j.procedure.Name;
+import org.neo4j.procedure.Procedure;
+import org.reactome.release.BioModelsRules;
+import org.reactome.release.BioModelsUtilities;
+import org.reactome.release.CypherTemplates;
+import org.reactome.release.DbIdAllocator;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Server-side BioModels insertion, called by the 'procedure' insertion mode with the parsed models2pathways.tsv rows.
+ * The instance edit, the BioModels reference database (if missing), the DatabaseIdentifiers and the cross-references
+ * are written through {@link BioModelsRules} and dbIds are allocated by {@link DbIdAllocator}, as in the client-side
+ * modes, but inside the transaction of the call: nothing crosses Bolt apart from the rows and the single result row.
+ */
+public class BioModelsProcedure {
+    private static final Label PATHWAY = Label.label("Pathway");
+
+    @Context
+    public Transaction tx;
+
+    @Context
+    public Log log;
+
+    /**
+     * Inserts the BioModels cross-references of the pathways
+     *
+     * @param rows One map per pathway: its stable id ('stId') and its BioModels ids ('bioModelsIds'), in order
+     * @param personId dbId of the Person the instance edit is created for
+     * @return A single row with the counts of the insertion and the dbId of the instance edit
+     */
+    @Procedure(name = "reactome.biomodels.insert", mode = Mode.WRITE)
+    @Description("reactome.biomodels.insert(rows, personId) - adds the BioModels ids of each row " +
+            "{stId, bioModelsIds} as cross-references of the pathway")
+    public Stream<InsertionResult> insert(@Name("rows") List<Map<String, Object>> rows,
+                                          @Name("personId") long personId) {
+        EmbeddedBioModelsWriter writer = new EmbeddedBioModelsWriter(tx);
+        Node person;
+        try {
+            person = writer.node(personId);
+        } catch (NotFoundException e) {
+            throw new IllegalArgumentException("Could not fetch Person entity with ID " + personId +
+                    ". Please check that a Person entity exists in the database with this ID", e);
+        }
+        DbIdAllocator dbIdAllocator = new DbIdAllocator(maxDbId());
+        log.info("Allocating dbIds above %d", dbIdAllocator.getLastAllocatedDbId());
+
+        InsertionResult result = new InsertionResult();
+        result.instanceEditDbId = dbIdAllocator.next();
+        BioModelsRules.writeInstanceEdit(writer, personId, BioModelsRules.instanceEditProperties(
+                (String) person.getProperty(ReactomeJavaConstants.surname),
+                (String) person.getProperty(ReactomeJavaConstants.firstname),
+                result.instanceEditDbId, BioModelsRules.INSTANCE_EDIT_NOTE,
+                BioModelsRules.dateTime(BioModelsRules.calendar())));
+
+        Map<String, Object> referenceDatabase = referenceDatabase(writer, dbIdAllocator, result.instanceEditDbId);
+        long referenceDatabaseDbId = (Long) referenceDatabase.get(BioModelsUtilities.DBID);
+        String databaseName = (String) referenceDatabase.get(BioModelsUtilities.DISPLAY_NAME);
+        String referenceDatabaseUrl = (String) referenceDatabase.get(ReactomeJavaConstants.url);
+
+        Map<String, Long> newIdentifiers = new HashMap<>();
+        for (Map<String, Object> row : rows) {
+            String stableId = (String) row.get(BioModelsUtilities.STID);
+            Node pathway = tx.findNode(EmbeddedBioModelsWriter.DATABASE_OBJECT, BioModelsUtilities.STID, stableId);
+            if (pathway == null || !pathway.hasLabel(PATHWAY)) {
+                log.debug("Pathway %s is not in the database", stableId);
+                result.pathwaysUnmatched++;
+                continue;
+            }
+
+            List<Long> identifierDbIds = new ArrayList<>();
+            for (Object bioModelsIdValue : (List<?>) row.get("bioModelsIds")) {
+                String bioModelsId = (String) bioModelsIdValue;
+                Long identifierDbId = newIdentifiers.get(bioModelsId);
+                if (identifierDbId != null) {
+                    result.identifiersReused++;
+                } else {
+                    identifierDbId = dbIdAllocator.next();
+                    BioModelsRules.writeDatabaseIdentifier(writer, bioModelsId, identifierDbId,
+                            result.instanceEditDbId, referenceDatabaseDbId, databaseName, referenceDatabaseUrl);
+                    newIdentifiers.put(bioModelsId, identifierDbId);
+                    result.identifiersCreated++;
+                }
+                identifierDbIds.add(identifierDbId);
+            }
+            BioModelsRules.writeCrossReferences(writer, (Long) pathway.getProperty(BioModelsUtilities.DBID),
+                    identifierDbIds, result.instanceEditDbId);
+            result.pathwaysUpdated++;
+        }
+
+        result.nodesCreated = writer.getNodesCreated();
+        result.relationshipsCreated = writer.getRelationshipsCreated();
+        log.info("BioModels ids added to %d pathways (%d not in the database) with instance edit %d",
+                result.pathwaysUpdated, result.pathwaysUnmatched, result.instanceEditDbId);
+        return Stream.of(result);
+    }
+
+    private long maxDbId() {
+        try (Result result = tx.execute(CypherTemplates.MAX_DBID)) {
+            return result.hasNext() ? ((Number) result.next().get("maxDbId")).longValue() : 0L;
+        }
+    }
+
+    /**
+     * @return The dbId, display name and URL of the BioModels reference database, which is created if missing
+     */
+    private Map<String, Object> referenceDatabase(EmbeddedBioModelsWriter writer, DbIdAllocator dbIdAllocator,
+                                                  long instanceEditDbId) {
+        try (Result result = tx.execute(CypherTemplates.BIOMODELS_REFERENCE_DATABASE)) {
+            if (result.hasNext()) {
+                Node node = (Node) result.next().get("n");
+                return node.getProperties(BioModelsUtilities.DBID, BioModelsUtilities.DISPLAY_NAME, ReactomeJavaConstants.url);
+            }
+        }
+        log.info("Creating the BioModels reference database");
+        return BioModelsRules.writeReferenceDatabase(writer, instanceEditDbId, dbIdAllocator.next());
+    }
+}
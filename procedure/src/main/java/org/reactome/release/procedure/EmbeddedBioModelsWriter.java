@@ -0,0 +1,100 @@
+package org.reactome.release.procedure;
+
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.Transaction;
+import org.reactome.release.BioModelsWriter;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the nodes and relationships of the insertion directly through the transaction of the procedure.  Nodes and
+ * relationships get the same labels, types and property values as the Cypher statements of the client-side writers
+ * create: list properties become string arrays and the 'order' and 'stoichiometry' of relationships are longs.
+ */
+public class EmbeddedBioModelsWriter implements BioModelsWriter {
+    static final Label DATABASE_OBJECT = Label.label("DatabaseObject");
+    static final String DBID = "dbId";
+
+    private final Transaction tx;
+    private final Map<Long, Node> nodesByDbId = new HashMap<>();
+    private long nodesCreated;
+    private long relationshipsCreated;
+
+    /**
+     * @param tx Transaction of the procedure
+     */
+    public EmbeddedBioModelsWriter(Transaction tx) {
+        this.tx = tx;
+    }
+
+    @Override
+    public void createNode(List<String> labels, HashMap<String, Object> props) {
+        Node node = tx.createNode(DATABASE_OBJECT);
+        for (String label : labels) {
+            node.addLabel(Label.label(label));
+        }
+        for (Map.Entry<String, Object> property : props.entrySet()) {
+            node.setProperty(property.getKey(), propertyValue(property.getValue()));
+        }
+        nodesByDbId.put((Long) props.get(DBID), node);
+        nodesCreated++;
+    }
+
+    @Override
+    public void createRelationship(long fromDbId, long toDbId, String relationshipType, int order, int stoichiometry) {
+        Relationship relationship = node(fromDbId).createRelationshipTo(node(toDbId),
+                RelationshipType.withName(relationshipType));
+        relationship.setProperty("order", (long) order);
+        relationship.setProperty("stoichiometry", (long) stoichiometry);
+        relationshipsCreated++;
+    }
+
+    /**
+     * Nothing is buffered: the nodes and relationships are part of the transaction as soon as they are created
+     */
+    @Override
+    public void flush() { }
+
+    /**
+     * @param dbId dbId of a DatabaseObject
+     * @return The node created by this writer or found in the database with the dbId
+     * @throws NotFoundException Thrown if there is no DatabaseObject with the dbId
+     */
+    Node node(long dbId) {
+        Node node = nodesByDbId.get(dbId);
+        if (node == null) {
+            node = tx.findNode(DATABASE_OBJECT, DBID, dbId);
+            if (node == null) {
+                throw new NotFoundException("No DatabaseObject with dbId " + dbId);
+            }
+            nodesByDbId.put(dbId, node);
+        }
+        return node;
+    }
+
+    private static Object propertyValue(Object value) {
+        if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            String[] values = new String[list.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = String.valueOf(list.get(i));
+            }
+            return values;
+        }
+        return value;
+    }
+
+    public long getNodesCreated() {
+        return nodesCreated;
+    }
+
+    public long getRelationshipsCreated() {
+        return relationshipsCreated;
+    }
+}
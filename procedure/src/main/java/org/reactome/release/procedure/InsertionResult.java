@@ -0,0 +1,14 @@
+package org.reactome.release.procedure;
+
+/**
+ * Row returned by the 'reactome.biomodels.insert' procedure.  The fields are the columns of the row.
+ */
+public class InsertionResult {
+    public long pathwaysUpdated;
+    public long pathwaysUnmatched;
+    public long identifiersCreated;
+    public long identifiersReused;
+    public long nodesCreated;
+    public long relationshipsCreated;
+    public long instanceEditDbId;
+}
@@ -0,0 +1,151 @@
+package org.reactome.release.procedure;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.neo4j.driver.AuthTokens;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.GraphDatabase;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Session;
+import org.neo4j.harness.Neo4j;
+import org.neo4j.harness.Neo4jBuilders;
+import org.reactome.release.Main;
+import org.reactome.release.SyntheticModels2Pathways;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class BioModelsProcedureTester {
+    private static final String CROSS_REFERENCES =
+            "MATCH (p:DatabaseObject:Pathway)-[r:crossReference]->(i:DatabaseObject:DatabaseIdentifier)" +
+            "-[:referenceDatabase]->(d:DatabaseObject:ReferenceDatabase) WHERE 'BioModels' IN d.name " +
+            "RETURN p.stId AS stId, r.order AS order, r.stoichiometry AS stoichiometry, i.identifier AS identifier, " +
+            "i.displayName AS displayName, i.url AS url, i.databaseName AS databaseName, i.schemaClass AS schemaClass " +
+            "ORDER BY stId, order";
+    private static final String INSTANCE_EDITS =
+            "MATCH (:DatabaseObject:Person)-[:author]->(ie:DatabaseObject:InstanceEdit) " +
+            "RETURN ie.note AS note, ie.displayName AS displayName, size([(ie)-[:created]->() | 1]) AS created, " +
+            "size([(ie)-[:modified]->() | 1]) AS modified";
+
+    @TempDir
+    Path directory;
+
+    private final SyntheticModels2Pathways generator = new SyntheticModels2Pathways(7L, 300, 80);
+    private Neo4j clientDatabase;
+    private Neo4j procedureDatabase;
+
+    @BeforeEach
+    public void startDatabases() throws IOException {
+        clientDatabase = Neo4jBuilders.newInProcessBuilder(Files.createDirectories(directory.resolve("client")))
+                .withDisabledServer().build();
+        procedureDatabase = Neo4jBuilders.newInProcessBuilder(Files.createDirectories(directory.resolve("procedure")))
+                .withDisabledServer().withProcedure(BioModelsProcedure.class).build();
+        for (Neo4j database : Arrays.asList(clientDatabase, procedureDatabase)) {
+            try (Driver driver = driver(database); Session session = driver.session()) {
+                generator.seedGraph(session);
+            }
+        }
+    }
+
+    @AfterEach
+    public void stopDatabases() {
+        clientDatabase.close();
+        procedureDatabase.close();
+    }
+
+    private static Driver driver(Neo4j database) {
+        return GraphDatabase.driver(database.boltURI(), AuthTokens.none());
+    }
+
+    private Path configFile(Neo4j database, String insertionMode) throws IOException {
+        Path reportDirectory = directory.resolve(insertionMode);
+        Properties props = new Properties();
+        props.setProperty("host", database.boltURI().getHost());
+        props.setProperty("port", String.valueOf(database.boltURI().getPort()));
+        props.setProperty("personId", String.valueOf(SyntheticModels2Pathways.PERSON_DB_ID));
+        props.setProperty("insertionMode", insertionMode);
+        props.setProperty("verify", "fail");
+        props.setProperty("rejectReportFile", reportDirectory.resolve("rejects.tsv").toString());
+        props.setProperty("metricsReportFile", reportDirectory.resolve("metrics.json").toString());
+        props.setProperty("prometheusReportFile", reportDirectory.resolve("metrics.prom").toString());
+        props.setProperty("verificationReportFile", reportDirectory.resolve("verification.tsv").toString());
+        Path configFile = directory.resolve(insertionMode + ".properties");
+        try (OutputStream outputStream = Files.newOutputStream(configFile)) {
+            props.store(outputStream, "BioModelsProcedureTester");
+        }
+        return configFile;
+    }
+
+    private static List<Map<String, Object>> query(Neo4j database, String statement) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        try (Driver driver = driver(database); Session session = driver.session()) {
+            for (Record record : session.run(statement).list()) {
+                rows.add(record.asMap());
+            }
+        }
+        return rows;
+    }
+
+    @Test
+    public void procedureWritesSameGraphAsClient() throws IOException {
+        Path models2Pathways = directory.resolve("models2pathways.tsv");
+        generator.writeTsv(models2Pathways, 600L);
+
+        Main.main(new String[]{configFile(clientDatabase, "full").toString(), models2Pathways.toString()});
+        Main.main(new String[]{configFile(procedureDatabase, "procedure").toString(), models2Pathways.toString()});
+
+        // dbIds are allocated in pathway order, which differs between the two, so only the other properties are compared
+        List<Map<String, Object>> clientCrossReferences = query(clientDatabase, CROSS_REFERENCES);
+        assertThat(clientCrossReferences, is(not(empty())));
+        assertThat(query(procedureDatabase, CROSS_REFERENCES), is(equalTo(clientCrossReferences)));
+        assertThat(query(procedureDatabase, INSTANCE_EDITS), is(equalTo(query(clientDatabase, INSTANCE_EDITS))));
+    }
+
+    @Test
+    public void unmatchedPathwaysAreCountedAndIdentifiersReused() {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        rows.add(row(generator.pathwayStableId(0), generator.bioModelsId(0), generator.bioModelsId(1)));
+        rows.add(row("R-HSA-0", generator.bioModelsId(2)));
+        rows.add(row(generator.pathwayStableId(1), generator.bioModelsId(1)));
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("rows", rows);
+        parameters.put("personId", SyntheticModels2Pathways.PERSON_DB_ID);
+
+        Record result;
+        try (Driver driver = driver(procedureDatabase); Session session = driver.session()) {
+            result = session.run("CALL reactome.biomodels.insert($rows, $personId)", parameters).single();
+        }
+
+        assertThat(result.get("pathwaysUpdated").asLong(), is(equalTo(2L)));
+        assertThat(result.get("pathwaysUnmatched").asLong(), is(equalTo(1L)));
+        assertThat(result.get("identifiersCreated").asLong(), is(equalTo(2L)));
+        assertThat(result.get("identifiersReused").asLong(), is(equalTo(1L)));
+        // instance edit, reference database and two identifiers
+        assertThat(result.get("nodesCreated").asLong(), is(equalTo(4L)));
+        // author, created and referenceDatabase of the reference database and identifiers, three crossReferences and
+        // two modified
+        assertThat(result.get("relationshipsCreated").asLong(), is(equalTo(11L)));
+        assertThat(result.get("instanceEditDbId").asLong(), is(equalTo(generator.getMaxDbId() + 1)));
+
+        List<Map<String, Object>> crossReferences = query(procedureDatabase, CROSS_REFERENCES);
+        assertThat(crossReferences, hasSize(3));
+        assertThat(crossReferences.get(0).get("order"), is(equalTo(0L)));
+        assertThat(crossReferences.get(0).get("url"),
+                is(equalTo("https://www.ebi.ac.uk/biomodels/" + generator.bioModelsId(0))));
+    }
+
+    private static Map<String, Object> row(String stableId, String... bioModelsIds) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("stId", stableId);
+        row.put("bioModelsIds", Arrays.asList(bioModelsIds));
+        return row;
+    }
+}
@@ -0,0 +1,131 @@
+package org.reactome.release;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.neo4j.driver.AuthTokens;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.GraphDatabase;
+import org.neo4j.driver.Session;
+import org.neo4j.harness.Neo4j;
+import org.neo4j.harness.Neo4jBuilders;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Runs the whole insertion against an in-process Neo4j database seeded with a synthetic Reactome graph, for each
+ * scale given by the 'loadTest.rows' system property (comma separated row counts of the models2pathways file) and
+ * each write/commit mode.  Wall time, graph growth and heap peak are appended to 'loadTest.resultsFile'.
+ */
+public class BioModelsInsertionLoadTest {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final long SEED = 42L;
+    private static final int PATHWAY_COUNT = Integer.getInteger("loadTest.pathways", 25000);
+    private static final Path RESULTS_FILE =
+            Paths.get(System.getProperty("loadTest.resultsFile", "target/load-tests/load-test-results.tsv"));
+
+    @TempDir
+    Path directory;
+
+    static Stream<Arguments> scenarios() {
+        List<Arguments> scenarios = new ArrayList<>();
+        for (String rows : System.getProperty("loadTest.rows", "10000,100000").split(",")) {
+            long rowCount = Long.parseLong(rows.trim());
+            scenarios.add(Arguments.of(rowCount, "blocking", "single", "single", 0));
+            scenarios.add(Arguments.of(rowCount, "blocking", "batched", "single", 0));
+            scenarios.add(Arguments.of(rowCount, "blocking", "batched", "chunked", 0));
+            scenarios.add(Arguments.of(rowCount, "blocking", "batched", "sharded", 0));
+            // hash shards on one and on four workers measure the speedup of concurrent shards
+            scenarios.add(Arguments.of(rowCount, "blocking", "batched", "sharded", 1));
+            scenarios.add(Arguments.of(rowCount, "blocking", "batched", "sharded", 4));
+            scenarios.add(Arguments.of(rowCount, "async", "single", "single", 0));
+        }
+        return scenarios.stream();
+    }
+
+    @ParameterizedTest(name = "{0} rows, executionMode={1}, writeMode={2}, commitMode={3}, insertionWorkers={4}")
+    @MethodSource("scenarios")
+    public void insertionScales(long rows, String executionMode, String writeMode, String commitMode,
+                                int insertionWorkers) throws Exception {
+        SyntheticModels2Pathways generator =
+                new SyntheticModels2Pathways(SEED, PATHWAY_COUNT, (int) Math.max(1, rows / 4));
+        Path models2Pathways = directory.resolve("models2pathways.tsv");
+        generator.writeTsv(models2Pathways, rows);
+        Map<String, Set<String>> expected = ModelsTSVParser.parse(models2Pathways.toString());
+
+        try (Neo4j neo4j = Neo4jBuilders.newInProcessBuilder(directory).withDisabledServer().build();
+             Driver driver = GraphDatabase.driver(neo4j.boltURI(), AuthTokens.none())) {
+            try (Session session = driver.session()) {
+                generator.seedGraph(session);
+            }
+            Path configFile = writeConfig(neo4j, executionMode, writeMode, commitMode, insertionWorkers);
+            long nodesBefore = count(driver, "MATCH (n) RETURN count(n)");
+            long relationshipsBefore = count(driver, "MATCH ()-[r]->() RETURN count(r)");
+
+            LoadTestMeasurement measurement =
+                    new LoadTestMeasurement("executionMode=" + executionMode + ",writeMode=" + writeMode +
+                            ",commitMode=" + commitMode +
+                            (insertionWorkers > 0 ? ",insertionWorkers=" + insertionWorkers : ""), rows);
+            measurement.start();
+            Main.runBioModelsInsertion(new String[]{configFile.toString(), models2Pathways.toString()});
+            measurement.stop();
+
+            measurement.setGraphGrowth(count(driver, "MATCH (n) RETURN count(n)") - nodesBefore,
+                    count(driver, "MATCH ()-[r]->() RETURN count(r)") - relationshipsBefore);
+            measurement.appendTo(RESULTS_FILE);
+            LOGGER.info("Load test result: {}", measurement);
+
+            Set<String> expectedIdentifiers = new HashSet<>();
+            long expectedCrossReferences = 0;
+            for (Set<String> bioModelsIds : expected.values()) {
+                expectedIdentifiers.addAll(bioModelsIds);
+                expectedCrossReferences += bioModelsIds.size();
+            }
+            assertThat(count(driver, "MATCH (di:DatabaseIdentifier)-[:referenceDatabase]->(:ReferenceDatabase) " +
+                    "RETURN count(di)"), is(equalTo((long) expectedIdentifiers.size())));
+            assertThat(count(driver, "MATCH (:Pathway)-[r:crossReference]->(:DatabaseIdentifier) RETURN count(r)"),
+                    is(equalTo(expectedCrossReferences)));
+        }
+    }
+
+    private Path writeConfig(Neo4j neo4j, String executionMode, String writeMode, String commitMode,
+                             int insertionWorkers) throws Exception {
+        Properties props = new Properties();
+        props.setProperty("host", neo4j.boltURI().getHost());
+        props.setProperty("port", String.valueOf(neo4j.boltURI().getPort()));
+        props.setProperty("personId", String.valueOf(SyntheticModels2Pathways.PERSON_DB_ID));
+        props.setProperty("executionMode", executionMode);
+        props.setProperty("writeMode", writeMode);
+        props.setProperty("commitMode", commitMode);
+        if (insertionWorkers > 0) {
+            props.setProperty("shardBy", "hash");
+            props.setProperty("insertionWorkers", String.valueOf(insertionWorkers));
+        }
+        props.setProperty("checkpointFile", directory.resolve("biomodels.checkpoint").toString());
+        props.setProperty("rejectReportFile", directory.resolve("rejects.tsv").toString());
+        props.setProperty("preflight", "fail");
+
+        Path configFile = directory.resolve("config.properties");
+        try (OutputStream outputStream = Files.newOutputStream(configFile)) {
+            props.store(outputStream, "BioModelsInsertionLoadTest");
+        }
+        return configFile;
+    }
+
+    private static long count(Driver driver, String query) {
+        try (Session session = driver.session()) {
+            return session.run(query).single().get(0).asLong();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.reactome.release;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.neo4j.driver.AuthTokens;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.GraphDatabase;
+import org.neo4j.driver.Session;
+import org.neo4j.harness.Neo4j;
+import org.neo4j.harness.Neo4jBuilders;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Runs a multi-target insertion into two in-process Neo4j databases at the same time, one of them missing the Person
+ * of the instance edit: the other target must still commit its cross-references and the target report must have a
+ * PASS and a FAIL line.
+ */
+public class InsertionTargetsIntegrationTest {
+    private static final long SEED = 7L;
+    private static final int PATHWAY_COUNT = 200;
+    private static final long ROWS = 1000L;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void failingTargetDoesNotStopTheOtherTarget() throws Exception {
+        SyntheticModels2Pathways generator = new SyntheticModels2Pathways(SEED, PATHWAY_COUNT, (int) (ROWS / 4));
+        Path models2Pathways = directory.resolve("models2pathways.tsv");
+        generator.writeTsv(models2Pathways, ROWS);
+        Map<String, Set<String>> expected = ModelsTSVParser.parse(models2Pathways.toString());
+        long expectedCrossReferences = 0;
+        for (Set<String> bioModelsIds : expected.values()) {
+            expectedCrossReferences += bioModelsIds.size();
+        }
+
+        try (Neo4j curator = newDatabase("curator"); Neo4j release = newDatabase("release");
+             Driver curatorDriver = GraphDatabase.driver(curator.boltURI(), AuthTokens.none());
+             Driver releaseDriver = GraphDatabase.driver(release.boltURI(), AuthTokens.none())) {
+            try (Session session = curatorDriver.session()) {
+                generator.seedGraph(session);
+            }
+            try (Session session = releaseDriver.session()) {
+                generator.seedGraph(session);
+                session.run("MATCH (n:Person) DETACH DELETE n").consume();
+            }
+            Path targetReportFile = directory.resolve("targets.tsv");
+            Path configFile = writeConfig(curator, release, targetReportFile);
+
+            RuntimeException exception = assertThrows(RuntimeException.class, () ->
+                    Main.runBioModelsInsertion(new String[]{configFile.toString(), models2Pathways.toString()}));
+            assertThat(exception.getCause().getMessage(), startsWith("1 of 2 targets failed"));
+
+            assertThat(count(curatorDriver, "MATCH (:Pathway)-[r:crossReference]->(:DatabaseIdentifier) " +
+                    "RETURN count(r)"), is(equalTo(expectedCrossReferences)));
+            assertThat(count(releaseDriver, "MATCH (:Pathway)-[r:crossReference]->(:DatabaseIdentifier) " +
+                    "RETURN count(r)"), is(equalTo(0L)));
+            assertThat(count(releaseDriver, "MATCH (n:InstanceEdit) RETURN count(n)"), is(equalTo(0L)));
+
+            List<String> lines = Files.readAllLines(targetReportFile, StandardCharsets.UTF_8);
+            assertThat(lines, hasSize(3));
+            assertThat(lines.get(1), startsWith("curator\tPASS\t"));
+            assertThat(lines.get(2), allOf(startsWith("release\tFAIL\t"), containsString("Person")));
+        }
+    }
+
+    private Neo4j newDatabase(String name) throws Exception {
+        return Neo4jBuilders.newInProcessBuilder(Files.createDirectories(directory.resolve(name)))
+                .withDisabledServer().build();
+    }
+
+    private Path writeConfig(Neo4j curator, Neo4j release, Path targetReportFile) throws Exception {
+        Properties props = new Properties();
+        props.setProperty("personId", String.valueOf(SyntheticModels2Pathways.PERSON_DB_ID));
+        props.setProperty(InsertionTargets.TARGETS, "curator,release");
+        props.setProperty("target.curator.host", curator.boltURI().getHost());
+        props.setProperty("target.curator.port", String.valueOf(curator.boltURI().getPort()));
+        props.setProperty("target.release.host", release.boltURI().getHost());
+        props.setProperty("target.release.port", String.valueOf(release.boltURI().getPort()));
+        props.setProperty("targetReportFile", targetReportFile.toString());
+        props.setProperty("verificationReportFile", directory.resolve("verification.tsv").toString());
+        props.setProperty("rejectReportFile", directory.resolve("rejects.tsv").toString());
+        props.setProperty("metricsReportFile", directory.resolve("metrics.json").toString());
+        props.setProperty("prometheusReportFile", directory.resolve("metrics.prom").toString());
+        props.setProperty("verify", "fail");
+
+        Path configFile = directory.resolve("config.properties");
+        try (OutputStream outputStream = Files.newOutputStream(configFile)) {
+            props.store(outputStream, "InsertionTargetsIntegrationTest");
+        }
+        return configFile;
+    }
+
+    private static long count(Driver driver, String query) {
+        try (Session session = driver.session()) {
+            return session.run(query).single().get(0).asLong();
+        }
+    }
+}
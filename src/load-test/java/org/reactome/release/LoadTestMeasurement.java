@@ -0,0 +1,108 @@
+package org.reactome.release;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Wall time, heap peak and graph growth of one load test scenario.  Results are appended to a tab separated file so
+ * runs of different versions can be compared.
+ */
+public class LoadTestMeasurement {
+    private static final String HEADER =
+            "scenario\trows\twallMillis\tnodesCreated\trelationshipsCreated\theapPeakBytes";
+
+    private final String scenario;
+    private final long rows;
+    private long startNanos;
+    private long wallMillis;
+    private long heapPeakBytes;
+    private long nodesCreated;
+    private long relationshipsCreated;
+
+    public LoadTestMeasurement(String scenario, long rows) {
+        this.scenario = scenario;
+        this.rows = rows;
+    }
+
+    /**
+     * Starts the clock and resets the peak usage of the heap memory pools
+     */
+    public void start() {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Stops the clock and reads the heap peak, the sum of the peak usage of each heap memory pool since start
+     */
+    public void stop() {
+        wallMillis = (System.nanoTime() - startNanos) / 1_000_000L;
+        heapPeakBytes = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                heapPeakBytes += pool.getPeakUsage().getUsed();
+            }
+        }
+    }
+
+    public void setGraphGrowth(long nodesCreated, long relationshipsCreated) {
+        this.nodesCreated = nodesCreated;
+        this.relationshipsCreated = relationshipsCreated;
+    }
+
+    public long getWallMillis() {
+        return wallMillis;
+    }
+
+    public long getHeapPeakBytes() {
+        return heapPeakBytes;
+    }
+
+    public long getNodesCreated() {
+        return nodesCreated;
+    }
+
+    public long getRelationshipsCreated() {
+        return relationshipsCreated;
+    }
+
+    /**
+     * Appends the measurement to the results file, writing the header first if the file is new
+     *
+     * @param resultsFile Path of the results file
+     * @throws IOException Thrown if the file can not be written
+     */
+    public void appendTo(Path resultsFile) throws IOException {
+        if (resultsFile.getParent() != null) {
+            Files.createDirectories(resultsFile.getParent());
+        }
+        boolean newFile = !Files.exists(resultsFile);
+        try (BufferedWriter writer = Files.newBufferedWriter(resultsFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (newFile) {
+                writer.write(HEADER);
+                writer.newLine();
+            }
+            writer.write(toString());
+            writer.newLine();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return scenario + "\t" + rows + "\t" + wallMillis + "\t" + nodesCreated + "\t" + relationshipsCreated + "\t" +
+                heapPeakBytes;
+    }
+}
@@ -0,0 +1,88 @@
+package org.reactome.release;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.neo4j.driver.Transaction;
+
+import java.util.*;
+
+/**
+ * Writer which collects nodes and relationships into parameter lists and sends them to the database as
+ * 'UNWIND $rows' statements of at most batchSize rows.  Buffered nodes are always written before buffered
+ * relationships so a relationship can refer to a node created in the same batch.
+ */
+public class BatchedBioModelsWriter implements BioModelsWriter {
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private final Transaction tx;
+    private final int batchSize;
+    private final Map<String, List<Map<String, Object>>> pendingNodesByLabels = new LinkedHashMap<>();
+    private final Map<String, List<Map<String, Object>>> pendingRelationshipsByType = new LinkedHashMap<>();
+    private int pendingCount;
+
+    /**
+     * Creates a writer which batches writes
+     *
+     * @param tx        Neo4j Driver Transaction
+     * @param batchSize Maximum number of rows sent in one statement (and buffered before flushing)
+     */
+    public BatchedBioModelsWriter(Transaction tx, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.tx = tx;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void createNode(List<String> labels, HashMap<String, Object> props) {
+        String nodeLabels = String.join(":", labels);
+        pendingNodesByLabels.computeIfAbsent(nodeLabels, k -> new ArrayList<>()).add(new HashMap<>(props));
+        incrementPending();
+    }
+
+    @Override
+    public void createRelationship(long fromDbId, long toDbId, String relationshipType, int order, int stoichiometry) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("fromDbId", fromDbId);
+        row.put("toDbId", toDbId);
+        row.put("order", order);
+        row.put("stoichiometry", stoichiometry);
+        pendingRelationshipsByType.computeIfAbsent(relationshipType, k -> new ArrayList<>()).add(row);
+        incrementPending();
+    }
+
+    @Override
+    public void flush() {
+        try (RunMetrics.Phase phase = RunMetrics.startPhase("flush")) {
+            for (Map.Entry<String, List<Map<String, Object>>> pendingNodes : pendingNodesByLabels.entrySet()) {
+                runInBatches(CypherTemplates.nodeBatch(pendingNodes.getKey()), pendingNodes.getValue());
+                RunMetrics.add(RunMetrics.NODES_CREATED, pendingNodes.getValue().size());
+            }
+            for (Map.Entry<String, List<Map<String, Object>>> pendingRelationships :
+                    pendingRelationshipsByType.entrySet()) {
+                runInBatches(CypherTemplates.relationshipBatch(pendingRelationships.getKey()),
+                        pendingRelationships.getValue());
+                RunMetrics.add(RunMetrics.RELATIONSHIPS_CREATED, pendingRelationships.getValue().size());
+            }
+        }
+        pendingNodesByLabels.clear();
+        pendingRelationshipsByType.clear();
+        pendingCount = 0;
+    }
+
+    private void incrementPending() {
+        pendingCount++;
+        if (pendingCount >= batchSize) {
+            flush();
+        }
+    }
+
+    private void runInBatches(String query, List<Map<String, Object>> rows) {
+        for (int start = 0; start < rows.size(); start += batchSize) {
+            List<Map<String, Object>> batch = rows.subList(start, Math.min(start + batchSize, rows.size()));
+            LOGGER.debug("Sending batch of {} rows", batch.size());
+            CypherTemplates.consume(query, CypherTemplates.run(tx, query, Collections.singletonMap("rows", batch)));
+        }
+    }
+}
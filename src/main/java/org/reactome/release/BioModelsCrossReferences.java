@@ -0,0 +1,192 @@
+package org.reactome.release;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Transaction;
+
+import java.util.*;
+
+/**
+ * BioModels DatabaseIdentifiers already stored in the database and the crossReference relationships of pathways to
+ * them.  Identifiers are kept by BioModels id with their dbId, and the cross-references of each pathway by pathway
+ * stable id with their order and the dbIds of the DatabaseIdentifiers they link to.  Earlier releases created a new
+ * DatabaseIdentifier for a BioModels id on every run, so a BioModels id may have several, and a pathway's
+ * cross-references must be updated through the nodes it actually links to.  A pathway may even link to several of
+ * them: the link with the lowest order is its cross-reference to the BioModels id and the others are duplicates.
+ */
+public class BioModelsCrossReferences {
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private final Map<String, Long> identifierDbIds = new HashMap<>();
+    private final Map<String, Long> pathwayDbIds = new HashMap<>();
+    private final Map<String, Map<String, Integer>> pathwayCrossReferences = new LinkedHashMap<>();
+    // dbIds of the linked DatabaseIdentifiers, the one with the lowest order first
+    private final Map<String, Map<String, List<Long>>> pathwayLinkedIdentifierDbIds = new HashMap<>();
+
+    /**
+     * Loads the DatabaseIdentifiers of the reference database and their pathway cross-references with one query.
+     * The records are processed as they are streamed from the database rather than collected first.
+     *
+     * @param tx Neo4j Driver Transaction
+     * @param referenceDatabaseDbId dbId of the BioModels reference database
+     * @return The stored BioModels identifiers and cross-references
+     */
+    public static BioModelsCrossReferences load(Transaction tx, long referenceDatabaseDbId) {
+        Result result = CypherTemplates.run(tx, CypherTemplates.LOAD_CROSS_REFERENCES,
+                Collections.singletonMap("referenceDatabaseDbId", referenceDatabaseDbId));
+
+        BioModelsCrossReferences crossReferences = new BioModelsCrossReferences();
+        while (result.hasNext()) {
+            Record record = result.next();
+            String identifier = record.get("identifier").asString();
+            crossReferences.addIdentifier(identifier, record.get("dbId").asLong());
+            if (!record.get("stId").isNull()) {
+                crossReferences.addCrossReference(record.get("stId").asString(), record.get("pathwayDbId").asLong(),
+                        identifier, record.get("dbId").asLong(), record.get("order").asInt(0));
+            }
+        }
+        CypherTemplates.consume(CypherTemplates.LOAD_CROSS_REFERENCES, result);
+        LOGGER.info("Loaded {} existing BioModels identifiers cross-referenced by {} pathways",
+                crossReferences.identifierDbIds.size(), crossReferences.pathwayCrossReferences.size());
+        return crossReferences;
+    }
+
+    void addIdentifier(String bioModelsId, long dbId) {
+        identifierDbIds.put(bioModelsId, dbId);
+    }
+
+    void addCrossReference(String pathwayStableId, long pathwayDbId, String bioModelsId, long identifierDbId,
+                           int order) {
+        pathwayDbIds.put(pathwayStableId, pathwayDbId);
+        Map<String, Integer> crossReferences = pathwayCrossReferences.computeIfAbsent(pathwayStableId,
+                k -> new HashMap<>());
+        List<Long> linkedDbIds = pathwayLinkedIdentifierDbIds.computeIfAbsent(pathwayStableId, k -> new HashMap<>())
+                .computeIfAbsent(bioModelsId, k -> new ArrayList<>());
+        Integer keptOrder = crossReferences.get(bioModelsId);
+        if (keptOrder == null || order < keptOrder) {
+            crossReferences.put(bioModelsId, order);
+            linkedDbIds.add(0, identifierDbId);
+        } else {
+            linkedDbIds.add(identifierDbId);
+        }
+    }
+
+    /**
+     * @return BioModels ids of the stored DatabaseIdentifiers and their dbIds
+     */
+    public Map<String, Long> getIdentifierDbIds() {
+        return Collections.unmodifiableMap(identifierDbIds);
+    }
+
+    /**
+     * Builds the rows of the statements deleting or reordering the crossReference relationships of a pathway to a
+     * BioModels id: one row per DatabaseIdentifier of the BioModels id the pathway links to
+     *
+     * @param pathwayStableId Stable id of the pathway
+     * @param pathwayDbId dbId of the pathway
+     * @param bioModelsId BioModels id of the cross-reference
+     * @param order Order to set (ignored by the deletion)
+     * @return Rows of 'fromDbId' (the pathway), 'toDbId' (the DatabaseIdentifier) and 'order'; empty if the pathway
+     * does not link to the BioModels id
+     */
+    public List<Map<String, Object>> crossReferenceRows(String pathwayStableId, long pathwayDbId, String bioModelsId,
+                                                        int order) {
+        List<Long> linkedDbIds = pathwayLinkedIdentifierDbIds
+                .getOrDefault(pathwayStableId, Collections.emptyMap())
+                .getOrDefault(bioModelsId, Collections.emptyList());
+        List<Map<String, Object>> rows = new ArrayList<>(linkedDbIds.size());
+        for (long identifierDbId : linkedDbIds) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("fromDbId", pathwayDbId);
+            row.put("toDbId", identifierDbId);
+            row.put("order", order);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * Builds the rows of the statement reordering the crossReference of a pathway to a BioModels id: only the kept
+     * link is renumbered, so the duplicates (see {@link #duplicateCrossReferenceRows}) never share its order
+     *
+     * @param pathwayStableId Stable id of the pathway
+     * @param pathwayDbId dbId of the pathway
+     * @param bioModelsId BioModels id of the cross-reference
+     * @param order Order to set
+     * @return A row of 'fromDbId' (the pathway), 'toDbId' (the DatabaseIdentifier) and 'order'; empty if the pathway
+     * does not link to the BioModels id
+     */
+    public List<Map<String, Object>> keptCrossReferenceRows(String pathwayStableId, long pathwayDbId,
+                                                            String bioModelsId, int order) {
+        List<Map<String, Object>> rows = crossReferenceRows(pathwayStableId, pathwayDbId, bioModelsId, order);
+        return rows.isEmpty() ? rows : rows.subList(0, 1);
+    }
+
+    /**
+     * Builds the rows of the statement deleting the duplicate links of a pathway to a BioModels id, i.e. all but the
+     * one with the lowest order
+     *
+     * @param pathwayStableId Stable id of the pathway
+     * @param pathwayDbId dbId of the pathway
+     * @param bioModelsId BioModels id of the cross-reference
+     * @return Rows of 'fromDbId' (the pathway) and 'toDbId' (the duplicate DatabaseIdentifier)
+     */
+    public List<Map<String, Object>> duplicateCrossReferenceRows(String pathwayStableId, long pathwayDbId,
+                                                                 String bioModelsId) {
+        List<Map<String, Object>> rows = crossReferenceRows(pathwayStableId, pathwayDbId, bioModelsId, 0);
+        return rows.size() > 1 ? rows.subList(1, rows.size()) : Collections.emptyList();
+    }
+
+    /**
+     * @param pathwayStableId Stable id of the pathway
+     * @return BioModels ids the pathway links to through more than one DatabaseIdentifier
+     */
+    public Set<String> getDuplicatedBioModelsIds(String pathwayStableId) {
+        Set<String> duplicatedBioModelsIds = new LinkedHashSet<>();
+        for (Map.Entry<String, List<Long>> linked :
+                pathwayLinkedIdentifierDbIds.getOrDefault(pathwayStableId, Collections.emptyMap()).entrySet()) {
+            if (linked.getValue().size() > 1) {
+                duplicatedBioModelsIds.add(linked.getKey());
+            }
+        }
+        return duplicatedBioModelsIds;
+    }
+
+    /**
+     * @return Stable ids of the pathways with at least one BioModels cross-reference
+     */
+    public Set<String> getPathwayStableIds() {
+        return Collections.unmodifiableSet(pathwayCrossReferences.keySet());
+    }
+
+    /**
+     * @param pathwayStableId Stable id of the pathway
+     * @return dbId of the pathway, or null if it has no BioModels cross-reference
+     */
+    public Long getPathwayDbId(String pathwayStableId) {
+        return pathwayDbIds.get(pathwayStableId);
+    }
+
+    /**
+     * Returns the BioModels ids cross-referenced by the pathway with the order of their relationship, sorted by order
+     *
+     * @param pathwayStableId Stable id of the pathway
+     * @return Map of BioModels ids to the order of their crossReference (empty if there is none)
+     */
+    public Map<String, Integer> getCrossReferences(String pathwayStableId) {
+        Map<String, Integer> crossReferences = pathwayCrossReferences.get(pathwayStableId);
+        if (crossReferences == null) {
+            return Collections.emptyMap();
+        }
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(crossReferences.entrySet());
+        entries.sort(Map.Entry.comparingByValue());
+
+        Map<String, Integer> sortedCrossReferences = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : entries) {
+            sortedCrossReferences.put(entry.getKey(), entry.getValue());
+        }
+        return sortedCrossReferences;
+    }
+}
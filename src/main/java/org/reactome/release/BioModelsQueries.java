@@ -0,0 +1,65 @@
+package org.reactome.release;
+
+import org.neo4j.driver.QueryRunner;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Runs the read statements of the BioModels insertion, on a blocking transaction ({@link #of}) or on the
+ * asynchronous transaction of a {@link PipelinedBioModelsWriter}.  The look-ups of the insertion (the maximal dbId,
+ * the Person, the BioModels database instance and the pathways) are written once against this interface, whichever
+ * transaction runs them.
+ */
+interface BioModelsQueries {
+
+    /**
+     * Runs a statement returning at most one record
+     *
+     * @param statement Statement of the registry
+     * @param parameters Parameters of the statement (none if empty)
+     * @return The record of the result, or null if the result is empty
+     */
+    Record single(String statement, Map<String, Object> parameters);
+
+    /**
+     * Runs a statement and hands on each record of its result
+     *
+     * @param statement Statement of the registry
+     * @param parameters Parameters of the statement (none if empty)
+     * @param consumer Receives each record, in the order of the result
+     */
+    void forEach(String statement, Map<String, Object> parameters, Consumer<Record> consumer);
+
+    /**
+     * @param runner Neo4j Driver Transaction (or other QueryRunner)
+     * @return Queries run on the runner, each record handed on as the result streams in
+     */
+    static BioModelsQueries of(QueryRunner runner) {
+        return new BioModelsQueries() {
+            @Override
+            public Record single(String statement, Map<String, Object> parameters) {
+                Result result = run(statement, parameters);
+                Record record = result.hasNext() ? result.single() : null;
+                CypherTemplates.consume(statement, result);
+                return record;
+            }
+
+            @Override
+            public void forEach(String statement, Map<String, Object> parameters, Consumer<Record> consumer) {
+                Result result = run(statement, parameters);
+                while (result.hasNext()) {
+                    consumer.accept(result.next());
+                }
+                CypherTemplates.consume(statement, result);
+            }
+
+            private Result run(String statement, Map<String, Object> parameters) {
+                return parameters.isEmpty() ? CypherTemplates.run(runner, statement)
+                        : CypherTemplates.run(runner, statement, parameters);
+            }
+        };
+    }
+}
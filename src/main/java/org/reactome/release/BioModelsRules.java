@@ -0,0 +1,151 @@
+package org.reactome.release;
+
+import org.gk.model.ReactomeJavaConstants;
+
+import java.util.*;
+
+/**
+ * The nodes and relationships written by the BioModels insertion, through a {@link BioModelsWriter}: their labels,
+ * properties, relationship types and 'order' values.  The client-side insertion modes and the server-side procedure
+ * of the 'procedure' module both write through these methods, so they produce the same graph.  The class only
+ * depends on the JDK (the Reactome schema names are compile-time constants), so it can be loaded inside the database.
+ */
+public final class BioModelsRules {
+    public static final String REFERENCE_DATABASE_NAME = "BioModels Database";
+    public static final String INSTANCE_EDIT_NOTE = "BioModels reference database creation";
+    public static final String UPDATE_INSTANCE_EDIT_NOTE = "BioModels reference database update";
+
+    private BioModelsRules() { }
+
+    /**
+     * @param dbId dbId of the new BioModels database instance
+     * @return Properties of a new BioModels database instance
+     */
+    public static HashMap<String, Object> referenceDatabaseProperties(long dbId) {
+        HashMap<String, Object> props = new HashMap<>();
+        props.put(ReactomeJavaConstants.accessUrl, "https://www.ebi.ac.uk/biomodels/###ID###");
+        props.put(BioModelsUtilities.DBID, dbId);
+        props.put(BioModelsUtilities.DISPLAY_NAME, REFERENCE_DATABASE_NAME);
+        props.put(ReactomeJavaConstants.name, Arrays.asList(REFERENCE_DATABASE_NAME, "BioModels"));
+        props.put(BioModelsUtilities.SCHEMA_CLASS, ReactomeJavaConstants.ReferenceDatabase);
+        props.put(ReactomeJavaConstants.url, "https://www.ebi.ac.uk/biomodels/");
+        return props;
+    }
+
+    /**
+     * @param personSurname Surname of the person running the insertion
+     * @param personFirstname First name of the person running the insertion
+     * @param dbId dbId of the new instance edit
+     * @param note Note of the instance edit
+     * @param dateTime Date and time of the instance edit (see {@link #dateTime} and {@link #calendar})
+     * @return Properties of a new instance edit
+     */
+    public static HashMap<String, Object> instanceEditProperties(String personSurname, String personFirstname,
+                                                                 long dbId, String note, String dateTime) {
+        String date = dateTime.split(" ")[0];
+        HashMap<String, Object> props = new HashMap<>();
+        props.put(ReactomeJavaConstants.dateTime, dateTime);
+        props.put(BioModelsUtilities.DBID, dbId);
+        props.put(BioModelsUtilities.DISPLAY_NAME, personSurname + ", " + personFirstname + ", " + date);
+        props.put(ReactomeJavaConstants.note, note);
+        props.put(BioModelsUtilities.SCHEMA_CLASS, ReactomeJavaConstants.InstanceEdit);
+        return props;
+    }
+
+    /**
+     * The calendar of the instance edits, in the GMT time zone of GKApplicationUtilities.getCalendar used by the
+     * curator tool, so the client-side insertion and the procedure stamp the same time whatever the JVM's time zone.
+     *
+     * @return Calendar set to the current date and time
+     */
+    public static Calendar calendar() {
+        return Calendar.getInstance(TimeZone.getTimeZone("GMT"));
+    }
+
+    /**
+     * Formats a date and time as yyyy-MM-dd HH:mm:ss.  The month is the 0-based Calendar month, as it always was in
+     * the dateTime of the instance edits of this step.
+     *
+     * @param calendar Date and time to format
+     * @return The formatted date and time
+     */
+    public static String dateTime(Calendar calendar) {
+        return String.format(Locale.ROOT, "%d-%02d-%02d %02d:%02d:%02d", calendar.get(Calendar.YEAR),
+                calendar.get(Calendar.MONTH), calendar.get(Calendar.DAY_OF_MONTH),
+                calendar.get(Calendar.HOUR_OF_DAY), calendar.get(Calendar.MINUTE), calendar.get(Calendar.SECOND));
+    }
+
+    /**
+     * Writes an instance edit and its 'author' relationship from the person
+     *
+     * @param writer Writer for the new nodes and relationships
+     * @param personDbId dbId of the person running the insertion
+     * @param instanceEdit Properties of the instance edit (see {@link #instanceEditProperties})
+     */
+    public static void writeInstanceEdit(BioModelsWriter writer, long personDbId, HashMap<String, Object> instanceEdit) {
+        writer.createNode(Collections.singletonList(ReactomeJavaConstants.InstanceEdit), instanceEdit);
+        writer.createRelationship(personDbId, (Long) instanceEdit.get(BioModelsUtilities.DBID),
+                ReactomeJavaConstants.author, 0, 1);
+    }
+
+    /**
+     * Writes a new BioModels database instance, created by the instance edit
+     *
+     * @param writer Writer for the new nodes and relationships
+     * @param instanceEditDbId dbId of the instance edit of the insertion
+     * @param dbId dbId of the new BioModels database instance
+     * @return Properties of the new BioModels database instance
+     */
+    public static HashMap<String, Object> writeReferenceDatabase(BioModelsWriter writer, long instanceEditDbId,
+                                                                 long dbId) {
+        HashMap<String, Object> referenceDatabase = referenceDatabaseProperties(dbId);
+        writer.createNode(Collections.singletonList(ReactomeJavaConstants.ReferenceDatabase), referenceDatabase);
+        writer.createRelationship(instanceEditDbId, dbId, ReactomeJavaConstants.created, 0, 1);
+        return referenceDatabase;
+    }
+
+    /**
+     * Writes the DatabaseIdentifier of a BioModels id, created by the instance edit and pointing to the BioModels
+     * database instance
+     *
+     * @param writer Writer for the new nodes and relationships
+     * @param bioModelsId BioModels id
+     * @param dbId dbId of the new DatabaseIdentifier
+     * @param instanceEditDbId dbId of the instance edit of the insertion
+     * @param referenceDatabaseDbId dbId of the BioModels database instance
+     * @param databaseName Display name of the BioModels database instance
+     * @param referenceDatabaseUrl URL of the BioModels database instance, to which the BioModels id is appended
+     */
+    public static void writeDatabaseIdentifier(BioModelsWriter writer, String bioModelsId, long dbId,
+                                               long instanceEditDbId, long referenceDatabaseDbId, String databaseName,
+                                               String referenceDatabaseUrl) {
+        HashMap<String, Object> props = new HashMap<>();
+        props.put(BioModelsUtilities.DATABASE_NAME, databaseName);
+        props.put(BioModelsUtilities.DBID, dbId);
+        props.put(BioModelsUtilities.DISPLAY_NAME, databaseName + ":" + bioModelsId);
+        props.put(ReactomeJavaConstants.identifier, bioModelsId);
+        props.put(BioModelsUtilities.SCHEMA_CLASS, ReactomeJavaConstants.DatabaseIdentifier);
+        props.put(ReactomeJavaConstants.url, referenceDatabaseUrl + bioModelsId);
+
+        writer.createNode(Collections.singletonList(ReactomeJavaConstants.DatabaseIdentifier), props);
+        writer.createRelationship(instanceEditDbId, dbId, ReactomeJavaConstants.created, 0, 1);
+        writer.createRelationship(dbId, referenceDatabaseDbId, ReactomeJavaConstants.referenceDatabase, 0, 1);
+    }
+
+    /**
+     * Writes the crossReference relationships of a pathway, whose 'order' is the position of the DatabaseIdentifier
+     * in the list, and the 'modified' relationship from the instance edit
+     *
+     * @param writer Writer for the new nodes and relationships
+     * @param pathwayDbId dbId of the pathway
+     * @param identifierDbIds dbIds of the DatabaseIdentifiers of the pathway's BioModels ids, in their order
+     * @param instanceEditDbId dbId of the instance edit of the insertion
+     */
+    public static void writeCrossReferences(BioModelsWriter writer, long pathwayDbId, List<Long> identifierDbIds,
+                                            long instanceEditDbId) {
+        for (int i = 0; i < identifierDbIds.size(); i++) {
+            writer.createRelationship(pathwayDbId, identifierDbIds.get(i), ReactomeJavaConstants.crossReference, i, 1);
+        }
+        writer.createRelationship(instanceEditDbId, pathwayDbId, ReactomeJavaConstants.modified, 0, 1);
+    }
+}
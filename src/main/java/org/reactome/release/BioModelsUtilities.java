@@ -2,8 +2,6 @@ package org.reactome.release;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.gk.model.ReactomeJavaConstants;
-import org.gk.util.GKApplicationUtilities;
 import org.neo4j.driver.*;
 import org.neo4j.driver.exceptions.Neo4jException;
 import org.neo4j.driver.exceptions.NoSuchRecordException;
@@ -15,8 +13,6 @@ import java.util.*;
 public final class BioModelsUtilities {
 
     private static final Logger LOGGER = LogManager.getLogger();
-    private static final int EXIT_FAILURE = 1;
-    public static Long maxDbId;
     public static final String DATABASE_NAME = "databaseName";
     public static final String DBID = "dbId";
     public static final String STID = "stId";
@@ -32,17 +28,36 @@ public final class BioModelsUtilities {
      *
      * @param tx           Neo4j Driver Transaction
      * @param instanceEdit Node connecting user to modifications completed by this step.
+     * @param dbIdAllocator Source of the dbId for a new reference database
      * @return The BioModels database instance
      */
-    public static Node fetchBioModelsReferenceDatabase(Transaction tx, Node instanceEdit) {
-        LOGGER.info("Attempting to fetch an existing BioModels reference database");
-        Node biomodelsReferenceDatabase = retrieveBioModelsDatabaseInstance(tx);
+    public static Node fetchBioModelsReferenceDatabase(Transaction tx, Node instanceEdit, DbIdAllocator dbIdAllocator) {
+        return fetchBioModelsReferenceDatabase(BioModelsQueries.of(tx), new SingleStatementBioModelsWriter(tx),
+                instanceEdit.get(DBID).asLong(), dbIdAllocator);
+    }
 
-        if (biomodelsReferenceDatabase == null) {
-            LOGGER.info("Creating BioModels reference database - no existing one was found");
-            biomodelsReferenceDatabase = createBioModelsDatabaseInstance(tx, instanceEdit);
+    /**
+     * Attempts to find a 'BioModels Database' instance in the database. If there isn't one, it is created.
+     *
+     * @param queries Queries of the transaction
+     * @param writer Writer for a new reference database, on the same transaction
+     * @param instanceEditDbId dbId of the instance edit connecting user to modifications completed by this step
+     * @param dbIdAllocator Source of the dbId for a new reference database
+     * @return The BioModels database instance
+     */
+    static Node fetchBioModelsReferenceDatabase(BioModelsQueries queries, BioModelsWriter writer,
+                                                long instanceEditDbId, DbIdAllocator dbIdAllocator) {
+        try (RunMetrics.Phase phase = RunMetrics.startPhase("fetchBioModelsReferenceDatabase")) {
+            LOGGER.info("Attempting to fetch an existing BioModels reference database");
+            Node biomodelsReferenceDatabase = retrieveBioModelsDatabaseInstance(queries);
+
+            if (biomodelsReferenceDatabase == null) {
+                LOGGER.info("Creating BioModels reference database - no existing one was found");
+                biomodelsReferenceDatabase = createBioModelsDatabaseInstance(queries, writer, instanceEditDbId,
+                        dbIdAllocator);
+            }
+            return biomodelsReferenceDatabase;
         }
-        return biomodelsReferenceDatabase;
     }
 
     /**
@@ -52,11 +67,20 @@ public final class BioModelsUtilities {
      * @return The BioModels database instance, if found; otherwise, null.
      */
     public static Node retrieveBioModelsDatabaseInstance(Transaction tx) {
+        return retrieveBioModelsDatabaseInstance(BioModelsQueries.of(tx));
+    }
+
+    /**
+     * Attempts to find the BioModels database instance.
+     *
+     * @param queries Queries of the transaction
+     * @return The BioModels database instance, if found; otherwise, null.
+     */
+    static Node retrieveBioModelsDatabaseInstance(BioModelsQueries queries) {
         Node biomodelsReferenceDatabase = null;
         try {
-            Result result = tx.run("MATCH (n:DatabaseObject:ReferenceDatabase) WHERE 'BioModels' IN n.name RETURN n");
-            if (result.hasNext()) {
-                Record record = result.single();
+            Record record = queries.single(CypherTemplates.BIOMODELS_REFERENCE_DATABASE, Collections.emptyMap());
+            if (record != null) {
                 biomodelsReferenceDatabase = record.get("n").asNode();
             }
         } catch (Neo4jException e) {
@@ -68,35 +92,37 @@ public final class BioModelsUtilities {
     /**
      * Creates BioModels database instance.
      *
-     * @param tx           Neo4j Driver Transaction
-     * @param instanceEdit Node connecting user to modifications completed by this step.
+     * @param queries Queries of the transaction
+     * @param writer Writer for the reference database, on the same transaction
+     * @param instanceEditDbId dbId of the instance edit connecting user to modifications completed by this step
+     * @param dbIdAllocator Source of the dbId for the reference database
      * @return The BioModels database instance
      */
-    private static Node createBioModelsDatabaseInstance(Transaction tx, Node instanceEdit) {
+    private static Node createBioModelsDatabaseInstance(BioModelsQueries queries, BioModelsWriter writer,
+                                                        long instanceEditDbId, DbIdAllocator dbIdAllocator) {
         Node biomodelsReferenceDatabase = null;
 
         try {
-            String bioModelsDatabaseName = "BioModels Database";
-
-            HashMap<String, Object> props = new HashMap<>();
-            props.put(ReactomeJavaConstants.accessUrl, "https://www.ebi.ac.uk/biomodels/###ID###");
-            props.put(DBID, maxDbId + 1);
-            props.put(DISPLAY_NAME, bioModelsDatabaseName);
-            props.put(ReactomeJavaConstants.name, Arrays.asList(bioModelsDatabaseName, "BioModels"));
-            props.put(SCHEMA_CLASS, ReactomeJavaConstants.ReferenceDatabase);
-            props.put(ReactomeJavaConstants.url, "https://www.ebi.ac.uk/biomodels/");
-
-            biomodelsReferenceDatabase = createNode(tx, Arrays.asList(ReactomeJavaConstants.ReferenceDatabase), props);
-            createRelationship(tx, instanceEdit, biomodelsReferenceDatabase, ReactomeJavaConstants.created, 0, 1);
+            long dbId = dbIdAllocator.next();
+            BioModelsRules.writeReferenceDatabase(writer, instanceEditDbId, dbId);
+            biomodelsReferenceDatabase = getNodeByDbId(queries, dbId);
         } catch (Exception e) {
-            LOGGER.error("Unable to create BioModels reference database", e);
-            System.exit(EXIT_FAILURE);
+            // Rethrown rather than exiting, so a transient error of either transaction is retried
+            logAndThrow("Unable to create BioModels reference database", e);
         }
         LOGGER.info("Successfully created BioModels reference database with db id of {}", biomodelsReferenceDatabase.get(DBID));
 
         return biomodelsReferenceDatabase;
     }
 
+    /**
+     * @param dbId dbId of the new BioModels database instance
+     * @return Properties of a new BioModels database instance
+     */
+    static HashMap<String, Object> bioModelsDatabaseProperties(long dbId) {
+        return BioModelsRules.referenceDatabaseProperties(dbId);
+    }
+
     /**
      * Retrieves a DatabaseObject from the db by its dbId
      *
@@ -105,13 +131,42 @@ public final class BioModelsUtilities {
      * @return The DatabaseObject
      */
     public static Node getNodeByDbId(Transaction tx, long dbId) {
-        String query = "MATCH (n:DatabaseObject {dbId: $nodeId}) RETURN n";
         Value parameters = Values.parameters("nodeId", dbId);
-        Result result = tx.run(query, parameters);
+        Result result = CypherTemplates.run(tx, CypherTemplates.NODE_BY_DBID, parameters);
         Record record = result.single();
+        CypherTemplates.consume(CypherTemplates.NODE_BY_DBID, result);
         return record.get("n").asNode();
     }
 
+    /**
+     * Retrieves a DatabaseObject from the db by its dbId
+     *
+     * @param queries Queries of the transaction
+     * @param dbId dbId of the node to retrieve
+     * @return The DatabaseObject, or null if there is none with the dbId
+     */
+    static Node getNodeByDbId(BioModelsQueries queries, long dbId) {
+        Record record = queries.single(CypherTemplates.NODE_BY_DBID, Collections.singletonMap("nodeId", dbId));
+        return record != null ? record.get("n").asNode() : null;
+    }
+
+    /**
+     * Retrieves the Person running the insertion by its dbId
+     *
+     * @param queries Queries of the transaction
+     * @param personId dbId of the Person
+     * @return The Person
+     * @throws IllegalStateException Thrown if there is no DatabaseObject with the dbId
+     */
+    static Node getPerson(BioModelsQueries queries, long personId) {
+        Node person = getNodeByDbId(queries, personId);
+        if (person == null) {
+            throw new IllegalStateException("Could not fetch Person entity with ID " + personId +
+                    ". Please check that a Person entity exists in the database with this ID");
+        }
+        return person;
+    }
+
     /**
      * Create a DatabaseObject in the database with specified properties and labels
      *
@@ -121,24 +176,12 @@ public final class BioModelsUtilities {
      * @return The created DatabaseObject
      */
     public static Node createNode(Transaction tx, List<String> labels, HashMap<String, Object> props) {
-        String nodeLabels = String.join(":", labels);
-        String query = "CREATE (n:DatabaseObject:" + nodeLabels + createNodeQuery(props) + ") RETURN n";
-        Result result = tx.run(query, props);
+        String statement = CypherTemplates.node(String.join(":", labels));
+        Result result = CypherTemplates.run(tx, statement, Collections.singletonMap("props", props));
         Record record = result.single();
-        Node node = record.get("n").asNode();
-        maxDbId++;
-        return node;
-    }
-
-    private static String createNodeQuery(HashMap<String, Object> props) {
-        String query = " {";
-        List<String> queryParams = new ArrayList<>();
-        for (String key : props.keySet()) {
-            queryParams.add(key + ": $" + key);
-        }
-        query += String.join(", ", queryParams);
-        query += "}";
-        return query;
+        CypherTemplates.consume(statement, result);
+        RunMetrics.increment(RunMetrics.NODES_CREATED);
+        return record.get("n").asNode();
     }
 
     /**
@@ -152,28 +195,99 @@ public final class BioModelsUtilities {
      * @param stoichiometry    Stoichiometry of the relationship
      */
     public static void createRelationship(Transaction tx, Node from, Node to, String relationshipType, int order, int stoichiometry) {
-        String query = "MATCH (n1:DatabaseObject {dbId: $fromDbId}) " +
-                "MATCH (n2:DatabaseObject {dbId: $toDbId}) " +
-                "CREATE (n1)-[r:" + relationshipType + " {order: $order, stoichiometry: $stoichiometry}]->(n2)";
+        createRelationship(tx, from.get(DBID).asLong(), to.get(DBID).asLong(), relationshipType, order, stoichiometry);
+    }
+
+    /**
+     * Create a relationship between two nodes identified by their dbIds
+     *
+     * @param tx               Neo4j Driver Transaction
+     * @param fromDbId         dbId of the source node
+     * @param toDbId           dbId of the target node
+     * @param relationshipType Type of relationship
+     * @param order            Order of the relationship
+     * @param stoichiometry    Stoichiometry of the relationship
+     */
+    public static void createRelationship(Transaction tx, long fromDbId, long toDbId, String relationshipType,
+                                          int order, int stoichiometry) {
         Value parameters = Values.parameters(
-                "fromDbId", from.get(DBID),
-                "toDbId", to.get(DBID),
+                "fromDbId", fromDbId,
+                "toDbId", toDbId,
                 "order", order,
                 "stoichiometry", stoichiometry);
-        tx.run(query, parameters);
+        String statement = CypherTemplates.relationship(relationshipType);
+        Result result = CypherTemplates.run(tx, statement, parameters);
+        // Without profiling the empty result is left to the transaction rather than waiting for it here
+        if (StatementProfiler.isEnabled()) {
+            CypherTemplates.consume(statement, result);
+        }
+        RunMetrics.increment(RunMetrics.RELATIONSHIPS_CREATED);
+    }
+
+    /**
+     * Deletes crossReference relationships, each given as a row of 'fromDbId' (the pathway) and 'toDbId' (the
+     * DatabaseIdentifier)
+     *
+     * @param tx   Neo4j Driver Transaction
+     * @param rows Relationships to delete
+     */
+    public static void deleteCrossReferences(Transaction tx, List<Map<String, Object>> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        CypherTemplates.consume(CypherTemplates.DELETE_CROSS_REFERENCES,
+                CypherTemplates.run(tx, CypherTemplates.DELETE_CROSS_REFERENCES, Collections.singletonMap("rows", rows)));
+    }
+
+    /**
+     * Sets the order of crossReference relationships, each given as a row of 'fromDbId' (the pathway), 'toDbId' (the
+     * DatabaseIdentifier) and 'order'
+     *
+     * @param tx   Neo4j Driver Transaction
+     * @param rows Relationships to update with their new order
+     */
+    public static void setCrossReferenceOrders(Transaction tx, List<Map<String, Object>> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        CypherTemplates.consume(CypherTemplates.SET_CROSS_REFERENCE_ORDERS,
+                CypherTemplates.run(tx, CypherTemplates.SET_CROSS_REFERENCE_ORDERS, Collections.singletonMap("rows", rows)));
+    }
+
+    /**
+     * Returns the maximal dbId of a DatabaseObject stored in the database.  The query orders by dbId and takes the
+     * first row so the index on DatabaseObject dbId can provide the order, rather than aggregating over every node.
+     *
+     * @param tx Neo4j Driver Transaction
+     * @return The maximal dbId (0 if there is no DatabaseObject)
+     */
+    public static long getMaxDbId(Transaction tx) {
+        return getMaxDbId(BioModelsQueries.of(tx));
     }
 
     /**
      * Returns the maximal dbId of a DatabaseObject stored in the database
      *
+     * @param queries Queries of the transaction
+     * @return The maximal dbId (0 if there is no DatabaseObject)
+     */
+    static long getMaxDbId(BioModelsQueries queries) {
+        try (RunMetrics.Phase phase = RunMetrics.startPhase("getMaxDbId")) {
+            Record record = queries.single(CypherTemplates.MAX_DBID, Collections.emptyMap());
+            long maxDbId = record != null ? record.get("maxDbId").asLong() : 0L;
+            LOGGER.info("Allocating dbIds above {}", maxDbId);
+            return maxDbId;
+        }
+    }
+
+    /**
+     * Creates an allocator handing out dbIds above the maximal dbId stored in the database
+     *
      * @param tx Neo4j Driver Transaction
-     * @return The maximal dbId
+     * @return The allocator
      */
-    public static Long getMaxDbId(Transaction tx) {
-        String query = "MATCH (n:DatabaseObject) RETURN max(n.dbId) AS maxDbId";
-        Result result = tx.run(query);
-        Record record = result.single();
-        return record.get("maxDbId").asLong();
+    public static DbIdAllocator newDbIdAllocator(Transaction tx) {
+        return new DbIdAllocator(getMaxDbId(tx));
     }
 
     /**
@@ -181,33 +295,7 @@ public final class BioModelsUtilities {
      * @return The current date and time
      */
     public static String getDateTime() {
-        Calendar calendar = GKApplicationUtilities.getCalendar();
-        StringBuilder buffer = new StringBuilder();
-
-        buffer.append(calendar.get(Calendar.YEAR)).append("-");
-
-        int month = calendar.get(Calendar.MONTH);
-        if (month < 10) buffer.append("0");
-        buffer.append(month).append("-");
-
-        int day = calendar.get(Calendar.DAY_OF_MONTH);
-        if (day < 10) buffer.append("0");
-        buffer.append(day);
-
-        buffer.append(" ");
-        int hour = calendar.get(Calendar.HOUR_OF_DAY);
-        if (hour < 10) buffer.append("0");
-        buffer.append(hour).append(":");
-
-        int minute = calendar.get(Calendar.MINUTE);
-        if (minute < 10) buffer.append("0");
-        buffer.append(minute).append(":");
-
-        int sec = calendar.get(Calendar.SECOND);
-        if (sec < 10) buffer.append("0");
-        buffer.append(sec);
-
-        return buffer.toString();
+        return BioModelsRules.dateTime(BioModelsRules.calendar());
     }
 
     /**
@@ -0,0 +1,36 @@
+package org.reactome.release;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Writes the nodes and relationships created by the BioModels insertion step.  Implementations may send each write
+ * to the database immediately or buffer them, so callers must call {@link #flush()} before committing.
+ */
+public interface BioModelsWriter {
+
+    /**
+     * Create a DatabaseObject with the specified labels and properties.  The properties must include the dbId of
+     * the new node so relationships can refer to it before it is written.
+     *
+     * @param labels Labels for the node (in addition to DatabaseObject)
+     * @param props Properties of the DatabaseObject
+     */
+    void createNode(List<String> labels, HashMap<String, Object> props);
+
+    /**
+     * Create a relationship between two nodes identified by their dbIds
+     *
+     * @param fromDbId         dbId of the source node
+     * @param toDbId           dbId of the target node
+     * @param relationshipType Type of relationship
+     * @param order            Order of the relationship
+     * @param stoichiometry    Stoichiometry of the relationship
+     */
+    void createRelationship(long fromDbId, long toDbId, String relationshipType, int order, int stoichiometry);
+
+    /**
+     * Sends any buffered writes to the database
+     */
+    void flush();
+}
@@ -0,0 +1,109 @@
+package org.reactome.release;
+
+/**
+ * Primitive encodings of the ids of the models2pathways.tsv file.  A canonical BioModels id ('BIOMD' followed by
+ * 10 digits) is encoded as the int value of its digits, and a canonical pathway stable id ('R-', a 3 character
+ * species code, '-' and a number without leading zeros) as a long holding the species code in its top 18 bits and the
+ * number in the lower 45 bits.  Both codes are non-negative; ids which do not have the canonical form (e.g. a
+ * BioModels id with more digits) have no code and must be kept as Strings by the caller.
+ */
+final class CompactIds {
+    static final int NO_CODE = -1;
+    private static final String BIOMODELS_ID_PREFIX = "BIOMD";
+    private static final int BIOMODELS_ID_DIGITS = 10;
+    private static final int SPECIES_CODE_LENGTH = 3;
+    private static final int SPECIES_CHARACTER_BITS = 6;
+    private static final int PATHWAY_NUMBER_BITS = 45;
+    private static final long MAX_PATHWAY_NUMBER = (1L << PATHWAY_NUMBER_BITS) - 1;
+    private static final String WORD_CHARACTERS =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz";
+
+    private CompactIds() { }
+
+    /**
+     * @param bioModelsId BioModels id
+     * @return Code of the id, or NO_CODE if the id does not have the canonical form
+     */
+    static int encodeBioModelsId(String bioModelsId) {
+        if (bioModelsId.length() != BIOMODELS_ID_PREFIX.length() + BIOMODELS_ID_DIGITS ||
+                !bioModelsId.startsWith(BIOMODELS_ID_PREFIX)) {
+            return NO_CODE;
+        }
+        long number = 0;
+        for (int i = BIOMODELS_ID_PREFIX.length(); i < bioModelsId.length(); i++) {
+            char c = bioModelsId.charAt(i);
+            if (c < '0' || c > '9') {
+                return NO_CODE;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number > Integer.MAX_VALUE ? NO_CODE : (int) number;
+    }
+
+    /**
+     * @param code Code returned by {@link #encodeBioModelsId}
+     * @return The BioModels id
+     */
+    static String decodeBioModelsId(int code) {
+        String digits = Integer.toString(code);
+        StringBuilder bioModelsId = new StringBuilder(BIOMODELS_ID_PREFIX.length() + BIOMODELS_ID_DIGITS)
+                .append(BIOMODELS_ID_PREFIX);
+        for (int i = digits.length(); i < BIOMODELS_ID_DIGITS; i++) {
+            bioModelsId.append('0');
+        }
+        return bioModelsId.append(digits).toString();
+    }
+
+    /**
+     * @param pathwayStableId Pathway stable id
+     * @return Code of the stable id, or NO_CODE if the stable id does not have the canonical form
+     */
+    static long encodeStableId(String pathwayStableId) {
+        int numberStart = 2 + SPECIES_CODE_LENGTH + 1;
+        int numberLength = pathwayStableId.length() - numberStart;
+        if (numberLength < 1 || numberLength > 14 || !pathwayStableId.startsWith("R-") ||
+                pathwayStableId.charAt(numberStart - 1) != '-' ||
+                (numberLength > 1 && pathwayStableId.charAt(numberStart) == '0')) {
+            return NO_CODE;
+        }
+        long species = 0;
+        for (int i = 2; i < numberStart - 1; i++) {
+            int character = WORD_CHARACTERS.indexOf(pathwayStableId.charAt(i));
+            if (character < 0) {
+                return NO_CODE;
+            }
+            species = (species << SPECIES_CHARACTER_BITS) | character;
+        }
+        long number = 0;
+        for (int i = numberStart; i < pathwayStableId.length(); i++) {
+            char c = pathwayStableId.charAt(i);
+            if (c < '0' || c > '9') {
+                return NO_CODE;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number > MAX_PATHWAY_NUMBER ? NO_CODE : (species << PATHWAY_NUMBER_BITS) | number;
+    }
+
+    /**
+     * @param code Code returned by {@link #encodeStableId}
+     * @return The pathway stable id
+     */
+    static String decodeStableId(long code) {
+        return "R-" + speciesCode(code) + "-" + (code & MAX_PATHWAY_NUMBER);
+    }
+
+    /**
+     * @param code Code returned by {@link #encodeStableId}
+     * @return The species code of the stable id (e.g. 'HSA')
+     */
+    static String speciesCode(long code) {
+        char[] species = new char[SPECIES_CODE_LENGTH];
+        long characters = code >>> PATHWAY_NUMBER_BITS;
+        for (int i = SPECIES_CODE_LENGTH - 1; i >= 0; i--) {
+            species[i] = WORD_CHARACTERS.charAt((int) (characters & ((1 << SPECIES_CHARACTER_BITS) - 1)));
+            characters >>>= SPECIES_CHARACTER_BITS;
+        }
+        return new String(species);
+    }
+}
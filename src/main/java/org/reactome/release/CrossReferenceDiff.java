@@ -0,0 +1,164 @@
+package org.reactome.release;
+
+import java.util.*;
+
+/**
+ * Difference between the BioModels cross-references of the models2pathways.tsv file and those stored in the
+ * database.  Only pathways of the database whose cross-references change are included.  For each of them, the
+ * cross-references kept come first (in their stored order) followed by the added ones (in file order), and every
+ * crossReference is given its position in that list as order.  A pathway linking to several DatabaseIdentifiers of
+ * one BioModels id (left by reruns of the full insertion) keeps one of the links and its duplicates are removed.
+ */
+public class CrossReferenceDiff {
+    private final Map<String, PathwayChange> pathwayChanges = new LinkedHashMap<>();
+
+    private CrossReferenceDiff() { }
+
+    /**
+     * Compares the parsed models2pathways.tsv file with the stored cross-references
+     *
+     * @param pathwayStableIdToBioModelsIds Map of pathway stable ids to their BioModels ids, from the file
+     * @param databasePathwayStableIds Stable ids of the file found as pathways in the database; the others are skipped,
+     * as no cross-reference can be written for them
+     * @param existing BioModels identifiers and cross-references stored in the database
+     * @param pruneStale If true, stored cross-references which are not in the file are removed
+     * @return The changes needed to bring the database in line with the file
+     */
+    public static CrossReferenceDiff compute(Map<String, Set<String>> pathwayStableIdToBioModelsIds,
+                                             Set<String> databasePathwayStableIds,
+                                             BioModelsCrossReferences existing, boolean pruneStale) {
+        CrossReferenceDiff diff = new CrossReferenceDiff();
+        for (Map.Entry<String, Set<String>> entry : pathwayStableIdToBioModelsIds.entrySet()) {
+            if (!databasePathwayStableIds.contains(entry.getKey())) {
+                continue;
+            }
+            diff.comparePathway(entry.getKey(), entry.getValue(), existing.getCrossReferences(entry.getKey()),
+                    existing.getDuplicatedBioModelsIds(entry.getKey()), pruneStale);
+        }
+        if (pruneStale) {
+            for (String pathwayStableId : existing.getPathwayStableIds()) {
+                if (!pathwayStableIdToBioModelsIds.containsKey(pathwayStableId)) {
+                    diff.comparePathway(pathwayStableId, Collections.emptySet(),
+                            existing.getCrossReferences(pathwayStableId),
+                            existing.getDuplicatedBioModelsIds(pathwayStableId), true);
+                }
+            }
+        }
+        return diff;
+    }
+
+    private void comparePathway(String pathwayStableId, Set<String> bioModelsIds,
+                                Map<String, Integer> existingCrossReferences, Set<String> duplicatedBioModelsIds,
+                                boolean pruneStale) {
+        PathwayChange change = new PathwayChange(pathwayStableId);
+        int order = 0;
+        for (Map.Entry<String, Integer> existingCrossReference : existingCrossReferences.entrySet()) {
+            String bioModelsId = existingCrossReference.getKey();
+            if (pruneStale && !bioModelsIds.contains(bioModelsId)) {
+                change.removed.add(bioModelsId);
+                continue;
+            }
+            if (duplicatedBioModelsIds.contains(bioModelsId)) {
+                change.deduplicated.add(bioModelsId);
+            }
+            if (existingCrossReference.getValue() != order) {
+                change.reordered.put(bioModelsId, order);
+            }
+            order++;
+        }
+        for (String bioModelsId : bioModelsIds) {
+            if (!existingCrossReferences.containsKey(bioModelsId)) {
+                change.added.put(bioModelsId, order++);
+            }
+        }
+
+        if (!change.added.isEmpty() || !change.removed.isEmpty() || !change.deduplicated.isEmpty()) {
+            pathwayChanges.put(pathwayStableId, change);
+        }
+    }
+
+    /**
+     * @return The changes of each changed pathway
+     */
+    public Collection<PathwayChange> getPathwayChanges() {
+        return Collections.unmodifiableCollection(pathwayChanges.values());
+    }
+
+    /**
+     * @return true if the stored cross-references are the same as those of the file
+     */
+    public boolean isEmpty() {
+        return pathwayChanges.isEmpty();
+    }
+
+    public int getAddedCount() {
+        int addedCount = 0;
+        for (PathwayChange change : pathwayChanges.values()) {
+            addedCount += change.added.size();
+        }
+        return addedCount;
+    }
+
+    public int getRemovedCount() {
+        int removedCount = 0;
+        for (PathwayChange change : pathwayChanges.values()) {
+            removedCount += change.removed.size();
+        }
+        return removedCount;
+    }
+
+    public int getDeduplicatedCount() {
+        int deduplicatedCount = 0;
+        for (PathwayChange change : pathwayChanges.values()) {
+            deduplicatedCount += change.deduplicated.size();
+        }
+        return deduplicatedCount;
+    }
+
+    /**
+     * Changes to the BioModels cross-references of one pathway
+     */
+    public static final class PathwayChange {
+        private final String pathwayStableId;
+        private final Map<String, Integer> added = new LinkedHashMap<>();
+        private final List<String> removed = new ArrayList<>();
+        private final Map<String, Integer> reordered = new LinkedHashMap<>();
+        private final List<String> deduplicated = new ArrayList<>();
+
+        PathwayChange(String pathwayStableId) {
+            this.pathwayStableId = pathwayStableId;
+        }
+
+        public String getPathwayStableId() {
+            return pathwayStableId;
+        }
+
+        /**
+         * @return BioModels ids to cross-reference, in file order, with the order of their new crossReference
+         */
+        public Map<String, Integer> getAdded() {
+            return Collections.unmodifiableMap(added);
+        }
+
+        /**
+         * @return BioModels ids whose crossReference is removed
+         */
+        public List<String> getRemoved() {
+            return Collections.unmodifiableList(removed);
+        }
+
+        /**
+         * @return BioModels ids whose kept crossReference gets a new order, with that order
+         */
+        public Map<String, Integer> getReordered() {
+            return Collections.unmodifiableMap(reordered);
+        }
+
+        /**
+         * @return Kept BioModels ids whose duplicate links are removed
+         */
+        public List<String> getDeduplicated() {
+            return Collections.unmodifiableList(deduplicated);
+        }
+    }
+}
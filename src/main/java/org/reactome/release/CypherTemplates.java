@@ -0,0 +1,319 @@
+package org.reactome.release;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.gk.model.ReactomeJavaConstants;
+import org.neo4j.driver.QueryRunner;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.async.AsyncQueryRunner;
+import org.neo4j.driver.async.ResultCursor;
+import org.neo4j.driver.summary.ResultSummary;
+
+import java.util.*;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of the Cypher statements sent by the BioModels insertion.  Every statement is fully parameterized, so its
+ * text only depends on the schema class of the nodes or the type of the relationships it writes and the server can
+ * reuse its cached plan.  Node properties are passed as one map parameter, so the text does not depend on the
+ * properties or their iteration order.  All statements are run through {@link #run}, which counts how often each
+ * distinct statement text was sent and records its latency in the {@link RunMetrics} under the statement name.
+ * Results are finished with {@link #consume} so their summaries reach the {@link StatementProfiler} in profiling mode.
+ */
+public final class CypherTemplates {
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    static final String NODE_BY_DBID = "MATCH (n:DatabaseObject {dbId: $nodeId}) RETURN n";
+    public static final String MAX_DBID = "MATCH (n:DatabaseObject) WHERE n.dbId IS NOT NULL " +
+            "RETURN n.dbId AS maxDbId ORDER BY n.dbId DESC LIMIT 1";
+    public static final String BIOMODELS_REFERENCE_DATABASE =
+            "MATCH (n:DatabaseObject:ReferenceDatabase) WHERE 'BioModels' IN n.name RETURN n";
+    static final String PATHWAYS_BY_STABLE_ID =
+            "MATCH (p:DatabaseObject:Pathway) WHERE p.stId IN $pathwayStableIds " +
+            "RETURN p.dbId AS dbId, p.stId AS stId, p.displayName AS displayName";
+    static final String IDENTIFIERS_CREATED_BY_INSTANCE_EDIT =
+            "MATCH (:DatabaseObject {dbId: $instanceEditDbId})-[:created]->(di:DatabaseIdentifier) " +
+            "RETURN di.identifier AS identifier, di.dbId AS dbId";
+    static final String PATHWAYS_MODIFIED_BY_INSTANCE_EDIT =
+            "MATCH (:DatabaseObject {dbId: $instanceEditDbId})-[:modified]->(p:Pathway) RETURN p.stId AS stId";
+    static final String LOAD_CROSS_REFERENCES = "MATCH (:DatabaseObject {dbId: $referenceDatabaseDbId})" +
+            "<-[:referenceDatabase]-(di:DatabaseObject:DatabaseIdentifier) " +
+            "OPTIONAL MATCH (p:DatabaseObject:Pathway)-[r:crossReference]->(di) " +
+            "RETURN di.identifier AS identifier, di.dbId AS dbId, " +
+            "p.stId AS stId, p.dbId AS pathwayDbId, r.order AS order";
+    static final String DELETE_CROSS_REFERENCES = "UNWIND $rows AS row " +
+            "MATCH (:DatabaseObject {dbId: row.fromDbId})-[r:" + ReactomeJavaConstants.crossReference + "]->" +
+            "(:DatabaseObject {dbId: row.toDbId}) " +
+            "DELETE r";
+    static final String SET_CROSS_REFERENCE_ORDERS = "UNWIND $rows AS row " +
+            "MATCH (:DatabaseObject {dbId: row.fromDbId})-[r:" + ReactomeJavaConstants.crossReference + "]->" +
+            "(:DatabaseObject {dbId: row.toDbId}) " +
+            "SET r.order = row.order";
+    static final String INSERT_PROCEDURE = "CALL reactome.biomodels.insert($rows, $personId)";
+    static final String VERIFY_CROSS_REFERENCES = "MATCH (:DatabaseObject {dbId: $referenceDatabaseDbId})" +
+            "<-[:referenceDatabase]-(:DatabaseObject:DatabaseIdentifier)" +
+            "<-[r:" + ReactomeJavaConstants.crossReference + "]-(p:DatabaseObject:Pathway) " +
+            "RETURN p.stId AS stId, count(r) AS crossReferences, min(r.order) AS minOrder, " +
+            "max(r.order) AS maxOrder, count(DISTINCT r.order) AS distinctOrders";
+    static final String VERIFY_REFERENCE_DATABASE_LINKS =
+            "MATCH (di:DatabaseObject:DatabaseIdentifier {databaseName: $databaseName}) " +
+            "OPTIONAL MATCH (di)-[:referenceDatabase]->(rd:DatabaseObject) " +
+            "WITH di, count(rd) AS referenceDatabases " +
+            "RETURN count(di) AS checked, sum(CASE WHEN referenceDatabases <> 1 THEN 1 ELSE 0 END) AS violations, " +
+            "collect(CASE WHEN referenceDatabases <> 1 THEN di.identifier END)[..$maxExamples] AS examples";
+    static final String VERIFY_DUPLICATE_IDENTIFIERS =
+            "MATCH (di:DatabaseObject:DatabaseIdentifier {databaseName: $databaseName}) " +
+            "WITH di.identifier AS identifier, count(di) AS copies " +
+            "RETURN count(identifier) AS checked, sum(CASE WHEN copies > 1 THEN 1 ELSE 0 END) AS violations, " +
+            "collect(CASE WHEN copies > 1 THEN identifier END)[..$maxExamples] AS examples";
+    static final String VERIFY_UNIQUE_DBIDS =
+            "MATCH (di:DatabaseObject:DatabaseIdentifier {databaseName: $databaseName}) " +
+            "OPTIONAL MATCH (ie:DatabaseObject:InstanceEdit)-[:created]->(di) " +
+            "WITH collect(DISTINCT di.dbId) + collect(DISTINCT ie.dbId) + [$referenceDatabaseDbId] AS dbIds " +
+            "UNWIND dbIds AS dbId " +
+            "MATCH (n:DatabaseObject {dbId: dbId}) " +
+            "WITH dbId, count(n) AS nodes " +
+            "RETURN count(dbId) AS checked, sum(CASE WHEN nodes > 1 THEN 1 ELSE 0 END) AS violations, " +
+            "collect(CASE WHEN nodes > 1 THEN dbId END)[..$maxExamples] AS examples";
+
+    private static final Map<String, String> NODE_TEMPLATES = new ConcurrentHashMap<>();
+    private static final Map<String, String> NODE_BATCH_TEMPLATES = new ConcurrentHashMap<>();
+    private static final Map<String, String> RELATIONSHIP_TEMPLATES = new ConcurrentHashMap<>();
+    private static final Map<String, String> RELATIONSHIP_BATCH_TEMPLATES = new ConcurrentHashMap<>();
+    private static final Map<String, LongAdder> STATEMENT_COUNTS = new ConcurrentHashMap<>();
+    private static final Map<String, String> STATEMENT_NAMES = new ConcurrentHashMap<>();
+
+    static {
+        STATEMENT_NAMES.put(NODE_BY_DBID, "nodeByDbId");
+        STATEMENT_NAMES.put(MAX_DBID, "maxDbId");
+        STATEMENT_NAMES.put(BIOMODELS_REFERENCE_DATABASE, "bioModelsReferenceDatabase");
+        STATEMENT_NAMES.put(PATHWAYS_BY_STABLE_ID, "pathwaysByStableId");
+        STATEMENT_NAMES.put(IDENTIFIERS_CREATED_BY_INSTANCE_EDIT, "identifiersCreatedByInstanceEdit");
+        STATEMENT_NAMES.put(PATHWAYS_MODIFIED_BY_INSTANCE_EDIT, "pathwaysModifiedByInstanceEdit");
+        STATEMENT_NAMES.put(LOAD_CROSS_REFERENCES, "loadCrossReferences");
+        STATEMENT_NAMES.put(DELETE_CROSS_REFERENCES, "deleteCrossReferences");
+        STATEMENT_NAMES.put(SET_CROSS_REFERENCE_ORDERS, "setCrossReferenceOrders");
+        STATEMENT_NAMES.put(INSERT_PROCEDURE, "insertProcedure");
+        STATEMENT_NAMES.put(VERIFY_CROSS_REFERENCES, "verifyCrossReferences");
+        STATEMENT_NAMES.put(VERIFY_REFERENCE_DATABASE_LINKS, "verifyReferenceDatabaseLinks");
+        STATEMENT_NAMES.put(VERIFY_DUPLICATE_IDENTIFIERS, "verifyDuplicateIdentifiers");
+        STATEMENT_NAMES.put(VERIFY_UNIQUE_DBIDS, "verifyUniqueDbIds");
+    }
+
+    private CypherTemplates() { }
+
+    /**
+     * @param nodeLabels Labels of the node (in addition to DatabaseObject) joined with ':', e.g. its schema class
+     * @return Statement creating one node with the properties of the '$props' map parameter and returning it
+     */
+    public static String node(String nodeLabels) {
+        return NODE_TEMPLATES.computeIfAbsent(nodeLabels,
+                labels -> named("node:" + labels, "CREATE (n:DatabaseObject:" + labels + " $props) RETURN n"));
+    }
+
+    /**
+     * @param nodeLabels Labels of the nodes (in addition to DatabaseObject) joined with ':', e.g. their schema class
+     * @return Statement creating a node for each property map of the '$rows' list parameter
+     */
+    public static String nodeBatch(String nodeLabels) {
+        return NODE_BATCH_TEMPLATES.computeIfAbsent(nodeLabels,
+                labels -> named("nodeBatch:" + labels,
+                        "UNWIND $rows AS row CREATE (n:DatabaseObject:" + labels + ") SET n = row"));
+    }
+
+    /**
+     * @param relationshipType Type of relationship
+     * @return Statement creating one relationship of the type between two nodes identified by their dbIds
+     */
+    public static String relationship(String relationshipType) {
+        return RELATIONSHIP_TEMPLATES.computeIfAbsent(relationshipType,
+                type -> named("relationship:" + type,
+                        "MATCH (n1:DatabaseObject {dbId: $fromDbId}) " +
+                        "MATCH (n2:DatabaseObject {dbId: $toDbId}) " +
+                        "CREATE (n1)-[r:" + type + " {order: $order, stoichiometry: $stoichiometry}]->(n2)"));
+    }
+
+    /**
+     * @param relationshipType Type of relationship
+     * @return Statement creating a relationship of the type for each row of the '$rows' list parameter
+     */
+    public static String relationshipBatch(String relationshipType) {
+        return RELATIONSHIP_BATCH_TEMPLATES.computeIfAbsent(relationshipType,
+                type -> named("relationshipBatch:" + type,
+                        "UNWIND $rows AS row " +
+                        "MATCH (n1:DatabaseObject {dbId: row.fromDbId}) " +
+                        "MATCH (n2:DatabaseObject {dbId: row.toDbId}) " +
+                        "CREATE (n1)-[r:" + type + " {order: row.order, stoichiometry: row.stoichiometry}]->(n2)"));
+    }
+
+    private static String named(String name, String statement) {
+        STATEMENT_NAMES.put(statement, name);
+        return statement;
+    }
+
+    /**
+     * @param statement Statement text
+     * @return Short name of the statement, e.g. 'maxDbId' or 'relationship:crossReference', used in the run metrics
+     * (the statement text itself if it is not in the registry)
+     */
+    public static String nameOf(String statement) {
+        return STATEMENT_NAMES.getOrDefault(statement, statement);
+    }
+
+    /**
+     * Runs a statement without parameters
+     *
+     * @param runner Neo4j Driver Transaction or Session
+     * @param statement Statement of the registry
+     * @return Result of the statement
+     */
+    public static Result run(QueryRunner runner, String statement) {
+        count(statement);
+        String name = nameOf(statement);
+        long start = System.nanoTime();
+        Result result = runner.run(StatementProfiler.textToRun(name, statement));
+        recordLatency(name, System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Runs a statement
+     *
+     * @param runner Neo4j Driver Transaction or Session
+     * @param statement Statement of the registry
+     * @param parameters Parameters of the statement
+     * @return Result of the statement
+     */
+    public static Result run(QueryRunner runner, String statement, Map<String, Object> parameters) {
+        count(statement);
+        String name = nameOf(statement);
+        long start = System.nanoTime();
+        Result result = runner.run(StatementProfiler.textToRun(name, statement), parameters);
+        recordLatency(name, System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Runs a statement
+     *
+     * @param runner Neo4j Driver Transaction or Session
+     * @param statement Statement of the registry
+     * @param parameters Parameters of the statement
+     * @return Result of the statement
+     */
+    public static Result run(QueryRunner runner, String statement, Value parameters) {
+        count(statement);
+        String name = nameOf(statement);
+        long start = System.nanoTime();
+        Result result = runner.run(StatementProfiler.textToRun(name, statement), parameters);
+        recordLatency(name, System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Sends a statement without waiting for it.  The latency recorded is the time until the server answered the
+     * statement, including the time it waited behind statements sent before it.
+     *
+     * @param runner Neo4j Driver AsyncTransaction or AsyncSession
+     * @param statement Statement of the registry
+     * @param parameters Parameters of the statement
+     * @return Stage completing with the cursor of the result
+     */
+    public static CompletionStage<ResultCursor> runAsync(AsyncQueryRunner runner, String statement,
+                                                         Map<String, Object> parameters) {
+        count(statement);
+        String name = nameOf(statement);
+        long start = System.nanoTime();
+        return runner.runAsync(StatementProfiler.textToRun(name, statement), parameters)
+                .whenComplete((cursor, error) -> recordLatency(name, System.nanoTime() - start));
+    }
+
+    /**
+     * Consumes the rest of the result of a statement sent with {@link #runAsync}.  In profiling mode, the summary is
+     * recorded by the {@link StatementProfiler}.
+     *
+     * @param statement Statement of the registry which produced the result
+     * @param cursor Cursor of the result
+     * @return Stage completing with the summary of the result
+     */
+    public static CompletionStage<ResultSummary> consumeAsync(String statement, ResultCursor cursor) {
+        return cursor.consumeAsync().thenApply(summary -> {
+            if (StatementProfiler.isEnabled()) {
+                StatementProfiler.recordSummary(nameOf(statement), summary);
+            }
+            return summary;
+        });
+    }
+
+    /**
+     * Consumes the rest of the result of a statement run through {@link #run}.  In profiling mode, the summary is
+     * recorded by the {@link StatementProfiler}.
+     *
+     * @param statement Statement of the registry which produced the result
+     * @param result Result of the statement
+     * @return Summary of the result
+     */
+    public static ResultSummary consume(String statement, Result result) {
+        if (!StatementProfiler.isEnabled()) {
+            return result.consume();
+        }
+        String name = nameOf(statement);
+        long start = System.nanoTime();
+        ResultSummary summary = result.consume();
+        StatementProfiler.recordClientTime(name, System.nanoTime() - start);
+        StatementProfiler.recordSummary(name, summary);
+        return summary;
+    }
+
+    private static void recordLatency(String name, long nanos) {
+        RunMetrics.recordStatement(name, nanos);
+        if (StatementProfiler.isEnabled()) {
+            StatementProfiler.recordClientTime(name, nanos);
+        }
+    }
+
+    private static void count(String statement) {
+        STATEMENT_COUNTS.computeIfAbsent(statement, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * @return Number of distinct statement texts sent since the start of the run
+     */
+    public static int getDistinctStatementCount() {
+        return STATEMENT_COUNTS.size();
+    }
+
+    /**
+     * @return Number of times each statement text was sent since the start of the run
+     */
+    public static Map<String, Long> getStatementCounts() {
+        Map<String, Long> statementCounts = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : STATEMENT_COUNTS.entrySet()) {
+            statementCounts.put(entry.getKey(), entry.getValue().sum());
+        }
+        return statementCounts;
+    }
+
+    /**
+     * Logs the number of distinct statement texts sent, and how often each was sent at debug level
+     */
+    public static void logStatementCounts() {
+        Map<String, Long> statementCounts = getStatementCounts();
+        long total = 0;
+        for (Map.Entry<String, Long> entry : statementCounts.entrySet()) {
+            LOGGER.debug("{} x {}", entry.getValue(), entry.getKey());
+            total += entry.getValue();
+        }
+        LOGGER.info("Sent {} statements using {} distinct statement texts", total, statementCounts.size());
+    }
+
+    /**
+     * Clears the statement counts
+     */
+    static void resetStatementCounts() {
+        STATEMENT_COUNTS.clear();
+    }
+}
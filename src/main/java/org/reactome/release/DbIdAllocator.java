@@ -0,0 +1,48 @@
+package org.reactome.release;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe source of dbIds for new DatabaseObjects.  Single dbIds or contiguous blocks of dbIds are handed out
+ * above the maximal dbId found when the allocator was created, so writers sharing an allocator never receive the
+ * same dbId.
+ */
+public class DbIdAllocator {
+    private final AtomicLong lastAllocatedDbId;
+
+    /**
+     * Creates an allocator handing out dbIds above maxDbId
+     *
+     * @param maxDbId The maximal dbId already in use
+     */
+    public DbIdAllocator(long maxDbId) {
+        this.lastAllocatedDbId = new AtomicLong(maxDbId);
+    }
+
+    /**
+     * @return The next unused dbId
+     */
+    public long next() {
+        return lastAllocatedDbId.incrementAndGet();
+    }
+
+    /**
+     * Reserves a block of contiguous dbIds
+     *
+     * @param count Number of dbIds to reserve
+     * @return The first dbId of the block; the block ends at (first dbId + count - 1)
+     */
+    public long reserve(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Number of dbIds to reserve must be positive: " + count);
+        }
+        return lastAllocatedDbId.getAndAdd(count) + 1;
+    }
+
+    /**
+     * @return The last dbId handed out (or the initial maximal dbId if none has been)
+     */
+    public long getLastAllocatedDbId() {
+        return lastAllocatedDbId.get();
+    }
+}
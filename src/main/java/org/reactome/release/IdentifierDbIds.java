@@ -0,0 +1,108 @@
+package org.reactome.release;
+
+import java.util.*;
+
+/**
+ * Map of BioModels ids to the dbIds of their DatabaseIdentifier nodes.  Canonical BioModels ids are stored by their
+ * int code (see {@link CompactIds}) in an {@link IntLongHashMap}, 12 bytes per slot instead of a String, a boxed Long
+ * and a HashMap entry per identifier; other ids are kept in a HashMap.  dbIds must not be null.  Entries can not be
+ * removed except by {@link #clear}.  Not thread-safe.
+ */
+public class IdentifierDbIds extends AbstractMap<String, Long> {
+    private static final long MISSING = Long.MIN_VALUE;
+
+    private final IntLongHashMap dbIds = new IntLongHashMap(0);
+    private final Map<String, Long> otherDbIds = new HashMap<>();
+
+    /**
+     * @param bioModelsId BioModels id
+     * @param missingDbId Value returned if the BioModels id is not in the map
+     * @return dbId of the DatabaseIdentifier of the BioModels id, or missingDbId
+     */
+    public long getDbId(String bioModelsId, long missingDbId) {
+        int code = CompactIds.encodeBioModelsId(bioModelsId);
+        if (code == CompactIds.NO_CODE) {
+            return otherDbIds.getOrDefault(bioModelsId, missingDbId);
+        }
+        long dbId = dbIds.get(code, MISSING);
+        return dbId == MISSING ? missingDbId : dbId;
+    }
+
+    @Override
+    public Long get(Object bioModelsId) {
+        if (!(bioModelsId instanceof String)) {
+            return null;
+        }
+        long dbId = getDbId((String) bioModelsId, MISSING);
+        return dbId == MISSING ? null : dbId;
+    }
+
+    @Override
+    public boolean containsKey(Object bioModelsId) {
+        return get(bioModelsId) != null;
+    }
+
+    @Override
+    public Long put(String bioModelsId, Long dbId) {
+        Objects.requireNonNull(dbId, "dbId");
+        int code = CompactIds.encodeBioModelsId(bioModelsId);
+        if (code == CompactIds.NO_CODE) {
+            return otherDbIds.put(bioModelsId, dbId);
+        }
+        long previousDbId = dbIds.put(code, dbId, MISSING);
+        return previousDbId == MISSING ? null : previousDbId;
+    }
+
+    @Override
+    public int size() {
+        return dbIds.size() + otherDbIds.size();
+    }
+
+    @Override
+    public void clear() {
+        dbIds.clear();
+        otherDbIds.clear();
+    }
+
+    @Override
+    public Set<Entry<String, Long>> entrySet() {
+        return new AbstractSet<Entry<String, Long>>() {
+            @Override
+            public Iterator<Entry<String, Long>> iterator() {
+                Iterator<Entry<String, Long>> otherEntries = otherDbIds.entrySet().iterator();
+                return new Iterator<Entry<String, Long>>() {
+                    private int slot = nextUsedSlot(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return slot < dbIds.slots() || otherEntries.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, Long> next() {
+                        if (slot >= dbIds.slots()) {
+                            Entry<String, Long> entry = otherEntries.next();
+                            return new SimpleImmutableEntry<>(entry.getKey(), entry.getValue());
+                        }
+                        Entry<String, Long> entry = new SimpleImmutableEntry<>(
+                                CompactIds.decodeBioModelsId(dbIds.keyAt(slot)), dbIds.valueAt(slot));
+                        slot = nextUsedSlot(slot + 1);
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return IdentifierDbIds.this.size();
+            }
+        };
+    }
+
+    private int nextUsedSlot(int slot) {
+        while (slot < dbIds.slots() && !dbIds.isUsed(slot)) {
+            slot++;
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,225 @@
+package org.reactome.release;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Local record of the progress of a chunked BioModels insertion.  The file is append-only: after each committed
+ * chunk the stable ids of its pathways and the dbIds of the DatabaseIdentifiers it created are appended, so a rerun
+ * after a failure can continue from the last committed chunk.  The file is tied to the content of the
+ * models2pathways file (its SHA-256 hash), so an edited file of the same size is not taken for the one inserted.
+ * The dbIds of the instance edit and reference database are recorded as intended before the set-up commits, so a
+ * rerun after a failure between that commit and {@link #recordSetup} can reuse them rather than leave them orphaned.
+ *
+ * Lines are tab separated:
+ * <pre>
+ * source           absolute/path/to/models2pathways.tsv   sha256
+ * setupIntent      instanceEditDbId   referenceDatabaseDbId
+ * instanceEdit     dbId
+ * referenceDatabase dbId
+ * identifier       BioModelsId   dbId
+ * pathway          pathwayStableId
+ * </pre>
+ */
+public class InsertionCheckpoint {
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private static final String SOURCE = "source";
+    private static final String SETUP_INTENT = "setupIntent";
+    private static final String INSTANCE_EDIT = "instanceEdit";
+    private static final String REFERENCE_DATABASE = "referenceDatabase";
+    private static final String IDENTIFIER = "identifier";
+    private static final String PATHWAY = "pathway";
+
+    private final Path checkpointFile;
+    private final String source;
+    private Long instanceEditDbId;
+    private Long referenceDatabaseDbId;
+    private Long intendedInstanceEditDbId;
+    private Long intendedReferenceDatabaseDbId;
+    private final Map<String, Long> identifierDbIds = new LinkedHashMap<>();
+    private final Set<String> completedPathwayStableIds = new LinkedHashSet<>();
+
+    private InsertionCheckpoint(Path checkpointFile, String source) {
+        this.checkpointFile = checkpointFile;
+        this.source = source;
+    }
+
+    /**
+     * Opens the checkpoint file for an insertion of the models2pathways file.  If the checkpoint file exists, its
+     * content is loaded so the insertion can be resumed.
+     *
+     * @param checkpointFile Path of the checkpoint file
+     * @param models2PathwaysFile Path of the models2pathways.tsv file being inserted
+     * @return The checkpoint
+     * @throws IOException Thrown if the checkpoint file or the models2pathways file can not be read
+     * @throws IllegalStateException Thrown if the checkpoint file was written for a different models2pathways file
+     */
+    public static InsertionCheckpoint open(Path checkpointFile, Path models2PathwaysFile) throws IOException {
+        String source = models2PathwaysFile.toAbsolutePath() + "\t" +
+                (Files.exists(models2PathwaysFile) ? MappingSnapshot.contentHash(models2PathwaysFile) : "");
+        InsertionCheckpoint checkpoint = new InsertionCheckpoint(checkpointFile, source);
+        if (Files.exists(checkpointFile)) {
+            checkpoint.load();
+        } else {
+            checkpoint.append(SOURCE + "\t" + source);
+        }
+        return checkpoint;
+    }
+
+    private void load() throws IOException {
+        for (String line : Files.readAllLines(checkpointFile, StandardCharsets.UTF_8)) {
+            String[] fields = line.split("\t");
+            switch (fields[0]) {
+                case SOURCE:
+                    String checkpointSource = line.substring(SOURCE.length() + 1);
+                    if (!checkpointSource.equals(source)) {
+                        throw new IllegalStateException("Checkpoint " + checkpointFile + " was written for " +
+                                checkpointSource + " and not for " + source + ". Remove it to start a new insertion");
+                    }
+                    break;
+                case SETUP_INTENT:
+                    intendedInstanceEditDbId = Long.parseLong(fields[1]);
+                    intendedReferenceDatabaseDbId = Long.parseLong(fields[2]);
+                    break;
+                case INSTANCE_EDIT:
+                    instanceEditDbId = Long.parseLong(fields[1]);
+                    break;
+                case REFERENCE_DATABASE:
+                    referenceDatabaseDbId = Long.parseLong(fields[1]);
+                    break;
+                case IDENTIFIER:
+                    identifierDbIds.put(fields[1], Long.parseLong(fields[2]));
+                    break;
+                case PATHWAY:
+                    completedPathwayStableIds.add(fields[1]);
+                    break;
+                default:
+                    LOGGER.warn("Ignoring unknown checkpoint line: {}", line);
+            }
+        }
+        LOGGER.info("Loaded checkpoint {} with {} completed pathways and {} BioModels identifiers",
+                checkpointFile, completedPathwayStableIds.size(), identifierDbIds.size());
+    }
+
+    /**
+     * @return true if the checkpoint recorded an instance edit, i.e. a previous run must be resumed
+     */
+    public boolean isResumed() {
+        return instanceEditDbId != null;
+    }
+
+    public Long getInstanceEditDbId() {
+        return instanceEditDbId;
+    }
+
+    public Long getReferenceDatabaseDbId() {
+        return referenceDatabaseDbId;
+    }
+
+    /**
+     * @return true if a previous run recorded the set-up it was about to commit but not that it committed
+     */
+    public boolean hasSetupIntent() {
+        return !isResumed() && intendedInstanceEditDbId != null;
+    }
+
+    public Long getIntendedInstanceEditDbId() {
+        return intendedInstanceEditDbId;
+    }
+
+    public Long getIntendedReferenceDatabaseDbId() {
+        return intendedReferenceDatabaseDbId;
+    }
+
+    public Map<String, Long> getIdentifierDbIds() {
+        return Collections.unmodifiableMap(identifierDbIds);
+    }
+
+    public boolean isCompleted(String pathwayStableId) {
+        return completedPathwayStableIds.contains(pathwayStableId);
+    }
+
+    /**
+     * Records the instance edit and reference database of the set-up transaction before it commits.  Each attempt of
+     * the transaction records its own; the last one recorded is the one which may have committed.
+     *
+     * @param instanceEditDbId dbId of the instance edit created for the insertion
+     * @param referenceDatabaseDbId dbId of the BioModels reference database
+     * @throws IOException Thrown if the checkpoint file can not be written
+     */
+    public void recordSetupIntent(long instanceEditDbId, long referenceDatabaseDbId) throws IOException {
+        this.intendedInstanceEditDbId = instanceEditDbId;
+        this.intendedReferenceDatabaseDbId = referenceDatabaseDbId;
+        append(SETUP_INTENT + "\t" + instanceEditDbId + "\t" + referenceDatabaseDbId);
+    }
+
+    /**
+     * Records the instance edit and reference database shared by all chunks of the insertion, once committed
+     *
+     * @param instanceEditDbId dbId of the instance edit created for the insertion
+     * @param referenceDatabaseDbId dbId of the BioModels reference database
+     * @throws IOException Thrown if the checkpoint file can not be written
+     */
+    public void recordSetup(long instanceEditDbId, long referenceDatabaseDbId) throws IOException {
+        this.instanceEditDbId = instanceEditDbId;
+        this.referenceDatabaseDbId = referenceDatabaseDbId;
+        append(INSTANCE_EDIT + "\t" + instanceEditDbId + "\n" + REFERENCE_DATABASE + "\t" + referenceDatabaseDbId);
+    }
+
+    /**
+     * Records a committed chunk
+     *
+     * @param pathwayStableIds Stable ids of the pathways updated by the chunk
+     * @param newIdentifierDbIds BioModels ids and dbIds of the DatabaseIdentifiers created by the chunk
+     * @throws IOException Thrown if the checkpoint file can not be written
+     */
+    public void recordChunk(Collection<String> pathwayStableIds, Map<String, Long> newIdentifierDbIds) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (Map.Entry<String, Long> identifierDbId : newIdentifierDbIds.entrySet()) {
+            if (!identifierDbIds.containsKey(identifierDbId.getKey())) {
+                lines.append(IDENTIFIER).append("\t").append(identifierDbId.getKey())
+                        .append("\t").append(identifierDbId.getValue()).append("\n");
+            }
+        }
+        for (String pathwayStableId : pathwayStableIds) {
+            if (!completedPathwayStableIds.contains(pathwayStableId)) {
+                lines.append(PATHWAY).append("\t").append(pathwayStableId).append("\n");
+            }
+        }
+        if (lines.length() > 0) {
+            lines.setLength(lines.length() - 1);
+            append(lines.toString());
+        }
+        identifierDbIds.putAll(newIdentifierDbIds);
+        completedPathwayStableIds.addAll(pathwayStableIds);
+    }
+
+    /**
+     * Removes the checkpoint file once the insertion has completed
+     *
+     * @throws IOException Thrown if the checkpoint file can not be deleted
+     */
+    public void delete() throws IOException {
+        Files.deleteIfExists(checkpointFile);
+    }
+
+    private void append(String lines) throws IOException {
+        try (FileOutputStream outputStream = new FileOutputStream(checkpointFile.toFile(), true);
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8))) {
+            writer.write(lines);
+            writer.newLine();
+            writer.flush();
+            outputStream.getFD().sync();
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package org.reactome.release;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Nodes and relationships of an insertion, recorded instead of written to the database.  The plan is filled through
+ * the same {@link BioModelsWriter} calls as an insertion over Bolt, so it holds exactly the nodes and relationships
+ * the insertion would write, with the dbIds it would allocate.  {@link #writeCsv} writes them as header-annotated CSV
+ * files for the Neo4j bulk import tool, with a LOAD CSV script for loading them into an existing database.
+ */
+public class InsertionPlan implements BioModelsWriter {
+    static final String RELATIONSHIPS_FILE = "relationships.csv";
+    static final String LOAD_SCRIPT_FILE = "load-csv.cypher";
+    private static final String NODE_LABEL = "DatabaseObject";
+    private static final String ID_SPACE = "(" + NODE_LABEL + ")";
+    private static final String ARRAY_DELIMITER = ";";
+
+    private final Map<String, List<Map<String, Object>>> nodesByLabels = new LinkedHashMap<>();
+    private final List<Object[]> relationships = new ArrayList<>();
+
+    @Override
+    public void createNode(List<String> labels, HashMap<String, Object> props) {
+        nodesByLabels.computeIfAbsent(String.join(":", labels), k -> new ArrayList<>()).add(new HashMap<>(props));
+    }
+
+    @Override
+    public void createRelationship(long fromDbId, long toDbId, String relationshipType, int order, int stoichiometry) {
+        relationships.add(new Object[] {fromDbId, toDbId, relationshipType, order, stoichiometry});
+    }
+
+    /**
+     * Nothing to send; the plan is written by {@link #writeCsv}
+     */
+    @Override
+    public void flush() { }
+
+    /**
+     * @return Number of nodes in the plan
+     */
+    public int getNodeCount() {
+        int nodeCount = 0;
+        for (List<Map<String, Object>> nodes : nodesByLabels.values()) {
+            nodeCount += nodes.size();
+        }
+        return nodeCount;
+    }
+
+    /**
+     * @return Number of relationships in the plan
+     */
+    public int getRelationshipCount() {
+        return relationships.size();
+    }
+
+    /**
+     * Writes one 'nodes-&lt;labels&gt;.csv' file per set of node labels, the 'relationships.csv' file and the
+     * 'load-csv.cypher' script.  Headers use the bulk import format: the dbId is the ':ID' of the DatabaseObject id
+     * space (import with '--id-type=INTEGER'), typed columns end with ':long', ':int' or ':string[]' (array elements
+     * separated by ';'), and ':LABEL' / ':TYPE' hold the labels and relationship type.  The script (for cypher-shell,
+     * with the files in the import directory of the database) creates the same nodes and relationships with LOAD CSV
+     * in periodic commits of periodicCommitSize rows.
+     *
+     * @param directory Directory receiving the files (created if needed)
+     * @param periodicCommitSize Rows committed together by the LOAD CSV script
+     * @return Paths of the files written
+     * @throws IOException Thrown if a file can not be written
+     */
+    public List<Path> writeCsv(Path directory, int periodicCommitSize) throws IOException {
+        Files.createDirectories(directory);
+        List<Path> files = new ArrayList<>();
+        StringBuilder script = new StringBuilder();
+
+        for (Map.Entry<String, List<Map<String, Object>>> entry : nodesByLabels.entrySet()) {
+            String labels = NODE_LABEL + ":" + entry.getKey();
+            List<Column> columns = columns(entry.getValue());
+            Path nodeFile = directory.resolve("nodes-" + entry.getKey().replace(':', '-') + ".csv");
+            try (BufferedWriter writer = Files.newBufferedWriter(nodeFile, StandardCharsets.UTF_8)) {
+                StringJoiner header = new StringJoiner(",");
+                for (Column column : columns) {
+                    header.add(column.header());
+                }
+                writer.write(header.add(":LABEL").toString());
+                writer.newLine();
+                for (Map<String, Object> node : entry.getValue()) {
+                    List<Object> row = new ArrayList<>();
+                    for (Column column : columns) {
+                        row.add(node.get(column.name));
+                    }
+                    row.add(labels.replace(':', ';'));
+                    writeRow(writer, row);
+                }
+            }
+            files.add(nodeFile);
+
+            List<String> assignments = new ArrayList<>();
+            for (Column column : columns) {
+                assignments.add("n." + column.name + " = " + column.loadExpression());
+            }
+            script.append(loadCsv(periodicCommitSize, nodeFile))
+                    .append("CREATE (n:").append(labels).append(") SET ")
+                    .append(String.join(", ", assignments)).append(";\n\n");
+        }
+
+        Path relationshipFile = directory.resolve(RELATIONSHIPS_FILE);
+        Set<String> relationshipTypes = new TreeSet<>();
+        try (BufferedWriter writer = Files.newBufferedWriter(relationshipFile, StandardCharsets.UTF_8)) {
+            writer.write(":START_ID" + ID_SPACE + ",:END_ID" + ID_SPACE + ",:TYPE,order:int,stoichiometry:int");
+            writer.newLine();
+            for (Object[] relationship : relationships) {
+                writeRow(writer, Arrays.asList(relationship));
+                relationshipTypes.add((String) relationship[2]);
+            }
+        }
+        files.add(relationshipFile);
+
+        // LOAD CSV can not take the relationship type from a column, so there is one statement per type
+        for (String relationshipType : relationshipTypes) {
+            script.append(loadCsv(periodicCommitSize, relationshipFile))
+                    .append("WITH row WHERE row.`:TYPE` = '").append(relationshipType).append("'\n")
+                    .append("MATCH (n1:").append(NODE_LABEL).append(" {dbId: toInteger(row.`:START_ID")
+                    .append(ID_SPACE).append("`)})\n")
+                    .append("MATCH (n2:").append(NODE_LABEL).append(" {dbId: toInteger(row.`:END_ID")
+                    .append(ID_SPACE).append("`)})\n")
+                    .append("CREATE (n1)-[:").append(relationshipType)
+                    .append(" {order: toInteger(row.`order:int`), ")
+                    .append("stoichiometry: toInteger(row.`stoichiometry:int`)}]->(n2);\n\n");
+        }
+        Path scriptFile = directory.resolve(LOAD_SCRIPT_FILE);
+        Files.write(scriptFile, script.toString().getBytes(StandardCharsets.UTF_8));
+        files.add(scriptFile);
+        return files;
+    }
+
+    private static String loadCsv(int periodicCommitSize, Path file) {
+        return "USING PERIODIC COMMIT " + periodicCommitSize + "\n" +
+                "LOAD CSV WITH HEADERS FROM 'file:///" + file.getFileName() + "' AS row\n";
+    }
+
+    /**
+     * @return Columns of the properties of the nodes, dbId first and the others by name
+     */
+    private static List<Column> columns(List<Map<String, Object>> nodes) {
+        Map<String, Column> columns = new TreeMap<>();
+        for (Map<String, Object> node : nodes) {
+            for (Map.Entry<String, Object> property : node.entrySet()) {
+                columns.putIfAbsent(property.getKey(), new Column(property.getKey(), property.getValue()));
+            }
+        }
+        List<Column> orderedColumns = new ArrayList<>();
+        Column dbIdColumn = columns.remove(BioModelsUtilities.DBID);
+        if (dbIdColumn != null) {
+            orderedColumns.add(dbIdColumn);
+        }
+        orderedColumns.addAll(columns.values());
+        return orderedColumns;
+    }
+
+    private static void writeRow(BufferedWriter writer, List<Object> values) throws IOException {
+        StringJoiner row = new StringJoiner(",");
+        for (Object value : values) {
+            row.add(csvField(value));
+        }
+        writer.write(row.toString());
+        writer.newLine();
+    }
+
+    /**
+     * @return The value quoted for CSV; a list is joined with the array delimiter and null is an empty field
+     */
+    static String csvField(Object value) {
+        if (value == null) {
+            return "";
+        }
+        if (value instanceof Number) {
+            return value.toString();
+        }
+        String text;
+        if (value instanceof Collection) {
+            StringJoiner elements = new StringJoiner(ARRAY_DELIMITER);
+            for (Object element : (Collection<?>) value) {
+                elements.add(String.valueOf(element));
+            }
+            text = elements.toString();
+        } else {
+            text = value.toString();
+        }
+        return "\"" + text.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * A node property column with the type of its values
+     */
+    private static final class Column {
+        private final String name;
+        private final String type;
+
+        private Column(String name, Object sampleValue) {
+            this.name = name;
+            if (sampleValue instanceof Long) {
+                this.type = "long";
+            } else if (sampleValue instanceof Integer) {
+                this.type = "int";
+            } else if (sampleValue instanceof Collection) {
+                this.type = "string[]";
+            } else {
+                this.type = "string";
+            }
+        }
+
+        private String header() {
+            if (name.equals(BioModelsUtilities.DBID)) {
+                return name + ":ID" + ID_SPACE;
+            }
+            return type.equals("string") ? name : name + ":" + type;
+        }
+
+        private String loadExpression() {
+            String field = "row.`" + header() + "`";
+            switch (type) {
+                case "long":
+                case "int":
+                    return "toInteger(" + field + ")";
+                case "string[]":
+                    return "split(" + field + ", '" + ARRAY_DELIMITER + "')";
+                default:
+                    return field;
+            }
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package org.reactome.release;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Target databases of a multi-target insertion.  The 'targets' property lists the target names (comma separated) and
+ * each target takes the configuration properties of the run, overridden by those prefixed with 'target.&lt;name&gt;.',
+ * e.g. 'target.curator.host=curator-db' or 'target.curator.personId=8863762'.  The results of the targets are written
+ * as one tab separated line per target.
+ */
+public final class InsertionTargets {
+    static final String TARGETS = "targets";
+    private static final String TARGET_PREFIX = "target.";
+
+    private InsertionTargets() { }
+
+    /**
+     * @param props Configuration properties for the program
+     * @return True if the 'targets' property lists at least one target
+     */
+    public static boolean isMultiTarget(Properties props) {
+        return !props.getProperty(TARGETS, "").trim().isEmpty();
+    }
+
+    /**
+     * Resolves the configuration properties of each target
+     *
+     * @param props Configuration properties for the program
+     * @return Properties of each target, by target name in the order of the 'targets' property
+     * @throws IllegalArgumentException Thrown if a name is listed twice or two targets have the same host and port
+     */
+    public static Map<String, Properties> fromProperties(Properties props) {
+        Map<String, Properties> targets = new LinkedHashMap<>();
+        Map<String, String> targetsByAddress = new HashMap<>();
+        for (String name : props.getProperty(TARGETS, "").split(",")) {
+            name = name.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (targets.containsKey(name)) {
+                throw new IllegalArgumentException("Target " + name + " is listed twice in " + TARGETS);
+            }
+
+            Properties targetProps = new Properties();
+            targetProps.putAll(props);
+            targetProps.remove(TARGETS);
+            String prefix = TARGET_PREFIX + name + ".";
+            for (String key : props.stringPropertyNames()) {
+                if (key.startsWith(prefix)) {
+                    targetProps.setProperty(key.substring(prefix.length()), props.getProperty(key));
+                }
+            }
+
+            String address = address(targetProps);
+            String otherTarget = targetsByAddress.put(address, name);
+            if (otherTarget != null) {
+                throw new IllegalArgumentException("Targets " + otherTarget + " and " + name +
+                        " are the same database (" + address + ")");
+            }
+            targets.put(name, targetProps);
+        }
+        if (targets.isEmpty()) {
+            throw new IllegalArgumentException("No target listed in " + TARGETS);
+        }
+        return targets;
+    }
+
+    /**
+     * @param targetProps Configuration properties of a target
+     * @return host:port of the target, with the defaults of Main.getDriver
+     */
+    static String address(Properties targetProps) {
+        return targetProps.getProperty("host", "localhost") + ":" + targetProps.getProperty("port", "7687");
+    }
+
+    /**
+     * A file written for each target, such as its verification report, must not be shared by the targets: unless
+     * the target sets its own, the name of the target is added to the name of the run's file.
+     *
+     * @param props Configuration properties for the program
+     * @param name Name of the target
+     * @param key Property of the file
+     * @param defaultFile File used when the property is not set
+     * @return The file of the target, e.g. 'logs/biomodels-verification-curator.tsv'
+     */
+    public static String targetFile(Properties props, String name, String key, String defaultFile) {
+        String targetFile = props.getProperty(TARGET_PREFIX + name + "." + key);
+        if (targetFile != null) {
+            return targetFile;
+        }
+        String file = props.getProperty(key, defaultFile);
+        int extension = file.lastIndexOf('.');
+        if (extension <= Math.max(file.lastIndexOf('/'), file.lastIndexOf('\\'))) {
+            return file + "-" + name;
+        }
+        return file.substring(0, extension) + "-" + name + file.substring(extension);
+    }
+
+    /**
+     * Writes one tab separated line per target: name, PASS or FAIL, host:port, pathways updated and not found,
+     * DatabaseIdentifiers created, dbId of the instance edit, duration and error
+     *
+     * @param reportFile File receiving the report (its directory is created if needed)
+     * @param results Results of the targets
+     * @throws IOException Thrown if the report can not be written
+     */
+    public static void writeReport(Path reportFile, Collection<Result> results) throws IOException {
+        Path reportDirectory = reportFile.toAbsolutePath().getParent();
+        if (reportDirectory != null) {
+            Files.createDirectories(reportDirectory);
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8)) {
+            writer.write("target\tresult\taddress\tpathwaysUpdated\tpathwaysUnmatched\tidentifiersCreated\t" +
+                    "instanceEditDbId\tseconds\terror");
+            writer.newLine();
+            for (Result result : results) {
+                writer.write(result.toString());
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Result of the insertion into one target.  A target whose insertion failed has an error and no counts, as its
+     * transaction was rolled back; a target failing its verification ('verify=fail') keeps the counts it committed.
+     */
+    public static final class Result {
+        private final String name;
+        private final String address;
+        private long pathwaysUpdated;
+        private long pathwaysUnmatched;
+        private long identifiersCreated;
+        private long instanceEditDbId = -1L;
+        private long nanos;
+        private String error;
+
+        Result(String name, String address) {
+            this.name = name;
+            this.address = address;
+        }
+
+        void inserted(long pathwaysUpdated, long pathwaysUnmatched, long identifiersCreated, long instanceEditDbId) {
+            this.pathwaysUpdated = pathwaysUpdated;
+            this.pathwaysUnmatched = pathwaysUnmatched;
+            this.identifiersCreated = identifiersCreated;
+            this.instanceEditDbId = instanceEditDbId;
+        }
+
+        void failed(String error) {
+            this.error = error;
+        }
+
+        void finished(long nanos) {
+            this.nanos = nanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getAddress() {
+            return address;
+        }
+
+        public long getPathwaysUpdated() {
+            return pathwaysUpdated;
+        }
+
+        public long getPathwaysUnmatched() {
+            return pathwaysUnmatched;
+        }
+
+        public long getIdentifiersCreated() {
+            return identifiersCreated;
+        }
+
+        public long getInstanceEditDbId() {
+            return instanceEditDbId;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public boolean passed() {
+            return error == null;
+        }
+
+        /**
+         * @return Line of the report, e.g. 'curator PASS curator-db:7687 1200 3 950 9876543 12.4' with tabs between
+         * the fields
+         */
+        @Override
+        public String toString() {
+            String seconds = String.format(Locale.ROOT, "%.1f", nanos / (double) TimeUnit.SECONDS.toNanos(1));
+            return name + "\t" + (passed() ? "PASS" : "FAIL") + "\t" + address + "\t" + pathwaysUpdated + "\t" +
+                    pathwaysUnmatched + "\t" + identifiersCreated + "\t" +
+                    (instanceEditDbId >= 0 ? String.valueOf(instanceEditDbId) : "") + "\t" + seconds + "\t" +
+                    (error != null ? error.replace('\t', ' ').replace('\n', ' ') : "");
+        }
+    }
+}
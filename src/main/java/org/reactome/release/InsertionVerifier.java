@@ -0,0 +1,273 @@
+package org.reactome.release;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Transaction;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.types.Node;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.reactome.release.BioModelsUtilities.DBID;
+import static org.reactome.release.BioModelsUtilities.DISPLAY_NAME;
+import static org.reactome.release.BioModelsUtilities.STID;
+
+/**
+ * Checks the graph once the insertion has committed.  Each check is one aggregate statement streamed by the server
+ * (one row per pathway, or a single row), so the checks take seconds even on a full release graph:
+ * <ul>
+ *     <li>crossReferenceCounts: each pathway has as many BioModels cross-references as models2pathways.tsv lists</li>
+ *     <li>crossReferenceOrders: the 'order' values of each pathway's BioModels cross-references are 0 to n-1</li>
+ *     <li>referenceDatabaseLinks: each BioModels DatabaseIdentifier has exactly one referenceDatabase</li>
+ *     <li>duplicateIdentifiers: no BioModels id has more than one DatabaseIdentifier</li>
+ *     <li>uniqueDbIds: the dbIds of the BioModels DatabaseIdentifiers, of the InstanceEdits which created them and of
+ *     the BioModels ReferenceDatabase belong to one node each</li>
+ * </ul>
+ * Pathways of the file which are not in the database are skipped, as they are by the insertion.
+ */
+public final class InsertionVerifier {
+    private static final Logger LOGGER = LogManager.getLogger();
+    static final int MAX_EXAMPLES = 20;
+
+    private InsertionVerifier() { }
+
+    /**
+     * Runs the checks
+     *
+     * @param tx Neo4j Driver Transaction (only read from)
+     * @param pathwayStableIdToBioModelsIds Map of pathway stable ids to their BioModels ids, as parsed from the file
+     * @return The checks, in the order above; a single failed 'referenceDatabase' check if there is no BioModels
+     * ReferenceDatabase
+     */
+    public static List<Check> verify(Transaction tx, Map<String, Set<String>> pathwayStableIdToBioModelsIds) {
+        return verifyCounts(tx, crossReferenceCounts(pathwayStableIdToBioModelsIds));
+    }
+
+    /**
+     * Runs the checks against the number of cross-references each pathway is expected to have, as counted by an
+     * insertion which does not keep the BioModels ids of each pathway (streaming)
+     *
+     * @param tx Neo4j Driver Transaction (only read from)
+     * @param expectedCrossReferences Number of BioModels cross-references expected for each pathway stable id
+     * @return The checks, in the order above; a single failed 'referenceDatabase' check if there is no BioModels
+     * ReferenceDatabase
+     */
+    public static List<Check> verifyCounts(Transaction tx, Map<String, Integer> expectedCrossReferences) {
+        try (RunMetrics.Phase phase = RunMetrics.startPhase("verify")) {
+            Node referenceDatabase = BioModelsUtilities.retrieveBioModelsDatabaseInstance(tx);
+            if (referenceDatabase == null) {
+                return Collections.singletonList(
+                        new Check("referenceDatabase", 1L, 1L, Collections.singletonList("BioModels")));
+            }
+            long referenceDatabaseDbId = referenceDatabase.get(DBID).asLong();
+            Map<String, Object> parameters = new HashMap<>();
+            parameters.put("referenceDatabaseDbId", referenceDatabaseDbId);
+            parameters.put("databaseName", referenceDatabase.get(DISPLAY_NAME).asString());
+            parameters.put("maxExamples", MAX_EXAMPLES);
+
+            List<Check> checks = new ArrayList<>(
+                    checkCrossReferences(tx, parameters, expectedCrossReferences));
+            checks.add(aggregateCheck(tx, "referenceDatabaseLinks",
+                    CypherTemplates.VERIFY_REFERENCE_DATABASE_LINKS, parameters));
+            checks.add(aggregateCheck(tx, "duplicateIdentifiers",
+                    CypherTemplates.VERIFY_DUPLICATE_IDENTIFIERS, parameters));
+            checks.add(aggregateCheck(tx, "uniqueDbIds", CypherTemplates.VERIFY_UNIQUE_DBIDS, parameters));
+            return checks;
+        }
+    }
+
+    /**
+     * @param pathwayStableIdToBioModelsIds Map of pathway stable ids to their BioModels ids, as parsed from the file
+     * @return Number of BioModels ids of each pathway stable id
+     */
+    public static Map<String, Integer> crossReferenceCounts(Map<String, Set<String>> pathwayStableIdToBioModelsIds) {
+        Map<String, Integer> crossReferenceCounts = new HashMap<>();
+        for (Map.Entry<String, Set<String>> pathway : pathwayStableIdToBioModelsIds.entrySet()) {
+            crossReferenceCounts.put(pathway.getKey(), pathway.getValue().size());
+        }
+        return crossReferenceCounts;
+    }
+
+    /**
+     * Streams the count and order range of the BioModels cross-references of each pathway and compares them with the
+     * file.  The pathways of the file without any are then looked up, to tell those missing their cross-references
+     * from those not in the database.
+     *
+     * @return The crossReferenceCounts and crossReferenceOrders checks
+     */
+    private static List<Check> checkCrossReferences(Transaction tx, Map<String, Object> parameters,
+                                                    Map<String, Integer> expectedCrossReferences) {
+        Check counts = new Check("crossReferenceCounts");
+        Check orders = new Check("crossReferenceOrders");
+        Set<String> pathwaysWithoutCrossReferences = new LinkedHashSet<>(expectedCrossReferences.keySet());
+
+        Result result = CypherTemplates.run(tx, CypherTemplates.VERIFY_CROSS_REFERENCES, parameters);
+        while (result.hasNext()) {
+            Record record = result.next();
+            String stableId = record.get(STID).asString();
+            long crossReferences = record.get("crossReferences").asLong();
+            pathwaysWithoutCrossReferences.remove(stableId);
+
+            Integer expectedCount = expectedCrossReferences.get(stableId);
+            long expected = expectedCount != null ? expectedCount : 0L;
+            counts.record(crossReferences == expected,
+                    stableId + " (" + crossReferences + " instead of " + expected + ")");
+            orders.record(ordersAreContiguous(crossReferences, record.get("minOrder"), record.get("maxOrder"),
+                    record.get("distinctOrders").asLong()), stableId);
+        }
+        CypherTemplates.consume(CypherTemplates.VERIFY_CROSS_REFERENCES, result);
+
+        int notInDatabase = 0;
+        for (List<String> chunk : PathwayLookup.chunks(pathwaysWithoutCrossReferences)) {
+            Set<String> missing = new LinkedHashSet<>(chunk);
+            Result pathways = CypherTemplates.run(tx, CypherTemplates.PATHWAYS_BY_STABLE_ID,
+                    Collections.singletonMap("pathwayStableIds", chunk));
+            while (pathways.hasNext()) {
+                String stableId = pathways.next().get(STID).asString();
+                missing.remove(stableId);
+                counts.record(false, stableId + " (0 instead of " + expectedCrossReferences.get(stableId) + ")");
+            }
+            CypherTemplates.consume(CypherTemplates.PATHWAYS_BY_STABLE_ID, pathways);
+            notInDatabase += missing.size();
+        }
+        if (notInDatabase > 0) {
+            LOGGER.info("{} pathways of the file are not in the database and were not verified", notInDatabase);
+        }
+        return Arrays.asList(counts, orders);
+    }
+
+    /**
+     * @param crossReferences Number of cross-references of a pathway
+     * @param minOrder Smallest 'order' of its cross-references (null if none has one)
+     * @param maxOrder Largest 'order' of its cross-references (null if none has one)
+     * @param distinctOrders Number of distinct 'order' values
+     * @return True if the orders are 0 to crossReferences - 1, each used once
+     */
+    static boolean ordersAreContiguous(long crossReferences, Value minOrder, Value maxOrder, long distinctOrders) {
+        if (minOrder.isNull() || maxOrder.isNull()) {
+            return false;
+        }
+        return minOrder.asLong() == 0L && maxOrder.asLong() == crossReferences - 1 &&
+                distinctOrders == crossReferences;
+    }
+
+    /**
+     * Runs a check whose statement returns a single row with the 'checked', 'violations' and 'examples' columns
+     */
+    private static Check aggregateCheck(Transaction tx, String name, String statement,
+                                        Map<String, Object> parameters) {
+        Result result = CypherTemplates.run(tx, statement, parameters);
+        Record record = result.single();
+        List<String> examples = new ArrayList<>();
+        for (Object example : record.get("examples").asList()) {
+            examples.add(String.valueOf(example));
+        }
+        Check check = new Check(name, record.get("checked").asLong(), record.get("violations").asLong(), examples);
+        CypherTemplates.consume(statement, result);
+        return check;
+    }
+
+    /**
+     * @param checks Checks run by {@link #verify}
+     * @return True if no check found a violation
+     */
+    public static boolean passed(List<Check> checks) {
+        for (Check check : checks) {
+            if (!check.passed()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes one tab separated line per check: name, PASS or FAIL, number of items checked, number of violations and
+     * up to {@link #MAX_EXAMPLES} of them
+     *
+     * @param reportFile File receiving the report (its directory is created if needed)
+     * @param checks Checks run by {@link #verify}
+     * @throws IOException Thrown if the report can not be written
+     */
+    public static void writeReport(Path reportFile, List<Check> checks) throws IOException {
+        Path reportDirectory = reportFile.toAbsolutePath().getParent();
+        if (reportDirectory != null) {
+            Files.createDirectories(reportDirectory);
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8)) {
+            writer.write("check\tresult\tchecked\tviolations\texamples");
+            writer.newLine();
+            for (Check check : checks) {
+                writer.write(check.toString());
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Result of one check
+     */
+    public static final class Check {
+        private final String name;
+        private final List<String> examples;
+        private long checked;
+        private long violations;
+
+        private Check(String name) {
+            this(name, 0L, 0L, new ArrayList<>());
+        }
+
+        Check(String name, long checked, long violations, List<String> examples) {
+            this.name = name;
+            this.checked = checked;
+            this.violations = violations;
+            this.examples = new ArrayList<>(examples);
+        }
+
+        private void record(boolean passed, String example) {
+            checked++;
+            if (!passed) {
+                violations++;
+                if (examples.size() < MAX_EXAMPLES) {
+                    examples.add(example);
+                }
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getChecked() {
+            return checked;
+        }
+
+        public long getViolations() {
+            return violations;
+        }
+
+        public List<String> getExamples() {
+            return Collections.unmodifiableList(examples);
+        }
+
+        public boolean passed() {
+            return violations == 0;
+        }
+
+        /**
+         * @return Line of the report, e.g. 'duplicateIdentifiers FAIL 1200 1 BIOMD0000000001' with tabs between the
+         * fields
+         */
+        @Override
+        public String toString() {
+            return name + "\t" + (passed() ? "PASS" : "FAIL") + "\t" + checked + "\t" + violations + "\t" +
+                    String.join(", ", examples);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.reactome.release;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing (linear probing) map from int keys to long values, stored in two primitive arrays without an
+ * object per entry.  Integer.MIN_VALUE marks free slots and can not be used as a key.  Not thread-safe.
+ */
+final class IntLongHashMap {
+    private static final int FREE = Integer.MIN_VALUE;
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private long[] values;
+    private int size;
+
+    /**
+     * Creates a map holding expectedSize entries without resizing
+     *
+     * @param expectedSize Expected number of entries
+     */
+    IntLongHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * @param key Key
+     * @param missingValue Value returned if the key is not in the map
+     * @return Value of the key, or missingValue
+     */
+    long get(int key, long missingValue) {
+        int slot = slotOf(key);
+        return keys[slot] == FREE ? missingValue : values[slot];
+    }
+
+    boolean containsKey(int key) {
+        return keys[slotOf(key)] != FREE;
+    }
+
+    /**
+     * @param key Key, which must not be Integer.MIN_VALUE
+     * @param value Value
+     * @param missingValue Value returned if the key was not in the map
+     * @return Previous value of the key, or missingValue
+     */
+    long put(int key, long value, long missingValue) {
+        if (key == FREE) {
+            throw new IllegalArgumentException("Integer.MIN_VALUE can not be used as a key");
+        }
+        int slot = slotOf(key);
+        if (keys[slot] != FREE) {
+            long previousValue = values[slot];
+            values[slot] = value;
+            return previousValue;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        return missingValue;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(keys, FREE);
+        size = 0;
+    }
+
+    /**
+     * @return Number of slots, for iterating with {@link #isUsed}, {@link #keyAt} and {@link #valueAt}
+     */
+    int slots() {
+        return keys.length;
+    }
+
+    boolean isUsed(int slot) {
+        return keys[slot] != FREE;
+    }
+
+    int keyAt(int slot) {
+        return keys[slot];
+    }
+
+    long valueAt(int slot) {
+        return values[slot];
+    }
+
+    /**
+     * @return Slot holding the key, or the free slot where it would be inserted
+     */
+    private int slotOf(int key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != FREE) {
+                int newSlot = slotOf(oldKeys[slot]);
+                keys[newSlot] = oldKeys[slot];
+                values[newSlot] = oldValues[slot];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new long[capacity];
+        Arrays.fill(keys, FREE);
+    }
+
+    /**
+     * @return Power of two capacity keeping the load factor at or below one half
+     */
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < (long) expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * Spreads consecutive keys (BioModels id codes are mostly consecutive numbers) over the table
+     */
+    private static int mix(int key) {
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,114 @@
+package org.reactome.release;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing (linear probing) map from long keys to int values, stored in two primitive arrays without an
+ * object per entry, like {@link IntLongHashMap}.  Long.MIN_VALUE marks free slots and can not be used as a key (a
+ * look-up of it finds nothing).  Not thread-safe.
+ */
+final class LongIntHashMap {
+    private static final long FREE = Long.MIN_VALUE;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    /**
+     * Creates a map holding expectedSize entries without resizing
+     *
+     * @param expectedSize Expected number of entries
+     */
+    LongIntHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * @param key Key
+     * @param missingValue Value returned if the key is not in the map
+     * @return Value of the key, or missingValue
+     */
+    int get(long key, int missingValue) {
+        int slot = slotOf(key);
+        return keys[slot] == FREE ? missingValue : values[slot];
+    }
+
+    /**
+     * @param key Key, which must not be Long.MIN_VALUE
+     * @param value Value
+     * @param missingValue Value returned if the key was not in the map
+     * @return Previous value of the key, or missingValue
+     */
+    int put(long key, int value, int missingValue) {
+        if (key == FREE) {
+            throw new IllegalArgumentException("Long.MIN_VALUE can not be used as a key");
+        }
+        int slot = slotOf(key);
+        if (keys[slot] != FREE) {
+            int previousValue = values[slot];
+            values[slot] = value;
+            return previousValue;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        return missingValue;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return Slot holding the key, or the free slot where it would be inserted
+     */
+    private int slotOf(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != FREE) {
+                int newSlot = slotOf(oldKeys[slot]);
+                keys[newSlot] = oldKeys[slot];
+                values[newSlot] = oldValues[slot];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, FREE);
+    }
+
+    /**
+     * @return Power of two capacity keeping the load factor at or below one half
+     */
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < (long) expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * Spreads the pathway stable id codes, whose low bits are the mostly consecutive pathway numbers, over the table
+     */
+    private static int mix(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
@@ -4,33 +4,42 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.gk.model.ReactomeJavaConstants;
 import org.neo4j.driver.AuthTokens;
+import org.neo4j.driver.Config;
 import org.neo4j.driver.Driver;
 import org.neo4j.driver.GraphDatabase;
 import org.neo4j.driver.Session;
 import org.neo4j.driver.Transaction;
+import org.neo4j.driver.TransactionWork;
 import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.async.AsyncSession;
+import org.neo4j.driver.async.AsyncTransaction;
+import org.neo4j.driver.exceptions.TransientException;
+import org.neo4j.driver.Values;
+import org.neo4j.driver.types.MapAccessor;
 import org.neo4j.driver.types.Node;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
-import static org.reactome.release.BioModelsUtilities.createNode;
-import static org.reactome.release.BioModelsUtilities.createRelationship;
 import static org.reactome.release.BioModelsUtilities.fetchBioModelsReferenceDatabase;
-import static org.reactome.release.BioModelsUtilities.getMaxDbId;
 import static org.reactome.release.BioModelsUtilities.getNodeByDbId;
 import static org.reactome.release.BioModelsUtilities.getDateTime;
 import static org.reactome.release.BioModelsUtilities.logAndThrow;
+import static org.reactome.release.BioModelsUtilities.retrieveBioModelsDatabaseInstance;
 
 import static org.reactome.release.BioModelsUtilities.DBID;
-import static org.reactome.release.BioModelsUtilities.DATABASE_NAME;
 import static org.reactome.release.BioModelsUtilities.DISPLAY_NAME;
-import static org.reactome.release.BioModelsUtilities.SCHEMA_CLASS;
-import static org.reactome.release.BioModelsUtilities.STID;
-import static org.reactome.release.BioModelsUtilities.maxDbId;
-import static org.reactome.release.ModelsTSVParser.parse;
 
 
 /**
@@ -38,8 +47,29 @@ import static org.reactome.release.ModelsTSVParser.parse;
  */
 public class Main {
 
-    private static final Map<String, Node> BIO_MODELS_INSTANCES = new HashMap<>();
+    private static final IdentifierDbIds BIO_MODELS_INSTANCES = new IdentifierDbIds();
     private static final Logger LOGGER = LogManager.getLogger();
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final int DEFAULT_CHUNK_SIZE = 100;
+    private static final int DEFAULT_MAX_IN_FLIGHT_STATEMENTS = 64;
+    private static final int DEFAULT_INSERTION_WORKERS = 4;
+    private static final String DEFAULT_PLAN_DIRECTORY = "plan";
+    private static final int DEFAULT_PLAN_PERIODIC_COMMIT_SIZE = 1000;
+    private static final int DEFAULT_STREAM_QUEUE_CAPACITY = 1000;
+    private static final int DEFAULT_RESOLVE_CHUNK_SIZE = 500;
+    private static final String DEFAULT_CHECKPOINT_FILE = "biomodels.checkpoint";
+    private static final long DEFAULT_MAX_TRANSACTION_RETRY_SECONDS = 30L;
+    private static final long DEFAULT_FETCH_SIZE = 1000L;
+    private static final String DEFAULT_REJECT_REPORT_FILE = "logs/models2pathways-rejects.tsv";
+    private static final String DEFAULT_SNAPSHOT_DIRECTORY = "snapshots";
+    private static final String DEFAULT_DELTA_FILE = "logs/models2pathways-delta.tsv";
+    private static final String DEFAULT_VERIFICATION_REPORT_FILE = "logs/biomodels-verification.tsv";
+    private static final String DEFAULT_TARGET_REPORT_FILE = "logs/biomodels-targets.tsv";
+    private static final String DEFAULT_METRICS_REPORT_FILE = "logs/biomodels-metrics.json";
+    private static final String DEFAULT_PROMETHEUS_REPORT_FILE = "logs/biomodels-metrics.prom";
+    private static final int DEFAULT_PROFILE_SAMPLE_RATE = 100;
+    private static final int DEFAULT_PROFILE_TOP_STATEMENTS = 20;
+    private static final String DEFAULT_PROFILE_REPORT_FILE = "logs/biomodels-profile.tsv";
 
     /**
      * Main method
@@ -50,53 +80,1318 @@ public class Main {
         long start = System.currentTimeMillis();
         LOGGER.info("Running BioModels insertion");
         runBioModelsInsertion(args);
+        CypherTemplates.logStatementCounts();
         LOGGER.info("Completed BioModels insertion in {} seconds.", (System.currentTimeMillis() - start) / 1000L);
     }
 
-    private static void runBioModelsInsertion(String[] args) {
+    /**
+     * Runs the insertion (also used by the load tests).  The run metrics are written to the 'metricsReportFile' (JSON)
+     * and the 'prometheusReportFile' (Prometheus text format) at the end of the run, whether it succeeded or not.
+     * If 'profile' is true, the result summaries of the statements are collected (see {@link StatementProfiler}) and
+     * the 'profileTopStatements' statements with the largest client time are written to the 'profileReportFile'.
+     *
+     * @param args Path to the configuration properties file and path to the models2pathways.tsv file
+     */
+    static void runBioModelsInsertion(String[] args) {
         String pathToResources = args.length > 0 ? args[0] : "src/main/resources/config.properties";
         String pathToModels2Pathways = args.length > 1 ? args[1] : "src/main/resources/models2pathways.tsv";
 
         Properties props = loadProperties(pathToResources);
 
-        try (Driver driver = getDriver(props); Session session = driver.session()) {
-            session.writeTransaction(tx -> {
-                maxDbId = getMaxDbId(tx);
+        // Identifiers, statement counts and metrics of a previous run in the same JVM do not apply to this one
+        BIO_MODELS_INSTANCES.clear();
+        CypherTemplates.resetStatementCounts();
+        RunMetrics.reset();
+        StatementProfiler.configure(Boolean.parseBoolean(props.getProperty("profile", "false")),
+                Integer.parseInt(props.getProperty("profileSampleRate", String.valueOf(DEFAULT_PROFILE_SAMPLE_RATE))));
+        PathwayLookup.configure(Integer.parseInt(
+                props.getProperty("pathwayLookupChunkSize", String.valueOf(PathwayLookup.DEFAULT_CHUNK_SIZE))));
+
+        if (props.getProperty("insertionMode", "full").equalsIgnoreCase("delta")) {
+            // Only compares the file with the previous release's snapshot; the database is not used
+            writeMappingDelta(props, pathToModels2Pathways);
+            return;
+        }
+        if (props.getProperty("insertionMode", "full").equalsIgnoreCase("parse")) {
+            // Only parses the file; this is also the training run of the class-data sharing archive (see README)
+            reportModels2Pathways(props, pathToModels2Pathways);
+            return;
+        }
+
+        String verifyMode = props.getProperty("verify", "warn");
+        if (!Arrays.asList("off", "warn", "fail").contains(verifyMode.toLowerCase(Locale.ROOT))) {
+            throw new IllegalArgumentException("Unknown verify mode: " + verifyMode);
+        }
+        long progressIntervalSeconds = Long.parseLong(props.getProperty("progressIntervalSeconds",
+                String.valueOf(ProgressReporter.DEFAULT_INTERVAL_SECONDS)));
+        if (InsertionTargets.isMultiTarget(props)) {
+            try (RunMetrics.Phase phase = RunMetrics.startPhase("total");
+                 ProgressReporter progress = ProgressReporter.start(progressIntervalSeconds)) {
+                runMultiTargetInsertion(props, pathToModels2Pathways, verifyMode);
+            } catch (Exception e) {
+                logAndThrow("Error during BioModels insertion", e);
+            } finally {
+                writeMetricsReports(props);
+            }
+            return;
+        }
+        try (Driver driver = getDriver(props); RunMetrics.Phase phase = RunMetrics.startPhase("total");
+             ProgressReporter progress = ProgressReporter.start(progressIntervalSeconds)) {
+            runPreflight(driver, props);
+
+            String insertionMode = props.getProperty("insertionMode", "full");
+            String executionMode = props.getProperty("executionMode", "blocking");
+            String commitMode = props.getProperty("commitMode", "single");
+            if (!Arrays.asList("full", "diff", "streaming", "plan", "procedure")
+                    .contains(insertionMode.toLowerCase(Locale.ROOT))) {
+                throw new IllegalArgumentException("Unknown insertionMode: " + insertionMode);
+            }
+
+            // The file is parsed once and the same mapping is inserted and verified; the streaming insertion does not
+            // keep the mapping and returns the number of cross-references of each pathway instead
+            Map<String, Integer> expectedCrossReferences;
+            if (insertionMode.equalsIgnoreCase("streaming")) {
+                expectedCrossReferences = runStreamingInsertion(driver, props, pathToModels2Pathways);
+            } else {
+                Map<String, Set<String>> pathwayStableIdToBioModelsIds =
+                        parseModels2Pathways(props, pathToModels2Pathways);
+                expectedCrossReferences = InsertionVerifier.crossReferenceCounts(pathwayStableIdToBioModelsIds);
+                if (insertionMode.equalsIgnoreCase("diff")) {
+                    runDiffInsertion(driver, props, pathwayStableIdToBioModelsIds);
+                } else if (insertionMode.equalsIgnoreCase("plan")) {
+                    runPlanExport(driver, props, pathwayStableIdToBioModelsIds);
+                } else if (insertionMode.equalsIgnoreCase("procedure")) {
+                    runProcedureInsertion(driver, props, pathToModels2Pathways, pathwayStableIdToBioModelsIds);
+                } else if (executionMode.equalsIgnoreCase("async")) {
+                    if (!commitMode.equalsIgnoreCase("single")) {
+                        throw new IllegalArgumentException("executionMode=async only supports commitMode=single");
+                    }
+                    runAsyncInsertion(driver, props, pathwayStableIdToBioModelsIds);
+                } else if (!executionMode.equalsIgnoreCase("blocking")) {
+                    throw new IllegalArgumentException("Unknown executionMode: " + executionMode);
+                } else if (commitMode.equalsIgnoreCase("chunked")) {
+                    runChunkedInsertion(driver, props, pathToModels2Pathways, pathwayStableIdToBioModelsIds);
+                } else if (commitMode.equalsIgnoreCase("sharded")) {
+                    runShardedInsertion(driver, props, pathwayStableIdToBioModelsIds);
+                } else if (commitMode.equalsIgnoreCase("single")) {
+                    runSingleTransactionInsertion(driver, props, pathwayStableIdToBioModelsIds);
+                } else {
+                    throw new IllegalArgumentException("Unknown commitMode: " + commitMode);
+                }
+            }
+
+            // A plan is not written to the database, so there is nothing to verify
+            if (!insertionMode.equalsIgnoreCase("plan") && !verifyMode.equalsIgnoreCase("off")) {
+                runVerification(driver, props, expectedCrossReferences, verifyMode.equalsIgnoreCase("fail"));
+            }
+        } catch (Exception e) {
+            logAndThrow("Error during BioModels insertion", e);
+        } finally {
+            writeMetricsReports(props);
+        }
+    }
+
+    private static void writeMetricsReports(Properties props) {
+        Path metricsReportFile = Paths.get(props.getProperty("metricsReportFile", DEFAULT_METRICS_REPORT_FILE));
+        Path prometheusReportFile =
+                Paths.get(props.getProperty("prometheusReportFile", DEFAULT_PROMETHEUS_REPORT_FILE));
+        try {
+            RunMetrics.writeJson(metricsReportFile);
+            RunMetrics.writePrometheus(prometheusReportFile);
+            LOGGER.info("Run metrics written to {} and {}", metricsReportFile, prometheusReportFile);
+        } catch (IOException e) {
+            LOGGER.error("Unable to write run metrics", e);
+        }
+
+        if (StatementProfiler.isEnabled()) {
+            Path profileReportFile = Paths.get(props.getProperty("profileReportFile", DEFAULT_PROFILE_REPORT_FILE));
+            int topStatements = Integer.parseInt(
+                    props.getProperty("profileTopStatements", String.valueOf(DEFAULT_PROFILE_TOP_STATEMENTS)));
+            StatementProfiler.logTopStatements(topStatements);
+            try {
+                StatementProfiler.writeReport(profileReportFile, topStatements);
+                LOGGER.info("Statement profile written to {}", profileReportFile);
+            } catch (IOException e) {
+                LOGGER.error("Unable to write statement profile", e);
+            }
+        }
+    }
+
+    /**
+     * Runs a transaction function, recording the time from the end of the function until the transaction has been
+     * committed as the 'commit' phase
+     *
+     * @param session Neo4j Driver Session
+     * @param work Transaction function
+     * @param <T> Return type of the transaction function
+     * @return Return value of the transaction function
+     */
+    private static <T> T writeTransaction(Session session, TransactionWork<T> work) {
+        long[] workEndNanos = new long[1];
+        T result = session.writeTransaction(tx -> {
+            T workResult = work.execute(tx);
+            workEndNanos[0] = System.nanoTime();
+            return workResult;
+        });
+        RunMetrics.recordPhase("commit", System.nanoTime() - workEndNanos[0]);
+        return result;
+    }
+
+    /**
+     * Checks that the statements of the insertion are planned with index lookups before anything is written.  The
+     * 'preflight' property selects whether statements planned with scans are logged ('warn', the default), stop the
+     * run ('fail') or are not checked ('off').  If 'preflightCreateIndexes' is true, the missing indexes are created.
+     *
+     * @param driver Neo4j Driver
+     * @param props Configuration properties for the program
+     */
+    private static void runPreflight(Driver driver, Properties props) {
+        String preflightMode = props.getProperty("preflight", "warn");
+        boolean createIndexes = Boolean.parseBoolean(props.getProperty("preflightCreateIndexes", "false"));
+        try (Session session = driver.session()) {
+            QueryPlanPreflight.run(session, preflightMode, createIndexes);
+        }
+    }
+
+    /**
+     * Checks the graph once the insertion has committed (see {@link InsertionVerifier}) against the mapping the
+     * insertion parsed, and writes the pass/fail report to the 'verificationReportFile'.
+     *
+     * @param driver Neo4j Driver
+     * @param props Configuration properties for the program
+     * @param expectedCrossReferences Number of BioModels cross-references expected for each pathway stable id
+     * @param failOnViolations If true, failed checks stop the run ('verify=fail'); otherwise they are logged
+     * @throws IllegalStateException Thrown if a check failed and failOnViolations is true
+     */
+    private static void runVerification(Driver driver, Properties props, Map<String, Integer> expectedCrossReferences,
+                                        boolean failOnViolations) {
+        Path verificationReportFile =
+                Paths.get(props.getProperty("verificationReportFile", DEFAULT_VERIFICATION_REPORT_FILE));
+        verify(driver, expectedCrossReferences, verificationReportFile, failOnViolations);
+    }
+
+    /**
+     * Runs the checks of {@link InsertionVerifier}, writes their report and logs the failed ones
+     *
+     * @param driver Neo4j Driver
+     * @param expectedCrossReferences Number of BioModels cross-references expected for each pathway stable id
+     * @param verificationReportFile File receiving the pass/fail report
+     * @param failOnViolations If true, failed checks stop the run ('verify=fail'); otherwise they are logged
+     * @throws IllegalStateException Thrown if a check failed and failOnViolations is true
+     */
+    private static void verify(Driver driver, Map<String, Integer> expectedCrossReferences,
+                               Path verificationReportFile, boolean failOnViolations) {
+        List<InsertionVerifier.Check> checks;
+        try (Session session = driver.session()) {
+            checks = session.readTransaction(tx -> InsertionVerifier.verifyCounts(tx, expectedCrossReferences));
+        }
+
+        try {
+            InsertionVerifier.writeReport(verificationReportFile, checks);
+        } catch (IOException e) {
+            logAndThrow("Unable to write the verification report " + verificationReportFile, e);
+        }
+        for (InsertionVerifier.Check check : checks) {
+            if (!check.passed()) {
+                LOGGER.warn("Verification check {} failed for {} of {} items, e.g. {}", check.getName(),
+                        check.getViolations(), check.getChecked(), String.join(", ", check.getExamples()));
+            }
+        }
+        if (InsertionVerifier.passed(checks)) {
+            LOGGER.info("Verification passed: {} checks -- see {}", checks.size(), verificationReportFile);
+            return;
+        }
+        String message = "Verification failed -- see " + verificationReportFile;
+        if (failOnViolations) {
+            throw new IllegalStateException(message);
+        }
+        LOGGER.warn(message);
+    }
+
+    /**
+     * Inserts all BioModels cross-references in one transaction
+     *
+     * @param driver Neo4j Driver
+     * @param props Configuration properties for the program
+     * @param pathwayStableIdToBioModelsIds Map of pathway stable ids to their BioModels ids, parsed from the file
+     */
+    private static void runSingleTransactionInsertion(Driver driver, Properties props,
+                                                      Map<String, Set<String>> pathwayStableIdToBioModelsIds) {
+        try (Session session = driver.session()) {
+            Map<String, Long> newIdentifiers = session.writeTransaction(tx -> {
+                // The transaction function may be retried, so the identifiers of a rolled back attempt are not kept
+                Map<String, Long> attemptIdentifiers = new IdentifierDbIds();
+                DbIdAllocator dbIdAllocator = BioModelsUtilities.newDbIdAllocator(tx);
 
                 // Create new instanceEdit in database to track modified pathways
                 long personId = Long.parseLong(props.getProperty("personId"));
-                Node instanceEdit = createInstanceEdit(tx, personId, "BioModels reference database creation");
-                Map<String, Set<String>> pathwayStableIdToBioModelsIds =
-                        parse(pathToModels2Pathways);
+                Node instanceEdit = createInstanceEdit(tx, dbIdAllocator, personId, BioModelsRules.INSTANCE_EDIT_NOTE);
+                long instanceEditDbId = instanceEdit.get(DBID).asLong();
 
-                Node referenceDatabase = fetchBioModelsReferenceDatabase(tx, instanceEdit);
+                Node referenceDatabase = fetchBioModelsReferenceDatabase(tx, instanceEdit, dbIdAllocator);
+                BioModelsWriter writer = createWriter(tx, props);
 
-                for (Node pathway : getPathwaysWithBioModelsIds(tx, pathwayStableIdToBioModelsIds.keySet())) {
-                    String pathwayExtendedDisplayName = "[Pathway:" + pathway.get(DBID) + "] " + pathway.get(DISPLAY_NAME);
-                    LOGGER.info("Adding BioModels ids to pathway {}", pathwayExtendedDisplayName);
-                    Set<String> bioModelsIds = pathwayStableIdToBioModelsIds.get(pathway.get(STID).asString());
-                    List<Node> bioModelsDatabaseIdentifiers =
-                            createBioModelsDatabaseIdentifiers(bioModelsIds, referenceDatabase, instanceEdit, tx);
+                try {
+                    for (ResolvedPathway pathway : PathwayLookup.findAll(tx, pathwayStableIdToBioModelsIds.keySet())) {
+                        Set<String> bioModelsIds = pathwayStableIdToBioModelsIds.get(pathway.getStableId());
+                        addBioModelsIdsToPathway(pathway, bioModelsIds, referenceDatabase, instanceEditDbId, writer,
+                                dbIdAllocator, attemptIdentifiers);
+                    }
+                    writer.flush();
+                } catch (RuntimeException e) {
+                    throw unwrapTransient(e);
+                }
+                try (RunMetrics.Phase phase = RunMetrics.startPhase("commit")) {
+                    tx.commit();
+                }
+                return attemptIdentifiers;
+            });
+            BIO_MODELS_INSTANCES.putAll(newIdentifiers);
+        }
+    }
+
+    /**
+     * Applies the same insertion to every database listed in 'targets' (see {@link InsertionTargets}).  The file is
+     * parsed and filtered once, then every target is inserted into at the same time, each on its own driver and in
+     * its own transaction, with its own instance edit and dbIds allocated above its own maximal dbId.  A failing
+     * target is rolled back alone and the other targets still commit.  The result of each target is logged and
+     * written to the 'targetReportFile'.
+     *
+     * @param props Configuration properties for the program
+     * @param pathToModels2Pathways Path to the models2pathways.tsv file
+     * @param verifyMode 'off', 'warn' or 'fail', applied to each target once it has committed
+     * @throws IOException Thrown if the target report can not be written
+     * @throws InterruptedException Thrown if interrupted while waiting for the targets
+     * @throws IllegalStateException Thrown once every target has finished, if any of them failed
+     */
+    private static void runMultiTargetInsertion(Properties props, String pathToModels2Pathways, String verifyMode)
+            throws IOException, InterruptedException {
+        if (!props.getProperty("insertionMode", "full").equalsIgnoreCase("full") ||
+                !props.getProperty("executionMode", "blocking").equalsIgnoreCase("blocking") ||
+                !props.getProperty("commitMode", "single").equalsIgnoreCase("single")) {
+            throw new IllegalArgumentException(
+                    "targets only supports insertionMode=full with executionMode=blocking and commitMode=single");
+        }
+        Map<String, Properties> targets = InsertionTargets.fromProperties(props);
+        Map<String, Set<String>> pathwayStableIdToBioModelsIds = parseModels2Pathways(props, pathToModels2Pathways);
+
+        LOGGER.info("Inserting BioModels ids for {} pathways into {} targets: {}", pathwayStableIdToBioModelsIds.size(),
+                targets.size(), String.join(", ", targets.keySet()));
+        ExecutorService executor = Executors.newFixedThreadPool(targets.size());
+        Map<String, Future<InsertionTargets.Result>> targetResults = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<String, Properties> target : targets.entrySet()) {
+                Path verificationReportFile = Paths.get(InsertionTargets.targetFile(props, target.getKey(),
+                        "verificationReportFile", DEFAULT_VERIFICATION_REPORT_FILE));
+                targetResults.put(target.getKey(), executor.submit(() -> insertIntoTarget(target.getKey(),
+                        target.getValue(), pathwayStableIdToBioModelsIds, verifyMode, verificationReportFile)));
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        List<InsertionTargets.Result> results = new ArrayList<>();
+        for (Map.Entry<String, Future<InsertionTargets.Result>> targetResult : targetResults.entrySet()) {
+            try {
+                results.add(targetResult.getValue().get());
+            } catch (ExecutionException e) {
+                // insertIntoTarget catches exceptions, so only errors end here
+                throw new IllegalStateException("Target " + targetResult.getKey() + " failed", e.getCause());
+            }
+        }
+
+        Path targetReportFile = Paths.get(props.getProperty("targetReportFile", DEFAULT_TARGET_REPORT_FILE));
+        InsertionTargets.writeReport(targetReportFile, results);
+        int failed = 0;
+        for (InsertionTargets.Result result : results) {
+            if (result.passed()) {
+                LOGGER.info("Target {} ({}): BioModels ids added to {} pathways ({} not found), {} identifiers " +
+                        "created, instance edit {}", result.getName(), result.getAddress(),
+                        result.getPathwaysUpdated(), result.getPathwaysUnmatched(), result.getIdentifiersCreated(),
+                        result.getInstanceEditDbId());
+            } else {
+                LOGGER.error("Target {} ({}) failed: {}", result.getName(), result.getAddress(), result.getError());
+                failed++;
+            }
+        }
+        if (failed > 0) {
+            throw new IllegalStateException(failed + " of " + results.size() + " targets failed -- see " +
+                    targetReportFile);
+        }
+        LOGGER.info("All {} targets inserted -- see {}", results.size(), targetReportFile);
+    }
+
+    /**
+     * Inserts the BioModels cross-references into one target in one transaction, then verifies them unless
+     * 'verify=off'.  Any exception is recorded in the result instead of being thrown, so the other targets are not
+     * affected.
+     *
+     * @param name Name of the target
+     * @param targetProps Configuration properties of the target
+     * @param pathwayStableIdToBioModelsIds Map of pathway stable ids to their BioModels ids, shared by the targets
+     * @param verifyMode 'off', 'warn' or 'fail'
+     * @param verificationReportFile File receiving the verification report of the target
+     * @return The result of the target
+     */
+    private static InsertionTargets.Result insertIntoTarget(String name, Properties targetProps,
+                                                            Map<String, Set<String>> pathwayStableIdToBioModelsIds,
+                                                            String verifyMode, Path verificationReportFile) {
+        Thread.currentThread().setName("target-" + name);
+        InsertionTargets.Result result = new InsertionTargets.Result(name, InsertionTargets.address(targetProps));
+        long start = System.nanoTime();
+        try (Driver driver = getDriver(targetProps); RunMetrics.Phase phase = RunMetrics.startPhase("target:" + name)) {
+            runPreflight(driver, targetProps);
+            long personId = Long.parseLong(targetProps.getProperty("personId"));
+            long[] counts;
+            try (Session session = driver.session()) {
+                counts = writeTransaction(session, tx -> {
+                    DbIdAllocator dbIdAllocator = BioModelsUtilities.newDbIdAllocator(tx);
+                    Node instanceEdit = createInstanceEdit(tx, dbIdAllocator, personId,
+                            BioModelsRules.INSTANCE_EDIT_NOTE);
+                    long instanceEditDbId = instanceEdit.get(DBID).asLong();
+                    Node referenceDatabase = fetchBioModelsReferenceDatabase(tx, instanceEdit, dbIdAllocator);
+                    BioModelsWriter writer = createWriter(tx, targetProps);
+
+                    // The identifiers of each target have their own dbIds, so the run's cache is not used
+                    Map<String, Long> newIdentifiers = new IdentifierDbIds();
+                    List<ResolvedPathway> pathways = new ArrayList<>();
+                    Set<String> unmatched = PathwayLookup.forEach(tx, pathwayStableIdToBioModelsIds.keySet(),
+                            pathways::add);
+                    PathwayLookup.reportUnmatched(unmatched, pathwayStableIdToBioModelsIds.size());
                     try {
-                        for (int i = 0; i < bioModelsDatabaseIdentifiers.size(); i++) {
-                            Node bioModelsDatabaseIdentifier = bioModelsDatabaseIdentifiers.get(i);
-                            createRelationship(tx, pathway, bioModelsDatabaseIdentifier,
-                                    ReactomeJavaConstants.crossReference, i, 1);
+                        for (ResolvedPathway pathway : pathways) {
+                            addBioModelsIdsToPathway(pathway, pathwayStableIdToBioModelsIds.get(pathway.getStableId()),
+                                    referenceDatabase, instanceEditDbId, writer, dbIdAllocator, newIdentifiers);
                         }
-                        createRelationship(tx, instanceEdit, pathway,
-                                ReactomeJavaConstants.modified, 0, 1);
-                    } catch (Exception e) {
-                        logAndThrow("Unable to update pathway " + pathwayExtendedDisplayName +
-                                " with BioModels ids " + bioModelsIds, e);
+                        writer.flush();
+                    } catch (RuntimeException e) {
+                        throw unwrapTransient(e);
+                    }
+                    return new long[] {pathways.size(), unmatched.size(), newIdentifiers.size(), instanceEditDbId};
+                });
+            }
+            // Only counted once committed, so a target rolled back has no counts
+            result.inserted(counts[0], counts[1], counts[2], counts[3]);
+
+            if (!verifyMode.equalsIgnoreCase("off")) {
+                verify(driver, InsertionVerifier.crossReferenceCounts(pathwayStableIdToBioModelsIds),
+                        verificationReportFile, verifyMode.equalsIgnoreCase("fail"));
+            }
+        } catch (Exception e) {
+            LOGGER.error("Insertion into target " + name + " failed", e);
+            result.failed(e.getMessage() != null ? e.getMessage() : e.getClass().getName());
+        }
+        result.finished(System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Inserts all BioModels cross-references in one transaction with the 'reactome.biomodels.insert' procedure of the
+     * 'procedure' module, which must be installed in the database.  The parsed rows are sent with one call and the
+     * nodes and relationships are written inside the database, so nothing else crosses Bolt.
+     *
+     * @param driver Neo4j Driver
+     * @param props Configuration properties for the program
+     * @param pathToModels2Pathways Path to the models2pathways.tsv file
+     * @param pathwayStableIdToBioModelsIds Map of pathway stable ids to their BioModels ids, parsed from the file
+     */
+    private static void runProcedureInsertion(Driver driver, Properties props, String pathToModels2Pathways,
+                                              Map<String, Set<String>> pathwayStableIdToBioModelsIds) {
+        List<Map<String, Object>> rows = new ArrayList<>(pathwayStableIdToBioModelsIds.size());
+        for (Map.Entry<String, Set<String>> entry : pathwayStableIdToBioModelsIds.entrySet()) {
+            Map<String, Object> row = new HashMap<>();
+            row.put(BioModelsUtilities.STID, entry.getKey());
+            row.put("bioModelsIds", new ArrayList<>(entry.getValue()));
+            rows.add(row);
+        }
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("rows", rows);
+        parameters.put("personId", Long.parseLong(props.getProperty("personId")));
+
+        Record result;
+        try (Session session = driver.session()) {
+            result = session.writeTransaction(tx -> {
+                Result procedureResult = CypherTemplates.run(tx, CypherTemplates.INSERT_PROCEDURE, parameters);
+                Record record = procedureResult.single();
+                CypherTemplates.consume(CypherTemplates.INSERT_PROCEDURE, procedureResult);
+                return record;
+            });
+        }
+        long pathwaysUpdated = result.get("pathwaysUpdated").asLong();
+        long pathwaysUnmatched = result.get("pathwaysUnmatched").asLong();
+        RunMetrics.add(RunMetrics.PATHWAYS_FOUND, pathwaysUpdated);
+        RunMetrics.add(RunMetrics.PATHWAYS_UPDATED, pathwaysUpdated);
+        RunMetrics.add(RunMetrics.PATHWAYS_UNMATCHED, pathwaysUnmatched);
+        RunMetrics.add(RunMetrics.IDENTIFIERS_CREATED, result.get("identifiersCreated").asLong());
+        RunMetrics.add(RunMetrics.IDENTIFIERS_REUSED, result.get("identifiersReused").asLong());
+        RunMetrics.add(RunMetrics.NODES_CREATED, result.get("nodesCreated").asLong());
+        RunMetrics.add(RunMetrics.RELATIONSHIPS_CREATED, result.get("relationshipsCreated").asLong());
+        if (pathwaysUnmatched > 0) {
+            LOGGER.warn("{} of {} pathways of {} are not in the database", pathwaysUnmatched, rows.size(),
+                    pathToModels2Pathways);
+        }
+        LOGGER.info("BioModels ids added to {} pathways by the procedure, with instance edit {}", pathwaysUpdated,
+                result.get("instanceEditDbId").asLong());
+    }
+
+    /**
+     * Inserts the BioModels cross-references committing every 'chunkSize' pathways in their own transaction.  Each
+     * chunk is a transaction function, so the driver retries it on transient errors for up to
+     * 'maxTransactionRetrySeconds'.  Progress is recorded in the 'checkpointFile' after every commit so a rerun
+     * continues from the last committed chunk, reusing the same instance edit and reference database.  Their dbIds
+     * are recorded before the set-up commits too, so a run stopping between that commit and its record does not leave
+     * an instance edit of its own behind: the rerun reuses it if it is in the database.
+     *
+     * @param driver Neo4j Driver
+     * @param props Configuration properties for the program
+     * @param pathToModels2Pathways Path to the models2pathways.tsv file
+     * @param pathwayStableIdToBioModelsIds Map of pathway stable ids to their BioModels ids, parsed from the file
+     * @throws IOException Thrown if the checkpoint file can not be read or written
+     */
+    private static void runChunkedInsertion(Driver driver, Properties props, String pathToModels2Pathways,
+                                            Map<String, Set<String>> pathwayStableIdToBioModelsIds)
+            throws IOException {
+        int chunkSize = Integer.parseInt(props.getProperty("chunkSize", String.valueOf(DEFAULT_CHUNK_SIZE)));
+        Path checkpointFile = Paths.get(props.getProperty("checkpointFile", DEFAULT_CHECKPOINT_FILE));
+        InsertionCheckpoint checkpoint = InsertionCheckpoint.open(checkpointFile, Paths.get(pathToModels2Pathways));
+
+        try (Session session = driver.session()) {
+            AtomicReference<DbIdAllocator> dbIdAllocator = new AtomicReference<>();
+            List<Node> sharedNodes = writeTransaction(session, tx -> {
+                dbIdAllocator.set(BioModelsUtilities.newDbIdAllocator(tx));
+                if (checkpoint.isResumed()) {
+                    LOGGER.info("Resuming BioModels insertion from checkpoint {}", checkpointFile);
+                    return Arrays.asList(getNodeByDbId(tx, checkpoint.getInstanceEditDbId()),
+                            getNodeByDbId(tx, checkpoint.getReferenceDatabaseDbId()));
+                }
+                if (checkpoint.hasSetupIntent()) {
+                    Node intendedInstanceEdit = BioModelsUtilities.getNodeByDbId(BioModelsQueries.of(tx),
+                            checkpoint.getIntendedInstanceEditDbId());
+                    if (intendedInstanceEdit != null &&
+                            intendedInstanceEdit.hasLabel(ReactomeJavaConstants.InstanceEdit)) {
+                        LOGGER.info("Reusing instance edit {} committed by the previous run before it was recorded",
+                                checkpoint.getIntendedInstanceEditDbId());
+                        return Arrays.asList(intendedInstanceEdit,
+                                getNodeByDbId(tx, checkpoint.getIntendedReferenceDatabaseDbId()));
+                    }
+                }
+                long personId = Long.parseLong(props.getProperty("personId"));
+                Node newInstanceEdit = createInstanceEdit(tx, dbIdAllocator.get(), personId,
+                        BioModelsRules.INSTANCE_EDIT_NOTE);
+                Node newReferenceDatabase = fetchBioModelsReferenceDatabase(tx, newInstanceEdit, dbIdAllocator.get());
+                try {
+                    // Recorded before the commit, so a rerun finds the nodes if the run stops before recordSetup
+                    checkpoint.recordSetupIntent(newInstanceEdit.get(DBID).asLong(),
+                            newReferenceDatabase.get(DBID).asLong());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return Arrays.asList(newInstanceEdit, newReferenceDatabase);
+            });
+            Node instanceEdit = sharedNodes.get(0);
+            Node referenceDatabase = sharedNodes.get(1);
+            long instanceEditDbId = instanceEdit.get(DBID).asLong();
+
+            if (checkpoint.isResumed()) {
+                reconcileCheckpoint(session, checkpoint, instanceEditDbId);
+            } else {
+                checkpoint.recordSetup(instanceEditDbId, referenceDatabase.get(DBID).asLong());
+            }
+            BIO_MODELS_INSTANCES.putAll(checkpoint.getIdentifierDbIds());
+
+            List<ResolvedPathway> pathways = new ArrayList<>();
+            for (ResolvedPathway pathway : session.readTransaction(
+                    tx -> PathwayLookup.findAll(tx, pathwayStableIdToBioModelsIds.keySet()))) {
+                if (!checkpoint.isCompleted(pathway.getStableId())) {
+                    pathways.add(pathway);
+                }
+            }
+            LOGGER.info("Inserting BioModels ids for {} pathways in chunks of {}", pathways.size(), chunkSize);
+
+            for (int start = 0; start < pathways.size(); start += chunkSize) {
+                List<ResolvedPathway> chunk = pathways.subList(start, Math.min(start + chunkSize, pathways.size()));
+                Map<String, Long> newIdentifiers = writeTransaction(session, tx -> {
+                    // The transaction function may be retried, so it must not depend on state from a failed attempt.
+                    // dbIds allocated by a failed attempt are not reused.
+                    Map<String, Long> chunkIdentifiers = new LinkedHashMap<>();
+                    BioModelsWriter writer = createWriter(tx, props);
+                    try {
+                        for (ResolvedPathway pathway : chunk) {
+                            Set<String> bioModelsIds = pathwayStableIdToBioModelsIds.get(pathway.getStableId());
+                            addBioModelsIdsToPathway(pathway, bioModelsIds, referenceDatabase, instanceEditDbId, writer,
+                                    dbIdAllocator.get(), chunkIdentifiers);
+                        }
+                        writer.flush();
+                    } catch (RuntimeException e) {
+                        // Unwrap transient errors wrapped by logAndThrow so the driver retries the chunk
+                        if (e.getCause() instanceof TransientException) {
+                            throw (TransientException) e.getCause();
+                        }
+                        throw e;
+                    }
+                    return chunkIdentifiers;
+                });
+                BIO_MODELS_INSTANCES.putAll(newIdentifiers);
+
+                List<String> chunkStableIds = new ArrayList<>();
+                for (ResolvedPathway pathway : chunk) {
+                    chunkStableIds.add(pathway.getStableId());
+                }
+                checkpoint.recordChunk(chunkStableIds, newIdentifiers);
+                LOGGER.info("Committed chunk of {} pathways ({} of {})", chunk.size(), start + chunk.size(), pathways.size());
+            }
+        }
+        checkpoint.delete();
+    }
+
+    /**
+     * Inserts the BioModels cross-references of disjoint shards of the pathways concurrently on 'insertionWorkers'
+     * sessions, each shard in its own transaction function.  'shardBy' selects one shard per species ('species', the
+     * default) or 'insertionWorkers' shards by hash of the stable id ('hash').  A DatabaseIdentifier written by an
+     * uncommitted transaction can not be used by another one, so the DatabaseIdentifiers of all BioModels ids are
+     * created and committed first, each exactly once; the shards then only read the shared identifier cache.  Each
+     * shard records its pathways as modified by its own instance edit, created with the shared one, as a single
+     * instance edit written by every shard would be locked by each of them until its commit and serialize them.  The
+     * remaining contention is on the DatabaseIdentifiers cross-referenced by pathways of several shards: creating a
+     * crossReference locks the identifier until the shard commits, so shards sharing many BioModels ids partly wait for
+     * each other (the 'sharded' load test scenarios compare 'insertionWorkers').  The driver retries a shard failing
+     * with a deadlock or another transient error for up to 'maxTransactionRetrySeconds'.  A shard failing anyway does
+     * not stop the others; the run fails after every shard has finished, and a diff insertion adds the
+     * cross-references of the failed shards.
+     *
+     * @param driver Neo4j Driver
+     * @param props Configuration properties for the program
+     * @param pathwayStableIdToBioModelsIds Map of pathway stable ids to their BioModels ids, parsed from the file
+     * @throws InterruptedException Thrown if interrupted while waiting for the shards
+     */
+    private static void runShardedInsertion(Driver driver, Properties props,
+                                            Map<String, Set<String>> pathwayStableIdToBioModelsIds)
+            throws InterruptedException {
+        String shardBy = props.getProperty("shardBy", "species");
+        int workers = Integer.parseInt(props.getProperty("insertionWorkers", String.valueOf(DEFAULT_INSERTION_WORKERS)));
+        if (workers < 1) {
+            throw new IllegalArgumentException("insertionWorkers must be positive: " + workers);
+        }
+        long personId = Long.parseLong(props.getProperty("personId"));
+
+        AtomicReference<DbIdAllocator> dbIdAllocator = new AtomicReference<>();
+        Node referenceDatabase;
+        long instanceEditDbId;
+        Map<String, Long> shardInstanceEditDbIds = new HashMap<>();
+        Map<String, ResolvedPathway> pathways = new LinkedHashMap<>();
+        Map<String, List<String>> shards;
+        try (Session session = driver.session()) {
+            Set<String> bioModelsIds = new LinkedHashSet<>();
+            for (ResolvedPathway pathway : session.readTransaction(
+                    tx -> PathwayLookup.findAll(tx, pathwayStableIdToBioModelsIds.keySet()))) {
+                String pathwayStableId = pathway.getStableId();
+                pathways.put(pathwayStableId, pathway);
+                bioModelsIds.addAll(pathwayStableIdToBioModelsIds.get(pathwayStableId));
+            }
+            shards = PathwayShards.assign(pathways.keySet(), shardBy, workers);
+
+            List<Node> sharedNodes = writeTransaction(session, tx -> {
+                dbIdAllocator.set(BioModelsUtilities.newDbIdAllocator(tx));
+                Node newInstanceEdit = createInstanceEdit(tx, dbIdAllocator.get(), personId,
+                        BioModelsRules.INSTANCE_EDIT_NOTE);
+                List<Node> nodes = new ArrayList<>(Arrays.asList(newInstanceEdit,
+                        fetchBioModelsReferenceDatabase(tx, newInstanceEdit, dbIdAllocator.get())));
+                for (int i = 0; i < shards.size(); i++) {
+                    nodes.add(createInstanceEdit(tx, dbIdAllocator.get(), personId,
+                            BioModelsRules.INSTANCE_EDIT_NOTE));
+                }
+                return nodes;
+            });
+            instanceEditDbId = sharedNodes.get(0).get(DBID).asLong();
+            referenceDatabase = sharedNodes.get(1);
+            int shardIndex = 2;
+            for (String shard : shards.keySet()) {
+                shardInstanceEditDbIds.put(shard, sharedNodes.get(shardIndex++).get(DBID).asLong());
+            }
+
+            Map<String, Long> newIdentifiers = writeTransaction(session, tx -> {
+                Map<String, Long> attemptIdentifiers = new IdentifierDbIds();
+                BioModelsWriter writer = createWriter(tx, props);
+                try {
+                    createBioModelsDatabaseIdentifiers(bioModelsIds, referenceDatabase, instanceEditDbId, writer,
+                            dbIdAllocator.get(), attemptIdentifiers);
+                    writer.flush();
+                } catch (RuntimeException e) {
+                    throw unwrapTransient(e);
+                }
+                return attemptIdentifiers;
+            });
+            BIO_MODELS_INSTANCES.putAll(newIdentifiers);
+        }
+
+        LOGGER.info("Inserting BioModels ids for {} pathways in {} shards on {} sessions",
+                pathways.size(), shards.size(), workers);
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        Map<String, Future<?>> shardResults = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<String, List<String>> shard : shards.entrySet()) {
+                List<ResolvedPathway> shardPathways = new ArrayList<>();
+                for (String pathwayStableId : shard.getValue()) {
+                    shardPathways.add(pathways.get(pathwayStableId));
+                }
+                shardResults.put(shard.getKey(), executor.submit(() -> insertShard(driver, props, shard.getKey(),
+                        shardPathways, pathwayStableIdToBioModelsIds, referenceDatabase,
+                        shardInstanceEditDbIds.get(shard.getKey()), dbIdAllocator.get())));
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        IllegalStateException failure = null;
+        for (Map.Entry<String, Future<?>> shardResult : shardResults.entrySet()) {
+            try {
+                shardResult.getValue().get();
+            } catch (ExecutionException e) {
+                LOGGER.error("Shard " + shardResult.getKey() + " failed", e.getCause());
+                if (failure == null) {
+                    failure = new IllegalStateException("Shard " + shardResult.getKey() + " failed", e.getCause());
+                } else {
+                    failure.addSuppressed(e.getCause());
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Inserts the cross-references of a shard in one transaction function on its own session.  Every DatabaseIdentifier
+     * was created before the shards started, which is checked before anything of the shard is written.
+     *
+     * @param driver Neo4j Driver
+     * @param props Configuration properties for the program
+     * @param shard Name of the shard
+     * @param pathways Pathways of the shard
+     * @param pathwayStableIdToBioModelsIds Map of pathway stable ids to their BioModels ids
+     * @param referenceDatabase Node for the BioModels reference database
+     * @param instanceEditDbId dbId of the instance edit of the shard
+     * @param dbIdAllocator Source of dbIds shared by all shards
+     * @throws IllegalStateException Thrown if a BioModels id of the shard has no pre-created DatabaseIdentifier
+     */
+    private static void insertShard(Driver driver, Properties props, String shard, List<ResolvedPathway> pathways,
+                                    Map<String, Set<String>> pathwayStableIdToBioModelsIds, Node referenceDatabase,
+                                    long instanceEditDbId, DbIdAllocator dbIdAllocator) {
+        // Two shards creating the same identifier would duplicate it, so none may be created here
+        for (ResolvedPathway pathway : pathways) {
+            for (String bioModelsId : pathwayStableIdToBioModelsIds.get(pathway.getStableId())) {
+                if (BIO_MODELS_INSTANCES.getDbId(bioModelsId, -1L) < 0) {
+                    throw new IllegalStateException("BioModels id " + bioModelsId + " of pathway " +
+                            pathway.getStableId() + " in shard " + shard +
+                            " is not among the DatabaseIdentifiers created before the shards");
+                }
+            }
+        }
+
+        try (Session session = driver.session()) {
+            writeTransaction(session, tx -> {
+                BioModelsWriter writer = createWriter(tx, props);
+                try {
+                    for (ResolvedPathway pathway : pathways) {
+                        Set<String> bioModelsIds = pathwayStableIdToBioModelsIds.get(pathway.getStableId());
+                        addBioModelsIdsToPathway(pathway, bioModelsIds, referenceDatabase, instanceEditDbId, writer,
+                                dbIdAllocator, Collections.emptyMap());
+                    }
+                    writer.flush();
+                } catch (RuntimeException e) {
+                    throw unwrapTransient(e);
+                }
+                return null;
+            });
+        }
+        LOGGER.info("Committed shard {} of {} pathways", shard, pathways.size());
+    }
+
+    /**
+     * Transient errors (e.g. deadlocks) are wrapped by logAndThrow; unwrapping them lets the driver retry the
+     * transaction function
+     *
+     * @param e Exception thrown in a transaction function
+     * @return The wrapped TransientException, or e
+     */
+    private static RuntimeException unwrapTransient(RuntimeException e) {
+        return e.getCause() instanceof TransientException ? (TransientException) e.getCause() : e;
+    }
+
+    /**
+     * Writes the nodes and relationships a full insertion would create as CSV files in the 'planDirectory' instead of
+     * writing them to the database (see {@link InsertionPlan}).  The person, the BioModels reference database, the
+     * maximal dbId and the pathways are read in one read transaction, and the plan is built by the same code as the
+     * single transaction insertion, so it allocates the same dbIds and holds the same nodes, properties and
+     * relationships.  The dbIds are only valid as long as no other DatabaseObject is created before the plan is
+     * loaded.
+     *
+     * @param driver Neo4j Driver
+     * @param props Configuration properties for the program
+     * @param pathwayStableIdToBioModelsIds Map of pathway stable ids to their BioModels ids, parsed from the file
+     * @throws IOException Thrown if the plan files can not be written
+     */
+    private static void runPlanExport(Driver driver, Properties props,
+                                      Map<String, Set<String>> pathwayStableIdToBioModelsIds)
+            throws IOException {
+        Path planDirectory = Paths.get(props.getProperty("planDirectory", DEFAULT_PLAN_DIRECTORY));
+        int periodicCommitSize = Integer.parseInt(
+                props.getProperty("planPeriodicCommitSize", String.valueOf(DEFAULT_PLAN_PERIODIC_COMMIT_SIZE)));
+        long personId = Long.parseLong(props.getProperty("personId"));
+
+        InsertionPlan plan = new InsertionPlan();
+        try (Session session = driver.session()) {
+            session.readTransaction(tx -> {
+                DbIdAllocator dbIdAllocator = BioModelsUtilities.newDbIdAllocator(tx);
+
+                // Same instance edit and reference database as createInstanceEdit and fetchBioModelsReferenceDatabase
+                Node person = getNodeByDbId(tx, personId);
+                HashMap<String, Object> instanceEdit = instanceEditProperties(person, dbIdAllocator.next(),
+                        BioModelsRules.INSTANCE_EDIT_NOTE);
+                long instanceEditDbId = (Long) instanceEdit.get(DBID);
+                BioModelsRules.writeInstanceEdit(plan, person.get(DBID).asLong(), instanceEdit);
+                MapAccessor referenceDatabase = retrieveBioModelsDatabaseInstance(tx);
+                if (referenceDatabase == null) {
+                    referenceDatabase = Values.value(
+                            BioModelsRules.writeReferenceDatabase(plan, instanceEditDbId, dbIdAllocator.next()));
+                }
+
+                Map<String, Long> newIdentifiers = new IdentifierDbIds();
+                MapAccessor planReferenceDatabase = referenceDatabase;
+                // Pathways are planned as their records stream in, without collecting them first
+                Set<String> unmatched = PathwayLookup.forEach(tx, pathwayStableIdToBioModelsIds.keySet(), pathway ->
+                        addBioModelsIdsToPathway(pathway, pathwayStableIdToBioModelsIds.get(pathway.getStableId()),
+                                planReferenceDatabase, instanceEditDbId, plan, dbIdAllocator, newIdentifiers));
+                PathwayLookup.reportUnmatched(unmatched, pathwayStableIdToBioModelsIds.size());
+                return null;
+            });
+        }
+
+        List<Path> files = plan.writeCsv(planDirectory, periodicCommitSize);
+        LOGGER.info("Wrote plan of {} nodes and {} relationships to {} files in {}",
+                plan.getNodeCount(), plan.getRelationshipCount(), files.size(), planDirectory);
+    }
+
+    /**
+     * Inserts all BioModels cross-references in one transaction while the models2pathways.tsv file is parsed.  The
+     * file is read as a stream of BioModels ids with their pathways (see {@link ModelsStream}): the pathways are looked
+     * up in chunks of 'resolveChunkSize' ids on a second session, and at most 'streamQueueCapacity' ids wait between
+     * the stages, so the whole file is never held in memory.  Each pathway numbers its cross-references in the order
+     * of the file, which gives the same graph as the full insertion.  The lines of each BioModels id must be
+     * consecutive in the file, and the run fails on a BioModels id seen again.  The score threshold and species
+     * allow-list apply, but not 'topBioModelsPerPathway' nor the ordering by score, which need the whole file.  Only
+     * the client's memory is bounded: the whole file is still written in one transaction, whose state the database
+     * holds until the commit ('commitMode=chunked' bounds it instead).
+     *
+     * @param driver Neo4j Driver
+     * @param props Configuration properties for the program
+     * @param pathToModels2Pathways Path to the models2pathways.tsv file
+     * @return Number of BioModels cross-references added to each pathway stable id, which the verification expects
+     */
+    private static Map<String, Integer> runStreamingInsertion(Driver driver, Properties props,
+                                                              String pathToModels2Pathways) {
+        int queueCapacity = Integer.parseInt(
+                props.getProperty("streamQueueCapacity", String.valueOf(DEFAULT_STREAM_QUEUE_CAPACITY)));
+        int resolveChunkSize = Integer.parseInt(
+                props.getProperty("resolveChunkSize", String.valueOf(DEFAULT_RESOLVE_CHUNK_SIZE)));
+        long personId = Long.parseLong(props.getProperty("personId"));
+        ModelsFilter filter = createModelsFilter(props);
+
+        AtomicReference<Map<String, Integer>> crossReferenceCounts = new AtomicReference<>();
+        try (Session session = driver.session(); Session resolverSession = driver.session()) {
+            Map<String, Long> newIdentifiers = writeTransaction(session, tx -> {
+                // The transaction function may be retried, so each attempt streams the file from the start
+                Map<String, Long> attemptIdentifiers = new IdentifierDbIds();
+                RejectReport rejects = new RejectReport();
+                DbIdAllocator dbIdAllocator = BioModelsUtilities.newDbIdAllocator(tx);
+                Node instanceEdit = createInstanceEdit(tx, dbIdAllocator, personId, BioModelsRules.INSTANCE_EDIT_NOTE);
+                long instanceEditDbId = instanceEdit.get(DBID).asLong();
+                Node referenceDatabase = fetchBioModelsReferenceDatabase(tx, instanceEdit, dbIdAllocator);
+                BioModelsWriter writer = createWriter(tx, props);
+
+                Map<String, Integer> pathwayCrossReferenceCounts = new HashMap<>();
+                try (ModelsStream stream = ModelsStream.open(Paths.get(pathToModels2Pathways), rejects, filter,
+                        pathwayStableIds -> resolverSession.readTransaction(readTx -> {
+                            // The stream reports the stable ids not found once all of them are resolved
+                            List<ResolvedPathway> pathways = new ArrayList<>();
+                            PathwayLookup.forEach(readTx, pathwayStableIds, pathways::add);
+                            return pathways;
+                        }),
+                        queueCapacity, resolveChunkSize)) {
+                    for (ModelsStream.ResolvedGroup group = stream.next(); group != null; group = stream.next()) {
+                        addBioModelsIdToPathways(group, referenceDatabase, instanceEditDbId, writer, dbIdAllocator,
+                                attemptIdentifiers, pathwayCrossReferenceCounts);
                     }
-                    LOGGER.info("BioModels ids successfully added to pathway " + pathwayExtendedDisplayName);
+                    writer.flush();
+                } catch (RuntimeException e) {
+                    // Unwrap transient errors wrapped by logAndThrow so the driver retries the transaction
+                    if (e.getCause() instanceof TransientException) {
+                        throw (TransientException) e.getCause();
+                    }
+                    throw e;
                 }
-                tx.commit();
-                return null; // Return value for a transaction
+                writeRejectReport(props, pathToModels2Pathways, rejects);
+                LOGGER.info("Inserted BioModels ids for {} pathways", pathwayCrossReferenceCounts.size());
+                crossReferenceCounts.set(pathwayCrossReferenceCounts);
+                return attemptIdentifiers;
             });
+            BIO_MODELS_INSTANCES.putAll(newIdentifiers);
+        }
+        return crossReferenceCounts.get();
+    }
+
+    /**
+     * Adds a BioModels id as cross-reference of its pathways, creating its DatabaseIdentifier if needed.  The
+     * cross-reference is numbered after those already added to the pathway, and a pathway is recorded as modified by
+     * the instance edit when its first cross-reference is added.  The file is grouped by BioModels id and a group lists
+     * each of its pathways once, so a pathway meets each BioModels id once and only its count of cross-references is
+     * kept, whatever the number of lines.
+     *
+     * @param group BioModels id and its pathways
+     * @param referenceDatabase Node for the BioModels reference database
+     * @param instanceEditDbId dbId of the instanceEdit attached to the person ID that is executing this program
+     * @param writer Writer for the new nodes and relationships
+     * @param dbIdAllocator Source of dbIds for new DatabaseIdentifiers
+     * @param newIdentifiers Map receiving the BioModels ids and dbIds of newly created DatabaseIdentifiers
+     * @param pathwayCrossReferenceCounts Number of cross-references already added to each pathway stable id, which is
+     * the order of its next one
+     */
+    private static void addBioModelsIdToPathways(ModelsStream.ResolvedGroup group, Node referenceDatabase,
+                                                 long instanceEditDbId, BioModelsWriter writer,
+                                                 DbIdAllocator dbIdAllocator, Map<String, Long> newIdentifiers,
+                                                 Map<String, Integer> pathwayCrossReferenceCounts) {
+        long identifierDbId = createBioModelsDatabaseIdentifiers(Collections.singleton(group.getBioModelsId()),
+                referenceDatabase, instanceEditDbId, writer, dbIdAllocator, newIdentifiers).get(0);
+        try (RunMetrics.Phase phase = RunMetrics.startPhase("createRelationships")) {
+            for (ResolvedPathway pathway : group.getPathways()) {
+                long pathwayDbId = pathway.getDbId();
+                Integer order = pathwayCrossReferenceCounts.get(pathway.getStableId());
+                if (order == null) {
+                    order = 0;
+                    writer.createRelationship(instanceEditDbId, pathwayDbId, ReactomeJavaConstants.modified, 0, 1);
+                    RunMetrics.increment(RunMetrics.PATHWAYS_UPDATED);
+                }
+                writer.createRelationship(pathwayDbId, identifierDbId, ReactomeJavaConstants.crossReference, order, 1);
+                pathwayCrossReferenceCounts.put(pathway.getStableId(), order + 1);
+            }
+        }
+    }
+
+    /**
+     * Inserts all BioModels cross-references in one transaction on an asynchronous session, keeping up to
+     * 'maxInFlightStatements' statements in flight (see {@link PipelinedBioModelsWriter}) instead of waiting for each
+     * statement before sending the next.  Like a transaction function, the transaction is retried from the start on
+     * transient errors for up to 'maxTransactionRetrySeconds'.
+     *
+     * @param driver Neo4j Driver
+     * @param props Configuration properties for the program
+     * @param pathwayStableIdToBioModelsIds Map of pathway stable ids to their BioModels ids, parsed from the file
+     */
+    private static void runAsyncInsertion(Driver driver, Properties props,
+                                          Map<String, Set<String>> pathwayStableIdToBioModelsIds) {
+        int maxInFlight = Integer.parseInt(
+                props.getProperty("maxInFlightStatements", String.valueOf(DEFAULT_MAX_IN_FLIGHT_STATEMENTS)));
+        long maxRetryNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(
+                props.getProperty("maxTransactionRetrySeconds", String.valueOf(DEFAULT_MAX_TRANSACTION_RETRY_SECONDS))));
+        LOGGER.info("Inserting BioModels ids with up to {} statements in flight", maxInFlight);
+
+        long retryDeadline = System.nanoTime() + maxRetryNanos;
+        while (true) {
+            AsyncSession session = driver.asyncSession();
+            try {
+                Map<String, Long> newIdentifiers = new IdentifierDbIds();
+                insertAsync(session, props, pathwayStableIdToBioModelsIds, maxInFlight, newIdentifiers);
+                BIO_MODELS_INSTANCES.putAll(newIdentifiers);
+                return;
+            } catch (RuntimeException e) {
+                // Transient errors may be wrapped by logAndThrow
+                Throwable cause = e instanceof TransientException ? e : e.getCause();
+                if (!(cause instanceof TransientException) || System.nanoTime() > retryDeadline) {
+                    throw e;
+                }
+                LOGGER.warn("Retrying BioModels insertion after transient error: {}", cause.getMessage());
+            } finally {
+                PipelinedBioModelsWriter.await(session.closeAsync());
+            }
+        }
+    }
+
+    /**
+     * One attempt of the asynchronous insertion; the transaction is rolled back if the attempt fails
+     *
+     * @param session Neo4j Driver AsyncSession
+     * @param props Configuration properties for the program
+     * @param pathwayStableIdToBioModelsIds Pathway stable ids and their BioModels ids parsed from the file
+     * @param maxInFlight Maximum number of statements in flight
+     * @param newIdentifiers Map receiving the BioModels ids and dbIds of newly created DatabaseIdentifiers
+     */
+    private static void insertAsync(AsyncSession session, Properties props,
+                                    Map<String, Set<String>> pathwayStableIdToBioModelsIds, int maxInFlight,
+                                    Map<String, Long> newIdentifiers) {
+        AsyncTransaction tx = PipelinedBioModelsWriter.await(session.beginTransactionAsync());
+        try {
+            PipelinedBioModelsWriter writer = new PipelinedBioModelsWriter(tx, maxInFlight);
+
+            DbIdAllocator dbIdAllocator = new DbIdAllocator(BioModelsUtilities.getMaxDbId(writer));
+            long personId = Long.parseLong(props.getProperty("personId"));
+            long instanceEditDbId = writeInstanceEdit(writer, writer, dbIdAllocator, personId,
+                    BioModelsRules.INSTANCE_EDIT_NOTE);
+            Node referenceDatabase = BioModelsUtilities.fetchBioModelsReferenceDatabase(writer, writer,
+                    instanceEditDbId, dbIdAllocator);
+
+            List<ResolvedPathway> pathways = new ArrayList<>();
+            PathwayLookup.reportUnmatched(PathwayLookup.forEach(writer, pathwayStableIdToBioModelsIds.keySet(),
+                    pathways::add), pathwayStableIdToBioModelsIds.size());
+            for (ResolvedPathway pathway : pathways) {
+                Set<String> bioModelsIds = pathwayStableIdToBioModelsIds.get(pathway.getStableId());
+                addBioModelsIdsToPathway(pathway, bioModelsIds, referenceDatabase, instanceEditDbId, writer,
+                        dbIdAllocator, newIdentifiers);
+            }
+            writer.flush();
+            try (RunMetrics.Phase phase = RunMetrics.startPhase("commit")) {
+                PipelinedBioModelsWriter.await(tx.commitAsync());
+            }
+        } catch (RuntimeException e) {
+            try {
+                PipelinedBioModelsWriter.await(tx.rollbackAsync());
+            } catch (RuntimeException rollbackError) {
+                e.addSuppressed(rollbackError);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Brings the BioModels cross-references of the database in line with the models2pathways.tsv file, writing only
+     * what changed.  The stored BioModels DatabaseIdentifiers and their pathway cross-references are loaded with one
+     * streaming query and compared with the file; only the missing DatabaseIdentifiers and cross-references are
+     * created.  If 'pruneStaleCrossReferences' is true, cross-references which are no longer in the file are removed.
+     * A pathway linking several DatabaseIdentifiers of one BioModels id keeps one link and loses the others.  The
+     * changes are applied in one transaction and no instance edit is created when nothing changed.
+     *
+     * @param driver Neo4j Driver
+     * @param props Configuration properties for the program
+     * @param pathwayStableIdToBioModelsIds Map of pathway stable ids to their BioModels ids, parsed from the file
+     */
+    private static void runDiffInsertion(Driver driver, Properties props,
+                                         Map<String, Set<String>> pathwayStableIdToBioModelsIds) {
+        boolean pruneStale = Boolean.parseBoolean(props.getProperty("pruneStaleCrossReferences", "false"));
+
+        try (Session session = driver.session()) {
+            writeTransaction(session, tx -> {
+                Node storedReferenceDatabase = BioModelsUtilities.retrieveBioModelsDatabaseInstance(tx);
+                BioModelsCrossReferences existing = storedReferenceDatabase == null ?
+                        new BioModelsCrossReferences() :
+                        BioModelsCrossReferences.load(tx, storedReferenceDatabase.get(DBID).asLong());
+
+                // Pathways of the file which are not in the database can not change, so they are left out of the diff
+                Map<String, ResolvedPathway> pathwaysByStableId = new HashMap<>();
+                Set<String> unmatched = PathwayLookup.forEach(tx, pathwayStableIdToBioModelsIds.keySet(),
+                        pathway -> pathwaysByStableId.put(pathway.getStableId(), pathway));
+                PathwayLookup.reportUnmatched(unmatched, pathwayStableIdToBioModelsIds.size());
+                CrossReferenceDiff diff = CrossReferenceDiff.compute(pathwayStableIdToBioModelsIds,
+                        pathwaysByStableId.keySet(), existing, pruneStale);
+                LOGGER.info("{} BioModels cross-references to add, {} to remove and {} to deduplicate in {} pathways",
+                        diff.getAddedCount(), diff.getRemovedCount(), diff.getDeduplicatedCount(),
+                        diff.getPathwayChanges().size());
+                if (diff.isEmpty()) {
+                    LOGGER.info("BioModels cross-references are up to date");
+                    return null;
+                }
+
+                DbIdAllocator dbIdAllocator = BioModelsUtilities.newDbIdAllocator(tx);
+                long personId = Long.parseLong(props.getProperty("personId"));
+                Node instanceEdit = createInstanceEdit(tx, dbIdAllocator, personId,
+                        BioModelsRules.UPDATE_INSTANCE_EDIT_NOTE);
+                Node referenceDatabase = fetchBioModelsReferenceDatabase(tx, instanceEdit, dbIdAllocator);
+                applyCrossReferenceDiff(tx, diff, existing, pathwaysByStableId, referenceDatabase,
+                        instanceEdit.get(DBID).asLong(), createWriter(tx, props), dbIdAllocator);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Applies the changes of the diff: removes and renumbers the changed stored cross-references, then creates the
+     * missing DatabaseIdentifiers and the new cross-references.  Every changed pathway is recorded as modified by the
+     * instance edit.
+     *
+     * @param tx Neo4j Driver Transaction
+     * @param diff Changes to apply
+     * @param existing BioModels identifiers and cross-references stored in the database
+     * @param pathwaysByStableId Pathways of the file found in the database, by stable id
+     * @param referenceDatabase Node for the BioModels reference database
+     * @param instanceEditDbId dbId of the instanceEdit attached to the person ID that is executing this program
+     * @param writer Writer for the new nodes and relationships
+     * @param dbIdAllocator Source of dbIds for new DatabaseIdentifiers
+     */
+    private static void applyCrossReferenceDiff(Transaction tx, CrossReferenceDiff diff,
+                                                BioModelsCrossReferences existing,
+                                                Map<String, ResolvedPathway> pathwaysByStableId,
+                                                Node referenceDatabase, long instanceEditDbId,
+                                                BioModelsWriter writer, DbIdAllocator dbIdAllocator) {
+
+        // Stored identifiers are looked up like those created earlier in this transaction, so they are not created again
+        Map<String, Long> identifierDbIds = new HashMap<>(existing.getIdentifierDbIds());
+        List<Map<String, Object>> removedRows = new ArrayList<>();
+        List<Map<String, Object>> reorderedRows = new ArrayList<>();
+        for (CrossReferenceDiff.PathwayChange change : diff.getPathwayChanges()) {
+            // A pathway only pruned is not in the file, but its dbId was loaded with its cross-references
+            ResolvedPathway pathway = pathwaysByStableId.get(change.getPathwayStableId());
+            long pathwayDbId = pathway != null ? pathway.getDbId() :
+                    existing.getPathwayDbId(change.getPathwayStableId());
+            // Through the DatabaseIdentifiers the pathway links to, which may not be those found by BioModels id
+            for (String bioModelsId : change.getRemoved()) {
+                removedRows.addAll(existing.crossReferenceRows(change.getPathwayStableId(), pathwayDbId,
+                        bioModelsId, 0));
+            }
+            for (String bioModelsId : change.getDeduplicated()) {
+                removedRows.addAll(existing.duplicateCrossReferenceRows(change.getPathwayStableId(), pathwayDbId,
+                        bioModelsId));
+            }
+            for (Map.Entry<String, Integer> reordered : change.getReordered().entrySet()) {
+                reorderedRows.addAll(existing.keptCrossReferenceRows(change.getPathwayStableId(), pathwayDbId,
+                        reordered.getKey(), reordered.getValue()));
+            }
+
+            List<Long> addedDbIds = createBioModelsDatabaseIdentifiers(change.getAdded().keySet(), referenceDatabase,
+                    instanceEditDbId, writer, dbIdAllocator, identifierDbIds);
+            try (RunMetrics.Phase phase = RunMetrics.startPhase("createRelationships")) {
+                int i = 0;
+                for (int order : change.getAdded().values()) {
+                    writer.createRelationship(pathwayDbId, addedDbIds.get(i++), ReactomeJavaConstants.crossReference,
+                            order, 1);
+                }
+                writer.createRelationship(instanceEditDbId, pathwayDbId, ReactomeJavaConstants.modified, 0, 1);
+            }
+            RunMetrics.increment(RunMetrics.PATHWAYS_UPDATED);
+        }
+
+        BioModelsUtilities.deleteCrossReferences(tx, removedRows);
+        BioModelsUtilities.setCrossReferenceOrders(tx, reorderedRows);
+        writer.flush();
+    }
+
+    /**
+     * Adds to the checkpoint any pathways and identifiers committed by the previous run but not yet recorded in the
+     * checkpoint file, e.g. because the run stopped between a commit and writing the checkpoint.
+     *
+     * @param session Neo4j Driver Session
+     * @param checkpoint Checkpoint of the previous run
+     * @param instanceEditDbId dbId of the instance edit shared by all chunks
+     * @throws IOException Thrown if the checkpoint file can not be written
+     */
+    private static void reconcileCheckpoint(Session session, InsertionCheckpoint checkpoint, long instanceEditDbId)
+            throws IOException {
+        Map<String, Object> parameters = Collections.singletonMap("instanceEditDbId", instanceEditDbId);
+        Map<String, Long> createdIdentifiers = new LinkedHashMap<>();
+        List<String> modifiedPathways = new ArrayList<>();
+        session.readTransaction(tx -> {
+            org.neo4j.driver.Result identifiers =
+                    CypherTemplates.run(tx, CypherTemplates.IDENTIFIERS_CREATED_BY_INSTANCE_EDIT, parameters);
+            identifiers.forEachRemaining(record -> createdIdentifiers.put(
+                    record.get("identifier").asString(), record.get("dbId").asLong()));
+            CypherTemplates.consume(CypherTemplates.IDENTIFIERS_CREATED_BY_INSTANCE_EDIT, identifiers);
+            org.neo4j.driver.Result pathways =
+                    CypherTemplates.run(tx, CypherTemplates.PATHWAYS_MODIFIED_BY_INSTANCE_EDIT, parameters);
+            pathways.forEachRemaining(record -> modifiedPathways.add(record.get("stId").asString()));
+            CypherTemplates.consume(CypherTemplates.PATHWAYS_MODIFIED_BY_INSTANCE_EDIT, pathways);
+            return null;
+        });
+        checkpoint.recordChunk(modifiedPathways, createdIdentifiers);
+    }
+
+    /**
+     * Adds the BioModels ids as cross-references of the pathway, creating their DatabaseIdentifiers if needed, and
+     * records the pathway as modified by the instance edit.
+     *
+     * @param pathway Pathway receiving the cross-references
+     * @param bioModelsIds BioModels ids for the pathway
+     * @param referenceDatabase Node (or properties) of the BioModels reference database
+     * @param instanceEditDbId dbId of the instanceEdit attached to the person ID that is executing this program
+     * @param writer Writer for the new nodes and relationships
+     * @param dbIdAllocator Source of dbIds for new DatabaseIdentifiers
+     * @param newIdentifiers Map receiving the BioModels ids and dbIds of newly created DatabaseIdentifiers
+     */
+    private static void addBioModelsIdsToPathway(ResolvedPathway pathway, Set<String> bioModelsIds,
+                                                 MapAccessor referenceDatabase, long instanceEditDbId, BioModelsWriter writer,
+                                                 DbIdAllocator dbIdAllocator, Map<String, Long> newIdentifiers) {
+        String pathwayExtendedDisplayName = pathway.toString();
+        LOGGER.debug("Adding BioModels ids to pathway {}", pathwayExtendedDisplayName);
+        long pathwayDbId = pathway.getDbId();
+        List<Long> bioModelsDatabaseIdentifierDbIds = createBioModelsDatabaseIdentifiers(
+                bioModelsIds, referenceDatabase, instanceEditDbId, writer, dbIdAllocator, newIdentifiers);
+        try (RunMetrics.Phase phase = RunMetrics.startPhase("createRelationships")) {
+            BioModelsRules.writeCrossReferences(writer, pathwayDbId, bioModelsDatabaseIdentifierDbIds,
+                    instanceEditDbId);
         } catch (Exception e) {
-            logAndThrow("Error during BioModels insertion", e);
+            logAndThrow("Unable to update pathway " + pathwayExtendedDisplayName +
+                    " with BioModels ids " + bioModelsIds, e);
+        }
+        RunMetrics.increment(RunMetrics.PATHWAYS_UPDATED);
+        LOGGER.debug("BioModels ids successfully added to pathway {}", pathwayExtendedDisplayName);
+    }
+
+    /**
+     * Parses the models2pathways.tsv file using 'parserParallelism' threads.  Rejected lines are written with their
+     * line numbers to the 'rejectReportFile'.
+     *
+     * @param props Configuration properties for the program
+     * @param pathToModels2Pathways Path to the models2pathways.tsv file
+     * @return Map of pathway stable ids to their BioModels ids
+     */
+    private static Map<String, Set<String>> parseModels2Pathways(Properties props, String pathToModels2Pathways) {
+        if (props.getProperty("snapshotDirectory") != null) {
+            return loadModels2Pathways(props, pathToModels2Pathways).asMap();
+        }
+        RejectReport rejects = new RejectReport();
+        int parserParallelism = Integer.parseInt(props.getProperty("parserParallelism", "1"));
+        Map<String, Set<String>> pathwayStableIdToBioModelsIds = ModelsTSVParser.parseMapping(
+                pathToModels2Pathways, rejects, parserParallelism, createModelsFilter(props)).asMap();
+        writeRejectReport(props, pathToModels2Pathways, rejects);
+        return pathwayStableIdToBioModelsIds;
+    }
+
+    /**
+     * Creates the filter of the models2pathways.tsv rows from the 'scoreThreshold' (highest score kept),
+     * 'speciesAllowList' (comma separated species names) and 'topBioModelsPerPathway' properties
+     *
+     * @param props Configuration properties for the program
+     * @return The filter, or null if none of the properties is set
+     */
+    private static ModelsFilter createModelsFilter(Properties props) {
+        String scoreThreshold = props.getProperty("scoreThreshold");
+        String speciesAllowList = props.getProperty("speciesAllowList");
+        String topBioModelsPerPathway = props.getProperty("topBioModelsPerPathway");
+        if (scoreThreshold == null && speciesAllowList == null && topBioModelsPerPathway == null) {
+            return null;
+        }
+        List<String> species = new ArrayList<>();
+        if (speciesAllowList != null) {
+            for (String speciesName : speciesAllowList.split(",")) {
+                if (!speciesName.trim().isEmpty()) {
+                    species.add(speciesName.trim());
+                }
+            }
+        }
+        return new ModelsFilter(
+                scoreThreshold == null ? Double.POSITIVE_INFINITY : Double.parseDouble(scoreThreshold), species,
+                topBioModelsPerPathway == null ? 0 : Integer.parseInt(topBioModelsPerPathway));
+    }
+
+    /**
+     * Loads the mapping of the models2pathways.tsv file from its snapshot in the 'snapshotDirectory', parsing the file
+     * and writing its snapshot if the file changed since the last snapshot
+     *
+     * @param props Configuration properties for the program
+     * @param pathToModels2Pathways Path to the models2pathways.tsv file
+     * @return Mapping of pathway stable ids to their BioModels ids
+     */
+    private static ModelsMapping loadModels2Pathways(Properties props, String pathToModels2Pathways) {
+        Path snapshotDirectory = Paths.get(props.getProperty("snapshotDirectory", DEFAULT_SNAPSHOT_DIRECTORY));
+        RejectReport rejects = new RejectReport();
+        int parserParallelism = Integer.parseInt(props.getProperty("parserParallelism", "1"));
+        MappingSnapshot snapshot = null;
+        try {
+            snapshot = MappingSnapshot.loadOrParse(Paths.get(pathToModels2Pathways), snapshotDirectory, rejects,
+                    parserParallelism, createModelsFilter(props));
+        } catch (IOException e) {
+            logAndThrow("Unable to read " + pathToModels2Pathways, e);
+        }
+        if (rejects.getRejectedCount() > 0) {
+            writeRejectReport(props, pathToModels2Pathways, rejects);
+        } else if (snapshot.getRejectedCount() > 0) {
+            LOGGER.warn("{} lines of {} were rejected when its snapshot was written", snapshot.getRejectedCount(),
+                    pathToModels2Pathways);
+        }
+        return snapshot.getMapping();
+    }
+
+    /**
+     * Parses the models2pathways.tsv file (through its snapshot if 'snapshotDirectory' is set) and logs the number of
+     * pathways and cross-references it describes, without using the database.  The run metrics are written as for an
+     * insertion.
+     *
+     * @param props Configuration properties for the program
+     * @param pathToModels2Pathways Path to the models2pathways.tsv file
+     */
+    private static void reportModels2Pathways(Properties props, String pathToModels2Pathways) {
+        try (RunMetrics.Phase phase = RunMetrics.startPhase("total")) {
+            Map<String, Set<String>> pathwayStableIdToBioModelsIds = parseModels2Pathways(props, pathToModels2Pathways);
+            int crossReferenceCount = 0;
+            for (Set<String> bioModelsIds : pathwayStableIdToBioModelsIds.values()) {
+                crossReferenceCount += bioModelsIds.size();
+            }
+            LOGGER.info("{} describes {} cross-references to {} pathways", pathToModels2Pathways, crossReferenceCount,
+                    pathwayStableIdToBioModelsIds.size());
+        } finally {
+            writeMetricsReports(props);
+        }
+    }
+
+    /**
+     * Writes the (BioModels id, pathway stable id) pairs added to and removed from the models2pathways.tsv file since
+     * the snapshot given as 'previousSnapshot' to the 'deltaFile'.  The file itself is loaded through its snapshot.
+     *
+     * @param props Configuration properties for the program
+     * @param pathToModels2Pathways Path to the models2pathways.tsv file
+     */
+    private static void writeMappingDelta(Properties props, String pathToModels2Pathways) {
+        String previousSnapshot = props.getProperty("previousSnapshot");
+        if (previousSnapshot == null) {
+            throw new IllegalArgumentException("insertionMode=delta requires the previousSnapshot property");
+        }
+        Path deltaFile = Paths.get(props.getProperty("deltaFile", DEFAULT_DELTA_FILE));
+        try (RunMetrics.Phase phase = RunMetrics.startPhase("delta")) {
+            ModelsMapping previous = MappingSnapshot.read(Paths.get(previousSnapshot)).getMapping();
+            MappingDelta delta = MappingDelta.compare(previous, loadModels2Pathways(props, pathToModels2Pathways));
+            delta.write(deltaFile);
+            LOGGER.info("{} cross-references added and {} removed since {} -- see {}", delta.getAdded().size(),
+                    delta.getRemoved().size(), previousSnapshot, deltaFile);
+        } catch (IOException e) {
+            logAndThrow("Unable to write the delta of " + pathToModels2Pathways + " and " + previousSnapshot, e);
+        }
+    }
+
+    /**
+     * Writes the rejected lines, if any, to the 'rejectReportFile'
+     *
+     * @param props Configuration properties for the program
+     * @param pathToModels2Pathways Path to the models2pathways.tsv file
+     * @param rejects Lines of the file rejected while parsing
+     */
+    private static void writeRejectReport(Properties props, String pathToModels2Pathways, RejectReport rejects) {
+        if (rejects.getRejectedCount() > 0) {
+            Path rejectReportFile = Paths.get(props.getProperty("rejectReportFile", DEFAULT_REJECT_REPORT_FILE));
+            LOGGER.warn("{} lines of {} were rejected -- see {}",
+                    rejects.getRejectedCount(), pathToModels2Pathways, rejectReportFile);
+            try {
+                rejects.write(rejectReportFile);
+            } catch (IOException e) {
+                LOGGER.error("Unable to write reject report " + rejectReportFile, e);
+            }
+        }
+    }
+
+    /**
+     * Creates the writer for DatabaseIdentifier nodes and their relationships.  The 'writeMode' property selects
+     * between sending one statement per node or relationship ('single', the default) and sending them in batches
+     * of 'batchSize' rows ('batched').
+     *
+     * @param tx Neo4j Driver Transaction
+     * @param props Configuration properties for the program
+     * @return Writer for the BioModels insertion
+     */
+    private static BioModelsWriter createWriter(Transaction tx, Properties props) {
+        String writeMode = props.getProperty("writeMode", "single");
+        if (writeMode.equalsIgnoreCase("batched")) {
+            int batchSize = Integer.parseInt(props.getProperty("batchSize", String.valueOf(DEFAULT_BATCH_SIZE)));
+            LOGGER.info("Writing BioModels database identifiers in batches of {}", batchSize);
+            return new BatchedBioModelsWriter(tx, batchSize);
+        } else if (writeMode.equalsIgnoreCase("single")) {
+            return new SingleStatementBioModelsWriter(tx);
         }
+        throw new IllegalArgumentException("Unknown writeMode: " + writeMode);
     }
 
     /**
@@ -123,117 +1418,139 @@ public class Main {
         String neo4jPort = props.getProperty("port", "7687");
         String neo4jUri = "bolt://" + neo4jHost + ":" + neo4jPort;
 
-        return GraphDatabase.driver(neo4jUri, AuthTokens.basic(neo4jUser, neo4jPass));
+        long maxTransactionRetrySeconds = Long.parseLong(
+                props.getProperty("maxTransactionRetrySeconds", String.valueOf(DEFAULT_MAX_TRANSACTION_RETRY_SECONDS)));
+        // Records are pulled from the server in batches of fetchSize as results are streamed
+        long fetchSize = Long.parseLong(props.getProperty("fetchSize", String.valueOf(DEFAULT_FETCH_SIZE)));
+        Config config = Config.builder()
+                .withMaxTransactionRetryTime(maxTransactionRetrySeconds, TimeUnit.SECONDS)
+                .withFetchSize(fetchSize)
+                .build();
+
+        return GraphDatabase.driver(neo4jUri, AuthTokens.basic(neo4jUser, neo4jPass), config);
     }
 
     /**
-     * Creates a DatabaseIdentifier instance for the BioModel identifier
+     * Creates a DatabaseIdentifier instance for the BioModel identifier.  The dbIds of the new DatabaseIdentifiers are
+     * reserved as one contiguous block, so writers sharing the allocator take it once per call.
      *
      * @param bioModelsIds Set of BioModels IDs
-     * @param referenceDatabase Node instanceEdit attached to the person ID that is executing this program
-     * @param instanceEdit Neo4j Driver Transaction
-     * @param tx Neo4j Driver Transaction
-     * @return List of DatabaseIdentifier objects pertaining to the BioModel identifier
+     * @param referenceDatabase Node (or properties) of the BioModels reference database
+     * @param instanceEditDbId dbId of the instanceEdit attached to the person ID that is executing this program
+     * @param writer Writer for the new nodes and relationships
+     * @param dbIdAllocator Source of dbIds for new DatabaseIdentifiers
+     * @param newIdentifiers Map receiving the BioModels ids and dbIds of newly created DatabaseIdentifiers
+     * @return List of dbIds of the DatabaseIdentifier objects pertaining to the BioModel identifiers
      */
-    private static List<Node> createBioModelsDatabaseIdentifiers(Set<String> bioModelsIds, Node referenceDatabase,
-                                                                 Node instanceEdit, Transaction tx) {
-
-        List<Node> bioModelsDatabaseIdentifiers = new ArrayList<>();
+    private static List<Long> createBioModelsDatabaseIdentifiers(Set<String> bioModelsIds,
+                                                                 MapAccessor referenceDatabase,
+                                                                 long instanceEditDbId, BioModelsWriter writer,
+                                                                 DbIdAllocator dbIdAllocator,
+                                                                 Map<String, Long> newIdentifiers) {
 
-        for (String bioModelsId : bioModelsIds) {
+        try (RunMetrics.Phase phase = RunMetrics.startPhase("createIdentifiers")) {
+            List<Long> bioModelsDatabaseIdentifierDbIds = new ArrayList<>();
+            long referenceDatabaseDbId = referenceDatabase.get(DBID).asLong();
 
             // If the identifier already had an object created during this run, use that. Otherwise, create one.
-            if (BIO_MODELS_INSTANCES.get(bioModelsId) != null) {
-                bioModelsDatabaseIdentifiers.add(BIO_MODELS_INSTANCES.get(bioModelsId));
-            } else {
-                LOGGER.info("Creating database identifier for BioModels id {}", bioModelsId);
-
-                Node bioModelsDatabaseIdentifier = null;
-                try {
-                    String databaseName = referenceDatabase.get(DISPLAY_NAME).asString();
+            List<Long> existingDbIds = new ArrayList<>(bioModelsIds.size());
+            int missingCount = 0;
+            for (String bioModelsId : bioModelsIds) {
+                long cachedDbId = BIO_MODELS_INSTANCES.getDbId(bioModelsId, -1L);
+                Long existingDbId = cachedDbId >= 0 ? Long.valueOf(cachedDbId) : newIdentifiers.get(bioModelsId);
+                existingDbIds.add(existingDbId);
+                if (existingDbId == null) {
+                    missingCount++;
+                }
+            }
+            long nextDbId = missingCount > 0 ? dbIdAllocator.reserve(missingCount) : 0L;
 
-                    HashMap<String, Object> props = new HashMap<>();
-                    props.put(DATABASE_NAME, databaseName);
-                    props.put(DBID, maxDbId + 1);
-                    props.put(DISPLAY_NAME, databaseName + ":" + bioModelsId);
-                    props.put(ReactomeJavaConstants.identifier, bioModelsId);
-                    props.put(SCHEMA_CLASS, ReactomeJavaConstants.DatabaseIdentifier);
-                    props.put(ReactomeJavaConstants.url, referenceDatabase.get(ReactomeJavaConstants.url).asString() + bioModelsId);
+            int i = 0;
+            for (String bioModelsId : bioModelsIds) {
+                Long existingDbId = existingDbIds.get(i++);
+                if (existingDbId != null) {
+                    bioModelsDatabaseIdentifierDbIds.add(existingDbId);
+                    RunMetrics.increment(RunMetrics.IDENTIFIERS_REUSED);
+                } else {
+                    LOGGER.debug("Creating database identifier for BioModels id {}", bioModelsId);
 
-                    bioModelsDatabaseIdentifier = createNode(tx, Collections.singletonList(ReactomeJavaConstants.DatabaseIdentifier), props);
-                    maxDbId++;
+                    long bioModelsDatabaseIdentifierDbId = nextDbId++;
+                    try {
+                        BioModelsRules.writeDatabaseIdentifier(writer, bioModelsId, bioModelsDatabaseIdentifierDbId,
+                                instanceEditDbId, referenceDatabaseDbId, referenceDatabase.get(DISPLAY_NAME).asString(),
+                                referenceDatabase.get(ReactomeJavaConstants.url).asString());
+                    } catch (Exception e) {
+                        logAndThrow("Unable to create BioModels database identifier for " + bioModelsId, e);
+                    }
 
-                    createRelationship(tx, instanceEdit, bioModelsDatabaseIdentifier,
-                            ReactomeJavaConstants.created, 0, 1);
-                    createRelationship(tx, bioModelsDatabaseIdentifier, referenceDatabase,
-                            ReactomeJavaConstants.referenceDatabase, 0, 1);
-                } catch (Exception e) {
-                    logAndThrow("Unable to create BioModels database identifier for " + bioModelsId, e);
+                    bioModelsDatabaseIdentifierDbIds.add(bioModelsDatabaseIdentifierDbId);
+                    newIdentifiers.put(bioModelsId, bioModelsDatabaseIdentifierDbId);
+                    RunMetrics.increment(RunMetrics.IDENTIFIERS_CREATED);
+                    LOGGER.debug("Successfully created database identifier for BioModels id {}", bioModelsId);
                 }
-
-                bioModelsDatabaseIdentifiers.add(bioModelsDatabaseIdentifier);
-                BIO_MODELS_INSTANCES.put(bioModelsId, bioModelsDatabaseIdentifier);
-                LOGGER.info("Successfully created database identifier for BioModels id {}", bioModelsId);
             }
-        }
-
-        return bioModelsDatabaseIdentifiers;
-    }
 
-    private static List<Node> getPathwaysWithBioModelsIds(Transaction tx, Set<String> pathwayStableIds) {
-        List<Node> pathwayNodes = new ArrayList<>();
-        String query = "MATCH (p:DatabaseObject:Pathway) WHERE p.stId IN $pathwayStableIds RETURN p";
-        org.neo4j.driver.Result result = tx.run(query, Collections.singletonMap("pathwayStableIds", pathwayStableIds));
-        while (result.hasNext()) {
-            Record record = result.next();
-            pathwayNodes.add(record.get("p").asNode());
+            return bioModelsDatabaseIdentifierDbIds;
         }
-
-        return pathwayNodes;
     }
 
         /**
      * Creates a new instance edit for the specified person ID and note.
      *
      * @param tx             Neo4j Driver Transaction
+     * @param dbIdAllocator  Source of the dbId for the instance edit
      * @param defaultPersonId The ID of the person for whom the instance edit is created
      * @param note           A note describing the instance edit
      * @return The newly created instance edit Node
      */
-    private static Node createInstanceEdit(Transaction tx, long defaultPersonId, String note) {
+    private static Node createInstanceEdit(Transaction tx, DbIdAllocator dbIdAllocator, long defaultPersonId, String note) {
         LOGGER.info("Creating new instance edit for person id {}", defaultPersonId);
+        long instanceEditDbId = writeInstanceEdit(BioModelsQueries.of(tx), new SingleStatementBioModelsWriter(tx),
+                dbIdAllocator, defaultPersonId, note);
+        Node newIE = getNodeByDbId(tx, instanceEditDbId);
+        LOGGER.info("Successfully created new instance edit with db id {} for person id {}", newIE.get(DBID), defaultPersonId);
+        return newIE;
+    }
 
-        Node defaultPerson = null;
-        try {
-            defaultPerson = getNodeByDbId(tx, defaultPersonId);
-        } catch (Exception e) {
-            logAndThrow("Could not fetch Person entity with ID " + defaultPersonId +
-                    ". Please check that a Person entity exists in the database with this ID", e);
-        }
+    /**
+     * Writes a new instance edit for the person, after checking the person exists
+     *
+     * @param queries Queries of the transaction
+     * @param writer Writer for the instance edit, on the same transaction
+     * @param dbIdAllocator Source of the dbId for the instance edit
+     * @param personId The ID of the person for whom the instance edit is created
+     * @param note A note describing the instance edit
+     * @return The dbId of the new instance edit
+     */
+    private static long writeInstanceEdit(BioModelsQueries queries, BioModelsWriter writer,
+                                          DbIdAllocator dbIdAllocator, long personId, String note) {
+        try (RunMetrics.Phase phase = RunMetrics.startPhase("createInstanceEdit")) {
+            Node person = null;
+            try {
+                person = BioModelsUtilities.getPerson(queries, personId);
+            } catch (Exception e) {
+                logAndThrow("Could not fetch Person entity with ID " + personId, e);
+            }
 
-        Node newIE = null;
-        try {
-            String dateTime = getDateTime();
-            String date = dateTime.split(" ")[0];
-            String displayName = defaultPerson.get(ReactomeJavaConstants.surname).asString() + ", " +
-                    defaultPerson.get(ReactomeJavaConstants.firstname).asString() + ", " + date;
-
-            HashMap<String, Object> props = new HashMap<>();
-            props.put(ReactomeJavaConstants.dateTime, dateTime);
-            props.put(DBID, maxDbId + 1);
-            props.put(DISPLAY_NAME, displayName);
-            props.put(ReactomeJavaConstants.note, note);
-            props.put(SCHEMA_CLASS, ReactomeJavaConstants.InstanceEdit);
-
-            newIE = createNode(tx, Collections.singletonList(ReactomeJavaConstants.InstanceEdit), props);
-            maxDbId++;
-
-            createRelationship(tx, defaultPerson, newIE,
-                    ReactomeJavaConstants.author, 0, 1);
-            LOGGER.info("Successfully created new instance edit with db id {} for person id {}", newIE.get(DBID), defaultPerson.get(DBID));
-        } catch (Exception e) {
-            logAndThrow("Unable to create instance edit", e);
+            long instanceEditDbId = dbIdAllocator.next();
+            try {
+                BioModelsRules.writeInstanceEdit(writer, personId,
+                        instanceEditProperties(person, instanceEditDbId, note));
+            } catch (Exception e) {
+                logAndThrow("Unable to create instance edit", e);
+            }
+            return instanceEditDbId;
         }
-        return newIE;
+    }
+
+    /**
+     * @param person Person node the instance edit is created for
+     * @param dbId dbId of the new instance edit
+     * @param note A note describing the instance edit
+     * @return Properties of a new instance edit
+     */
+    private static HashMap<String, Object> instanceEditProperties(Node person, long dbId, String note) {
+        return BioModelsRules.instanceEditProperties(person.get(ReactomeJavaConstants.surname).asString(),
+                person.get(ReactomeJavaConstants.firstname).asString(), dbId, note, getDateTime());
     }
 }
@@ -0,0 +1,118 @@
+package org.reactome.release;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * (BioModels id, pathway stable id) pairs added to and removed from the models2pathways.tsv file between two
+ * releases, compared pathway by pathway on the compact mappings.  Added pairs are in the order of the current file and
+ * removed pairs in the order of the previous one.
+ */
+public final class MappingDelta {
+    private final List<CrossReference> added = new ArrayList<>();
+    private final List<CrossReference> removed = new ArrayList<>();
+
+    private MappingDelta() { }
+
+    /**
+     * Compares two mappings
+     *
+     * @param previous Mapping of the previous release (e.g. from its {@link MappingSnapshot})
+     * @param current Mapping of the current file
+     * @return The pairs added and removed
+     */
+    public static MappingDelta compare(ModelsMapping previous, ModelsMapping current) {
+        MappingDelta delta = new MappingDelta();
+        collectMissing(current, previous.asMap(), delta.added);
+        collectMissing(previous, current.asMap(), delta.removed);
+        return delta;
+    }
+
+    /**
+     * Adds the pairs of the mapping which are not in the other one
+     */
+    private static void collectMissing(ModelsMapping mapping, Map<String, Set<String>> other,
+                                       List<CrossReference> missing) {
+        for (int pathwayIndex = 0; pathwayIndex < mapping.getPathwayCount(); pathwayIndex++) {
+            String pathwayStableId = mapping.getPathwayStableId(pathwayIndex);
+            Set<String> otherBioModelsIds = other.getOrDefault(pathwayStableId, Collections.emptySet());
+            for (String bioModelsId : mapping.getBioModelsIds(pathwayIndex)) {
+                if (!otherBioModelsIds.contains(bioModelsId)) {
+                    missing.add(new CrossReference(bioModelsId, pathwayStableId));
+                }
+            }
+        }
+    }
+
+    public List<CrossReference> getAdded() {
+        return Collections.unmodifiableList(added);
+    }
+
+    public List<CrossReference> getRemoved() {
+        return Collections.unmodifiableList(removed);
+    }
+
+    /**
+     * @return true if both mappings have the same pairs
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty();
+    }
+
+    /**
+     * Writes the delta as a tab separated file of change ('added' or 'removed'), BioModels id and pathway stable id,
+     * added pairs first
+     *
+     * @param deltaFile Path of the file to write
+     * @throws IOException Thrown if the file can not be written
+     */
+    public void write(Path deltaFile) throws IOException {
+        if (deltaFile.getParent() != null) {
+            Files.createDirectories(deltaFile.getParent());
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(deltaFile, StandardCharsets.UTF_8)) {
+            writer.write("change\tbioModelsId\tpathwayStableId");
+            writer.newLine();
+            writeLines(writer, "added", added);
+            writeLines(writer, "removed", removed);
+        }
+    }
+
+    private static void writeLines(BufferedWriter writer, String change, List<CrossReference> crossReferences)
+            throws IOException {
+        for (CrossReference crossReference : crossReferences) {
+            writer.write(change + "\t" + crossReference.getBioModelsId() + "\t" + crossReference.getPathwayStableId());
+            writer.newLine();
+        }
+    }
+
+    /**
+     * A (BioModels id, pathway stable id) pair of the file
+     */
+    public static final class CrossReference {
+        private final String bioModelsId;
+        private final String pathwayStableId;
+
+        CrossReference(String bioModelsId, String pathwayStableId) {
+            this.bioModelsId = bioModelsId;
+            this.pathwayStableId = pathwayStableId;
+        }
+
+        public String getBioModelsId() {
+            return bioModelsId;
+        }
+
+        public String getPathwayStableId() {
+            return pathwayStableId;
+        }
+
+        @Override
+        public String toString() {
+            return bioModelsId + "\t" + pathwayStableId;
+        }
+    }
+}
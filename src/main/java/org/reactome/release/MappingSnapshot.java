@@ -0,0 +1,217 @@
+package org.reactome.release;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Binary snapshot of a parsed models2pathways.tsv file: the arrays of its {@link ModelsMapping}, keyed by the
+ * SHA-256 hash of the file's content and the {@link ModelsFilter} it was parsed with.  Loading a snapshot only reads
+ * the arrays back, so a file which did not change since its snapshot was written is neither parsed nor validated
+ * again.  The snapshot of a release is also the 'previous' side of a {@link MappingDelta}.
+ */
+public final class MappingSnapshot {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final int MAGIC = 0x424d4d53; // "BMMS"
+    private static final int VERSION = 2; // 2 added the filter
+    private static final String FILE_PREFIX = "models2pathways-";
+    private static final String FILE_SUFFIX = ".snapshot";
+
+    private final String sourceHash;
+    private final String filter;
+    private final long rejectedCount;
+    private final ModelsMapping mapping;
+
+    private MappingSnapshot(String sourceHash, String filter, long rejectedCount, ModelsMapping mapping) {
+        this.sourceHash = sourceHash;
+        this.filter = filter;
+        this.rejectedCount = rejectedCount;
+        this.mapping = mapping;
+    }
+
+    /**
+     * @return SHA-256 hash (hexadecimal) of the file the snapshot was made from
+     */
+    public String getSourceHash() {
+        return sourceHash;
+    }
+
+    /**
+     * @return Description of the filter the file was parsed with, or an empty String if it had none
+     */
+    public String getFilter() {
+        return filter;
+    }
+
+    /**
+     * @return Number of lines rejected when the file was parsed
+     */
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    public ModelsMapping getMapping() {
+        return mapping;
+    }
+
+    /**
+     * Loads the snapshot of the models2pathways.tsv file from the snapshot directory, or parses the file and writes
+     * its snapshot there if there is none yet.  The rejected lines are only reported when the file is parsed.
+     *
+     * @param tsvFile Path to the models2pathways.tsv file
+     * @param snapshotDirectory Directory of the snapshots
+     * @param rejects RejectReport receiving the improperly formatted lines, if the file is parsed
+     * @param parallelism Number of threads parsing the file
+     * @return Snapshot of the file
+     * @throws IOException Thrown if the file can not be read
+     */
+    public static MappingSnapshot loadOrParse(Path tsvFile, Path snapshotDirectory, RejectReport rejects,
+                                              int parallelism) throws IOException {
+        return loadOrParse(tsvFile, snapshotDirectory, rejects, parallelism, null);
+    }
+
+    /**
+     * Loads the snapshot of the rows of the models2pathways.tsv file selected by a filter, or parses them and writes
+     * their snapshot if there is none yet
+     *
+     * @param tsvFile Path to the models2pathways.tsv file
+     * @param snapshotDirectory Directory of the snapshots
+     * @param rejects RejectReport receiving the improperly formatted lines, if the file is parsed
+     * @param parallelism Number of threads parsing the file
+     * @param filter Filter of the rows, or null for every row
+     * @return Snapshot of the file
+     * @throws IOException Thrown if the file can not be read
+     */
+    public static MappingSnapshot loadOrParse(Path tsvFile, Path snapshotDirectory, RejectReport rejects,
+                                              int parallelism, ModelsFilter filter) throws IOException {
+        String sourceHash;
+        try (RunMetrics.Phase phase = RunMetrics.startPhase("snapshotHash")) {
+            sourceHash = contentHash(tsvFile);
+        }
+        String filterDescription = filter == null ? "" : filter.toString();
+        Path snapshotFile = snapshotDirectory.resolve(fileName(sourceHash, filterDescription));
+        if (Files.exists(snapshotFile)) {
+            try (RunMetrics.Phase phase = RunMetrics.startPhase("snapshotLoad")) {
+                MappingSnapshot snapshot = read(snapshotFile);
+                if (snapshot.getSourceHash().equals(sourceHash) && snapshot.getFilter().equals(filterDescription)) {
+                    LOGGER.info("Loaded {} pathways and {} cross-references of {} from snapshot {}",
+                            snapshot.mapping.getPathwayCount(), snapshot.mapping.getCrossReferenceCount(), tsvFile,
+                            snapshotFile);
+                    return snapshot;
+                }
+                LOGGER.warn("Snapshot {} is not of {} -- parsing the file", snapshotFile, tsvFile);
+            } catch (IOException e) {
+                LOGGER.warn("Unable to read snapshot " + snapshotFile + " -- parsing the file", e);
+            }
+        }
+
+        long rejectedBefore = rejects.getRejectedCount();
+        ModelsMapping mapping = ModelsTSVParser.parseMapping(tsvFile.toString(), rejects, parallelism, filter);
+        MappingSnapshot snapshot = new MappingSnapshot(sourceHash, filterDescription,
+                rejects.getRejectedCount() - rejectedBefore, mapping);
+        try {
+            snapshot.write(snapshotFile);
+            LOGGER.info("Wrote snapshot {} of {}", snapshotFile, tsvFile);
+        } catch (IOException e) {
+            LOGGER.error("Unable to write snapshot " + snapshotFile, e);
+        }
+        return snapshot;
+    }
+
+    /**
+     * @param sourceHash SHA-256 hash of a models2pathways.tsv file
+     * @return Name of the snapshot file of the file with that hash, parsed without a filter
+     */
+    static String fileName(String sourceHash) {
+        return fileName(sourceHash, "");
+    }
+
+    /**
+     * @param sourceHash SHA-256 hash of a models2pathways.tsv file
+     * @param filter Description of the filter the file is parsed with, or an empty String for none
+     * @return Name of the snapshot file of the file with that hash, parsed with that filter
+     */
+    static String fileName(String sourceHash, String filter) {
+        return FILE_PREFIX + sourceHash + (filter.isEmpty() ? "" : "-" + Integer.toHexString(filter.hashCode())) +
+                FILE_SUFFIX;
+    }
+
+    /**
+     * @param file File to hash (e.g. models2pathways.tsv, compressed or not)
+     * @return SHA-256 hash of the file's bytes, in hexadecimal
+     * @throws IOException Thrown if the file can not be read
+     */
+    static String contentHash(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        byte[] buffer = new byte[1 << 16];
+        try (InputStream in = Files.newInputStream(file)) {
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        StringBuilder hash = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hash.append(String.format("%02x", b));
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Writes the snapshot, replacing the file only once it is complete
+     *
+     * @param snapshotFile Path of the snapshot to write
+     * @throws IOException Thrown if the snapshot can not be written
+     */
+    void write(Path snapshotFile) throws IOException {
+        Path directory = snapshotFile.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporaryFile = Files.createTempFile(directory, FILE_PREFIX, ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporaryFile), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(sourceHash);
+                out.writeUTF(filter);
+                out.writeLong(rejectedCount);
+                mapping.writeTo(out);
+            }
+            Files.move(temporaryFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    /**
+     * @param snapshotFile Path of a snapshot
+     * @return The snapshot
+     * @throws IOException Thrown if the file can not be read or is not a snapshot of this version
+     */
+    public static MappingSnapshot read(Path snapshotFile) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(snapshotFile), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(snapshotFile + " is not a models2pathways snapshot");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported version " + version + " of snapshot " + snapshotFile);
+            }
+            String sourceHash = in.readUTF();
+            String filter = in.readUTF();
+            long rejectedCount = in.readLong();
+            return new MappingSnapshot(sourceHash, filter, rejectedCount, ModelsMapping.readFrom(in));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.reactome.release;
+
+import java.util.*;
+
+/**
+ * Score-aware selection of the rows of the models2pathways.tsv file.  The score (column 3) is the significance
+ * (p-value) of the mapping of a BioModels model to a pathway, so lower scores are better.  A row is kept if its score
+ * is at most maxScore and its species (column 7) is in the allow-list (or the allow-list is empty); of the rows kept,
+ * at most topK BioModels ids with the best scores are kept per pathway (0 for no limit).  With a filter, the BioModels
+ * ids of a pathway are ordered by score (then by file order), which is the order of its crossReferences.
+ */
+public final class ModelsFilter {
+    private final double maxScore;
+    private final Set<String> species;
+    private final int topK;
+
+    /**
+     * @param maxScore Highest score kept (Double.POSITIVE_INFINITY for no threshold)
+     * @param species Species kept, e.g. 'Homo sapiens' (empty for all species)
+     * @param topK Maximum number of BioModels ids kept per pathway (0 for no limit)
+     */
+    public ModelsFilter(double maxScore, Collection<String> species, int topK) {
+        if (Double.isNaN(maxScore)) {
+            throw new IllegalArgumentException("Score threshold must be a number");
+        }
+        if (topK < 0) {
+            throw new IllegalArgumentException("Top BioModels ids per pathway must not be negative: " + topK);
+        }
+        this.maxScore = maxScore;
+        this.species = Collections.unmodifiableSet(new TreeSet<>(species));
+        this.topK = topK;
+    }
+
+    /**
+     * @param score Score of a row
+     * @param rowSpecies Species of a row, or null if the row has no species column
+     * @return true if the row passes the score threshold and the species allow-list
+     */
+    public boolean accepts(double score, String rowSpecies) {
+        return score <= maxScore && (species.isEmpty() || species.contains(rowSpecies));
+    }
+
+    /**
+     * @return true if rows are selected by species, so the species column must be read
+     */
+    public boolean filtersSpecies() {
+        return !species.isEmpty();
+    }
+
+    /**
+     * @return Maximum number of BioModels ids kept per pathway, or 0 for no limit
+     */
+    public int getTopK() {
+        return topK;
+    }
+
+    /**
+     * @return Description of the filter, identifying the mappings it produces (e.g. in snapshot keys)
+     */
+    @Override
+    public String toString() {
+        return "maxScore=" + maxScore + ";species=" + String.join(",", species) + ";topK=" + topK;
+    }
+}
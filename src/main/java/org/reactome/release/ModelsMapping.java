@@ -0,0 +1,635 @@
+package org.reactome.release;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Compact form of the mapping of pathway stable ids to BioModels ids parsed from the models2pathways.tsv file.
+ * Pathways are stored once each as the long code of their stable id, indexed by a primitive {@link LongIntHashMap},
+ * and the BioModels ids of all pathways as the int codes of the ids (see {@link CompactIds}) in one array, grouped by
+ * pathway.  A cross-reference therefore takes
+ * 4 bytes instead of a LinkedHashSet entry and, unless shared, a String.  Ids without a code are kept as Strings in a
+ * side table and referred to by negative codes.  Pathways and their BioModels ids are in the order they first appear
+ * in the file, without duplicates.  {@link #asMap} gives the Map view returned by {@link ModelsTSVParser#parse}.
+ */
+public final class ModelsMapping {
+    private final long[] pathwayCodes;
+    private final LongIntHashMap pathwayIndexes;
+    private final int[] offsets;
+    private final int[] bioModelsCodes;
+    private final OtherIds otherIds;
+
+    private ModelsMapping(long[] pathwayCodes, LongIntHashMap pathwayIndexes, int[] offsets, int[] bioModelsCodes,
+                          OtherIds otherIds) {
+        this.pathwayCodes = pathwayCodes;
+        this.pathwayIndexes = pathwayIndexes;
+        this.offsets = offsets;
+        this.bioModelsCodes = bioModelsCodes;
+        this.otherIds = otherIds;
+    }
+
+    /**
+     * @return Number of pathways
+     */
+    public int getPathwayCount() {
+        return pathwayCodes.length;
+    }
+
+    /**
+     * @return Number of cross-references (pairs of pathway and BioModels id)
+     */
+    public int getCrossReferenceCount() {
+        return bioModelsCodes.length;
+    }
+
+    /**
+     * @param pathwayIndex Index of the pathway, from 0 to getPathwayCount() - 1
+     * @return Stable id of the pathway
+     */
+    public String getPathwayStableId(int pathwayIndex) {
+        return otherIds.decodeStableId(pathwayCodes[pathwayIndex]);
+    }
+
+    /**
+     * @param pathwayStableId Pathway stable id
+     * @return Index of the pathway, or -1 if the pathway is not in the mapping
+     */
+    public int indexOf(String pathwayStableId) {
+        return pathwayIndexes.get(otherIds.lookUpStableId(pathwayStableId), -1);
+    }
+
+    /**
+     * @param pathwayIndex Index of the pathway
+     * @return BioModels ids of the pathway, in file order
+     */
+    public List<String> getBioModelsIds(int pathwayIndex) {
+        List<String> bioModelsIds = new ArrayList<>(offsets[pathwayIndex + 1] - offsets[pathwayIndex]);
+        for (int i = offsets[pathwayIndex]; i < offsets[pathwayIndex + 1]; i++) {
+            bioModelsIds.add(otherIds.decodeBioModelsId(bioModelsCodes[i]));
+        }
+        return bioModelsIds;
+    }
+
+    /**
+     * @return Unmodifiable Map of pathway stable ids to their BioModels ids backed by this mapping.  Ids are decoded
+     * to Strings when they are read.
+     */
+    public Map<String, Set<String>> asMap() {
+        return new MapView();
+    }
+
+    /**
+     * Writes the arrays of the mapping and its ids without a code, for {@link #readFrom}
+     *
+     * @param out Output receiving the mapping
+     * @throws IOException Thrown if the mapping can not be written
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(pathwayCodes.length);
+        for (long pathwayCode : pathwayCodes) {
+            out.writeLong(pathwayCode);
+        }
+        for (int offset : offsets) {
+            out.writeInt(offset);
+        }
+        out.writeInt(bioModelsCodes.length);
+        for (int bioModelsCode : bioModelsCodes) {
+            out.writeInt(bioModelsCode);
+        }
+        writeStrings(out, otherIds.bioModelsIds);
+        writeStrings(out, otherIds.stableIds);
+    }
+
+    /**
+     * Reads a mapping written by {@link #writeTo}
+     *
+     * @param in Input positioned at the mapping
+     * @return The mapping
+     * @throws IOException Thrown if the mapping can not be read
+     */
+    static ModelsMapping readFrom(DataInput in) throws IOException {
+        long[] pathwayCodes = new long[in.readInt()];
+        LongIntHashMap pathwayIndexes = new LongIntHashMap(pathwayCodes.length);
+        for (int pathwayIndex = 0; pathwayIndex < pathwayCodes.length; pathwayIndex++) {
+            pathwayCodes[pathwayIndex] = in.readLong();
+            pathwayIndexes.put(pathwayCodes[pathwayIndex], pathwayIndex, -1);
+        }
+        int[] offsets = new int[pathwayCodes.length + 1];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = in.readInt();
+        }
+        int[] bioModelsCodes = new int[in.readInt()];
+        for (int i = 0; i < bioModelsCodes.length; i++) {
+            bioModelsCodes[i] = in.readInt();
+        }
+        OtherIds otherIds = new OtherIds();
+        for (String bioModelsId : readStrings(in)) {
+            otherIds.encodeBioModelsId(bioModelsId);
+        }
+        for (String stableId : readStrings(in)) {
+            otherIds.encodeStableId(stableId);
+        }
+        return new ModelsMapping(pathwayCodes, pathwayIndexes, offsets, bioModelsCodes, otherIds);
+    }
+
+    private static void writeStrings(DataOutput out, List<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (String string : strings) {
+            out.writeUTF(string);
+        }
+    }
+
+    private static List<String> readStrings(DataInput in) throws IOException {
+        int size = in.readInt();
+        List<String> strings = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            strings.add(in.readUTF());
+        }
+        return strings;
+    }
+
+    /**
+     * Collects the rows of a file (or of a range of it) in two int arrays, the row's BioModels id code and pathway
+     * index, so a row costs 8 bytes until {@link #build} groups them by pathway.  A scored builder instead keeps the
+     * BioModels ids of each pathway with their score in a {@link ScoredIds}, bounded to the top K if a limit is given,
+     * and {@link #build} orders them by score.  Not thread-safe.
+     */
+    static final class Builder {
+        private final OtherIds otherIds = new OtherIds();
+        private final LongIntHashMap pathwayIndexes = new LongIntHashMap(64);
+        private long[] pathwayCodes = new long[64];
+        private int pathwayCount;
+        private int[] rowBioModelsCodes = new int[1024];
+        private int[] rowPathwayIndexes = new int[1024];
+        private int rowCount;
+        private final boolean scored;
+        private final int topK;
+        private ScoredIds[] scoredIds;
+        private long scoredRowCount;
+
+        /**
+         * Creates a builder keeping the BioModels ids of each pathway in file order
+         */
+        Builder() {
+            this(null);
+        }
+
+        /**
+         * Creates a builder for the rows selected by a filter
+         *
+         * @param filter Filter of the rows, whose top K limit applies to each pathway, or null to keep the BioModels
+         * ids of each pathway in file order
+         */
+        Builder(ModelsFilter filter) {
+            this.scored = filter != null;
+            this.topK = filter == null ? 0 : filter.getTopK();
+            this.scoredIds = scored ? new ScoredIds[64] : null;
+        }
+
+        /**
+         * Adds a row of the file
+         *
+         * @param bioModelsId BioModels id of the row
+         * @param pathwayStableId Pathway stable id of the row
+         */
+        void add(String bioModelsId, String pathwayStableId) {
+            add(bioModelsId, pathwayStableId, Double.NaN);
+        }
+
+        /**
+         * Adds a row of the file
+         *
+         * @param bioModelsId BioModels id of the row
+         * @param pathwayStableId Pathway stable id of the row
+         * @param score Score of the row (only used by a scored builder)
+         */
+        void add(String bioModelsId, String pathwayStableId, double score) {
+            int bioModelsCode = otherIds.encodeBioModelsId(bioModelsId);
+            long pathwayCode = otherIds.encodeStableId(pathwayStableId);
+            if (scored) {
+                scoredIdsOf(pathwayIndex(pathwayCode)).offer(bioModelsCode, score, scoredRowCount++);
+            } else {
+                addRow(bioModelsCode, pathwayCode);
+            }
+        }
+
+        /**
+         * Adds the rows of a builder, as if they followed the rows of this one in the file
+         *
+         * @param next Builder of the following rows
+         * @return This builder
+         */
+        Builder append(Builder next) {
+            if (scored) {
+                for (int nextIndex = 0; nextIndex < next.pathwayCount; nextIndex++) {
+                    long pathwayCode = next.pathwayCodes[nextIndex];
+                    if (pathwayCode < 0) {
+                        pathwayCode = otherIds.encodeStableId(next.otherIds.decodeStableId(pathwayCode));
+                    }
+                    ScoredIds ids = scoredIdsOf(pathwayIndex(pathwayCode));
+                    ScoredIds nextIds = next.scoredIds[nextIndex];
+                    for (int i = 0; i < nextIds.size; i++) {
+                        int bioModelsCode = nextIds.codes[i];
+                        if (bioModelsCode < 0) {
+                            bioModelsCode = otherIds.encodeBioModelsId(next.otherIds.decodeBioModelsId(bioModelsCode));
+                        }
+                        // Rows of the next range follow those of this one in the file
+                        ids.offer(bioModelsCode, nextIds.scores[i], scoredRowCount + nextIds.rows[i]);
+                    }
+                }
+                scoredRowCount += next.scoredRowCount;
+                return this;
+            }
+            for (int row = 0; row < next.rowCount; row++) {
+                int bioModelsCode = next.rowBioModelsCodes[row];
+                if (bioModelsCode < 0) {
+                    bioModelsCode = otherIds.encodeBioModelsId(next.otherIds.decodeBioModelsId(bioModelsCode));
+                }
+                long pathwayCode = next.pathwayCodes[next.rowPathwayIndexes[row]];
+                if (pathwayCode < 0) {
+                    pathwayCode = otherIds.encodeStableId(next.otherIds.decodeStableId(pathwayCode));
+                }
+                addRow(bioModelsCode, pathwayCode);
+            }
+            return this;
+        }
+
+        /**
+         * Groups the rows by pathway, dropping repeated BioModels ids of a pathway
+         *
+         * @return The mapping
+         */
+        ModelsMapping build() {
+            if (scored) {
+                return buildScored();
+            }
+            int[] offsets = new int[pathwayCount + 1];
+            for (int row = 0; row < rowCount; row++) {
+                offsets[rowPathwayIndexes[row] + 1]++;
+            }
+            for (int pathwayIndex = 0; pathwayIndex < pathwayCount; pathwayIndex++) {
+                offsets[pathwayIndex + 1] += offsets[pathwayIndex];
+            }
+            int[] bioModelsCodes = new int[rowCount];
+            int[] next = Arrays.copyOf(offsets, pathwayCount);
+            for (int row = 0; row < rowCount; row++) {
+                bioModelsCodes[next[rowPathwayIndexes[row]]++] = rowBioModelsCodes[row];
+            }
+
+            // Codes seen for the pathway being compacted are marked with its index, so the table is never cleared
+            IntLongHashMap seen = new IntLongHashMap(0);
+            int compactedLength = 0;
+            for (int pathwayIndex = 0; pathwayIndex < pathwayCount; pathwayIndex++) {
+                int start = offsets[pathwayIndex];
+                offsets[pathwayIndex] = compactedLength;
+                for (int i = start; i < offsets[pathwayIndex + 1]; i++) {
+                    if (seen.put(bioModelsCodes[i], pathwayIndex, -1L) != pathwayIndex) {
+                        bioModelsCodes[compactedLength++] = bioModelsCodes[i];
+                    }
+                }
+            }
+            offsets[pathwayCount] = compactedLength;
+
+            return new ModelsMapping(Arrays.copyOf(pathwayCodes, pathwayCount), pathwayIndexes, offsets,
+                    Arrays.copyOf(bioModelsCodes, compactedLength), otherIds);
+        }
+
+        /**
+         * Orders the BioModels ids of each pathway by score, then by row, dropping repeated BioModels ids of a pathway
+         */
+        private ModelsMapping buildScored() {
+            int[] offsets = new int[pathwayCount + 1];
+            int length = 0;
+            for (int pathwayIndex = 0; pathwayIndex < pathwayCount; pathwayIndex++) {
+                length += scoredIds[pathwayIndex].size;
+            }
+            int[] bioModelsCodes = new int[length];
+            IntLongHashMap seen = new IntLongHashMap(0);
+            int compactedLength = 0;
+            for (int pathwayIndex = 0; pathwayIndex < pathwayCount; pathwayIndex++) {
+                offsets[pathwayIndex] = compactedLength;
+                ScoredIds ids = scoredIds[pathwayIndex];
+                for (int i : ids.orderByScore()) {
+                    if (seen.put(ids.codes[i], pathwayIndex, -1L) != pathwayIndex) {
+                        bioModelsCodes[compactedLength++] = ids.codes[i];
+                    }
+                }
+            }
+            offsets[pathwayCount] = compactedLength;
+            return new ModelsMapping(Arrays.copyOf(pathwayCodes, pathwayCount), pathwayIndexes, offsets,
+                    Arrays.copyOf(bioModelsCodes, compactedLength), otherIds);
+        }
+
+        private ScoredIds scoredIdsOf(int pathwayIndex) {
+            if (pathwayIndex == scoredIds.length) {
+                scoredIds = Arrays.copyOf(scoredIds, pathwayIndex * 2);
+            }
+            if (scoredIds[pathwayIndex] == null) {
+                scoredIds[pathwayIndex] = new ScoredIds(topK);
+            }
+            return scoredIds[pathwayIndex];
+        }
+
+        /**
+         * @return Index of the pathway, added after the pathways seen so far if it is new
+         */
+        private int pathwayIndex(long pathwayCode) {
+            int pathwayIndex = pathwayIndexes.get(pathwayCode, -1);
+            if (pathwayIndex < 0) {
+                if (pathwayCount == pathwayCodes.length) {
+                    pathwayCodes = Arrays.copyOf(pathwayCodes, pathwayCount * 2);
+                }
+                pathwayIndex = pathwayCount;
+                pathwayCodes[pathwayCount++] = pathwayCode;
+                pathwayIndexes.put(pathwayCode, pathwayIndex, -1);
+            }
+            return pathwayIndex;
+        }
+
+        private void addRow(int bioModelsCode, long pathwayCode) {
+            int pathwayIndex = pathwayIndex(pathwayCode);
+            if (rowCount == rowBioModelsCodes.length) {
+                rowBioModelsCodes = Arrays.copyOf(rowBioModelsCodes, rowCount * 2);
+                rowPathwayIndexes = Arrays.copyOf(rowPathwayIndexes, rowCount * 2);
+            }
+            rowBioModelsCodes[rowCount] = bioModelsCode;
+            rowPathwayIndexes[rowCount++] = pathwayIndex;
+        }
+    }
+
+    /**
+     * BioModels id codes of a pathway with their score and row.  With a limit, only the limit best (lowest score, then
+     * earliest row) are kept, in a heap whose root is the worst kept, so an id is only kept if it beats the root; a
+     * repeated id keeps its best score.  Without a limit, every id is kept and repeats are dropped when ordered.
+     */
+    private static final class ScoredIds {
+        private final int limit;
+        private int[] codes;
+        private double[] scores;
+        private long[] rows;
+        private int size;
+
+        private ScoredIds(int limit) {
+            this.limit = limit;
+            int capacity = limit > 0 ? Math.min(limit, 8) : 8;
+            this.codes = new int[capacity];
+            this.scores = new double[capacity];
+            this.rows = new long[capacity];
+        }
+
+        private void offer(int code, double score, long row) {
+            if (limit == 0) {
+                append(code, score, row);
+                return;
+            }
+            for (int i = 0; i < size; i++) {
+                if (codes[i] == code) {
+                    if (isWorse(scores[i], rows[i], score, row)) {
+                        scores[i] = score;
+                        rows[i] = row;
+                        siftDown(i);
+                    }
+                    return;
+                }
+            }
+            if (size < limit) {
+                append(code, score, row);
+                siftUp(size - 1);
+            } else if (isWorse(scores[0], rows[0], score, row)) {
+                codes[0] = code;
+                scores[0] = score;
+                rows[0] = row;
+                siftDown(0);
+            }
+        }
+
+        /**
+         * @return Indexes of the ids, best first
+         */
+        private Integer[] orderByScore() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (i, j) -> isWorse(scores[i], rows[i], scores[j], rows[j]) ? 1 :
+                    isWorse(scores[j], rows[j], scores[i], rows[i]) ? -1 : 0);
+            return order;
+        }
+
+        private void append(int code, double score, long row) {
+            if (size == codes.length) {
+                int capacity = limit > 0 ? Math.min(limit, size * 2) : size * 2;
+                codes = Arrays.copyOf(codes, capacity);
+                scores = Arrays.copyOf(scores, capacity);
+                rows = Arrays.copyOf(rows, capacity);
+            }
+            codes[size] = code;
+            scores[size] = score;
+            rows[size++] = row;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (!isWorse(scores[i], rows[i], scores[parent], rows[parent])) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int worst = i;
+                for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child++) {
+                    if (isWorse(scores[child], rows[child], scores[worst], rows[worst])) {
+                        worst = child;
+                    }
+                }
+                if (worst == i) {
+                    return;
+                }
+                swap(i, worst);
+                i = worst;
+            }
+        }
+
+        private void swap(int i, int j) {
+            int code = codes[i];
+            codes[i] = codes[j];
+            codes[j] = code;
+            double score = scores[i];
+            scores[i] = scores[j];
+            scores[j] = score;
+            long row = rows[i];
+            rows[i] = rows[j];
+            rows[j] = row;
+        }
+
+        /**
+         * @return true if the first (score, row) ranks after the second
+         */
+        private static boolean isWorse(double score, long row, double otherScore, long otherRow) {
+            return score > otherScore || (score == otherScore && row > otherRow);
+        }
+    }
+
+    /**
+     * Ids without a code of {@link CompactIds}, numbered -1, -2, ... in the order they are first encoded
+     */
+    private static final class OtherIds {
+        private final List<String> bioModelsIds = new ArrayList<>();
+        private final Map<String, Integer> bioModelsCodes = new HashMap<>();
+        private final List<String> stableIds = new ArrayList<>();
+        private final Map<String, Long> stableIdCodes = new HashMap<>();
+
+        private int encodeBioModelsId(String bioModelsId) {
+            int code = CompactIds.encodeBioModelsId(bioModelsId);
+            if (code != CompactIds.NO_CODE) {
+                return code;
+            }
+            return bioModelsCodes.computeIfAbsent(bioModelsId, id -> {
+                bioModelsIds.add(id);
+                return -bioModelsIds.size();
+            });
+        }
+
+        /**
+         * @return Code of the BioModels id, or Integer.MIN_VALUE (never a code) if it is an id without a code which
+         * was never encoded
+         */
+        private int lookUpBioModelsId(String bioModelsId) {
+            int code = CompactIds.encodeBioModelsId(bioModelsId);
+            return code != CompactIds.NO_CODE ? code : bioModelsCodes.getOrDefault(bioModelsId, Integer.MIN_VALUE);
+        }
+
+        private String decodeBioModelsId(int code) {
+            return code >= 0 ? CompactIds.decodeBioModelsId(code) : bioModelsIds.get(-code - 1);
+        }
+
+        private long encodeStableId(String stableId) {
+            long code = CompactIds.encodeStableId(stableId);
+            if (code != CompactIds.NO_CODE) {
+                return code;
+            }
+            return stableIdCodes.computeIfAbsent(stableId, id -> {
+                stableIds.add(id);
+                return (long) -stableIds.size();
+            });
+        }
+
+        /**
+         * @return Code of the stable id, or Long.MIN_VALUE (never a code) if it is a stable id without a code which
+         * was never encoded
+         */
+        private long lookUpStableId(String stableId) {
+            long code = CompactIds.encodeStableId(stableId);
+            return code != CompactIds.NO_CODE ? code : stableIdCodes.getOrDefault(stableId, Long.MIN_VALUE);
+        }
+
+        private String decodeStableId(long code) {
+            return code >= 0 ? CompactIds.decodeStableId(code) : stableIds.get((int) (-code - 1));
+        }
+    }
+
+    private final class MapView extends AbstractMap<String, Set<String>> {
+        @Override
+        public Set<String> get(Object pathwayStableId) {
+            int pathwayIndex = pathwayStableId instanceof String ? indexOf((String) pathwayStableId) : -1;
+            return pathwayIndex < 0 ? null : new BioModelsIdSet(pathwayIndex);
+        }
+
+        @Override
+        public boolean containsKey(Object pathwayStableId) {
+            return pathwayStableId instanceof String && indexOf((String) pathwayStableId) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return getPathwayCount();
+        }
+
+        @Override
+        public Set<Entry<String, Set<String>>> entrySet() {
+            return new AbstractSet<Entry<String, Set<String>>>() {
+                @Override
+                public Iterator<Entry<String, Set<String>>> iterator() {
+                    return new Iterator<Entry<String, Set<String>>>() {
+                        private int pathwayIndex;
+
+                        @Override
+                        public boolean hasNext() {
+                            return pathwayIndex < getPathwayCount();
+                        }
+
+                        @Override
+                        public Entry<String, Set<String>> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int index = pathwayIndex++;
+                            return new SimpleImmutableEntry<>(getPathwayStableId(index), new BioModelsIdSet(index));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return getPathwayCount();
+                }
+            };
+        }
+    }
+
+    private final class BioModelsIdSet extends AbstractSet<String> {
+        private final int start;
+        private final int end;
+
+        private BioModelsIdSet(int pathwayIndex) {
+            this.start = offsets[pathwayIndex];
+            this.end = offsets[pathwayIndex + 1];
+        }
+
+        @Override
+        public boolean contains(Object bioModelsId) {
+            if (!(bioModelsId instanceof String)) {
+                return false;
+            }
+            int code = otherIds.lookUpBioModelsId((String) bioModelsId);
+            for (int i = start; i < end; i++) {
+                if (bioModelsCodes[i] == code) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return new Iterator<String>() {
+                private int i = start;
+
+                @Override
+                public boolean hasNext() {
+                    return i < end;
+                }
+
+                @Override
+                public String next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return otherIds.decodeBioModelsId(bioModelsCodes[i++]);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return end - start;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package org.reactome.release;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Producer side of the streaming insertion.  A parser thread scans the models2pathways file and puts each run of
+ * consecutive lines with the same BioModels id (the file is grouped by BioModels id) as one group on a bounded queue.
+ * A resolver thread takes up to resolveChunkSize groups at a time, looks up the dbIds of the pathway stable ids it
+ * has not seen before with one query and puts the resolved groups on a second bounded queue, from which the consumer
+ * takes them with {@link #next}.  When a queue is full its producer waits, so the memory used by groups in flight is
+ * bounded by the queue capacities whatever the size of the file.  Groups keep the order of the file.  A BioModels id
+ * whose lines are not consecutive fails the stream, as its second group would cross-reference its pathways again.
+ */
+final class ModelsStream implements AutoCloseable {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final Group END = new Group(null, Collections.emptyList());
+
+    private final BlockingQueue<Group> parsedGroups;
+    private final BlockingQueue<ResolvedGroup> resolvedGroups;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final Thread parser;
+    private final Thread resolver;
+    private boolean ended;
+
+    /**
+     * Looks up the dbIds of pathways
+     */
+    interface PathwayResolver {
+        /**
+         * @param pathwayStableIds Stable ids of the pathways
+         * @return Pathways found for the stable ids (stable ids not found are left out)
+         */
+        Collection<ResolvedPathway> resolve(Set<String> pathwayStableIds);
+    }
+
+    private ModelsStream(Path file, RejectReport rejects, ModelsFilter filter, PathwayResolver pathwayResolver,
+                         int queueCapacity, int resolveChunkSize) {
+        this.parsedGroups = new ArrayBlockingQueue<>(queueCapacity);
+        this.resolvedGroups = new ArrayBlockingQueue<>(queueCapacity);
+        this.parser = new Thread(() -> parse(file, rejects, filter), "models2pathways-parser");
+        this.resolver = new Thread(() -> resolve(pathwayResolver, resolveChunkSize), "models2pathways-resolver");
+        this.parser.setDaemon(true);
+        this.resolver.setDaemon(true);
+    }
+
+    /**
+     * Starts parsing and resolving the file
+     *
+     * @param file Path to the models2pathways.tsv file (which may be gzip-compressed)
+     * @param rejects RejectReport receiving the improperly formatted lines; complete once {@link #next} returned null
+     * @param pathwayResolver Looks up the pathways of the stable ids
+     * @param queueCapacity Maximum number of groups waiting on each queue
+     * @param resolveChunkSize Maximum number of groups whose pathways are looked up together
+     * @return The stream
+     */
+    static ModelsStream open(Path file, RejectReport rejects, PathwayResolver pathwayResolver, int queueCapacity,
+                             int resolveChunkSize) {
+        return open(file, rejects, null, pathwayResolver, queueCapacity, resolveChunkSize);
+    }
+
+    /**
+     * Starts parsing and resolving the rows of the file passing the score threshold and species allow-list of a
+     * filter.  BioModels ids are streamed in file order, so the filter must have no top K limit.
+     *
+     * @param file Path to the models2pathways.tsv file (which may be gzip-compressed)
+     * @param rejects RejectReport receiving the improperly formatted lines; complete once {@link #next} returned null
+     * @param filter Score threshold and species allow-list of the rows, or null for every row
+     * @param pathwayResolver Looks up the pathways of the stable ids
+     * @param queueCapacity Maximum number of groups waiting on each queue
+     * @param resolveChunkSize Maximum number of groups whose pathways are looked up together
+     * @return The stream
+     */
+    static ModelsStream open(Path file, RejectReport rejects, ModelsFilter filter, PathwayResolver pathwayResolver,
+                             int queueCapacity, int resolveChunkSize) {
+        if (queueCapacity < 1 || resolveChunkSize < 1) {
+            throw new IllegalArgumentException("Queue capacity and resolve chunk size must be positive: " +
+                    queueCapacity + ", " + resolveChunkSize);
+        }
+        if (filter != null && filter.getTopK() > 0) {
+            throw new IllegalArgumentException("A top K limit per pathway can not be applied while streaming");
+        }
+        ModelsStream stream = new ModelsStream(file, rejects, filter, pathwayResolver, queueCapacity,
+                resolveChunkSize);
+        stream.parser.start();
+        stream.resolver.start();
+        return stream;
+    }
+
+    /**
+     * Waits for the next resolved group
+     *
+     * @return The next group, or null once every group of the file has been returned
+     * @throws IllegalStateException Thrown if parsing or resolving failed
+     */
+    ResolvedGroup next() {
+        if (ended) {
+            return null;
+        }
+        ResolvedGroup group;
+        try {
+            group = resolvedGroups.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for BioModels ids", e);
+        }
+        if (group.getBioModelsId() == null) {
+            ended = true;
+            Throwable error = failure.get();
+            if (error != null) {
+                throw new IllegalStateException("Unable to stream BioModels ids", error);
+            }
+            return null;
+        }
+        return group;
+    }
+
+    /**
+     * Stops the parser and resolver if they are still running
+     */
+    @Override
+    public void close() {
+        parser.interrupt();
+        resolver.interrupt();
+        try {
+            parser.join();
+            resolver.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void parse(Path file, RejectReport rejects, ModelsFilter filter) {
+        GroupBuilder groupBuilder = new GroupBuilder();
+        long rejectedBefore = rejects.getRejectedCount();
+        try (RunMetrics.Phase phase = RunMetrics.startPhase("parse")) {
+            long filteredCount = ModelsTSVScanner.scan(file, (bioModelsId, pathwayStableId, score) -> {
+                if (!bioModelsId.equals(groupBuilder.bioModelsId)) {
+                    groupBuilder.emit();
+                    groupBuilder.bioModelsId = bioModelsId;
+                }
+                groupBuilder.rowCount++;
+                groupBuilder.pathwayStableIds.add(pathwayStableId);
+            }, rejects, filter);
+            groupBuilder.emit();
+            RunMetrics.add(RunMetrics.ROWS_FILTERED, filteredCount);
+        } catch (Exception e) {
+            if (!(e.getCause() instanceof InterruptedException)) {
+                failure.compareAndSet(null, e);
+            }
+        } finally {
+            RunMetrics.add(RunMetrics.ROWS_PARSED, groupBuilder.rowCount);
+            RunMetrics.add(RunMetrics.ROWS_REJECTED, rejects.getRejectedCount() - rejectedBefore);
+            putQuietly(parsedGroups, END);
+        }
+    }
+
+    private void resolve(PathwayResolver pathwayResolver, int resolveChunkSize) {
+        Map<String, ResolvedPathway> pathways = new HashMap<>();
+        Set<String> unknownStableIds = new LinkedHashSet<>();
+        try {
+            boolean parsing = true;
+            while (parsing) {
+                List<Group> chunk = new ArrayList<>();
+                chunk.add(parsedGroups.take());
+                parsedGroups.drainTo(chunk, resolveChunkSize - 1);
+                if (chunk.get(chunk.size() - 1) == END) {
+                    chunk.remove(chunk.size() - 1);
+                    parsing = false;
+                }
+
+                Set<String> newStableIds = new LinkedHashSet<>();
+                for (Group group : chunk) {
+                    for (String pathwayStableId : group.pathwayStableIds) {
+                        if (!pathways.containsKey(pathwayStableId) && !unknownStableIds.contains(pathwayStableId)) {
+                            newStableIds.add(pathwayStableId);
+                        }
+                    }
+                }
+                if (!newStableIds.isEmpty()) {
+                    for (ResolvedPathway pathway : pathwayResolver.resolve(newStableIds)) {
+                        pathways.put(pathway.getStableId(), pathway);
+                    }
+                    for (String pathwayStableId : newStableIds) {
+                        if (!pathways.containsKey(pathwayStableId)) {
+                            unknownStableIds.add(pathwayStableId);
+                        }
+                    }
+                }
+
+                for (Group group : chunk) {
+                    List<ResolvedPathway> groupPathways = new ArrayList<>();
+                    for (String pathwayStableId : group.pathwayStableIds) {
+                        ResolvedPathway pathway = pathways.get(pathwayStableId);
+                        if (pathway != null) {
+                            groupPathways.add(pathway);
+                        }
+                    }
+                    if (!groupPathways.isEmpty()) {
+                        resolvedGroups.put(new ResolvedGroup(group.bioModelsId, groupPathways));
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            putQuietly(resolvedGroups, new ResolvedGroup(null, Collections.emptyList()));
+        }
+        PathwayLookup.reportUnmatched(unknownStableIds, pathways.size() + unknownStableIds.size());
+    }
+
+    /**
+     * Puts the end marker on a queue, waiting for room unless the stream is being closed
+     */
+    private static <T> void putQuietly(BlockingQueue<T> queue, T element) {
+        if (Thread.currentThread().isInterrupted()) {
+            queue.offer(element);
+            return;
+        }
+        try {
+            queue.put(element);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Collects the lines of one BioModels id and puts them on the parsed queue when the BioModels id changes
+     */
+    private final class GroupBuilder {
+        // BioModels ids already emitted, with a dummy dbId
+        private final IdentifierDbIds emittedBioModelsIds = new IdentifierDbIds();
+        private String bioModelsId;
+        private Set<String> pathwayStableIds = new LinkedHashSet<>();
+        private long rowCount;
+
+        private void emit() {
+            if (bioModelsId == null) {
+                return;
+            }
+            if (emittedBioModelsIds.put(bioModelsId, 0L) != null) {
+                throw new IllegalStateException("The lines of BioModels id " + bioModelsId + " are not consecutive " +
+                        "in the file, which insertionMode=streaming requires");
+            }
+            try {
+                parsedGroups.put(new Group(bioModelsId, new ArrayList<>(pathwayStableIds)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while queuing BioModels ids", e);
+            }
+            pathwayStableIds = new LinkedHashSet<>();
+        }
+    }
+
+    private static final class Group {
+        private final String bioModelsId;
+        private final List<String> pathwayStableIds;
+
+        private Group(String bioModelsId, List<String> pathwayStableIds) {
+            this.bioModelsId = bioModelsId;
+            this.pathwayStableIds = pathwayStableIds;
+        }
+    }
+
+    /**
+     * A BioModels id with its pathways found in the database, in the order of the file
+     */
+    static final class ResolvedGroup {
+        private final String bioModelsId;
+        private final List<ResolvedPathway> pathways;
+
+        ResolvedGroup(String bioModelsId, List<ResolvedPathway> pathways) {
+            this.bioModelsId = bioModelsId;
+            this.pathways = pathways;
+        }
+
+        String getBioModelsId() {
+            return bioModelsId;
+        }
+
+        List<ResolvedPathway> getPathways() {
+            return pathways;
+        }
+    }
+}
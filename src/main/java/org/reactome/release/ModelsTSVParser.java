@@ -3,13 +3,21 @@ package org.reactome.release;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 public final class ModelsTSVParser {
     private static final Logger LOGGER = LogManager.getLogger();
+    private static final long MIN_CHUNK_SIZE = 4L * 1024 * 1024;
+    private static final int CHUNKS_PER_THREAD = 4;
 
     private ModelsTSVParser() { }
 
@@ -20,42 +28,253 @@ public final class ModelsTSVParser {
      * @return Map of ReactomePathwayIds and a List of BioModelsIdentifiers
      */
     public static Map<String, Set<String>> parse(final String tsvFile) {
-        Map<String, Set<String>> pathwayToBiomodelsIds = new HashMap<>();
+        return parse(tsvFile, new RejectReport());
+    }
 
-        if (tsvFile == null || tsvFile.isEmpty()) {
-            return pathwayToBiomodelsIds;
-        }
+    /**
+     * Parses the contents of the models2pathways.tsv file, returning a Map of ReactomePathwayIds=[BioModelsIdentifiers,...]
+     * The file may be gzip-compressed.  Pathways and their BioModels identifiers are in the order they first appear in
+     * the file.
+     *
+     * @param tsvFile - String, path/to/models2pathways.tsv
+     * @param rejects - RejectReport receiving the improperly formatted lines
+     * @return Map of ReactomePathwayIds and a List of BioModelsIdentifiers
+     */
+    public static Map<String, Set<String>> parse(final String tsvFile, final RejectReport rejects) {
+        return parse(tsvFile, rejects, 1);
+    }
+
+    /**
+     * Parses the contents of the models2pathways.tsv file, returning a Map of ReactomePathwayIds=[BioModelsIdentifiers,...]
+     * With a parallelism greater than one, an uncompressed file is split into ranges of whole lines which are parsed
+     * on a ForkJoinPool.  The result, including the order of pathways and identifiers, is the same as parsing it
+     * sequentially.
+     *
+     * @param tsvFile - String, path/to/models2pathways.tsv
+     * @param rejects - RejectReport receiving the improperly formatted lines
+     * @param parallelism - Number of threads used to parse the file
+     * @return Map of ReactomePathwayIds and a List of BioModelsIdentifiers
+     */
+    public static Map<String, Set<String>> parse(final String tsvFile, final RejectReport rejects, final int parallelism) {
+        return parseMapping(tsvFile, rejects, parallelism).asMap();
+    }
 
-        try (BufferedReader br = new BufferedReader(new FileReader(tsvFile))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] fields = line.split("\t");
-                String biomodelsId = fields[0];
-                String pathwayStableId = fields[1];
+    /**
+     * Parses the contents of the models2pathways.tsv file into the compact {@link ModelsMapping}, of which the Maps
+     * returned by the parse methods are views.  See {@link #parse(String, RejectReport, int)}.
+     *
+     * @param tsvFile - String, path/to/models2pathways.tsv
+     * @param rejects - RejectReport receiving the improperly formatted lines
+     * @param parallelism - Number of threads used to parse the file
+     * @return Mapping of ReactomePathwayIds to BioModelsIdentifiers
+     */
+    public static ModelsMapping parseMapping(final String tsvFile, final RejectReport rejects, final int parallelism) {
+        return parseMapping(tsvFile, rejects, parallelism, null);
+    }
+
+    /**
+     * Parses the rows of the models2pathways.tsv file selected by a {@link ModelsFilter}.  Rows are dropped by score
+     * and species as they are scanned and only the top K BioModels ids of each pathway are held while parsing; the
+     * BioModels ids of each pathway are ordered by score.
+     *
+     * @param tsvFile - String, path/to/models2pathways.tsv
+     * @param rejects - RejectReport receiving the improperly formatted lines
+     * @param parallelism - Number of threads used to parse the file
+     * @param filter - ModelsFilter selecting the rows, or null to keep every row in file order
+     * @return Mapping of ReactomePathwayIds to BioModelsIdentifiers
+     */
+    public static ModelsMapping parseMapping(final String tsvFile, final RejectReport rejects, final int parallelism,
+                                             final ModelsFilter filter) {
+        ModelsMapping.Builder pathwayToBiomodelsIds = new ModelsMapping.Builder(filter);
 
-                if (!matchBioModelsPattern(biomodelsId)) {
-                    LOGGER.warn("Line has improperly formatted BioModel ID -- skipping");
-                    continue;
-                }
-                if (!matchStableIdPattern(pathwayStableId)) {
-                    LOGGER.warn("Line has improperly formatted or Stable ID -- skipping");
-                    continue;
-                }
+        if (tsvFile == null || tsvFile.isEmpty()) {
+            return pathwayToBiomodelsIds.build();
+        }
 
-                pathwayToBiomodelsIds.computeIfAbsent(pathwayStableId, k -> new LinkedHashSet<>()).add(biomodelsId);
+        long rejectedBefore = rejects.getRejectedCount();
+        long[] rowCount = new long[1];
+        long filteredCount = 0L;
+        try (RunMetrics.Phase phase = RunMetrics.startPhase("parse")) {
+            Path tsvPath = Paths.get(tsvFile);
+            if (parallelism > 1 && !ModelsTSVScanner.isGzipped(tsvPath)) {
+                ParsedRange parsed = parseRanges(tsvPath, parallelism, MIN_CHUNK_SIZE, filter);
+                rejects.addAll(parsed.rejects, 0L);
+                pathwayToBiomodelsIds = parsed.pathwayToBiomodelsIds;
+                rowCount[0] = parsed.rowCount;
+                filteredCount = parsed.filteredCount;
+            } else {
+                ModelsMapping.Builder builder = pathwayToBiomodelsIds;
+                filteredCount = ModelsTSVScanner.scan(tsvPath, (biomodelsId, pathwayStableId, score) -> {
+                    rowCount[0]++;
+                    builder.add(biomodelsId, pathwayStableId, score);
+                }, rejects, filter);
             }
         } catch (IOException e) {
             LOGGER.error("Problem encountered processing tsvFile " + tsvFile, e);
         }
+        RunMetrics.add(RunMetrics.ROWS_PARSED, rowCount[0]);
+        RunMetrics.add(RunMetrics.ROWS_REJECTED, rejects.getRejectedCount() - rejectedBefore);
+        if (filter != null) {
+            RunMetrics.add(RunMetrics.ROWS_FILTERED, filteredCount);
+            LOGGER.info("{} rows of {} left out by score or species ({})", filteredCount, tsvFile, filter);
+        }
+
+        for (RejectReport.Rejection rejection : rejects.getRejections()) {
+            LOGGER.warn("{} (line {}) -- skipping", rejection.getReason(), rejection.getLineNumber());
+        }
+        return pathwayToBiomodelsIds.build();
+    }
+
+    /**
+     * Parses the file in ranges of at least minChunkSize bytes on a ForkJoinPool of the given parallelism
+     *
+     * @param tsvPath Path to an uncompressed models2pathways.tsv file
+     * @param rejects RejectReport receiving the improperly formatted lines
+     * @param parallelism Number of threads used to parse the file
+     * @param minChunkSize Minimum size in bytes of a range parsed by one task
+     * @return Map of ReactomePathwayIds and a List of BioModelsIdentifiers
+     * @throws IOException Thrown if the file can not be read
+     */
+    static Map<String, Set<String>> parseInParallel(Path tsvPath, RejectReport rejects, int parallelism,
+                                                    long minChunkSize) throws IOException {
+        ParsedRange parsed = parseRanges(tsvPath, parallelism, minChunkSize, null);
+        rejects.addAll(parsed.rejects, 0L);
+        return parsed.pathwayToBiomodelsIds.build().asMap();
+    }
+
+    private static ParsedRange parseRanges(Path tsvPath, int parallelism, long minChunkSize, ModelsFilter filter)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(tsvPath, StandardOpenOption.READ)) {
+            List<Long> boundaries = splitAtLineBreaks(channel, parallelism, minChunkSize);
+            LOGGER.info("Parsing {} in {} ranges with parallelism {}", tsvPath, boundaries.size() - 1, parallelism);
+
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                return pool.invoke(new ParseRangesTask(channel, boundaries, 0, boundaries.size() - 1, filter));
+            } finally {
+                pool.shutdown();
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Splits the file into ranges which each start at the beginning of a line
+     *
+     * @return Offsets of the range boundaries, starting with 0 and ending with the file size
+     */
+    private static List<Long> splitAtLineBreaks(FileChannel channel, int parallelism, long minChunkSize)
+            throws IOException {
+        long size = channel.size();
+        long chunkSize = Math.max(minChunkSize, size / ((long) parallelism * CHUNKS_PER_THREAD) + 1);
+        chunkSize = Math.min(chunkSize, ModelsTSVScanner.MAPPED_SEGMENT_SIZE / 2);
+
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        long boundary = chunkSize;
+        while (boundary < size) {
+            long lineStart = nextLineStart(channel, buffer, boundary);
+            if (lineStart >= size) {
+                break;
+            }
+            if (lineStart - boundaries.get(boundaries.size() - 1) > ModelsTSVScanner.MAPPED_SEGMENT_SIZE) {
+                throw new IOException("Line ending after offset " + boundary + " is too long");
+            }
+            boundaries.add(lineStart);
+            boundary = lineStart + chunkSize;
+        }
+        boundaries.add(size);
+        return boundaries;
+    }
 
-        return pathwayToBiomodelsIds;
+    /**
+     * @return Offset after the first line break at or after position, or the file size if there is none
+     */
+    private static long nextLineStart(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long offset = position;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read < 0) {
+                return channel.size();
+            }
+            int lineBreak = ModelsTSVScanner.indexOf(buffer, (byte) '\n', 0, read);
+            if (lineBreak >= 0) {
+                return offset + lineBreak + 1;
+            }
+            offset += read;
+        }
     }
 
-    private static boolean matchBioModelsPattern(final String bioModelsId) {
-        return bioModelsId != null && bioModelsId.startsWith("BIOMD");
+    /**
+     * Mapping, rejected lines, accepted row count and line count parsed from consecutive ranges of the file
+     */
+    private static final class ParsedRange {
+        private final ModelsMapping.Builder pathwayToBiomodelsIds;
+        private final RejectReport rejects = new RejectReport();
+        private long rowCount;
+        private long lineCount;
+        private long filteredCount;
+
+        private ParsedRange(ModelsFilter filter) {
+            this.pathwayToBiomodelsIds = new ModelsMapping.Builder(filter);
+        }
+
+        /**
+         * Appends the range following this one.  Identifiers new to a pathway are added after its existing ones and
+         * new pathways after the existing pathways, which is the order a sequential parse produces.
+         */
+        private ParsedRange append(ParsedRange next) {
+            pathwayToBiomodelsIds.append(next.pathwayToBiomodelsIds);
+            rejects.addAll(next.rejects, lineCount);
+            rowCount += next.rowCount;
+            lineCount += next.lineCount;
+            filteredCount += next.filteredCount;
+            return this;
+        }
     }
 
-    private static boolean matchStableIdPattern(final String pathwayStableId) {
-        return pathwayStableId != null && pathwayStableId.matches("R-\\w{3}-\\d+");
+    private static final class ParseRangesTask extends RecursiveTask<ParsedRange> {
+        private final FileChannel channel;
+        private final List<Long> boundaries;
+        private final int fromRange;
+        private final int toRange;
+        private final ModelsFilter filter;
+
+        private ParseRangesTask(FileChannel channel, List<Long> boundaries, int fromRange, int toRange,
+                                ModelsFilter filter) {
+            this.channel = channel;
+            this.boundaries = boundaries;
+            this.fromRange = fromRange;
+            this.toRange = toRange;
+            this.filter = filter;
+        }
+
+        @Override
+        protected ParsedRange compute() {
+            if (toRange - fromRange > 1) {
+                int middle = (fromRange + toRange) >>> 1;
+                ParseRangesTask second = new ParseRangesTask(channel, boundaries, middle, toRange, filter);
+                second.fork();
+                ParsedRange first = new ParseRangesTask(channel, boundaries, fromRange, middle, filter).compute();
+                return first.append(second.join());
+            }
+
+            ParsedRange parsed = new ParsedRange(filter);
+            ModelsTSVScanner scanner = new ModelsTSVScanner((biomodelsId, pathwayStableId, score) -> {
+                parsed.rowCount++;
+                parsed.pathwayToBiomodelsIds.add(biomodelsId, pathwayStableId, score);
+            }, parsed.rejects, filter, 0L);
+            try {
+                scanner.scanRange(channel, boundaries.get(fromRange), boundaries.get(toRange));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            parsed.lineCount = scanner.getLineNumber();
+            parsed.filteredCount = scanner.getFilteredCount();
+            return parsed;
+        }
     }
 }
@@ -0,0 +1,395 @@
+package org.reactome.release;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Byte level scanner for models2pathways.tsv files.  Only the first two tab separated columns of each line (the
+ * BioModels id and the pathway stable id) are examined, plus the score (column 3) and species (column 7) when a
+ * {@link ModelsFilter} is given; they are validated directly on the bytes and Strings are only created for the ids of
+ * accepted lines.  Uncompressed files are memory-mapped and gzip-compressed files are read through a reusable buffer.
+ */
+final class ModelsTSVScanner {
+    static final int MAPPED_SEGMENT_SIZE = 256 * 1024 * 1024;
+    private static final int READ_BUFFER_SIZE = 1024 * 1024;
+    private static final byte[] BIOMODELS_ID_PREFIX = "BIOMD".getBytes(StandardCharsets.US_ASCII);
+    private static final int SPECIES_CODE_LENGTH = 3;
+    private static final int COLUMNS_FROM_SCORE_TO_SPECIES = 4;
+
+    /**
+     * Receives the ids of each accepted line
+     */
+    interface RowHandler {
+        /**
+         * @param bioModelsId BioModels id of the line
+         * @param pathwayStableId Pathway stable id of the line
+         * @param score Score of the line, or NaN if the scanner has no filter (the score is then not read)
+         */
+        void accept(String bioModelsId, String pathwayStableId, double score);
+    }
+
+    private final RowHandler handler;
+    private final RejectReport rejects;
+    private final ModelsFilter filter;
+    private long lineNumber;
+    private long filteredCount;
+    private byte[] scratch = new byte[64];
+    private byte[] previousBioModelsId = new byte[64];
+    private int previousBioModelsIdLength = -1;
+    private String previousBioModelsIdString;
+
+    /**
+     * Creates a scanner
+     *
+     * @param handler Receives the ids of each accepted line
+     * @param rejects Receives the rejected lines
+     * @param firstLineNumber Line number of the first line scanned, minus one
+     */
+    ModelsTSVScanner(RowHandler handler, RejectReport rejects, long firstLineNumber) {
+        this(handler, rejects, null, firstLineNumber);
+    }
+
+    /**
+     * Creates a scanner selecting lines by score and species
+     *
+     * @param handler Receives the ids of each accepted line
+     * @param rejects Receives the rejected lines
+     * @param filter Score threshold and species allow-list of the lines passed to the handler, or null for all lines
+     * @param firstLineNumber Line number of the first line scanned, minus one
+     */
+    ModelsTSVScanner(RowHandler handler, RejectReport rejects, ModelsFilter filter, long firstLineNumber) {
+        this.handler = handler;
+        this.rejects = rejects;
+        this.filter = filter;
+        this.lineNumber = firstLineNumber;
+    }
+
+    /**
+     * Scans a models2pathways file, which may be gzip-compressed
+     *
+     * @param file Path to models2pathways.tsv (or models2pathways.tsv.gz)
+     * @param handler Receives the ids of each accepted line
+     * @param rejects Receives the rejected lines
+     * @throws IOException Thrown if the file can not be read
+     */
+    static void scan(Path file, RowHandler handler, RejectReport rejects) throws IOException {
+        scan(file, handler, rejects, null);
+    }
+
+    /**
+     * Scans a models2pathways file, which may be gzip-compressed, passing only the lines selected by the filter
+     *
+     * @param file Path to models2pathways.tsv (or models2pathways.tsv.gz)
+     * @param handler Receives the ids and score of each accepted line
+     * @param rejects Receives the rejected lines
+     * @param filter Score threshold and species allow-list, or null for all lines
+     * @return Number of valid lines left out by the filter
+     * @throws IOException Thrown if the file can not be read
+     */
+    static long scan(Path file, RowHandler handler, RejectReport rejects, ModelsFilter filter) throws IOException {
+        ModelsTSVScanner scanner = new ModelsTSVScanner(handler, rejects, filter, 0L);
+        if (isGzipped(file)) {
+            try (InputStream inputStream = new GZIPInputStream(Files.newInputStream(file), READ_BUFFER_SIZE)) {
+                scanner.scanStream(inputStream);
+            }
+        } else {
+            scanner.scanMapped(file);
+        }
+        return scanner.getFilteredCount();
+    }
+
+    /**
+     * Scans a range of an uncompressed models2pathways file.  The range must start at the beginning of a line and
+     * end after a line break or at the end of the file.
+     *
+     * @param channel Channel of the file
+     * @param start Offset of the start of the range
+     * @param end Offset of the end of the range
+     * @throws IOException Thrown if the file can not be read
+     */
+    void scanRange(FileChannel channel, long start, long end) throws IOException {
+        if (end - start > MAPPED_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Range is longer than " + MAPPED_SEGMENT_SIZE + " bytes");
+        }
+        MappedByteBuffer range = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        scanLines(range, 0, (int) (end - start), true);
+    }
+
+    /**
+     * @param file Path to the file
+     * @return true if the file starts with the gzip magic number
+     * @throws IOException Thrown if the file can not be read
+     */
+    static boolean isGzipped(Path file) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            int firstByte = inputStream.read();
+            int secondByte = inputStream.read();
+            return firstByte == (GZIPInputStream.GZIP_MAGIC & 0xff) && secondByte == (GZIPInputStream.GZIP_MAGIC >>> 8);
+        }
+    }
+
+    /**
+     * @return Number of lines scanned so far (plus the first line number given to the constructor)
+     */
+    long getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * @return Number of valid lines left out by the filter so far
+     */
+    long getFilteredCount() {
+        return filteredCount;
+    }
+
+    private void scanMapped(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                int length = (int) Math.min(MAPPED_SEGMENT_SIZE, size - position);
+                boolean lastSegment = position + length == size;
+                MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int consumed = scanLines(segment, 0, length, lastSegment);
+                if (consumed == 0 && !lastSegment) {
+                    throw new IOException("Line " + (lineNumber + 1) + " of " + file + " is longer than " + length + " bytes");
+                }
+                position += consumed;
+            }
+        }
+    }
+
+    private void scanStream(InputStream inputStream) throws IOException {
+        ReadableByteChannel channel = Channels.newChannel(inputStream);
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        boolean endOfInput = false;
+        while (!endOfInput) {
+            endOfInput = channel.read(buffer) < 0;
+            int end = buffer.position();
+            int consumed = scanLines(buffer, 0, end, endOfInput);
+
+            // Keep the incomplete last line at the start of the buffer for the next read
+            buffer.limit(end).position(consumed);
+            buffer.compact();
+            if (!buffer.hasRemaining()) {
+                ByteBuffer largerBuffer = ByteBuffer.allocate(buffer.capacity() * 2);
+                buffer.flip();
+                largerBuffer.put(buffer);
+                buffer = largerBuffer;
+            }
+        }
+    }
+
+    /**
+     * Scans the lines in buffer between from and to (exclusive)
+     *
+     * @param buffer Buffer holding the file content
+     * @param from Offset of the start of a line
+     * @param to End offset of the content
+     * @param endOfInput true if the content ends the input, so a last line without a line break is complete
+     * @return Offset after the last complete line scanned
+     */
+    int scanLines(ByteBuffer buffer, int from, int to, boolean endOfInput) {
+        int lineStart = from;
+        while (lineStart < to) {
+            int lineEnd = indexOf(buffer, (byte) '\n', lineStart, to);
+            int nextLineStart;
+            if (lineEnd < 0) {
+                if (!endOfInput) {
+                    break;
+                }
+                lineEnd = to;
+                nextLineStart = to;
+            } else {
+                nextLineStart = lineEnd + 1;
+            }
+            if (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+            lineNumber++;
+            scanLine(buffer, lineStart, lineEnd);
+            lineStart = nextLineStart;
+        }
+        return lineStart;
+    }
+
+    private void scanLine(ByteBuffer buffer, int lineStart, int lineEnd) {
+        int bioModelsIdEnd = indexOf(buffer, (byte) '\t', lineStart, lineEnd);
+        if (bioModelsIdEnd < 0) {
+            reject("Line has no pathway stable id column", buffer, lineStart, lineEnd);
+            return;
+        }
+        int stableIdStart = bioModelsIdEnd + 1;
+        int stableIdEnd = indexOf(buffer, (byte) '\t', stableIdStart, lineEnd);
+        if (stableIdEnd < 0) {
+            stableIdEnd = lineEnd;
+        }
+
+        if (!isBioModelsId(buffer, lineStart, bioModelsIdEnd)) {
+            reject("Line has improperly formatted BioModel ID", buffer, lineStart, lineEnd);
+            return;
+        }
+        if (!isStableId(buffer, stableIdStart, stableIdEnd)) {
+            reject("Line has improperly formatted or Stable ID", buffer, lineStart, lineEnd);
+            return;
+        }
+
+        double score = Double.NaN;
+        if (filter != null) {
+            if (stableIdEnd == lineEnd) {
+                reject("Line has no score column", buffer, lineStart, lineEnd);
+                return;
+            }
+            int scoreStart = stableIdEnd + 1;
+            int scoreEnd = columnEnd(buffer, scoreStart, lineEnd);
+            try {
+                score = Double.parseDouble(asciiString(buffer, scoreStart, scoreEnd));
+            } catch (NumberFormatException e) {
+                reject("Line has improperly formatted score", buffer, lineStart, lineEnd);
+                return;
+            }
+            if (!filter.accepts(score, filter.filtersSpecies() ? species(buffer, scoreEnd, lineEnd) : null)) {
+                filteredCount++;
+                return;
+            }
+        }
+
+        handler.accept(bioModelsId(buffer, lineStart, bioModelsIdEnd), asciiString(buffer, stableIdStart, stableIdEnd),
+                score);
+    }
+
+    private static int columnEnd(ByteBuffer buffer, int columnStart, int lineEnd) {
+        int tab = indexOf(buffer, (byte) '\t', columnStart, lineEnd);
+        return tab < 0 ? lineEnd : tab;
+    }
+
+    /**
+     * @return The species column of the line, or null if the line has fewer columns
+     */
+    private String species(ByteBuffer buffer, int scoreEnd, int lineEnd) {
+        int columnEnd = scoreEnd;
+        for (int column = 0; column < COLUMNS_FROM_SCORE_TO_SPECIES; column++) {
+            if (columnEnd == lineEnd) {
+                return null;
+            }
+            int columnStart = columnEnd + 1;
+            columnEnd = columnEnd(buffer, columnStart, lineEnd);
+            if (column == COLUMNS_FROM_SCORE_TO_SPECIES - 1) {
+                return new String(copy(buffer, columnStart, columnEnd), 0, columnEnd - columnStart,
+                        StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private void reject(String reason, ByteBuffer buffer, int lineStart, int lineEnd) {
+        rejects.reject(lineNumber, reason, new String(copy(buffer, lineStart, lineEnd), 0, lineEnd - lineStart,
+                StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Same rule as the previous String based parser: the id must start with 'BIOMD'
+     */
+    private static boolean isBioModelsId(ByteBuffer buffer, int start, int end) {
+        if (end - start < BIOMODELS_ID_PREFIX.length) {
+            return false;
+        }
+        for (int i = 0; i < BIOMODELS_ID_PREFIX.length; i++) {
+            if (buffer.get(start + i) != BIOMODELS_ID_PREFIX[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Equivalent of matching 'R-\w{3}-\d+' on the bytes of the stable id
+     */
+    static boolean isStableId(ByteBuffer buffer, int start, int end) {
+        int speciesStart = start + 2;
+        int numberStart = speciesStart + SPECIES_CODE_LENGTH + 1;
+        if (end - numberStart < 1 || buffer.get(start) != 'R' || buffer.get(start + 1) != '-' ||
+                buffer.get(numberStart - 1) != '-') {
+            return false;
+        }
+        for (int i = speciesStart; i < speciesStart + SPECIES_CODE_LENGTH; i++) {
+            if (!isWordCharacter(buffer.get(i))) {
+                return false;
+            }
+        }
+        for (int i = numberStart; i < end; i++) {
+            if (!isDigit(buffer.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWordCharacter(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || isDigit(b) || b == '_';
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    static int indexOf(ByteBuffer buffer, byte target, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Consecutive lines usually share the BioModels id, so the String of the previous line is reused when the bytes
+     * are the same.
+     */
+    private String bioModelsId(ByteBuffer buffer, int start, int end) {
+        int length = end - start;
+        if (length == previousBioModelsIdLength) {
+            boolean same = true;
+            for (int i = 0; i < length && same; i++) {
+                same = buffer.get(start + i) == previousBioModelsId[i];
+            }
+            if (same) {
+                return previousBioModelsIdString;
+            }
+        }
+        if (previousBioModelsId.length < length) {
+            previousBioModelsId = new byte[length];
+        }
+        for (int i = 0; i < length; i++) {
+            previousBioModelsId[i] = buffer.get(start + i);
+        }
+        previousBioModelsIdLength = length;
+        previousBioModelsIdString = new String(previousBioModelsId, 0, length, StandardCharsets.UTF_8);
+        return previousBioModelsIdString;
+    }
+
+    private String asciiString(ByteBuffer buffer, int start, int end) {
+        return new String(copy(buffer, start, end), 0, end - start, StandardCharsets.US_ASCII);
+    }
+
+    private byte[] copy(ByteBuffer buffer, int start, int end) {
+        int length = end - start;
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            scratch[i] = buffer.get(start + i);
+        }
+        return scratch;
+    }
+}
@@ -0,0 +1,144 @@
+package org.reactome.release;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.neo4j.driver.QueryRunner;
+import org.neo4j.driver.Record;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Looks up Pathways by stable id.  The stable ids are sent in chunks of 'pathwayLookupChunkSize' rather than in one
+ * list parameter, only the dbId, stable id and display name are returned, and each record is handed on as a
+ * {@link ResolvedPathway} as the result streams in (in batches of the driver's fetch size).  Stable ids matching no
+ * Pathway are returned to the caller, which reports them once with {@link #reportUnmatched}.
+ */
+final class PathwayLookup {
+    private static final Logger LOGGER = LogManager.getLogger();
+    static final int DEFAULT_CHUNK_SIZE = 1000;
+    private static final int UNMATCHED_LOGGED = 20;
+
+    private static volatile int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    private PathwayLookup() { }
+
+    /**
+     * @param lookupChunkSize Number of stable ids sent in one statement
+     */
+    static void configure(int lookupChunkSize) {
+        if (lookupChunkSize < 1) {
+            throw new IllegalArgumentException("Pathway lookup chunk size must be positive: " + lookupChunkSize);
+        }
+        chunkSize = lookupChunkSize;
+    }
+
+    /**
+     * Looks up the pathways of the stable ids, chunk by chunk
+     *
+     * @param runner Neo4j Driver Transaction
+     * @param pathwayStableIds Stable ids of the pathways
+     * @param consumer Receives each pathway found, in the order of the results
+     * @return Stable ids matching no Pathway, in the order given
+     */
+    static Set<String> forEach(QueryRunner runner, Collection<String> pathwayStableIds,
+                               Consumer<ResolvedPathway> consumer) {
+        return forEach(BioModelsQueries.of(runner), pathwayStableIds, consumer);
+    }
+
+    /**
+     * Looks up the pathways of the stable ids, chunk by chunk
+     *
+     * @param queries Queries of the transaction
+     * @param pathwayStableIds Stable ids of the pathways
+     * @param consumer Receives each pathway found, in the order of the results
+     * @return Stable ids matching no Pathway, in the order given
+     */
+    static Set<String> forEach(BioModelsQueries queries, Collection<String> pathwayStableIds,
+                               Consumer<ResolvedPathway> consumer) {
+        Set<String> unmatched = new LinkedHashSet<>();
+        try (RunMetrics.Phase phase = RunMetrics.startPhase("getPathwaysWithBioModelsIds")) {
+            for (List<String> chunk : chunks(pathwayStableIds)) {
+                Set<String> chunkUnmatched = new LinkedHashSet<>(chunk);
+                queries.forEach(CypherTemplates.PATHWAYS_BY_STABLE_ID,
+                        Collections.singletonMap("pathwayStableIds", chunk), record -> {
+                            ResolvedPathway pathway = fromRecord(record);
+                            chunkUnmatched.remove(pathway.getStableId());
+                            consumer.accept(pathway);
+                        });
+                RunMetrics.add(RunMetrics.PATHWAYS_FOUND, chunk.size() - chunkUnmatched.size());
+                unmatched.addAll(chunkUnmatched);
+            }
+        }
+        return unmatched;
+    }
+
+    /**
+     * Looks up the pathways of the stable ids and reports those matching no Pathway
+     *
+     * @param runner Neo4j Driver Transaction
+     * @param pathwayStableIds Stable ids of the pathways
+     * @return Pathways found
+     */
+    static List<ResolvedPathway> findAll(QueryRunner runner, Collection<String> pathwayStableIds) {
+        List<ResolvedPathway> pathways = new ArrayList<>();
+        reportUnmatched(forEach(runner, pathwayStableIds, pathways::add), pathwayStableIds.size());
+        return pathways;
+    }
+
+    /**
+     * @param pathwayStableIds Stable ids to look up
+     * @return The stable ids split into lists of at most the configured chunk size
+     */
+    static List<List<String>> chunks(Collection<String> pathwayStableIds) {
+        int size = chunkSize;
+        List<List<String>> chunks = new ArrayList<>();
+        List<String> chunk = new ArrayList<>(Math.min(size, pathwayStableIds.size()));
+        for (String pathwayStableId : pathwayStableIds) {
+            chunk.add(pathwayStableId);
+            if (chunk.size() == size) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>(size);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    /**
+     * @param record Record of the pathway lookup statement
+     * @return The pathway of the record, named by its stable id if it has no displayName
+     */
+    static ResolvedPathway fromRecord(Record record) {
+        String stableId = record.get(BioModelsUtilities.STID).asString();
+        return new ResolvedPathway(record.get(BioModelsUtilities.DBID).asLong(), stableId,
+                record.get(BioModelsUtilities.DISPLAY_NAME).asString(stableId));
+    }
+
+    /**
+     * Logs one summary of the stable ids of the file matching no Pathway (the first ones at WARN, all of them at
+     * DEBUG) and counts them in the run metrics
+     *
+     * @param unmatched Stable ids matching no Pathway
+     * @param lookedUp Number of stable ids looked up
+     */
+    static void reportUnmatched(Collection<String> unmatched, int lookedUp) {
+        RunMetrics.add(RunMetrics.PATHWAYS_UNMATCHED, unmatched.size());
+        if (unmatched.isEmpty()) {
+            return;
+        }
+        List<String> logged = new ArrayList<>();
+        for (String pathwayStableId : unmatched) {
+            if (logged.size() == UNMATCHED_LOGGED) {
+                break;
+            }
+            logged.add(pathwayStableId);
+        }
+        LOGGER.warn("{} of {} pathway stable ids match no Pathway and are skipped: {}{}", unmatched.size(), lookedUp,
+                String.join(", ", logged),
+                unmatched.size() > logged.size() ? " and " + (unmatched.size() - logged.size()) + " more" : "");
+        LOGGER.debug("Pathway stable ids matching no Pathway: {}", unmatched);
+    }
+}
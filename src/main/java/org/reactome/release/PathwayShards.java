@@ -0,0 +1,51 @@
+package org.reactome.release;
+
+import java.util.*;
+
+/**
+ * Assigns pathways to the shards of the sharded insertion, either by the species code of their stable id
+ * ('R-HSA-...') or by a hash of the stable id.  Pathways of different species are disjoint nodes, so shards never
+ * write to the same pathway.
+ */
+final class PathwayShards {
+    private static final int SPECIES_CODE_START = 2;
+    private static final int SPECIES_CODE_END = 5;
+
+    private PathwayShards() { }
+
+    /**
+     * Assigns the pathway stable ids to shards
+     *
+     * @param pathwayStableIds Stable ids of the pathways, which must have the 'R-XXX-number' form
+     * @param shardBy 'species' for one shard per species code, or 'hash' for shardCount shards of about the same size
+     * @param shardCount Number of shards when sharding by hash
+     * @return Stable ids of each shard by shard name, largest shards first so they start first; the stable ids of a
+     * shard keep their order
+     */
+    static Map<String, List<String>> assign(Collection<String> pathwayStableIds, String shardBy, int shardCount) {
+        boolean bySpecies = shardBy.equalsIgnoreCase("species");
+        if (!bySpecies && !shardBy.equalsIgnoreCase("hash")) {
+            throw new IllegalArgumentException("Unknown shardBy: " + shardBy);
+        }
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be positive: " + shardCount);
+        }
+
+        Map<String, List<String>> shards = new HashMap<>();
+        for (String pathwayStableId : pathwayStableIds) {
+            String shard = bySpecies ?
+                    pathwayStableId.substring(SPECIES_CODE_START, SPECIES_CODE_END) :
+                    "hash-" + Math.floorMod(pathwayStableId.hashCode(), shardCount);
+            shards.computeIfAbsent(shard, k -> new ArrayList<>()).add(pathwayStableId);
+        }
+
+        List<Map.Entry<String, List<String>>> entries = new ArrayList<>(shards.entrySet());
+        entries.sort(Comparator.comparing((Map.Entry<String, List<String>> entry) -> entry.getValue().size())
+                .reversed().thenComparing(Map.Entry::getKey));
+        Map<String, List<String>> orderedShards = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> entry : entries) {
+            orderedShards.put(entry.getKey(), entry.getValue());
+        }
+        return orderedShards;
+    }
+}
@@ -0,0 +1,156 @@
+package org.reactome.release;
+
+import org.neo4j.driver.Record;
+import org.neo4j.driver.async.AsyncTransaction;
+
+import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Writer which sends every node and relationship as its own statement on an asynchronous transaction without waiting
+ * for the previous statements to complete, so up to maxInFlight round trips overlap.  When maxInFlight statements
+ * are unanswered, the next write blocks until one completes.  The statements of a transaction are executed by the
+ * server in the order they were sent, so a relationship may refer to a node created by an earlier unanswered
+ * statement and relationships are created in the order of the calls.  The first failed statement fails every later
+ * call.  The read statements of the insertion are run with {@link #query}, after the statements already sent.
+ */
+public class PipelinedBioModelsWriter implements BioModelsWriter, BioModelsQueries {
+
+    private final AsyncTransaction tx;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    /**
+     * Creates a writer keeping up to maxInFlight statements in flight
+     *
+     * @param tx Neo4j Driver AsyncTransaction
+     * @param maxInFlight Maximum number of statements sent and not yet completed
+     */
+    public PipelinedBioModelsWriter(AsyncTransaction tx, int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Maximum number of statements in flight must be positive: " +
+                    maxInFlight);
+        }
+        this.tx = tx;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    @Override
+    public void createNode(List<String> labels, HashMap<String, Object> props) {
+        send(CypherTemplates.node(String.join(":", labels)), Collections.singletonMap("props", props),
+                RunMetrics.NODES_CREATED);
+    }
+
+    @Override
+    public void createRelationship(long fromDbId, long toDbId, String relationshipType, int order, int stoichiometry) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("fromDbId", fromDbId);
+        parameters.put("toDbId", toDbId);
+        parameters.put("order", order);
+        parameters.put("stoichiometry", stoichiometry);
+        send(CypherTemplates.relationship(relationshipType), parameters, RunMetrics.RELATIONSHIPS_CREATED);
+    }
+
+    /**
+     * Waits until every statement sent has completed
+     */
+    @Override
+    public void flush() {
+        try (RunMetrics.Phase phase = RunMetrics.startPhase("flush")) {
+            inFlight.acquire(maxInFlight);
+            inFlight.release(maxInFlight);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for statements in flight", e);
+        }
+        throwIfFailed();
+    }
+
+    /**
+     * Runs a statement on the transaction and waits for its records.  The statement is executed after the
+     * statements already sent, so it sees their writes.
+     *
+     * @param statement Statement of the registry
+     * @param parameters Parameters of the statement
+     * @return Records of the result
+     */
+    public List<Record> query(String statement, Map<String, Object> parameters) {
+        throwIfFailed();
+        return await(CypherTemplates.runAsync(tx, statement, parameters).thenCompose(cursor ->
+                cursor.listAsync().thenCompose(records ->
+                        CypherTemplates.consumeAsync(statement, cursor).thenApply(summary -> records))));
+    }
+
+    @Override
+    public Record single(String statement, Map<String, Object> parameters) {
+        List<Record> records = query(statement, parameters);
+        return records.isEmpty() ? null : records.get(0);
+    }
+
+    @Override
+    public void forEach(String statement, Map<String, Object> parameters, Consumer<Record> consumer) {
+        query(statement, parameters).forEach(consumer);
+    }
+
+    private void send(String statement, Map<String, Object> parameters, String createdCounter) {
+        throwIfFailed();
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for statements in flight", e);
+        }
+        CypherTemplates.runAsync(tx, statement, parameters)
+                .thenCompose(cursor -> CypherTemplates.consumeAsync(statement, cursor))
+                .whenComplete((summary, error) -> {
+                    if (error == null) {
+                        RunMetrics.increment(createdCounter);
+                    } else {
+                        failure.compareAndSet(null, unwrap(error));
+                    }
+                    inFlight.release();
+                });
+    }
+
+    private void throwIfFailed() {
+        Throwable error = failure.get();
+        if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        } else if (error != null) {
+            throw new IllegalStateException("Statement failed", error);
+        }
+    }
+
+    /**
+     * Waits for a stage, throwing its failure unwrapped (e.g. the Neo4jException of a failed statement)
+     *
+     * @param stage Stage to wait for
+     * @param <T> Type of the value of the stage
+     * @return Value of the stage
+     */
+    static <T> T await(CompletionStage<T> stage) {
+        try {
+            return stage.toCompletableFuture().join();
+        } catch (CompletionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
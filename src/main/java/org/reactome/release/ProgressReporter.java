@@ -0,0 +1,101 @@
+package org.reactome.release;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logs the progress of the insertion every 'progressIntervalSeconds' in place of a line per pathway and identifier:
+ * pathways updated out of those found so far, pathways and identifiers created per second since the start, and the
+ * estimated time left.  The figures are read from the {@link RunMetrics} counters, so the insertion loops do no extra
+ * work for it.
+ */
+final class ProgressReporter implements AutoCloseable {
+    private static final Logger LOGGER = LogManager.getLogger();
+    static final long DEFAULT_INTERVAL_SECONDS = 10L;
+
+    private final ScheduledExecutorService scheduler;
+    private final long startNanos;
+
+    private ProgressReporter(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Starts reporting on a daemon thread
+     *
+     * @param intervalSeconds Seconds between progress lines, or 0 for no reporting until the reporter is closed
+     * @return The running reporter, to close at the end of the insertion
+     */
+    static ProgressReporter start(long intervalSeconds) {
+        if (intervalSeconds <= 0) {
+            return new ProgressReporter(null);
+        }
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "progress-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ProgressReporter reporter = new ProgressReporter(scheduler);
+        scheduler.scheduleAtFixedRate(reporter::report, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        return reporter;
+    }
+
+    /**
+     * Logs the current progress, once the first pathways have been found
+     */
+    void report() {
+        long pathwaysUpdated = RunMetrics.getCounter(RunMetrics.PATHWAYS_UPDATED);
+        long pathwaysFound = RunMetrics.getCounter(RunMetrics.PATHWAYS_FOUND);
+        if (pathwaysUpdated == 0 && pathwaysFound == 0) {
+            return;
+        }
+        LOGGER.info(describe(pathwaysUpdated, pathwaysFound, RunMetrics.getCounter(RunMetrics.IDENTIFIERS_CREATED),
+                System.nanoTime() - startNanos));
+    }
+
+    /**
+     * Stops reporting and logs the final progress
+     */
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        report();
+    }
+
+    /**
+     * @param pathwaysUpdated Pathways which received their cross-references
+     * @param pathwaysFound Pathways found in the database so far
+     * @param identifiersCreated DatabaseIdentifiers created
+     * @param elapsedNanos Time since the insertion started, in nanoseconds
+     * @return Progress line, e.g. 'Progress: 1200 of 5000 pathways (24.0%), 80.0 pathways/s, 150.2 identifiers/s,
+     * ETA 0:00:47'
+     */
+    static String describe(long pathwaysUpdated, long pathwaysFound, long identifiersCreated, long elapsedNanos) {
+        double elapsedSeconds = Math.max(elapsedNanos, 1L) / (double) TimeUnit.SECONDS.toNanos(1);
+        double pathwayRate = pathwaysUpdated / elapsedSeconds;
+        StringBuilder progress = new StringBuilder("Progress: ").append(pathwaysUpdated);
+        if (pathwaysFound > 0) {
+            progress.append(" of ").append(pathwaysFound).append(" pathways (")
+                    .append(String.format(Locale.ROOT, "%.1f",
+                            Math.min(100.0, 100.0 * pathwaysUpdated / pathwaysFound))).append("%)");
+        } else {
+            progress.append(" pathways");
+        }
+        progress.append(String.format(Locale.ROOT, ", %.1f pathways/s, %.1f identifiers/s",
+                pathwayRate, identifiersCreated / elapsedSeconds));
+        if (pathwaysFound > 0 && pathwayRate > 0) {
+            long secondsLeft = Math.round(Math.max(pathwaysFound - pathwaysUpdated, 0L) / pathwayRate);
+            progress.append(String.format(Locale.ROOT, ", ETA %d:%02d:%02d",
+                    secondsLeft / 3600, secondsLeft / 60 % 60, secondsLeft % 60));
+        }
+        return progress.toString();
+    }
+}
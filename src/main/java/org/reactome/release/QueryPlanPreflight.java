@@ -0,0 +1,210 @@
+package org.reactome.release;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.gk.model.ReactomeJavaConstants;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Transaction;
+import org.neo4j.driver.summary.Plan;
+
+import java.util.*;
+
+/**
+ * Checks, before any writes, that the statements issued repeatedly by the BioModels insertion are planned with index
+ * lookups.  Each statement is run with EXPLAIN (which does not execute it) and its plan is searched for label or
+ * all-nodes scans, which mean an index on dbId or stId is missing.  Missing indexes can be created, otherwise the
+ * scans are reported as warnings or fail the run.
+ */
+public final class QueryPlanPreflight {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final List<String> SCAN_OPERATORS = Arrays.asList("NodeByLabelScan", "AllNodesScan");
+    private static final int INDEX_ONLINE_TIMEOUT_SECONDS = 300;
+
+    private QueryPlanPreflight() { }
+
+    /**
+     * Runs the preflight check
+     *
+     * @param session Neo4j Driver Session
+     * @param mode 'off' to skip the check, 'warn' to log statements planned with scans or 'fail' to throw
+     * @param createIndexes If true, the indexes missing for statements planned with scans are created and the
+     *                      statements are checked again
+     * @throws IllegalStateException Thrown in 'fail' mode if a statement is planned with a scan
+     */
+    public static void run(Session session, String mode, boolean createIndexes) {
+        if (mode.equalsIgnoreCase("off")) {
+            return;
+        }
+        if (!mode.equalsIgnoreCase("warn") && !mode.equalsIgnoreCase("fail")) {
+            throw new IllegalArgumentException("Unknown preflight mode: " + mode);
+        }
+
+        List<HotStatement> scanningStatements = explain(session);
+        if (!scanningStatements.isEmpty() && createIndexes) {
+            createIndexes(session, scanningStatements);
+            scanningStatements = explain(session);
+        }
+
+        if (scanningStatements.isEmpty()) {
+            LOGGER.info("Preflight check passed: all {} statements use index lookups", hotStatements().size());
+            return;
+        }
+        List<String> names = new ArrayList<>();
+        for (HotStatement statement : scanningStatements) {
+            names.add(statement.getName() + " (needs index on :" + statement.getIndexLabel() + "(" +
+                    statement.getIndexProperty() + "))");
+        }
+        String message = "Statements planned with label or all-nodes scans: " + String.join(", ", names);
+        if (mode.equalsIgnoreCase("fail")) {
+            throw new IllegalStateException(message);
+        }
+        LOGGER.warn(message);
+    }
+
+    /**
+     * @return The statements issued repeatedly by the insertion, with parameters of the types they are run with
+     */
+    static List<HotStatement> hotStatements() {
+        String crossReference = ReactomeJavaConstants.crossReference;
+        Map<String, Object> relationshipRow = new HashMap<>();
+        relationshipRow.put("fromDbId", 0L);
+        relationshipRow.put("toDbId", 0L);
+        relationshipRow.put("order", 0);
+        relationshipRow.put("stoichiometry", 1);
+        Map<String, Object> rows = Collections.singletonMap("rows", Collections.singletonList(relationshipRow));
+
+        return Arrays.asList(
+                new HotStatement("getNodeByDbId", CypherTemplates.NODE_BY_DBID,
+                        Collections.singletonMap("nodeId", 0L), BioModelsUtilities.DBID),
+                new HotStatement("getMaxDbId", CypherTemplates.MAX_DBID,
+                        Collections.emptyMap(), BioModelsUtilities.DBID),
+                new HotStatement("createRelationship", CypherTemplates.relationship(crossReference),
+                        relationshipRow, BioModelsUtilities.DBID),
+                new HotStatement("createRelationshipBatch", CypherTemplates.relationshipBatch(crossReference),
+                        rows, BioModelsUtilities.DBID),
+                new HotStatement("getPathwaysWithBioModelsIds", CypherTemplates.PATHWAYS_BY_STABLE_ID,
+                        Collections.singletonMap("pathwayStableIds", Collections.singletonList("R-HSA-0")),
+                        BioModelsUtilities.STID),
+                new HotStatement("loadCrossReferences", CypherTemplates.LOAD_CROSS_REFERENCES,
+                        Collections.singletonMap("referenceDatabaseDbId", 0L), BioModelsUtilities.DBID),
+                new HotStatement("deleteCrossReferences", CypherTemplates.DELETE_CROSS_REFERENCES,
+                        rows, BioModelsUtilities.DBID),
+                new HotStatement("setCrossReferenceOrders", CypherTemplates.SET_CROSS_REFERENCE_ORDERS,
+                        rows, BioModelsUtilities.DBID)
+        );
+    }
+
+    /**
+     * Explains every hot statement in a transaction which is rolled back, logging a summary of each plan
+     *
+     * @return The statements whose plan contains a scan
+     */
+    private static List<HotStatement> explain(Session session) {
+        List<HotStatement> scanningStatements = new ArrayList<>();
+        try (Transaction tx = session.beginTransaction()) {
+            for (HotStatement statement : hotStatements()) {
+                Plan plan = tx.run("EXPLAIN " + statement.getQuery(), statement.getParameters()).consume().plan();
+                List<String> scans = findScans(plan);
+                LOGGER.info("Plan of {}: {}", statement.getName(), describe(plan));
+                if (!scans.isEmpty()) {
+                    LOGGER.warn("{} is planned with {}", statement.getName(), String.join(", ", scans));
+                    scanningStatements.add(statement);
+                }
+            }
+            tx.rollback();
+        }
+        return scanningStatements;
+    }
+
+    private static void createIndexes(Session session, List<HotStatement> scanningStatements) {
+        Set<String> indexNames = new LinkedHashSet<>();
+        for (HotStatement statement : scanningStatements) {
+            String indexName = statement.getIndexLabel() + "_" + statement.getIndexProperty();
+            if (indexNames.add(indexName)) {
+                LOGGER.info("Creating index {} on :{}({})", indexName, statement.getIndexLabel(),
+                        statement.getIndexProperty());
+                session.run("CREATE INDEX " + indexName + " IF NOT EXISTS FOR (n:" + statement.getIndexLabel() +
+                        ") ON (n." + statement.getIndexProperty() + ")").consume();
+            }
+        }
+        session.run("CALL db.awaitIndexes(" + INDEX_ONLINE_TIMEOUT_SECONDS + ")").consume();
+    }
+
+    /**
+     * @param plan Plan of a statement
+     * @return The scan operators of the plan (in depth-first order)
+     */
+    static List<String> findScans(Plan plan) {
+        List<String> scans = new ArrayList<>();
+        String operator = operatorName(plan);
+        if (SCAN_OPERATORS.contains(operator)) {
+            scans.add(operator);
+        }
+        for (Plan child : plan.children()) {
+            scans.addAll(findScans(child));
+        }
+        return scans;
+    }
+
+    /**
+     * @param plan Plan of a statement
+     * @return The operator tree of the plan on one line, e.g. 'ProduceResults(Filter(NodeIndexSeek))'
+     */
+    static String describe(Plan plan) {
+        StringBuilder description = new StringBuilder(operatorName(plan));
+        if (!plan.children().isEmpty()) {
+            List<String> children = new ArrayList<>();
+            for (Plan child : plan.children()) {
+                children.add(describe(child));
+            }
+            description.append("(").append(String.join(", ", children)).append(")");
+        }
+        return description.toString();
+    }
+
+    /**
+     * Operator types may carry the runtime as suffix, e.g. 'NodeByLabelScan@neo4j'
+     */
+    static String operatorName(Plan plan) {
+        String operatorType = plan.operatorType();
+        int runtimeSeparator = operatorType.indexOf('@');
+        return runtimeSeparator < 0 ? operatorType : operatorType.substring(0, runtimeSeparator);
+    }
+
+    /**
+     * A statement checked by the preflight, with the index on DatabaseObject it relies on
+     */
+    static final class HotStatement {
+        private final String name;
+        private final String query;
+        private final Map<String, Object> parameters;
+        private final String indexProperty;
+
+        HotStatement(String name, String query, Map<String, Object> parameters, String indexProperty) {
+            this.name = name;
+            this.query = query;
+            this.parameters = parameters;
+            this.indexProperty = indexProperty;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        String getQuery() {
+            return query;
+        }
+
+        Map<String, Object> getParameters() {
+            return parameters;
+        }
+
+        String getIndexLabel() {
+            return "DatabaseObject";
+        }
+
+        String getIndexProperty() {
+            return indexProperty;
+        }
+    }
+}
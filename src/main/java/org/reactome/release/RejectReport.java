@@ -0,0 +1,124 @@
+package org.reactome.release;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Lines of the models2pathways.tsv file rejected while parsing, with their line numbers.  All rejections are
+ * counted, but only the first maxSamples lines are kept in memory and written to the report.
+ */
+public class RejectReport {
+    private static final int DEFAULT_MAX_SAMPLES = 10000;
+
+    private final int maxSamples;
+    private final List<Rejection> rejections = new ArrayList<>();
+    private long rejectedCount;
+
+    /**
+     * Creates a report keeping up to 10000 rejected lines
+     */
+    public RejectReport() {
+        this(DEFAULT_MAX_SAMPLES);
+    }
+
+    /**
+     * Creates a report
+     *
+     * @param maxSamples Maximum number of rejected lines kept in the report
+     */
+    public RejectReport(int maxSamples) {
+        this.maxSamples = maxSamples;
+    }
+
+    /**
+     * Records a rejected line
+     *
+     * @param lineNumber Line number (starting at 1) of the rejected line
+     * @param reason Why the line was rejected
+     * @param line Content of the rejected line
+     */
+    public void reject(long lineNumber, String reason, String line) {
+        rejectedCount++;
+        if (rejections.size() < maxSamples) {
+            rejections.add(new Rejection(lineNumber, reason, line));
+        }
+    }
+
+    /**
+     * Adds the rejections of a report covering a later part of the same file
+     *
+     * @param other Report to add to this one
+     * @param lineNumberOffset Number of lines of the file preceding the part covered by the other report
+     */
+    public void addAll(RejectReport other, long lineNumberOffset) {
+        for (Rejection rejection : other.rejections) {
+            if (rejections.size() < maxSamples) {
+                rejections.add(new Rejection(rejection.lineNumber + lineNumberOffset, rejection.reason, rejection.line));
+            }
+        }
+        rejectedCount += other.rejectedCount;
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    public List<Rejection> getRejections() {
+        return Collections.unmodifiableList(rejections);
+    }
+
+    /**
+     * Writes the rejected lines as a tab separated file of line number, reason and line content
+     *
+     * @param reportFile Path of the report to write
+     * @throws IOException Thrown if the report can not be written
+     */
+    public void write(Path reportFile) throws IOException {
+        if (reportFile.getParent() != null) {
+            Files.createDirectories(reportFile.getParent());
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8)) {
+            writer.write("lineNumber\treason\tline");
+            writer.newLine();
+            for (Rejection rejection : rejections) {
+                writer.write(rejection.getLineNumber() + "\t" + rejection.getReason() + "\t" + rejection.getLine());
+                writer.newLine();
+            }
+            if (rejectedCount > rejections.size()) {
+                writer.write("# " + (rejectedCount - rejections.size()) + " further rejected lines not listed");
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * A rejected line of the models2pathways.tsv file
+     */
+    public static final class Rejection {
+        private final long lineNumber;
+        private final String reason;
+        private final String line;
+
+        Rejection(long lineNumber, String reason, String line) {
+            this.lineNumber = lineNumber;
+            this.reason = reason;
+            this.line = line;
+        }
+
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        public String getLine() {
+            return line;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.reactome.release;
+
+/**
+ * The fields of a Pathway used by the insertion, projected by the pathway lookup instead of returning the whole node
+ */
+public final class ResolvedPathway {
+    private final long dbId;
+    private final String stableId;
+    private final String displayName;
+
+    /**
+     * @param dbId dbId of the pathway
+     * @param stableId Stable id of the pathway
+     * @param displayName Display name of the pathway
+     */
+    public ResolvedPathway(long dbId, String stableId, String displayName) {
+        this.dbId = dbId;
+        this.stableId = stableId;
+        this.displayName = displayName;
+    }
+
+    public long getDbId() {
+        return dbId;
+    }
+
+    public String getStableId() {
+        return stableId;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * @return Extended display name of the pathway, e.g. '[Pathway:123] Signaling'
+     */
+    @Override
+    public String toString() {
+        return "[Pathway:" + dbId + "] " + displayName;
+    }
+}
@@ -0,0 +1,300 @@
+package org.reactome.release;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of a BioModels insertion run: the time spent in each phase, counters of the rows and graph objects
+ * processed and a latency histogram for each Cypher statement.  The metrics are written at the end of the run as a
+ * JSON report and as a Prometheus text format file.  All methods are thread-safe.
+ */
+public final class RunMetrics {
+    public static final String ROWS_PARSED = "rowsParsed";
+    public static final String ROWS_REJECTED = "rowsRejected";
+    public static final String ROWS_FILTERED = "rowsFiltered";
+    public static final String NODES_CREATED = "nodesCreated";
+    public static final String RELATIONSHIPS_CREATED = "relationshipsCreated";
+    public static final String IDENTIFIERS_CREATED = "identifiersCreated";
+    public static final String IDENTIFIERS_REUSED = "identifiersReused";
+    public static final String PATHWAYS_UPDATED = "pathwaysUpdated";
+    public static final String PATHWAYS_FOUND = "pathwaysFound";
+    public static final String PATHWAYS_UNMATCHED = "pathwaysUnmatched";
+
+    /**
+     * Upper bounds (in seconds) of the statement latency histogram buckets
+     */
+    private static final double[] BUCKET_BOUNDS = {
+            0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1.0, 2.5, 5.0, 10.0
+    };
+
+    private static final Map<String, Timer> PHASES = Collections.synchronizedMap(new LinkedHashMap<>());
+    private static final Map<String, LongAdder> COUNTERS = Collections.synchronizedMap(new LinkedHashMap<>());
+    private static final Map<String, Histogram> STATEMENTS = new ConcurrentHashMap<>();
+
+    private RunMetrics() { }
+
+    /**
+     * Starts timing a phase.  The time until the returned phase is closed is added to the phase, so a phase entered
+     * several times (e.g. once per pathway) accumulates its time.
+     *
+     * @param name Name of the phase
+     * @return The running phase, to close when the phase ends
+     */
+    public static Phase startPhase(String name) {
+        return new Phase(name, System.nanoTime());
+    }
+
+    /**
+     * Adds time to a phase
+     *
+     * @param name Name of the phase
+     * @param nanos Time spent in the phase, in nanoseconds
+     */
+    public static void recordPhase(String name, long nanos) {
+        PHASES.computeIfAbsent(name, k -> new Timer()).record(nanos);
+    }
+
+    public static void increment(String counter) {
+        add(counter, 1L);
+    }
+
+    public static void add(String counter, long delta) {
+        COUNTERS.computeIfAbsent(counter, k -> new LongAdder()).add(delta);
+    }
+
+    /**
+     * Records the latency of a statement
+     *
+     * @param statementName Name of the statement (see {@link CypherTemplates#nameOf})
+     * @param nanos Latency of the statement, in nanoseconds
+     */
+    public static void recordStatement(String statementName, long nanos) {
+        STATEMENTS.computeIfAbsent(statementName, k -> new Histogram()).record(nanos);
+    }
+
+    public static long getCounter(String counter) {
+        LongAdder value = COUNTERS.get(counter);
+        return value == null ? 0L : value.sum();
+    }
+
+    /**
+     * @param name Name of the phase
+     * @return Total time spent in the phase, in nanoseconds
+     */
+    public static long getPhaseNanos(String name) {
+        Timer timer = PHASES.get(name);
+        return timer == null ? 0L : timer.nanos.sum();
+    }
+
+    /**
+     * @param statementName Name of the statement
+     * @return Number of times the statement was run
+     */
+    public static long getStatementCount(String statementName) {
+        Histogram histogram = STATEMENTS.get(statementName);
+        return histogram == null ? 0L : histogram.count.sum();
+    }
+
+    /**
+     * Clears all metrics
+     */
+    public static void reset() {
+        PHASES.clear();
+        COUNTERS.clear();
+        STATEMENTS.clear();
+    }
+
+    /**
+     * Writes the metrics as JSON: an object with 'phases' (seconds and calls of each phase), 'counters' and
+     * 'statements' (count, total seconds and cumulative bucket counts of each statement)
+     *
+     * @param reportFile Path of the report to write
+     * @throws IOException Thrown if the report can not be written
+     */
+    public static void writeJson(Path reportFile) throws IOException {
+        StringBuilder json = new StringBuilder("{\n  \"phases\": {");
+        String separator = "\n";
+        for (Map.Entry<String, Timer> phase : snapshot(PHASES).entrySet()) {
+            json.append(separator).append("    ").append(quote(phase.getKey()))
+                    .append(": {\"seconds\": ").append(seconds(phase.getValue().nanos.sum()))
+                    .append(", \"calls\": ").append(phase.getValue().calls.sum()).append("}");
+            separator = ",\n";
+        }
+        json.append("\n  },\n  \"counters\": {");
+        separator = "\n";
+        for (Map.Entry<String, LongAdder> counter : snapshot(COUNTERS).entrySet()) {
+            json.append(separator).append("    ").append(quote(counter.getKey())).append(": ")
+                    .append(counter.getValue().sum());
+            separator = ",\n";
+        }
+        json.append("\n  },\n  \"statements\": {");
+        separator = "\n";
+        for (Map.Entry<String, Histogram> statement : new TreeMap<>(STATEMENTS).entrySet()) {
+            Histogram histogram = statement.getValue();
+            json.append(separator).append("    ").append(quote(statement.getKey()))
+                    .append(": {\"count\": ").append(histogram.count.sum())
+                    .append(", \"seconds\": ").append(seconds(histogram.nanos.sum()))
+                    .append(", \"buckets\": {");
+            long[] cumulativeCounts = histogram.cumulativeCounts();
+            for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+                json.append(quote(String.valueOf(BUCKET_BOUNDS[i]))).append(": ").append(cumulativeCounts[i]).append(", ");
+            }
+            json.append("\"+Inf\": ").append(cumulativeCounts[BUCKET_BOUNDS.length]).append("}}");
+            separator = ",\n";
+        }
+        json.append("\n  }\n}\n");
+        write(reportFile, json.toString());
+    }
+
+    /**
+     * Writes the metrics in the Prometheus text exposition format, e.g. for the node exporter textfile collector
+     *
+     * @param reportFile Path of the file to write
+     * @throws IOException Thrown if the file can not be written
+     */
+    public static void writePrometheus(Path reportFile) throws IOException {
+        StringBuilder text = new StringBuilder();
+        text.append("# HELP biomodels_phase_seconds_total Time spent in each phase of the BioModels insertion\n")
+                .append("# TYPE biomodels_phase_seconds_total counter\n");
+        Map<String, Timer> phases = snapshot(PHASES);
+        for (Map.Entry<String, Timer> phase : phases.entrySet()) {
+            text.append("biomodels_phase_seconds_total{phase=").append(quote(phase.getKey())).append("} ")
+                    .append(seconds(phase.getValue().nanos.sum())).append('\n');
+        }
+        text.append("# HELP biomodels_phase_calls_total Number of times each phase was entered\n")
+                .append("# TYPE biomodels_phase_calls_total counter\n");
+        for (Map.Entry<String, Timer> phase : phases.entrySet()) {
+            text.append("biomodels_phase_calls_total{phase=").append(quote(phase.getKey())).append("} ")
+                    .append(phase.getValue().calls.sum()).append('\n');
+        }
+        for (Map.Entry<String, LongAdder> counter : snapshot(COUNTERS).entrySet()) {
+            String metric = "biomodels_" + snakeCase(counter.getKey()) + "_total";
+            text.append("# TYPE ").append(metric).append(" counter\n")
+                    .append(metric).append(' ').append(counter.getValue().sum()).append('\n');
+        }
+        text.append("# HELP biomodels_statement_duration_seconds Latency of each Cypher statement\n")
+                .append("# TYPE biomodels_statement_duration_seconds histogram\n");
+        for (Map.Entry<String, Histogram> statement : new TreeMap<>(STATEMENTS).entrySet()) {
+            String label = "statement=" + quote(statement.getKey());
+            Histogram histogram = statement.getValue();
+            long[] cumulativeCounts = histogram.cumulativeCounts();
+            for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+                text.append("biomodels_statement_duration_seconds_bucket{").append(label).append(",le=\"")
+                        .append(BUCKET_BOUNDS[i]).append("\"} ").append(cumulativeCounts[i]).append('\n');
+            }
+            text.append("biomodels_statement_duration_seconds_bucket{").append(label).append(",le=\"+Inf\"} ")
+                    .append(cumulativeCounts[BUCKET_BOUNDS.length]).append('\n')
+                    .append("biomodels_statement_duration_seconds_sum{").append(label).append("} ")
+                    .append(seconds(histogram.nanos.sum())).append('\n')
+                    .append("biomodels_statement_duration_seconds_count{").append(label).append("} ")
+                    .append(histogram.count.sum()).append('\n');
+        }
+        write(reportFile, text.toString());
+    }
+
+    private static <T> Map<String, T> snapshot(Map<String, T> synchronizedMap) {
+        synchronized (synchronizedMap) {
+            return new LinkedHashMap<>(synchronizedMap);
+        }
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(content);
+        }
+    }
+
+    private static String seconds(long nanos) {
+        return String.valueOf(nanos / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"";
+    }
+
+    static String snakeCase(String camelCase) {
+        StringBuilder snakeCase = new StringBuilder();
+        for (char c : camelCase.toCharArray()) {
+            if (Character.isUpperCase(c)) {
+                snakeCase.append('_').append(Character.toLowerCase(c));
+            } else {
+                snakeCase.append(c);
+            }
+        }
+        return snakeCase.toString();
+    }
+
+    /**
+     * A running phase; closing it adds its time to the phase
+     */
+    public static final class Phase implements AutoCloseable {
+        private final String name;
+        private final long startNanos;
+
+        private Phase(String name, long startNanos) {
+            this.name = name;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public void close() {
+            recordPhase(name, System.nanoTime() - startNanos);
+        }
+    }
+
+    private static final class Timer {
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder calls = new LongAdder();
+
+        private void record(long elapsedNanos) {
+            nanos.add(elapsedNanos);
+            calls.increment();
+        }
+    }
+
+    private static final class Histogram {
+        private final LongAdder[] bucketCounts = new LongAdder[BUCKET_BOUNDS.length + 1];
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder count = new LongAdder();
+
+        private Histogram() {
+            for (int i = 0; i < bucketCounts.length; i++) {
+                bucketCounts[i] = new LongAdder();
+            }
+        }
+
+        private void record(long elapsedNanos) {
+            double elapsedSeconds = elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1);
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS.length && elapsedSeconds > BUCKET_BOUNDS[bucket]) {
+                bucket++;
+            }
+            bucketCounts[bucket].increment();
+            nanos.add(elapsedNanos);
+            count.increment();
+        }
+
+        /**
+         * @return Number of latencies up to each bucket bound (the last one is the total count)
+         */
+        private long[] cumulativeCounts() {
+            long[] cumulativeCounts = new long[bucketCounts.length];
+            long cumulativeCount = 0;
+            for (int i = 0; i < bucketCounts.length; i++) {
+                cumulativeCount += bucketCounts[i].sum();
+                cumulativeCounts[i] = cumulativeCount;
+            }
+            return cumulativeCounts;
+        }
+    }
+}
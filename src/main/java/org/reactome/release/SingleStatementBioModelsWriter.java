@@ -0,0 +1,38 @@
+package org.reactome.release;
+
+import org.neo4j.driver.Transaction;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Writer which sends every node and relationship as its own statement within the transaction
+ */
+public class SingleStatementBioModelsWriter implements BioModelsWriter {
+
+    private final Transaction tx;
+
+    /**
+     * Creates a writer issuing one statement per node or relationship
+     *
+     * @param tx Neo4j Driver Transaction
+     */
+    public SingleStatementBioModelsWriter(Transaction tx) {
+        this.tx = tx;
+    }
+
+    @Override
+    public void createNode(List<String> labels, HashMap<String, Object> props) {
+        BioModelsUtilities.createNode(tx, labels, props);
+    }
+
+    @Override
+    public void createRelationship(long fromDbId, long toDbId, String relationshipType, int order, int stoichiometry) {
+        BioModelsUtilities.createRelationship(tx, fromDbId, toDbId, relationshipType, order, stoichiometry);
+    }
+
+    @Override
+    public void flush() {
+        // Nothing is buffered
+    }
+}
@@ -0,0 +1,119 @@
+package org.reactome.release;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the startup of the lean jar with and without its application class-data sharing archive (run by the 'lean'
+ * build profile).  The command of the training run is run 'runs' times as given and 'runs' times with the archive, after
+ * one untimed run each way to warm the file cache, and the median wall times are written to the report file.
+ */
+public final class StartupTimer {
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private StartupTimer() { }
+
+    /**
+     * Times the command and writes the report
+     *
+     * @param args Number of timed runs, path to the archive, path to the report file, then the java executable and
+     * its arguments
+     * @throws IOException Thrown if the command can not be started or the report can not be written
+     * @throws InterruptedException Thrown if interrupted while waiting for the command
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 4) {
+            throw new IllegalArgumentException("Usage: StartupTimer <runs> <archive> <report file> <java> <args...>");
+        }
+        int runs = Integer.parseInt(args[0]);
+        Path archive = Paths.get(args[1]);
+        Path reportFile = Paths.get(args[2]);
+        List<String> command = Arrays.asList(args).subList(3, args.length);
+
+        long withoutArchiveNanos = medianNanos(command, runs);
+        long withArchiveNanos = medianNanos(withArchive(command, archive), runs);
+        String report = describe(runs, withoutArchiveNanos, withArchiveNanos);
+
+        Path reportDirectory = reportFile.toAbsolutePath().getParent();
+        if (reportDirectory != null) {
+            Files.createDirectories(reportDirectory);
+        }
+        Files.write(reportFile, (report + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+        LOGGER.info(report);
+    }
+
+    /**
+     * @param command The java executable and its arguments
+     * @param archive Path to the class-data sharing archive
+     * @return The command with the archive option after the java executable
+     */
+    static List<String> withArchive(List<String> command, Path archive) {
+        List<String> archiveCommand = new ArrayList<>(command);
+        archiveCommand.add(1, "-XX:SharedArchiveFile=" + archive);
+        return archiveCommand;
+    }
+
+    /**
+     * Runs the command once untimed, then 'runs' times
+     *
+     * @return Median wall time of the timed runs, in nanoseconds
+     */
+    private static long medianNanos(List<String> command, int runs) throws IOException, InterruptedException {
+        run(command);
+        long[] nanos = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            run(command);
+            nanos[i] = System.nanoTime() - start;
+        }
+        return median(nanos);
+    }
+
+    private static void run(List<String> command) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            throw new IllegalStateException(String.join(" ", command) + " exited with " + exitCode);
+        }
+    }
+
+    /**
+     * @param values Values to take the median of (sorted in place)
+     * @return The median, the lower of the two middle values for an even number of values
+     */
+    static long median(long[] values) {
+        if (values.length == 0) {
+            throw new IllegalArgumentException("No values to take the median of");
+        }
+        Arrays.sort(values);
+        return values[(values.length - 1) / 2];
+    }
+
+    /**
+     * @param runs Number of timed runs each way
+     * @param withoutArchiveNanos Median wall time without the archive, in nanoseconds
+     * @param withArchiveNanos Median wall time with the archive, in nanoseconds
+     * @return Report line, e.g. 'Startup (median of 5 runs): 1200 ms without the class-data sharing archive, 720 ms
+     * with it (40.0% faster)'
+     */
+    static String describe(int runs, long withoutArchiveNanos, long withArchiveNanos) {
+        long withoutArchiveMillis = TimeUnit.NANOSECONDS.toMillis(withoutArchiveNanos);
+        long withArchiveMillis = TimeUnit.NANOSECONDS.toMillis(withArchiveNanos);
+        double savedPercent = 100.0 * (withoutArchiveNanos - withArchiveNanos) / Math.max(withoutArchiveNanos, 1L);
+        return String.format(Locale.ROOT,
+                "Startup (median of %d runs): %d ms without the class-data sharing archive, %d ms with it (%.1f%% %s)",
+                runs, withoutArchiveMillis, withArchiveMillis, Math.abs(savedPercent),
+                savedPercent >= 0 ? "faster" : "slower");
+    }
+}
@@ -0,0 +1,324 @@
+package org.reactome.release;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.neo4j.driver.summary.ProfiledPlan;
+import org.neo4j.driver.summary.ResultSummary;
+import org.neo4j.driver.summary.SummaryCounters;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Profiling mode of the insertion.  When enabled, the {@link ResultSummary} of every statement run through
+ * {@link CypherTemplates} is consumed and aggregated per statement: the update counters, the time the server took to
+ * make the result available and to stream it, and the time the client spent waiting for it.  Every
+ * 'sampleRate'th run of each statement is sent with PROFILE, which records the db hits, rows and page cache hits of
+ * each operator.  Comparing client and server time shows whether the server or the round trips dominate a statement.
+ */
+public final class StatementProfiler {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final String PROFILE_PREFIX = "PROFILE ";
+
+    private static final Map<String, StatementProfile> PROFILES = new ConcurrentHashMap<>();
+    private static final Map<String, AtomicLong> RUN_COUNTS = new ConcurrentHashMap<>();
+    private static volatile boolean enabled;
+    private static volatile int sampleRate;
+
+    private StatementProfiler() { }
+
+    /**
+     * Enables or disables profiling and clears the profiles of a previous run
+     *
+     * @param enable true to collect result summaries
+     * @param profileSampleRate Send every profileSampleRate'th run of each statement with PROFILE (0 never does)
+     */
+    public static void configure(boolean enable, int profileSampleRate) {
+        if (profileSampleRate < 0) {
+            throw new IllegalArgumentException("Profile sample rate must not be negative: " + profileSampleRate);
+        }
+        PROFILES.clear();
+        RUN_COUNTS.clear();
+        sampleRate = profileSampleRate;
+        enabled = enable;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the text to send for a run of a statement: the statement itself, or the statement prefixed with
+     * PROFILE if this run is sampled.  The first run of each statement is always sampled.
+     *
+     * @param statementName Name of the statement
+     * @param statement Statement text
+     * @return Text to send
+     */
+    static String textToRun(String statementName, String statement) {
+        if (!enabled || sampleRate == 0) {
+            return statement;
+        }
+        long runCount = RUN_COUNTS.computeIfAbsent(statementName, k -> new AtomicLong()).getAndIncrement();
+        return runCount % sampleRate == 0 ? PROFILE_PREFIX + statement : statement;
+    }
+
+    /**
+     * Adds time the client spent sending a statement or reading its result
+     *
+     * @param statementName Name of the statement
+     * @param nanos Time spent, in nanoseconds
+     */
+    static void recordClientTime(String statementName, long nanos) {
+        profile(statementName).addClientTime(nanos);
+    }
+
+    /**
+     * Adds the summary of a run of a statement
+     *
+     * @param statementName Name of the statement
+     * @param summary Summary of the consumed result
+     */
+    static void recordSummary(String statementName, ResultSummary summary) {
+        profile(statementName).add(summary);
+    }
+
+    /**
+     * @return Profiles of the statements run since profiling was configured, by statement name
+     */
+    public static Map<String, StatementProfile> getProfiles() {
+        return new TreeMap<>(PROFILES);
+    }
+
+    /**
+     * @param count Maximal number of statements
+     * @return Profiles of the statements with the largest client time, largest first
+     */
+    public static List<StatementProfile> getTopStatements(int count) {
+        List<StatementProfile> profiles = new ArrayList<>(PROFILES.values());
+        profiles.sort(Comparator.comparingLong(StatementProfile::getClientNanos).reversed()
+                .thenComparing(StatementProfile::getStatementName));
+        return profiles.subList(0, Math.min(count, profiles.size()));
+    }
+
+    /**
+     * Logs the statements with the largest client time
+     *
+     * @param count Maximal number of statements
+     */
+    public static void logTopStatements(int count) {
+        for (StatementProfile profile : getTopStatements(count)) {
+            LOGGER.info("{}: {} calls, {} ms client time, {} ms server time, {} db hits in {} profiled calls",
+                    profile.getStatementName(), profile.getCalls(),
+                    TimeUnit.NANOSECONDS.toMillis(profile.getClientNanos()), profile.getServerMillis(),
+                    profile.getDbHits(), profile.getProfiledCalls());
+        }
+    }
+
+    /**
+     * Writes the statements with the largest client time as a tab separated file, followed by the operators of
+     * their profiled runs
+     *
+     * @param reportFile Path of the report to write
+     * @param count Maximal number of statements in the report
+     * @throws IOException Thrown if the report can not be written
+     */
+    public static void writeReport(Path reportFile, int count) throws IOException {
+        if (reportFile.getParent() != null) {
+            Files.createDirectories(reportFile.getParent());
+        }
+        List<StatementProfile> topStatements = getTopStatements(count);
+        try (BufferedWriter writer = Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8)) {
+            writer.write("statement\tcalls\tclientMillis\tserverMillis\tnodesCreated\trelationshipsCreated\t" +
+                    "nodesDeleted\trelationshipsDeleted\tpropertiesSet\tprofiledCalls\tdbHits\tpageCacheHits\t" +
+                    "pageCacheMisses");
+            writer.newLine();
+            for (StatementProfile profile : topStatements) {
+                writer.write(profile.getStatementName() + "\t" + profile.getCalls() + "\t" +
+                        TimeUnit.NANOSECONDS.toMillis(profile.getClientNanos()) + "\t" + profile.getServerMillis() +
+                        "\t" + profile.getNodesCreated() + "\t" + profile.getRelationshipsCreated() + "\t" +
+                        profile.getNodesDeleted() + "\t" + profile.getRelationshipsDeleted() + "\t" +
+                        profile.getPropertiesSet() + "\t" + profile.getProfiledCalls() + "\t" + profile.getDbHits() +
+                        "\t" + profile.getPageCacheHits() + "\t" + profile.getPageCacheMisses());
+                writer.newLine();
+            }
+            writer.newLine();
+            writer.write("statement\toperator\tdbHits\trows\tpageCacheHits\tpageCacheMisses");
+            writer.newLine();
+            for (StatementProfile profile : topStatements) {
+                for (Map.Entry<String, OperatorProfile> operator : profile.getOperators().entrySet()) {
+                    OperatorProfile operatorProfile = operator.getValue();
+                    writer.write(profile.getStatementName() + "\t" + operator.getKey() + "\t" +
+                            operatorProfile.getDbHits() + "\t" + operatorProfile.getRows() + "\t" +
+                            operatorProfile.getPageCacheHits() + "\t" + operatorProfile.getPageCacheMisses());
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+    private static StatementProfile profile(String statementName) {
+        return PROFILES.computeIfAbsent(statementName, StatementProfile::new);
+    }
+
+    /**
+     * Aggregated result summaries of one statement
+     */
+    public static final class StatementProfile {
+        private final String statementName;
+        private final Map<String, OperatorProfile> operators = new LinkedHashMap<>();
+        private long calls;
+        private long clientNanos;
+        private long serverMillis;
+        private long nodesCreated;
+        private long relationshipsCreated;
+        private long nodesDeleted;
+        private long relationshipsDeleted;
+        private long propertiesSet;
+        private long profiledCalls;
+
+        private StatementProfile(String statementName) {
+            this.statementName = statementName;
+        }
+
+        private synchronized void addClientTime(long nanos) {
+            clientNanos += nanos;
+        }
+
+        private synchronized void add(ResultSummary summary) {
+            calls++;
+            serverMillis += Math.max(0L, summary.resultAvailableAfter(TimeUnit.MILLISECONDS)) +
+                    Math.max(0L, summary.resultConsumedAfter(TimeUnit.MILLISECONDS));
+            SummaryCounters counters = summary.counters();
+            nodesCreated += counters.nodesCreated();
+            relationshipsCreated += counters.relationshipsCreated();
+            nodesDeleted += counters.nodesDeleted();
+            relationshipsDeleted += counters.relationshipsDeleted();
+            propertiesSet += counters.propertiesSet();
+            if (summary.hasProfile()) {
+                profiledCalls++;
+                addOperators(summary.profile());
+            }
+        }
+
+        private void addOperators(ProfiledPlan plan) {
+            operators.computeIfAbsent(QueryPlanPreflight.operatorName(plan), k -> new OperatorProfile()).add(plan);
+            for (ProfiledPlan child : plan.children()) {
+                addOperators(child);
+            }
+        }
+
+        public String getStatementName() {
+            return statementName;
+        }
+
+        public synchronized long getCalls() {
+            return calls;
+        }
+
+        public synchronized long getClientNanos() {
+            return clientNanos;
+        }
+
+        public synchronized long getServerMillis() {
+            return serverMillis;
+        }
+
+        public synchronized long getNodesCreated() {
+            return nodesCreated;
+        }
+
+        public synchronized long getRelationshipsCreated() {
+            return relationshipsCreated;
+        }
+
+        public synchronized long getNodesDeleted() {
+            return nodesDeleted;
+        }
+
+        public synchronized long getRelationshipsDeleted() {
+            return relationshipsDeleted;
+        }
+
+        public synchronized long getPropertiesSet() {
+            return propertiesSet;
+        }
+
+        public synchronized long getProfiledCalls() {
+            return profiledCalls;
+        }
+
+        public synchronized long getDbHits() {
+            long dbHits = 0;
+            for (OperatorProfile operator : operators.values()) {
+                dbHits += operator.getDbHits();
+            }
+            return dbHits;
+        }
+
+        public synchronized long getPageCacheHits() {
+            long pageCacheHits = 0;
+            for (OperatorProfile operator : operators.values()) {
+                pageCacheHits += operator.getPageCacheHits();
+            }
+            return pageCacheHits;
+        }
+
+        public synchronized long getPageCacheMisses() {
+            long pageCacheMisses = 0;
+            for (OperatorProfile operator : operators.values()) {
+                pageCacheMisses += operator.getPageCacheMisses();
+            }
+            return pageCacheMisses;
+        }
+
+        /**
+         * @return Profile of each operator type over the profiled calls, in plan order
+         */
+        public synchronized Map<String, OperatorProfile> getOperators() {
+            return new LinkedHashMap<>(operators);
+        }
+    }
+
+    /**
+     * Db hits, rows and page cache statistics of one operator type summed over the profiled calls of a statement
+     */
+    public static final class OperatorProfile {
+        private long dbHits;
+        private long rows;
+        private long pageCacheHits;
+        private long pageCacheMisses;
+
+        private void add(ProfiledPlan plan) {
+            dbHits += plan.dbHits();
+            rows += plan.records();
+            if (plan.hasPageCacheStats()) {
+                pageCacheHits += plan.pageCacheHits();
+                pageCacheMisses += plan.pageCacheMisses();
+            }
+        }
+
+        public long getDbHits() {
+            return dbHits;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getPageCacheHits() {
+            return pageCacheHits;
+        }
+
+        public long getPageCacheMisses() {
+            return pageCacheMisses;
+        }
+    }
+}
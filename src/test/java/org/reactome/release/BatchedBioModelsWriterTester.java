@@ -0,0 +1,84 @@
+package org.reactome.release;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Transaction;
+
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+
+@ExtendWith(MockitoExtension.class)
+public class BatchedBioModelsWriterTester {
+
+    @Mock
+    private Transaction mockTransaction;
+    @Mock
+    private Result mockResult;
+
+    @Test
+    public void nothingIsSentBeforeBatchSizeIsReached() {
+        BatchedBioModelsWriter writer = new BatchedBioModelsWriter(mockTransaction, 10);
+
+        writer.createNode(Collections.singletonList("DatabaseIdentifier"), identifierProps(1L));
+        writer.createRelationship(2L, 1L, "crossReference", 0, 1);
+
+        Mockito.verifyZeroInteractions(mockTransaction);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void flushSendsNodesBeforeRelationships() {
+        Mockito.when(mockTransaction.run(anyString(), anyMap())).thenReturn(mockResult);
+        BatchedBioModelsWriter writer = new BatchedBioModelsWriter(mockTransaction, 10);
+
+        writer.createRelationship(2L, 1L, "crossReference", 0, 1);
+        writer.createNode(Collections.singletonList("DatabaseIdentifier"), identifierProps(1L));
+        writer.flush();
+
+        InOrder inOrder = Mockito.inOrder(mockTransaction);
+        inOrder.verify(mockTransaction).run(startsWith("UNWIND $rows AS row CREATE (n:DatabaseObject:DatabaseIdentifier)"), anyMap());
+        ArgumentCaptor<Map<String, Object>> parameters = ArgumentCaptor.forClass(Map.class);
+        inOrder.verify(mockTransaction).run(
+                eq("UNWIND $rows AS row MATCH (n1:DatabaseObject {dbId: row.fromDbId}) MATCH (n2:DatabaseObject {dbId: row.toDbId}) " +
+                        "CREATE (n1)-[r:crossReference {order: row.order, stoichiometry: row.stoichiometry}]->(n2)"),
+                parameters.capture());
+
+        List<Map<String, Object>> rows = (List<Map<String, Object>>) parameters.getValue().get("rows");
+        assertThat(rows, hasSize(1));
+        assertThat(rows.get(0), allOf(hasEntry("fromDbId", (Object) 2L), hasEntry("toDbId", (Object) 1L), hasEntry("order", (Object) 0)));
+    }
+
+    @Test
+    public void reachingBatchSizeSplitsRowsIntoSeveralStatements() {
+        Mockito.when(mockTransaction.run(anyString(), anyMap())).thenReturn(mockResult);
+        BatchedBioModelsWriter writer = new BatchedBioModelsWriter(mockTransaction, 2);
+
+        for (int i = 0; i < 5; i++) {
+            writer.createRelationship(100L, i, "crossReference", i, 1);
+        }
+        writer.flush();
+
+        // Two full batches sent automatically, then the remaining row on flush
+        Mockito.verify(mockTransaction, Mockito.times(3)).run(startsWith("UNWIND $rows AS row MATCH"), anyMap());
+    }
+
+    private HashMap<String, Object> identifierProps(long dbId) {
+        HashMap<String, Object> props = new HashMap<>();
+        props.put("dbId", dbId);
+        props.put("identifier", "BIOMD0000000001");
+        return props;
+    }
+}
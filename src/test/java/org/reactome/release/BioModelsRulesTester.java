@@ -0,0 +1,75 @@
+package org.reactome.release;
+
+import org.gk.model.ReactomeJavaConstants;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class BioModelsRulesTester {
+
+    @Test
+    public void dateTimeKeepsZeroBasedMonth() {
+        Calendar calendar = new GregorianCalendar(2021, Calendar.MARCH, 4, 5, 6, 7);
+
+        assertThat(BioModelsRules.dateTime(calendar), is(equalTo("2021-02-04 05:06:07")));
+    }
+
+    @Test
+    public void calendarDoesNotDependOnTheDefaultTimeZone() {
+        TimeZone defaultTimeZone = TimeZone.getDefault();
+        try {
+            TimeZone.setDefault(TimeZone.getTimeZone("America/Toronto"));
+            assertThat(BioModelsRules.calendar().getTimeZone().getID(), is(equalTo("GMT")));
+        } finally {
+            TimeZone.setDefault(defaultTimeZone);
+        }
+    }
+
+    @Test
+    public void instanceEditDisplayNameHasPersonAndDate() {
+        HashMap<String, Object> props = BioModelsRules.instanceEditProperties("Doe", "Jane", 12L,
+                BioModelsRules.INSTANCE_EDIT_NOTE, "2021-02-04 05:06:07");
+
+        assertThat(props.get(BioModelsUtilities.DISPLAY_NAME), is(equalTo("Doe, Jane, 2021-02-04")));
+        assertThat(props.get(BioModelsUtilities.DBID), is(equalTo(12L)));
+        assertThat(props.get(BioModelsUtilities.SCHEMA_CLASS), is(equalTo(ReactomeJavaConstants.InstanceEdit)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void databaseIdentifierPointsToReferenceDatabase() {
+        BioModelsWriter writer = Mockito.mock(BioModelsWriter.class);
+
+        BioModelsRules.writeDatabaseIdentifier(writer, "BIOMD0000000001", 20L, 10L, 11L, "BioModels Database",
+                "https://www.ebi.ac.uk/biomodels/");
+
+        ArgumentCaptor<HashMap<String, Object>> props = ArgumentCaptor.forClass(HashMap.class);
+        Mockito.verify(writer).createNode(Mockito.eq(
+                Collections.singletonList(ReactomeJavaConstants.DatabaseIdentifier)), props.capture());
+        assertThat(props.getValue().get(BioModelsUtilities.DISPLAY_NAME),
+                is(equalTo("BioModels Database:BIOMD0000000001")));
+        assertThat(props.getValue().get(ReactomeJavaConstants.url),
+                is(equalTo("https://www.ebi.ac.uk/biomodels/BIOMD0000000001")));
+        Mockito.verify(writer).createRelationship(10L, 20L, ReactomeJavaConstants.created, 0, 1);
+        Mockito.verify(writer).createRelationship(20L, 11L, ReactomeJavaConstants.referenceDatabase, 0, 1);
+    }
+
+    @Test
+    public void crossReferencesAreOrderedByPosition() {
+        BioModelsWriter writer = Mockito.mock(BioModelsWriter.class);
+
+        BioModelsRules.writeCrossReferences(writer, 100L, Arrays.asList(21L, 20L), 10L);
+
+        InOrder inOrder = Mockito.inOrder(writer);
+        inOrder.verify(writer).createRelationship(100L, 21L, ReactomeJavaConstants.crossReference, 0, 1);
+        inOrder.verify(writer).createRelationship(100L, 20L, ReactomeJavaConstants.crossReference, 1, 1);
+        inOrder.verify(writer).createRelationship(10L, 100L, ReactomeJavaConstants.modified, 0, 1);
+        Mockito.verifyNoMoreInteractions(writer);
+    }
+}
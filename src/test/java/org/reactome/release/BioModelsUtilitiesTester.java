@@ -11,6 +11,7 @@ import org.neo4j.driver.types.Node;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.anyString;
 
 @ExtendWith(MockitoExtension.class)
 public class BioModelsUtilitiesTester {
@@ -48,4 +49,23 @@ public class BioModelsUtilitiesTester {
 
         assertThat(returnedDbInstance, is(nullValue()));
     }
+
+    @Test
+    public void allocatorFromDatabaseStartsAboveStoredMaximalDbId() {
+        Mockito.when(mockTransaction.run(anyString())).thenReturn(mockResult);
+        Mockito.when(mockResult.hasNext()).thenReturn(true);
+        Mockito.when(mockResult.single()).thenReturn(mockRecord);
+        Mockito.when(mockRecord.get("maxDbId")).thenReturn(mockValue);
+        Mockito.when(mockValue.asLong()).thenReturn(9000L);
+
+        assertThat(BioModelsUtilities.newDbIdAllocator(mockTransaction).next(), is(equalTo(9001L)));
+    }
+
+    @Test
+    public void allocatorFromEmptyDatabaseStartsAtOne() {
+        Mockito.when(mockTransaction.run(anyString())).thenReturn(mockResult);
+        Mockito.when(mockResult.hasNext()).thenReturn(false);
+
+        assertThat(BioModelsUtilities.newDbIdAllocator(mockTransaction).next(), is(equalTo(1L)));
+    }
 }
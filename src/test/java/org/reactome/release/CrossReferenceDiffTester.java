@@ -0,0 +1,173 @@
+package org.reactome.release;
+
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class CrossReferenceDiffTester {
+
+    private static Map<String, Set<String>> pathwayToBioModelsIds(String pathwayStableId, String... bioModelsIds) {
+        Map<String, Set<String>> pathwayToBioModelsIds = new LinkedHashMap<>();
+        pathwayToBioModelsIds.put(pathwayStableId, new LinkedHashSet<>(Arrays.asList(bioModelsIds)));
+        return pathwayToBioModelsIds;
+    }
+
+    // Every pathway of the file is in the database
+    private static CrossReferenceDiff compute(Map<String, Set<String>> parsed, BioModelsCrossReferences existing,
+                                              boolean pruneStale) {
+        return CrossReferenceDiff.compute(parsed, parsed.keySet(), existing, pruneStale);
+    }
+
+    private static BioModelsCrossReferences existingCrossReferences() {
+        BioModelsCrossReferences existing = new BioModelsCrossReferences();
+        existing.addIdentifier("BIOMD0000000001", 101L);
+        existing.addIdentifier("BIOMD0000000002", 102L);
+        existing.addIdentifier("BIOMD0000000003", 103L);
+        existing.addCrossReference("R-HSA-1", 1L, "BIOMD0000000001", 101L, 0);
+        existing.addCrossReference("R-HSA-1", 1L, "BIOMD0000000002", 102L, 1);
+        existing.addCrossReference("R-HSA-2", 2L, "BIOMD0000000003", 103L, 0);
+        return existing;
+    }
+
+    @Test
+    public void unchangedCrossReferencesProduceEmptyDiff() {
+        Map<String, Set<String>> parsed = pathwayToBioModelsIds("R-HSA-1", "BIOMD0000000001", "BIOMD0000000002");
+        parsed.put("R-HSA-2", Collections.singleton("BIOMD0000000003"));
+
+        CrossReferenceDiff diff = compute(parsed, existingCrossReferences(), true);
+
+        assertThat(diff.isEmpty(), is(true));
+    }
+
+    @Test
+    public void onlyMissingCrossReferencesAreAddedAfterStoredOnes() {
+        Map<String, Set<String>> parsed = pathwayToBioModelsIds(
+                "R-HSA-1", "BIOMD0000000004", "BIOMD0000000001", "BIOMD0000000002", "BIOMD0000000003");
+
+        CrossReferenceDiff diff = compute(parsed, existingCrossReferences(), false);
+
+        assertThat(diff.getPathwayChanges(), hasSize(1));
+        CrossReferenceDiff.PathwayChange change = diff.getPathwayChanges().iterator().next();
+        assertThat(change.getPathwayStableId(), is(equalTo("R-HSA-1")));
+        assertThat(new ArrayList<>(change.getAdded().keySet()), contains("BIOMD0000000004", "BIOMD0000000003"));
+        assertThat(new ArrayList<>(change.getAdded().values()), contains(2, 3));
+        assertThat(change.getRemoved(), is(empty()));
+        assertThat(change.getReordered(), is(anEmptyMap()));
+    }
+
+    @Test
+    public void pathwaysNotInDatabaseAreLeftOut() {
+        Map<String, Set<String>> parsed = pathwayToBioModelsIds("R-HSA-1", "BIOMD0000000001", "BIOMD0000000002");
+        parsed.put("R-HSA-2", Collections.singleton("BIOMD0000000003"));
+        parsed.put("R-HSA-9", Collections.singleton("BIOMD0000000004"));
+
+        CrossReferenceDiff diff = CrossReferenceDiff.compute(parsed,
+                new HashSet<>(Arrays.asList("R-HSA-1", "R-HSA-2")), existingCrossReferences(), true);
+
+        assertThat(diff.isEmpty(), is(true));
+        assertThat(diff.getAddedCount(), is(equalTo(0)));
+    }
+
+    @Test
+    public void staleCrossReferencesAreKeptWithoutPruning() {
+        Map<String, Set<String>> parsed = pathwayToBioModelsIds("R-HSA-1", "BIOMD0000000002");
+
+        CrossReferenceDiff diff = compute(parsed, existingCrossReferences(), false);
+
+        assertThat(diff.isEmpty(), is(true));
+    }
+
+    @Test
+    public void pruningRemovesStaleCrossReferencesAndRenumbersKeptOnes() {
+        Map<String, Set<String>> parsed = pathwayToBioModelsIds("R-HSA-1", "BIOMD0000000002", "BIOMD0000000004");
+
+        CrossReferenceDiff diff = compute(parsed, existingCrossReferences(), true);
+
+        assertThat(diff.getAddedCount(), is(equalTo(1)));
+        assertThat(diff.getRemovedCount(), is(equalTo(2)));
+
+        Iterator<CrossReferenceDiff.PathwayChange> changes = diff.getPathwayChanges().iterator();
+        CrossReferenceDiff.PathwayChange changedPathway = changes.next();
+        assertThat(changedPathway.getRemoved(), contains("BIOMD0000000001"));
+        assertThat(changedPathway.getReordered(), hasEntry("BIOMD0000000002", 0));
+        assertThat(changedPathway.getAdded(), hasEntry("BIOMD0000000004", 1));
+
+        CrossReferenceDiff.PathwayChange pathwayNotInFile = changes.next();
+        assertThat(pathwayNotInFile.getPathwayStableId(), is(equalTo("R-HSA-2")));
+        assertThat(pathwayNotInFile.getRemoved(), contains("BIOMD0000000003"));
+        assertThat(pathwayNotInFile.getAdded(), is(anEmptyMap()));
+    }
+
+    @Test
+    public void storedCrossReferencesAreSortedByOrder() {
+        BioModelsCrossReferences existing = new BioModelsCrossReferences();
+        existing.addCrossReference("R-HSA-1", 1L, "BIOMD0000000002", 102L, 1);
+        existing.addCrossReference("R-HSA-1", 1L, "BIOMD0000000001", 101L, 0);
+
+        assertThat(new ArrayList<>(existing.getCrossReferences("R-HSA-1").keySet()),
+                contains("BIOMD0000000001", "BIOMD0000000002"));
+        assertThat(existing.getCrossReferences("R-HSA-3"), is(anEmptyMap()));
+    }
+
+    @Test
+    public void rowsNameTheLinkedIdentifierWhenBioModelsIdHasSeveral() {
+        // Two runs of the full insertion created two DatabaseIdentifiers for BIOMD0000000001; R-HSA-1 links to the
+        // first one, and the second one is streamed last
+        BioModelsCrossReferences existing = new BioModelsCrossReferences();
+        existing.addIdentifier("BIOMD0000000001", 101L);
+        existing.addCrossReference("R-HSA-1", 1L, "BIOMD0000000001", 101L, 0);
+        existing.addIdentifier("BIOMD0000000002", 102L);
+        existing.addCrossReference("R-HSA-1", 1L, "BIOMD0000000002", 102L, 1);
+        existing.addIdentifier("BIOMD0000000001", 201L);
+        existing.addCrossReference("R-HSA-2", 2L, "BIOMD0000000001", 201L, 0);
+
+        CrossReferenceDiff diff = compute(
+                pathwayToBioModelsIds("R-HSA-1", "BIOMD0000000002"), existing, true);
+        CrossReferenceDiff.PathwayChange change = diff.getPathwayChanges().iterator().next();
+        assertThat(change.getRemoved(), contains("BIOMD0000000001"));
+        assertThat(change.getReordered(), hasEntry("BIOMD0000000002", 0));
+
+        assertThat(existing.getIdentifierDbIds(), hasEntry("BIOMD0000000001", 201L));
+        List<Map<String, Object>> removedRows = existing.crossReferenceRows("R-HSA-1", 1L, "BIOMD0000000001", 0);
+        assertThat(removedRows, hasSize(1));
+        assertThat(removedRows.get(0), hasEntry("fromDbId", (Object) 1L));
+        assertThat(removedRows.get(0), hasEntry("toDbId", (Object) 101L));
+        List<Map<String, Object>> reorderedRows = existing.crossReferenceRows("R-HSA-1", 1L, "BIOMD0000000002", 0);
+        assertThat(reorderedRows.get(0), hasEntry("toDbId", (Object) 102L));
+        assertThat(existing.crossReferenceRows("R-HSA-1", 1L, "BIOMD0000000003", 0), is(empty()));
+    }
+
+    @Test
+    public void duplicateLinksToOneBioModelsIdAreRemoved() {
+        // A rerun of the full insertion linked R-HSA-1 to a second DatabaseIdentifier of BIOMD0000000001
+        BioModelsCrossReferences existing = new BioModelsCrossReferences();
+        existing.addIdentifier("BIOMD0000000001", 101L);
+        existing.addIdentifier("BIOMD0000000002", 102L);
+        existing.addIdentifier("BIOMD0000000001", 201L);
+        existing.addCrossReference("R-HSA-1", 1L, "BIOMD0000000001", 201L, 1);
+        existing.addCrossReference("R-HSA-1", 1L, "BIOMD0000000001", 101L, 0);
+        existing.addCrossReference("R-HSA-1", 1L, "BIOMD0000000002", 102L, 2);
+
+        CrossReferenceDiff diff = compute(
+                pathwayToBioModelsIds("R-HSA-1", "BIOMD0000000001", "BIOMD0000000002"), existing, false);
+
+        assertThat(diff.isEmpty(), is(false));
+        assertThat(diff.getDeduplicatedCount(), is(equalTo(1)));
+        CrossReferenceDiff.PathwayChange change = diff.getPathwayChanges().iterator().next();
+        assertThat(change.getDeduplicated(), contains("BIOMD0000000001"));
+        assertThat(change.getAdded(), is(anEmptyMap()));
+        assertThat(change.getReordered(), is(equalTo(Collections.singletonMap("BIOMD0000000002", 1))));
+
+        List<Map<String, Object>> duplicateRows = existing.duplicateCrossReferenceRows("R-HSA-1", 1L,
+                "BIOMD0000000001");
+        assertThat(duplicateRows, hasSize(1));
+        assertThat(duplicateRows.get(0), hasEntry("toDbId", (Object) 201L));
+        List<Map<String, Object>> keptRows = existing.keptCrossReferenceRows("R-HSA-1", 1L, "BIOMD0000000001", 0);
+        assertThat(keptRows, hasSize(1));
+        assertThat(keptRows.get(0), hasEntry("toDbId", (Object) 101L));
+        assertThat(existing.duplicateCrossReferenceRows("R-HSA-1", 1L, "BIOMD0000000002"), is(empty()));
+    }
+}
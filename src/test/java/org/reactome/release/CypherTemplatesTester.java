@@ -0,0 +1,98 @@
+package org.reactome.release;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.neo4j.driver.*;
+import org.neo4j.driver.types.Node;
+
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+
+@ExtendWith(MockitoExtension.class)
+public class CypherTemplatesTester {
+
+    @Mock
+    private Transaction mockTransaction;
+    @Mock
+    private Result mockResult;
+    @Mock
+    private Record mockRecord;
+    @Mock
+    private Value mockValue;
+    @Mock
+    private Node mockNode;
+
+    @BeforeEach
+    public void resetStatementCounts() {
+        CypherTemplates.resetStatementCounts();
+    }
+
+    @Test
+    public void templatesAreCreatedOncePerSchemaClassAndRelationshipType() {
+        assertThat(CypherTemplates.node("DatabaseIdentifier"), is(sameInstance(CypherTemplates.node("DatabaseIdentifier"))));
+        assertThat(CypherTemplates.relationship("crossReference"),
+                is(sameInstance(CypherTemplates.relationship("crossReference"))));
+        assertThat(CypherTemplates.relationship("crossReference"), is(not(equalTo(CypherTemplates.relationship("created")))));
+    }
+
+    @Test
+    public void nodeStatementDoesNotDependOnProperties() {
+        Mockito.when(mockTransaction.run(anyString(), anyMap())).thenReturn(mockResult);
+        Mockito.when(mockResult.single()).thenReturn(mockRecord);
+        Mockito.when(mockRecord.get("n")).thenReturn(mockValue);
+        Mockito.when(mockValue.asNode()).thenReturn(mockNode);
+
+        HashMap<String, Object> fewProps = new HashMap<>();
+        fewProps.put("dbId", 1L);
+        HashMap<String, Object> moreProps = new HashMap<>();
+        moreProps.put("identifier", "BIOMD0000000001");
+        moreProps.put("displayName", "BioModels Database:BIOMD0000000001");
+        moreProps.put("dbId", 2L);
+        BioModelsUtilities.createNode(mockTransaction, Collections.singletonList("DatabaseIdentifier"), fewProps);
+        BioModelsUtilities.createNode(mockTransaction, Collections.singletonList("DatabaseIdentifier"), moreProps);
+
+        Mockito.verify(mockTransaction).run(eq("CREATE (n:DatabaseObject:DatabaseIdentifier $props) RETURN n"),
+                eq(Collections.singletonMap("props", (Object) moreProps)));
+        assertThat(CypherTemplates.getDistinctStatementCount(), is(equalTo(1)));
+    }
+
+    @Test
+    public void statementCountsGroupRunsBySameText() {
+        Mockito.when(mockTransaction.run(anyString(), any(Value.class))).thenReturn(mockResult);
+
+        for (long dbId = 1; dbId <= 3; dbId++) {
+            BioModelsUtilities.createRelationship(mockTransaction, 100L, dbId, "crossReference", (int) dbId, 1);
+        }
+        BioModelsUtilities.createRelationship(mockTransaction, 100L, 1L, "modified", 0, 1);
+
+        assertThat(CypherTemplates.getDistinctStatementCount(), is(equalTo(2)));
+        assertThat(CypherTemplates.getStatementCounts(), hasEntry(CypherTemplates.relationship("crossReference"), 3L));
+        assertThat(CypherTemplates.getStatementCounts(), hasEntry(CypherTemplates.relationship("modified"), 1L));
+    }
+
+    @Test
+    public void statementLatenciesAreRecordedUnderStatementNames() {
+        RunMetrics.reset();
+        Mockito.when(mockTransaction.run(anyString(), any(Value.class))).thenReturn(mockResult);
+
+        BioModelsUtilities.createRelationship(mockTransaction, 100L, 1L, "crossReference", 0, 1);
+        BioModelsUtilities.createRelationship(mockTransaction, 100L, 2L, "crossReference", 1, 1);
+
+        assertThat(CypherTemplates.nameOf(CypherTemplates.relationship("crossReference")),
+                is(equalTo("relationship:crossReference")));
+        assertThat(CypherTemplates.nameOf(CypherTemplates.MAX_DBID), is(equalTo("maxDbId")));
+        assertThat(RunMetrics.getStatementCount("relationship:crossReference"), is(equalTo(2L)));
+        assertThat(RunMetrics.getCounter(RunMetrics.RELATIONSHIPS_CREATED), is(equalTo(2L)));
+    }
+}
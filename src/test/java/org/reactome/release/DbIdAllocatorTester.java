@@ -0,0 +1,60 @@
+package org.reactome.release;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class DbIdAllocatorTester {
+
+    @Test
+    public void dbIdsAreAllocatedAboveMaximalDbId() {
+        DbIdAllocator dbIdAllocator = new DbIdAllocator(100L);
+
+        assertThat(dbIdAllocator.next(), is(equalTo(101L)));
+        assertThat(dbIdAllocator.next(), is(equalTo(102L)));
+        assertThat(dbIdAllocator.getLastAllocatedDbId(), is(equalTo(102L)));
+    }
+
+    @Test
+    public void reservedBlocksAreContiguousAndDoNotOverlap() {
+        DbIdAllocator dbIdAllocator = new DbIdAllocator(100L);
+
+        long firstBlockStart = dbIdAllocator.reserve(10);
+        long secondBlockStart = dbIdAllocator.reserve(5);
+
+        assertThat(firstBlockStart, is(equalTo(101L)));
+        assertThat(secondBlockStart, is(equalTo(111L)));
+        assertThat(dbIdAllocator.next(), is(equalTo(116L)));
+    }
+
+    @Test
+    public void concurrentAllocationsNeverReturnTheSameDbId() throws Exception {
+        DbIdAllocator dbIdAllocator = new DbIdAllocator(0L);
+        int threadCount = 8;
+        int allocationsPerThread = 10000;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+
+        List<Future<List<Long>>> futures = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            futures.add(executor.submit(() -> {
+                List<Long> dbIds = new ArrayList<>();
+                for (int j = 0; j < allocationsPerThread; j++) {
+                    dbIds.add(dbIdAllocator.next());
+                }
+                return dbIds;
+            }));
+        }
+        Set<Long> allDbIds = new HashSet<>();
+        for (Future<List<Long>> future : futures) {
+            allDbIds.addAll(future.get());
+        }
+        executor.shutdown();
+
+        assertThat(allDbIds, hasSize(threadCount * allocationsPerThread));
+        assertThat(dbIdAllocator.getLastAllocatedDbId(), is(equalTo((long) threadCount * allocationsPerThread)));
+    }
+}
@@ -0,0 +1,51 @@
+package org.reactome.release;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class IdentifierDbIdsTester {
+
+    @Test
+    public void dbIdsAreFoundAfterTableGrows() {
+        IdentifierDbIds identifierDbIds = new IdentifierDbIds();
+        Map<String, Long> expected = new HashMap<>();
+        for (int i = 0; i < 10000; i++) {
+            String bioModelsId = String.format("BIOMD%010d", i * 3);
+            identifierDbIds.put(bioModelsId, 100L + i);
+            expected.put(bioModelsId, 100L + i);
+        }
+
+        assertThat(identifierDbIds.size(), is(equalTo(10000)));
+        assertThat(identifierDbIds.get("BIOMD0000000003"), is(equalTo(101L)));
+        assertThat(identifierDbIds.getDbId("BIOMD0000000004", -1L), is(equalTo(-1L)));
+        assertThat(identifierDbIds, is(equalTo(expected)));
+    }
+
+    @Test
+    public void nonCanonicalIdsAreStored() {
+        IdentifierDbIds identifierDbIds = new IdentifierDbIds();
+        identifierDbIds.put("BIOMD_OTHER", 5L);
+        identifierDbIds.put("BIOMD0000000001", 6L);
+
+        assertThat(identifierDbIds.get("BIOMD_OTHER"), is(equalTo(5L)));
+        assertThat(identifierDbIds.containsKey("BIOMD0000000001"), is(true));
+        assertThat(identifierDbIds.keySet(), containsInAnyOrder("BIOMD_OTHER", "BIOMD0000000001"));
+    }
+
+    @Test
+    public void putReplacesDbIdAndClearEmptiesMap() {
+        IdentifierDbIds identifierDbIds = new IdentifierDbIds();
+        identifierDbIds.put("BIOMD0000000001", 5L);
+
+        assertThat(identifierDbIds.put("BIOMD0000000001", 7L), is(equalTo(5L)));
+        assertThat(identifierDbIds.get("BIOMD0000000001"), is(equalTo(7L)));
+
+        identifierDbIds.clear();
+        assertThat(identifierDbIds.isEmpty(), is(true));
+        assertThat(identifierDbIds.get("BIOMD0000000001"), is(nullValue()));
+    }
+}
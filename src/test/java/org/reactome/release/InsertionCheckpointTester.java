@@ -0,0 +1,103 @@
+package org.reactome.release;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class InsertionCheckpointTester {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void newCheckpointIsNotResumed() throws Exception {
+        InsertionCheckpoint checkpoint = InsertionCheckpoint.open(tempDir.resolve("biomodels.checkpoint"), models2Pathways());
+
+        assertThat(checkpoint.isResumed(), is(equalTo(false)));
+        assertThat(checkpoint.getIdentifierDbIds(), is(anEmptyMap()));
+    }
+
+    @Test
+    public void reopenedCheckpointContainsCommittedChunks() throws Exception {
+        Path checkpointFile = tempDir.resolve("biomodels.checkpoint");
+        Path models2Pathways = models2Pathways();
+
+        InsertionCheckpoint checkpoint = InsertionCheckpoint.open(checkpointFile, models2Pathways);
+        checkpoint.recordSetup(100L, 101L);
+        checkpoint.recordChunk(Arrays.asList("R-HSA-1", "R-HSA-2"), Collections.singletonMap("BIOMD0000000001", 102L));
+
+        InsertionCheckpoint resumedCheckpoint = InsertionCheckpoint.open(checkpointFile, models2Pathways);
+
+        assertThat(resumedCheckpoint.isResumed(), is(equalTo(true)));
+        assertThat(resumedCheckpoint.getInstanceEditDbId(), is(equalTo(100L)));
+        assertThat(resumedCheckpoint.getReferenceDatabaseDbId(), is(equalTo(101L)));
+        assertThat(resumedCheckpoint.getIdentifierDbIds(), hasEntry("BIOMD0000000001", 102L));
+        assertThat(resumedCheckpoint.isCompleted("R-HSA-2"), is(equalTo(true)));
+        assertThat(resumedCheckpoint.isCompleted("R-HSA-3"), is(equalTo(false)));
+    }
+
+    @Test
+    public void checkpointForDifferentFileIsRejected() throws Exception {
+        Path checkpointFile = tempDir.resolve("biomodels.checkpoint");
+        InsertionCheckpoint.open(checkpointFile, models2Pathways()).recordSetup(100L, 101L);
+
+        Path otherModels2Pathways = Files.write(tempDir.resolve("other.tsv"), Collections.singletonList("BIOMD0000000002\tR-HSA-2"));
+
+        Assertions.assertThrows(IllegalStateException.class, () -> InsertionCheckpoint.open(checkpointFile, otherModels2Pathways));
+    }
+
+    @Test
+    public void checkpointForEditedFileOfTheSameSizeIsRejected() throws Exception {
+        Path checkpointFile = tempDir.resolve("biomodels.checkpoint");
+        Path models2Pathways = models2Pathways();
+        InsertionCheckpoint.open(checkpointFile, models2Pathways).recordSetup(100L, 101L);
+
+        Files.write(models2Pathways, Collections.singletonList("BIOMD0000000009\tR-HSA-9"));
+
+        Assertions.assertThrows(IllegalStateException.class, () -> InsertionCheckpoint.open(checkpointFile, models2Pathways));
+    }
+
+    @Test
+    public void setupIntentIsKeptUntilTheSetupIsRecorded() throws Exception {
+        Path checkpointFile = tempDir.resolve("biomodels.checkpoint");
+        InsertionCheckpoint checkpoint = InsertionCheckpoint.open(checkpointFile, models2Pathways());
+        checkpoint.recordSetupIntent(100L, 101L);
+        checkpoint.recordSetupIntent(102L, 101L);
+
+        InsertionCheckpoint interruptedCheckpoint = InsertionCheckpoint.open(checkpointFile, models2Pathways());
+
+        assertThat(interruptedCheckpoint.isResumed(), is(equalTo(false)));
+        assertThat(interruptedCheckpoint.hasSetupIntent(), is(equalTo(true)));
+        assertThat(interruptedCheckpoint.getIntendedInstanceEditDbId(), is(equalTo(102L)));
+        assertThat(interruptedCheckpoint.getIntendedReferenceDatabaseDbId(), is(equalTo(101L)));
+
+        interruptedCheckpoint.recordSetup(102L, 101L);
+
+        assertThat(InsertionCheckpoint.open(checkpointFile, models2Pathways()).hasSetupIntent(), is(equalTo(false)));
+    }
+
+    @Test
+    public void deletedCheckpointStartsOver() throws Exception {
+        Path checkpointFile = tempDir.resolve("biomodels.checkpoint");
+        InsertionCheckpoint checkpoint = InsertionCheckpoint.open(checkpointFile, models2Pathways());
+        checkpoint.recordSetup(100L, 101L);
+        checkpoint.delete();
+
+        assertThat(InsertionCheckpoint.open(checkpointFile, models2Pathways()).isResumed(), is(equalTo(false)));
+    }
+
+    private Path models2Pathways() throws Exception {
+        Path models2Pathways = tempDir.resolve("models2pathways.tsv");
+        if (!Files.exists(models2Pathways)) {
+            Files.write(models2Pathways, Collections.singletonList("BIOMD0000000001\tR-HSA-1"));
+        }
+        return models2Pathways;
+    }
+}
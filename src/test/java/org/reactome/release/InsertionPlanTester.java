@@ -0,0 +1,70 @@
+package org.reactome.release;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class InsertionPlanTester {
+
+    private static InsertionPlan plan() {
+        InsertionPlan plan = new InsertionPlan();
+        plan.createNode(Collections.singletonList("ReferenceDatabase"), BioModelsUtilities.bioModelsDatabaseProperties(11L));
+        HashMap<String, Object> identifier = new HashMap<>();
+        identifier.put(BioModelsUtilities.DBID, 12L);
+        identifier.put(BioModelsUtilities.DISPLAY_NAME, "BioModels Database:BIOMD0000000001");
+        identifier.put("identifier", "BIOMD0000000001");
+        plan.createNode(Collections.singletonList("DatabaseIdentifier"), identifier);
+        plan.createRelationship(10L, 12L, "created", 0, 1);
+        plan.createRelationship(5L, 12L, "crossReference", 3, 1);
+        return plan;
+    }
+
+    @Test
+    public void nodesAndRelationshipsAreWrittenWithImportHeaders(@TempDir Path tempDir) throws Exception {
+        InsertionPlan plan = plan();
+
+        List<Path> files = plan.writeCsv(tempDir, 500);
+
+        assertThat(plan.getNodeCount(), is(equalTo(2)));
+        assertThat(files, hasSize(4));
+        List<String> identifiers = Files.readAllLines(tempDir.resolve("nodes-DatabaseIdentifier.csv"));
+        assertThat(identifiers, contains(
+                "dbId:ID(DatabaseObject),displayName,identifier,:LABEL",
+                "12,\"BioModels Database:BIOMD0000000001\",\"BIOMD0000000001\",\"DatabaseObject;DatabaseIdentifier\""));
+        List<String> referenceDatabases = Files.readAllLines(tempDir.resolve("nodes-ReferenceDatabase.csv"));
+        assertThat(referenceDatabases.get(0), containsString(",name:string[],"));
+        assertThat(referenceDatabases.get(1), containsString(",\"BioModels Database;BioModels\","));
+        List<String> relationships = Files.readAllLines(tempDir.resolve(InsertionPlan.RELATIONSHIPS_FILE));
+        assertThat(relationships, contains(
+                ":START_ID(DatabaseObject),:END_ID(DatabaseObject),:TYPE,order:int,stoichiometry:int",
+                "10,12,\"created\",0,1",
+                "5,12,\"crossReference\",3,1"));
+    }
+
+    @Test
+    public void loadScriptCreatesEveryNodeFileAndRelationshipType(@TempDir Path tempDir) throws Exception {
+        plan().writeCsv(tempDir, 500);
+
+        String script = new String(Files.readAllBytes(tempDir.resolve(InsertionPlan.LOAD_SCRIPT_FILE)));
+
+        assertThat(script, containsString("USING PERIODIC COMMIT 500"));
+        assertThat(script, containsString("CREATE (n:DatabaseObject:DatabaseIdentifier) SET " +
+                "n.dbId = toInteger(row.`dbId:ID(DatabaseObject)`)"));
+        assertThat(script, containsString("n.name = split(row.`name:string[]`, ';')"));
+        assertThat(script, containsString("WITH row WHERE row.`:TYPE` = 'created'"));
+        assertThat(script, containsString("CREATE (n1)-[:crossReference {order: toInteger(row.`order:int`)"));
+    }
+
+    @Test
+    public void quotesInValuesAreEscaped() {
+        assertThat(InsertionPlan.csvField("a \"b\""), is(equalTo("\"a \"\"b\"\"\"")));
+        assertThat(InsertionPlan.csvField(null), is(equalTo("")));
+        assertThat(InsertionPlan.csvField(7L), is(equalTo("7")));
+    }
+}
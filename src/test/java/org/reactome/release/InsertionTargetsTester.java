@@ -0,0 +1,85 @@
+package org.reactome.release;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class InsertionTargetsTester {
+
+    private static Properties props(String... keysAndValues) {
+        Properties props = new Properties();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            props.setProperty(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return props;
+    }
+
+    @Test
+    public void targetsOverrideRunProperties() {
+        Properties props = props("targets", "release, curator", "host", "release-db", "personId", "1",
+                "writeMode", "batched", "target.curator.host", "curator-db", "target.curator.personId", "2");
+
+        Map<String, Properties> targets = InsertionTargets.fromProperties(props);
+
+        assertThat(targets.keySet(), contains("release", "curator"));
+        assertThat(targets.get("release").getProperty("host"), is(equalTo("release-db")));
+        assertThat(targets.get("release").getProperty("personId"), is(equalTo("1")));
+        assertThat(targets.get("curator").getProperty("host"), is(equalTo("curator-db")));
+        assertThat(targets.get("curator").getProperty("personId"), is(equalTo("2")));
+        assertThat(targets.get("curator").getProperty("writeMode"), is(equalTo("batched")));
+        assertThat(targets.get("curator").getProperty("targets"), is(nullValue()));
+        assertThat(InsertionTargets.address(targets.get("curator")), is(equalTo("curator-db:7687")));
+    }
+
+    @Test
+    public void targetsMustBeDistinctDatabases() {
+        // Both resolve to localhost:7687
+        assertThrows(IllegalArgumentException.class, () -> InsertionTargets.fromProperties(
+                props("targets", "release,curator", "target.release.host", "localhost")));
+        assertThrows(IllegalArgumentException.class, () -> InsertionTargets.fromProperties(
+                props("targets", "release,release", "target.release.port", "7688")));
+        assertThrows(IllegalArgumentException.class, () -> InsertionTargets.fromProperties(props("targets", " , ")));
+        assertThat(InsertionTargets.isMultiTarget(props("targets", " ")), is(false));
+    }
+
+    @Test
+    public void targetFilesHaveTargetName() {
+        Properties props = props("verificationReportFile", "reports/verification.tsv",
+                "target.slice.verificationReportFile", "slice.tsv");
+
+        assertThat(InsertionTargets.targetFile(props, "release", "verificationReportFile", "default.tsv"),
+                is(equalTo("reports/verification-release.tsv")));
+        assertThat(InsertionTargets.targetFile(props, "slice", "verificationReportFile", "default.tsv"),
+                is(equalTo("slice.tsv")));
+        assertThat(InsertionTargets.targetFile(new Properties(), "release", "checkpointFile", "logs.d/checkpoint"),
+                is(equalTo("logs.d/checkpoint-release")));
+    }
+
+    @Test
+    public void reportHasOneLinePerTarget(@TempDir Path directory) throws Exception {
+        InsertionTargets.Result release = new InsertionTargets.Result("release", "release-db:7687");
+        release.inserted(1200L, 3L, 950L, 9876543L);
+        release.finished(12_400_000_000L);
+        InsertionTargets.Result curator = new InsertionTargets.Result("curator", "curator-db:7687");
+        curator.failed("Could not fetch Person entity with ID 2");
+        curator.finished(500_000_000L);
+        Path reportFile = directory.resolve("logs").resolve("targets.tsv");
+
+        InsertionTargets.writeReport(reportFile, Arrays.asList(release, curator));
+
+        assertThat(Files.readAllLines(reportFile), contains(
+                "target\tresult\taddress\tpathwaysUpdated\tpathwaysUnmatched\tidentifiersCreated\t" +
+                        "instanceEditDbId\tseconds\terror",
+                "release\tPASS\trelease-db:7687\t1200\t3\t950\t9876543\t12.4\t",
+                "curator\tFAIL\tcurator-db:7687\t0\t0\t0\t\t0.5\tCould not fetch Person entity with ID 2"));
+    }
+}
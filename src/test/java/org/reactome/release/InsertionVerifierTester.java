@@ -0,0 +1,215 @@
+package org.reactome.release;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Transaction;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.types.Node;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+
+public class InsertionVerifierTester {
+
+    private Transaction mockTransaction;
+    private final List<Record> crossReferenceRows = new ArrayList<>();
+    private final Set<String> databaseStableIds = new HashSet<>();
+    private final Map<String, Record> aggregateRows = new HashMap<>();
+    private final Map<String, Set<String>> pathwayStableIdToBioModelsIds = new LinkedHashMap<>();
+
+    private static Value value(Object object) {
+        Value value = Mockito.mock(Value.class);
+        Mockito.when(value.isNull()).thenReturn(object == null);
+        if (object instanceof Number) {
+            Mockito.when(value.asLong()).thenReturn(((Number) object).longValue());
+        } else if (object instanceof String) {
+            Mockito.when(value.asString()).thenReturn((String) object);
+        } else if (object instanceof List) {
+            Mockito.doReturn(object).when(value).asList();
+        }
+        return value;
+    }
+
+    private static Record record(Object... keysAndValues) {
+        Record record = Mockito.mock(Record.class);
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            Value value = value(keysAndValues[i + 1]);
+            Mockito.when(record.get((String) keysAndValues[i])).thenReturn(value);
+        }
+        return record;
+    }
+
+    private static Result result(Iterable<Record> records) {
+        Iterator<Record> iterator = records.iterator();
+        Result result = Mockito.mock(Result.class);
+        Mockito.when(result.hasNext()).thenAnswer(hasNext -> iterator.hasNext());
+        Mockito.when(result.next()).thenAnswer(next -> iterator.next());
+        Mockito.when(result.single()).thenAnswer(single -> iterator.next());
+        return result;
+    }
+
+    private void addPathway(String stableId, String... bioModelsIds) {
+        pathwayStableIdToBioModelsIds.put(stableId, new LinkedHashSet<>(Arrays.asList(bioModelsIds)));
+    }
+
+    private void addCrossReferenceRow(String stableId, long crossReferences, Long minOrder, Long maxOrder,
+                                      long distinctOrders) {
+        databaseStableIds.add(stableId);
+        crossReferenceRows.add(record("stId", stableId, "crossReferences", crossReferences, "minOrder", minOrder,
+                "maxOrder", maxOrder, "distinctOrders", distinctOrders));
+    }
+
+    private void setAggregateRow(String statement, long checked, long violations, List<?> examples) {
+        aggregateRows.put(statement, record("checked", checked, "violations", violations, "examples", examples));
+    }
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        RunMetrics.reset();
+        mockTransaction = Mockito.mock(Transaction.class);
+
+        Node referenceDatabase = Mockito.mock(Node.class);
+        Value dbIdValue = value(5L);
+        Value displayNameValue = value("BioModels Database");
+        Mockito.when(referenceDatabase.get(BioModelsUtilities.DBID)).thenReturn(dbIdValue);
+        Mockito.when(referenceDatabase.get(BioModelsUtilities.DISPLAY_NAME)).thenReturn(displayNameValue);
+        Value nodeValue = Mockito.mock(Value.class);
+        Mockito.when(nodeValue.asNode()).thenReturn(referenceDatabase);
+        Record referenceDatabaseRecord = Mockito.mock(Record.class);
+        Mockito.when(referenceDatabaseRecord.get("n")).thenReturn(nodeValue);
+        Mockito.when(mockTransaction.run(CypherTemplates.BIOMODELS_REFERENCE_DATABASE))
+                .thenAnswer(invocation -> result(Collections.singletonList(referenceDatabaseRecord)));
+
+        Mockito.when(mockTransaction.run(anyString(), anyMap())).thenAnswer(invocation -> {
+            String statement = invocation.getArgument(0);
+            if (statement.equals(CypherTemplates.VERIFY_CROSS_REFERENCES)) {
+                return result(crossReferenceRows);
+            }
+            if (statement.equals(CypherTemplates.PATHWAYS_BY_STABLE_ID)) {
+                List<Record> pathways = new ArrayList<>();
+                for (String stableId : (Collection<String>)
+                        invocation.<Map<String, Object>>getArgument(1).get("pathwayStableIds")) {
+                    if (databaseStableIds.contains(stableId)) {
+                        pathways.add(record("stId", stableId));
+                    }
+                }
+                return result(pathways);
+            }
+            return result(Collections.singletonList(aggregateRows.get(statement)));
+        });
+
+        setAggregateRow(CypherTemplates.VERIFY_REFERENCE_DATABASE_LINKS, 3L, 0L, Collections.emptyList());
+        setAggregateRow(CypherTemplates.VERIFY_DUPLICATE_IDENTIFIERS, 3L, 0L, Collections.emptyList());
+        setAggregateRow(CypherTemplates.VERIFY_UNIQUE_DBIDS, 5L, 0L, Collections.emptyList());
+    }
+
+    @Test
+    public void consistentGraphPasses() {
+        addPathway("R-HSA-1", "BIOMD0000000001", "BIOMD0000000002");
+        addPathway("R-HSA-2", "BIOMD0000000003");
+        addPathway("R-HSA-9", "BIOMD0000000004");
+        addCrossReferenceRow("R-HSA-1", 2L, 0L, 1L, 2L);
+        addCrossReferenceRow("R-HSA-2", 1L, 0L, 0L, 1L);
+
+        List<InsertionVerifier.Check> checks = InsertionVerifier.verify(mockTransaction, pathwayStableIdToBioModelsIds);
+
+        assertThat(InsertionVerifier.passed(checks), is(true));
+        List<String> names = new ArrayList<>();
+        for (InsertionVerifier.Check check : checks) {
+            names.add(check.getName());
+        }
+        assertThat(names, contains("crossReferenceCounts", "crossReferenceOrders", "referenceDatabaseLinks",
+                "duplicateIdentifiers", "uniqueDbIds"));
+        // R-HSA-9 is not in the database, so it is not checked
+        assertThat(checks.get(0).getChecked(), is(equalTo(2L)));
+    }
+
+    @Test
+    public void violationsAreCountedWithExamples() {
+        addPathway("R-HSA-1", "BIOMD0000000001", "BIOMD0000000002");
+        addPathway("R-HSA-2", "BIOMD0000000003");
+        addCrossReferenceRow("R-HSA-1", 3L, 0L, 2L, 2L);
+        addCrossReferenceRow("R-HSA-3", 1L, null, null, 0L);
+        databaseStableIds.add("R-HSA-2");
+        setAggregateRow(CypherTemplates.VERIFY_DUPLICATE_IDENTIFIERS, 3L, 1L,
+                Collections.singletonList("BIOMD0000000001"));
+
+        List<InsertionVerifier.Check> checks = InsertionVerifier.verify(mockTransaction, pathwayStableIdToBioModelsIds);
+
+        assertThat(InsertionVerifier.passed(checks), is(false));
+        InsertionVerifier.Check counts = checks.get(0);
+        assertThat(counts.getChecked(), is(equalTo(3L)));
+        assertThat(counts.getViolations(), is(equalTo(3L)));
+        assertThat(counts.getExamples(), contains("R-HSA-1 (3 instead of 2)", "R-HSA-3 (1 instead of 0)",
+                "R-HSA-2 (0 instead of 1)"));
+        assertThat(checks.get(1).getExamples(), contains("R-HSA-1", "R-HSA-3"));
+        assertThat(checks.get(3).toString(), is(equalTo("duplicateIdentifiers\tFAIL\t3\t1\tBIOMD0000000001")));
+        assertThat(checks.get(4).passed(), is(true));
+    }
+
+    @Test
+    public void countsOfAStreamedInsertionAreVerified() {
+        addCrossReferenceRow("R-HSA-1", 2L, 0L, 1L, 2L);
+        addCrossReferenceRow("R-HSA-2", 2L, 0L, 1L, 2L);
+        Map<String, Integer> expectedCrossReferences = new LinkedHashMap<>();
+        expectedCrossReferences.put("R-HSA-1", 2);
+        expectedCrossReferences.put("R-HSA-2", 1);
+
+        List<InsertionVerifier.Check> checks = InsertionVerifier.verifyCounts(mockTransaction, expectedCrossReferences);
+
+        assertThat(checks.get(0).getExamples(), contains("R-HSA-2 (2 instead of 1)"));
+        assertThat(checks.get(1).passed(), is(true));
+    }
+
+    @Test
+    public void crossReferenceCountsAreTheNumberOfBioModelsIds() {
+        addPathway("R-HSA-1", "BIOMD0000000001", "BIOMD0000000002");
+        addPathway("R-HSA-2", "BIOMD0000000003");
+
+        Map<String, Integer> counts = InsertionVerifier.crossReferenceCounts(pathwayStableIdToBioModelsIds);
+
+        assertThat(counts, allOf(hasEntry("R-HSA-1", 2), hasEntry("R-HSA-2", 1)));
+        assertThat(counts.size(), is(equalTo(2)));
+    }
+
+    @Test
+    public void missingReferenceDatabaseFails() {
+        Mockito.when(mockTransaction.run(CypherTemplates.BIOMODELS_REFERENCE_DATABASE))
+                .thenAnswer(invocation -> result(Collections.emptyList()));
+
+        List<InsertionVerifier.Check> checks = InsertionVerifier.verify(mockTransaction, pathwayStableIdToBioModelsIds);
+
+        assertThat(checks, hasSize(1));
+        assertThat(checks.get(0).getName(), is(equalTo("referenceDatabase")));
+        assertThat(InsertionVerifier.passed(checks), is(false));
+    }
+
+    @Test
+    public void reportHasOneLinePerCheck(@TempDir Path directory) throws Exception {
+        addPathway("R-HSA-1", "BIOMD0000000001");
+        addCrossReferenceRow("R-HSA-1", 1L, 1L, 1L, 1L);
+        Path reportFile = directory.resolve("logs").resolve("verification.tsv");
+
+        InsertionVerifier.writeReport(reportFile,
+                InsertionVerifier.verify(mockTransaction, pathwayStableIdToBioModelsIds));
+
+        assertThat(Files.readAllLines(reportFile), contains(
+                "check\tresult\tchecked\tviolations\texamples",
+                "crossReferenceCounts\tPASS\t1\t0\t",
+                "crossReferenceOrders\tFAIL\t1\t1\tR-HSA-1",
+                "referenceDatabaseLinks\tPASS\t3\t0\t",
+                "duplicateIdentifiers\tPASS\t3\t0\t",
+                "uniqueDbIds\tPASS\t5\t0\t"));
+    }
+}
@@ -0,0 +1,97 @@
+package org.reactome.release;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class MappingSnapshotTester {
+
+    private final Path models2Pathways = Paths.get("src", "test", "resources", "models2pathways.tsv").toAbsolutePath();
+
+    @Test
+    public void unchangedFileIsLoadedFromItsSnapshot(@TempDir Path snapshotDirectory) throws Exception {
+        MappingSnapshot parsed = MappingSnapshot.loadOrParse(models2Pathways, snapshotDirectory, new RejectReport(), 1);
+        Path snapshotFile = snapshotDirectory.resolve(MappingSnapshot.fileName(parsed.getSourceHash()));
+        assertThat(Files.exists(snapshotFile), is(true));
+
+        // The snapshot is read back instead of parsing the file again
+        MappingSnapshot loaded = MappingSnapshot.loadOrParse(models2Pathways, snapshotDirectory, new RejectReport(), 1);
+
+        assertThat(loaded.getSourceHash(), is(equalTo(MappingSnapshot.contentHash(models2Pathways))));
+        assertThat(new ArrayList<>(loaded.getMapping().asMap().keySet()),
+                is(equalTo(new ArrayList<>(parsed.getMapping().asMap().keySet()))));
+        assertThat(loaded.getMapping().asMap(), is(equalTo(ModelsTSVParser.parse(models2Pathways.toString()))));
+    }
+
+    @Test
+    public void rejectedLineCountIsKeptInSnapshot(@TempDir Path snapshotDirectory) throws Exception {
+        Path improper = Paths.get("src", "test", "resources", "improper_models2pathways.tsv").toAbsolutePath();
+        RejectReport rejects = new RejectReport();
+        MappingSnapshot.loadOrParse(improper, snapshotDirectory, rejects, 1);
+
+        RejectReport reloadRejects = new RejectReport();
+        MappingSnapshot loaded = MappingSnapshot.loadOrParse(improper, snapshotDirectory, reloadRejects, 1);
+
+        assertThat(loaded.getRejectedCount(), is(equalTo(rejects.getRejectedCount())));
+        assertThat(reloadRejects.getRejectedCount(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void snapshotOfAnOlderVersionIsParsedAgain(@TempDir Path snapshotDirectory) throws Exception {
+        String sourceHash = MappingSnapshot.contentHash(models2Pathways);
+        Path snapshotFile = snapshotDirectory.resolve(MappingSnapshot.fileName(sourceHash));
+        // Version 1 had no filter after the source hash
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(snapshotFile))) {
+            out.writeInt(0x424d4d53);
+            out.writeInt(1);
+            out.writeUTF(sourceHash);
+            out.writeLong(0L);
+        }
+
+        MappingSnapshot loaded = MappingSnapshot.loadOrParse(models2Pathways, snapshotDirectory, new RejectReport(), 1);
+
+        assertThat(loaded.getMapping().asMap(), is(equalTo(ModelsTSVParser.parse(models2Pathways.toString()))));
+        assertThat(MappingSnapshot.read(snapshotFile).getSourceHash(), is(equalTo(sourceHash)));
+    }
+
+    @Test
+    public void idsWithoutCodeSurviveSnapshot(@TempDir Path snapshotDirectory) throws Exception {
+        Path tsv = snapshotDirectory.resolve("models2pathways.tsv");
+        Files.write(tsv, Arrays.asList("BIOMD_OTHER\tR-HSA-0123", "BIOMD0000000001\tR-HSA-1"));
+        MappingSnapshot.loadOrParse(tsv, snapshotDirectory, new RejectReport(), 1);
+
+        MappingSnapshot loaded = MappingSnapshot.loadOrParse(tsv, snapshotDirectory, new RejectReport(), 1);
+
+        assertThat(loaded.getMapping().asMap().get("R-HSA-0123"), contains("BIOMD_OTHER"));
+        assertThat(loaded.getMapping().asMap().get("R-HSA-1"), contains("BIOMD0000000001"));
+    }
+
+    @Test
+    public void deltaListsAddedAndRemovedPairs(@TempDir Path directory) throws Exception {
+        ModelsMapping.Builder previous = new ModelsMapping.Builder();
+        previous.add("BIOMD0000000001", "R-HSA-1");
+        previous.add("BIOMD0000000002", "R-HSA-1");
+        previous.add("BIOMD0000000002", "R-MMU-2");
+        ModelsMapping.Builder current = new ModelsMapping.Builder();
+        current.add("BIOMD0000000002", "R-HSA-1");
+        current.add("BIOMD0000000003", "R-HSA-1");
+        current.add("BIOMD0000000002", "R-HSA-3");
+
+        MappingDelta delta = MappingDelta.compare(previous.build(), current.build());
+        Path deltaFile = directory.resolve("delta.tsv");
+        delta.write(deltaFile);
+
+        assertThat(Files.readAllLines(deltaFile), contains("change\tbioModelsId\tpathwayStableId",
+                "added\tBIOMD0000000003\tR-HSA-1", "added\tBIOMD0000000002\tR-HSA-3",
+                "removed\tBIOMD0000000001\tR-HSA-1", "removed\tBIOMD0000000002\tR-MMU-2"));
+        assertThat(MappingDelta.compare(current.build(), current.build()).isEmpty(), is(true));
+    }
+}
@@ -0,0 +1,94 @@
+package org.reactome.release;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ModelsMappingTester {
+
+    @Test
+    public void canonicalIdsAreEncodedAndDecoded() {
+        assertThat(CompactIds.decodeBioModelsId(CompactIds.encodeBioModelsId("BIOMD0000000226")),
+                is(equalTo("BIOMD0000000226")));
+        assertThat(CompactIds.decodeStableId(CompactIds.encodeStableId("R-HSA-1810476")),
+                is(equalTo("R-HSA-1810476")));
+        assertThat(CompactIds.speciesCode(CompactIds.encodeStableId("R-MMU-2")), is(equalTo("MMU")));
+    }
+
+    @Test
+    public void nonCanonicalIdsHaveNoCode() {
+        assertThat(CompactIds.encodeBioModelsId("BIOMD00000002260"), is(equalTo(CompactIds.NO_CODE)));
+        assertThat(CompactIds.encodeBioModelsId("BIOMD9999999999"), is(equalTo(CompactIds.NO_CODE)));
+        assertThat(CompactIds.encodeStableId("R-HSA-0123"), is(equalTo((long) CompactIds.NO_CODE)));
+        assertThat(CompactIds.encodeStableId("R-HS-123"), is(equalTo((long) CompactIds.NO_CODE)));
+    }
+
+    @Test
+    public void mapViewKeepsFileOrderWithoutDuplicates() {
+        ModelsMapping.Builder builder = new ModelsMapping.Builder();
+        builder.add("BIOMD0000000002", "R-HSA-1");
+        builder.add("BIOMD0000000001", "R-MMU-2");
+        builder.add("BIOMD0000000001", "R-HSA-1");
+        builder.add("BIOMD0000000002", "R-HSA-1");
+
+        Map<String, Set<String>> mapping = builder.build().asMap();
+
+        assertThat(mapping.keySet(), contains("R-HSA-1", "R-MMU-2"));
+        assertThat(mapping.get("R-HSA-1"), contains("BIOMD0000000002", "BIOMD0000000001"));
+        assertThat(mapping.get("R-MMU-2"), contains("BIOMD0000000001"));
+        assertThat(mapping.get("R-HSA-3"), is(nullValue()));
+    }
+
+    @Test
+    public void pathwaysAreFoundByStableIdBeyondTheInitialIndexCapacity() {
+        ModelsMapping.Builder builder = new ModelsMapping.Builder();
+        for (int i = 1; i <= 1000; i++) {
+            builder.add("BIOMD0000000001", "R-HSA-" + i);
+        }
+        builder.add("BIOMD0000000001", "R-HSA-0123");
+
+        ModelsMapping mapping = builder.build();
+
+        assertThat(mapping.getPathwayCount(), is(equalTo(1001)));
+        assertThat(mapping.indexOf("R-HSA-1"), is(equalTo(0)));
+        assertThat(mapping.indexOf("R-HSA-1000"), is(equalTo(999)));
+        assertThat(mapping.indexOf("R-HSA-0123"), is(equalTo(1000)));
+        assertThat(mapping.indexOf("R-HSA-1001"), is(equalTo(-1)));
+        assertThat(mapping.indexOf("R-HSA-0999"), is(equalTo(-1)));
+    }
+
+    @Test
+    public void nonCanonicalIdsAreKeptAndAppendedRangesAreMerged() {
+        ModelsMapping.Builder first = new ModelsMapping.Builder();
+        first.add("BIOMD_OTHER", "R-HSA-0123");
+        first.add("BIOMD0000000001", "R-HSA-1");
+        ModelsMapping.Builder second = new ModelsMapping.Builder();
+        second.add("BIOMD0000000003", "R-HSA-0123");
+        second.add("BIOMD_OTHER", "R-HSA-1");
+
+        ModelsMapping mapping = first.append(second).build();
+
+        assertThat(mapping.getCrossReferenceCount(), is(equalTo(4)));
+        assertThat(mapping.asMap().get("R-HSA-0123"), contains("BIOMD_OTHER", "BIOMD0000000003"));
+        assertThat(mapping.asMap().get("R-HSA-1"), contains("BIOMD0000000001", "BIOMD_OTHER"));
+        assertThat(mapping.asMap().get("R-HSA-1").contains("BIOMD_MISSING"), is(false));
+    }
+
+    @Test
+    public void mapViewEqualsMappingOfHashMaps() {
+        String filepath = Paths.get("src", "test", "resources", "models2pathways.tsv").toAbsolutePath().toString();
+
+        Map<String, Set<String>> mapping = ModelsTSVParser.parse(filepath);
+        Map<String, Set<String>> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, Set<String>> entry : mapping.entrySet()) {
+            copy.put(entry.getKey(), new LinkedHashSet<>(entry.getValue()));
+        }
+
+        assertThat(mapping, is(equalTo(copy)));
+        assertThat(copy, is(equalTo(mapping)));
+    }
+}
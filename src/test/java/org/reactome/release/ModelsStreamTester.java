@@ -0,0 +1,116 @@
+package org.reactome.release;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ModelsStreamTester {
+
+    private final Path models2Pathways = Paths.get("src", "test", "resources", "models2pathways.tsv").toAbsolutePath();
+
+    @Test
+    public void streamedCrossReferencesMatchParsedFile() {
+        Map<String, Set<String>> parsed = ModelsTSVParser.parse(models2Pathways.toString());
+        // Every other pathway of the file is in the database
+        Map<String, ResolvedPathway> databasePathways = new HashMap<>();
+        long dbId = 1000L;
+        for (String pathwayStableId : parsed.keySet()) {
+            if (dbId % 2 == 0) {
+                databasePathways.put(pathwayStableId, new ResolvedPathway(dbId, pathwayStableId, "Pathway " + dbId));
+            }
+            dbId++;
+        }
+        List<Set<String>> lookups = new ArrayList<>();
+
+        Map<String, List<String>> streamed = new HashMap<>();
+        try (ModelsStream stream = ModelsStream.open(models2Pathways, new RejectReport(), pathwayStableIds -> {
+            lookups.add(new HashSet<>(pathwayStableIds));
+            List<ResolvedPathway> found = new ArrayList<>();
+            for (String pathwayStableId : pathwayStableIds) {
+                if (databasePathways.containsKey(pathwayStableId)) {
+                    found.add(databasePathways.get(pathwayStableId));
+                }
+            }
+            return found;
+        }, 1, 10)) {
+            for (ModelsStream.ResolvedGroup group = stream.next(); group != null; group = stream.next()) {
+                for (ResolvedPathway pathway : group.getPathways()) {
+                    List<String> bioModelsIds =
+                            streamed.computeIfAbsent(pathway.getStableId(), k -> new ArrayList<>());
+                    if (!bioModelsIds.contains(group.getBioModelsId())) {
+                        bioModelsIds.add(group.getBioModelsId());
+                    }
+                }
+            }
+            assertThat(stream.next(), is(nullValue()));
+        }
+
+        Map<String, List<String>> expected = new HashMap<>();
+        for (String pathwayStableId : databasePathways.keySet()) {
+            expected.put(pathwayStableId, new ArrayList<>(parsed.get(pathwayStableId)));
+        }
+        assertThat(streamed, is(equalTo(expected)));
+        // Each stable id is looked up once
+        Set<String> lookedUp = new HashSet<>();
+        int lookupCount = 0;
+        for (Set<String> lookup : lookups) {
+            lookedUp.addAll(lookup);
+            lookupCount += lookup.size();
+        }
+        assertThat(lookupCount, is(equalTo(lookedUp.size())));
+        assertThat(lookedUp, is(equalTo(parsed.keySet())));
+    }
+
+    @Test
+    public void resolverFailureIsThrownToConsumer() {
+        try (ModelsStream stream = ModelsStream.open(models2Pathways, new RejectReport(), pathwayStableIds -> {
+            throw new IllegalArgumentException("Database unavailable");
+        }, 4, 10)) {
+            IllegalStateException failure = assertThrows(IllegalStateException.class, stream::next);
+            assertThat(failure.getCause(), is(instanceOf(IllegalArgumentException.class)));
+        }
+    }
+
+    @Test
+    public void bioModelsIdOnNonConsecutiveLinesFailsTheStream(@TempDir Path directory) throws Exception {
+        Path tsv = directory.resolve("models2pathways.tsv");
+        Files.write(tsv, Arrays.asList("BIOMD0000000001\tR-HSA-1", "BIOMD0000000002\tR-HSA-1",
+                "BIOMD0000000001\tR-HSA-2", "BIOMD0000000003\tR-HSA-2"));
+        List<String> bioModelsIds = new ArrayList<>();
+
+        try (ModelsStream stream = ModelsStream.open(tsv, new RejectReport(), pathwayStableIds -> {
+            List<ResolvedPathway> found = new ArrayList<>();
+            for (String pathwayStableId : pathwayStableIds) {
+                found.add(new ResolvedPathway(Long.parseLong(pathwayStableId.substring(6)), pathwayStableId, "P"));
+            }
+            return found;
+        }, 4, 1)) {
+            IllegalStateException failure = assertThrows(IllegalStateException.class, () -> {
+                for (ModelsStream.ResolvedGroup group = stream.next(); group != null; group = stream.next()) {
+                    bioModelsIds.add(group.getBioModelsId());
+                }
+            });
+            assertThat(failure.getCause().getMessage(), containsString("BIOMD0000000001"));
+        }
+        // The repeated group is never handed to the consumer
+        assertThat(bioModelsIds, contains("BIOMD0000000001", "BIOMD0000000002"));
+    }
+
+    @Test
+    public void closingBeforeEndStopsProducers() {
+        ModelsStream stream = ModelsStream.open(models2Pathways, new RejectReport(),
+                pathwayStableIds -> Collections.singletonList(
+                        new ResolvedPathway(1L, pathwayStableIds.iterator().next(), "Pathway")), 1, 1);
+
+        assertThat(stream.next(), is(notNullValue()));
+        stream.close();
+    }
+}
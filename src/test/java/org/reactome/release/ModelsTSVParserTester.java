@@ -1,9 +1,14 @@
 package org.reactome.release;
 
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.zip.GZIPOutputStream;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -110,4 +115,96 @@ public class ModelsTSVParserTester {
 
         assertThat("No null values in any lists in pathwaysToBioModelsIds map", nullValueInList, is(equalTo(false)));
     }
+
+    @Test
+    public void gzippedFileReturnsSameMappingAsUncompressedFile(@TempDir Path tempDir) throws Exception {
+        Path filepath = Paths.get(RESOURCE_DIR, "models2pathways.tsv");
+        Path gzippedFilepath = tempDir.resolve("models2pathways.tsv.gz");
+        try (OutputStream outputStream = new GZIPOutputStream(Files.newOutputStream(gzippedFilepath))) {
+            outputStream.write(Files.readAllBytes(filepath));
+        }
+
+        Map<String, Set<String>> pathwayToBioModelsIds = ModelsTSVParser.parse(filepath.toString());
+        Map<String, Set<String>> gzippedPathwayToBioModelsIds = ModelsTSVParser.parse(gzippedFilepath.toString());
+
+        assertThat(gzippedPathwayToBioModelsIds, is(equalTo(pathwayToBioModelsIds)));
+    }
+
+    @Test
+    public void rejectedLinesAreReportedWithLineNumbers() {
+        String filepath = Paths.get(RESOURCE_DIR, "partiallycorrect_models2pathways.tsv").toFile().getAbsolutePath();
+        RejectReport rejects = new RejectReport();
+
+        ModelsTSVParser.parse(filepath, rejects);
+
+        assertThat(rejects.getRejectedCount(), is(equalTo(3L)));
+        assertThat(rejects.getRejections().get(0).getLineNumber(), is(equalTo(1L)));
+        assertThat(rejects.getRejections().get(2).getLineNumber(), is(equalTo(3L)));
+        assertThat(rejects.getRejections().get(2).getLine(), startsWith("BIOMD0000000226\trhsa-1810476"));
+    }
+
+    @Test
+    public void windowsLineEndingsAndMissingFinalLineBreakAreAccepted(@TempDir Path tempDir) throws Exception {
+        Path filepath = tempDir.resolve("models2pathways.tsv");
+        Files.write(filepath, "BIOMD0000000001\tR-HSA-1\r\nBIOMD0000000002\tR-HSA-1\r\nBIOMD0000000001\tR-MMU-2".getBytes());
+
+        Map<String, Set<String>> pathwayToBioModelsIds = ModelsTSVParser.parse(filepath.toString());
+
+        assertThat(pathwayToBioModelsIds.get("R-HSA-1"), contains("BIOMD0000000001", "BIOMD0000000002"));
+        assertThat(pathwayToBioModelsIds.get("R-MMU-2"), contains("BIOMD0000000001"));
+    }
+
+    @Test
+    public void parallelParseReturnsSameMappingInSameOrderAsSequentialParse() throws Exception {
+        Path filepath = Paths.get(RESOURCE_DIR, "partiallycorrect_models2pathways.tsv");
+        RejectReport sequentialRejects = new RejectReport();
+        RejectReport parallelRejects = new RejectReport();
+
+        Map<String, Set<String>> sequential = ModelsTSVParser.parse(filepath.toString(), sequentialRejects);
+        // A tiny chunk size splits the test file into one range per line
+        Map<String, Set<String>> parallel = ModelsTSVParser.parseInParallel(filepath, parallelRejects, 4, 1L);
+
+        assertThat(new ArrayList<>(parallel.keySet()), is(equalTo(new ArrayList<>(sequential.keySet()))));
+        for (String pathwayStableId : sequential.keySet()) {
+            assertThat(new ArrayList<>(parallel.get(pathwayStableId)), is(equalTo(new ArrayList<>(sequential.get(pathwayStableId)))));
+        }
+        assertThat(parallelRejects.getRejectedCount(), is(equalTo(sequentialRejects.getRejectedCount())));
+        assertThat(parallelRejects.getRejections().get(2).getLineNumber(), is(equalTo(3L)));
+    }
+
+    @Test
+    public void filterKeepsTopScoresPerPathwayInScoreOrder(@TempDir Path directory) throws Exception {
+        Path tsv = directory.resolve("models2pathways.tsv");
+        Files.write(tsv, Arrays.asList(
+                "BIOMD0000000001\tR-HSA-1\t0.5\turl\tname\tIEA\tHomo sapiens",
+                "BIOMD0000000002\tR-HSA-1\t0.001\turl\tname\tIEA\tHomo sapiens",
+                "BIOMD0000000003\tR-HSA-1\t0.9\turl\tname\tIEA\tHomo sapiens",
+                "BIOMD0000000004\tR-HSA-1\t0.01\turl\tname\tIEA\tHomo sapiens",
+                "BIOMD0000000005\tR-HSA-1\t0.001\turl\tname\tIEA\tHomo sapiens",
+                "BIOMD0000000006\tR-MMU-2\t0.001\turl\tname\tIEA\tMus musculus",
+                "BIOMD0000000001\tR-HSA-1\t0.0001\turl\tname\tIEA\tHomo sapiens"));
+        ModelsFilter filter = new ModelsFilter(0.6, Collections.singletonList("Homo sapiens"), 3);
+
+        Map<String, Set<String>> pathwayToBioModelsIds =
+                ModelsTSVParser.parseMapping(tsv.toString(), new RejectReport(), 1, filter).asMap();
+
+        // BIOMD0000000001 keeps its best score; equal scores keep file order
+        assertThat(pathwayToBioModelsIds.keySet(), contains("R-HSA-1"));
+        assertThat(pathwayToBioModelsIds.get("R-HSA-1"),
+                contains("BIOMD0000000001", "BIOMD0000000002", "BIOMD0000000005"));
+    }
+
+    @Test
+    public void filterRejectsLinesWithoutScore(@TempDir Path directory) throws Exception {
+        Path tsv = directory.resolve("models2pathways.tsv");
+        Files.write(tsv, Arrays.asList("BIOMD0000000001\tR-HSA-1", "BIOMD0000000002\tR-HSA-1\tnot a score",
+                "BIOMD0000000003\tR-HSA-1\t0.1"));
+        RejectReport rejects = new RejectReport();
+
+        Map<String, Set<String>> pathwayToBioModelsIds = ModelsTSVParser.parseMapping(tsv.toString(), rejects, 1,
+                new ModelsFilter(Double.POSITIVE_INFINITY, Collections.emptyList(), 0)).asMap();
+
+        assertThat(pathwayToBioModelsIds.get("R-HSA-1"), contains("BIOMD0000000003"));
+        assertThat(rejects.getRejectedCount(), is(equalTo(2L)));
+    }
 }
@@ -0,0 +1,109 @@
+package org.reactome.release;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Transaction;
+import org.neo4j.driver.Value;
+
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+
+public class PathwayLookupTester {
+
+    private Transaction mockTransaction;
+    private final Set<String> databaseStableIds = new HashSet<>(Arrays.asList("R-HSA-1", "R-HSA-2", "R-MMU-4"));
+    private final List<List<String>> lookups = new ArrayList<>();
+
+    private static Record record(String stableId, long dbId) {
+        return record(stableId, dbId, "Pathway " + dbId);
+    }
+
+    private static Record record(String stableId, long dbId, String displayName) {
+        Value dbIdValue = Mockito.mock(Value.class);
+        Mockito.when(dbIdValue.asLong()).thenReturn(dbId);
+        Value stableIdValue = Mockito.mock(Value.class);
+        Mockito.when(stableIdValue.asString()).thenReturn(stableId);
+        Value displayNameValue = Mockito.mock(Value.class);
+        Mockito.when(displayNameValue.asString(anyString()))
+                .thenAnswer(asString -> displayName != null ? displayName : asString.getArgument(0));
+        Record record = Mockito.mock(Record.class);
+        Mockito.when(record.get(BioModelsUtilities.DBID)).thenReturn(dbIdValue);
+        Mockito.when(record.get(BioModelsUtilities.STID)).thenReturn(stableIdValue);
+        Mockito.when(record.get(BioModelsUtilities.DISPLAY_NAME)).thenReturn(displayNameValue);
+        return record;
+    }
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        RunMetrics.reset();
+        mockTransaction = Mockito.mock(Transaction.class);
+        Mockito.when(mockTransaction.run(anyString(), anyMap())).thenAnswer(invocation -> {
+            List<String> chunk = new ArrayList<>(
+                    (Collection<String>) invocation.<Map<String, Object>>getArgument(1).get("pathwayStableIds"));
+            lookups.add(chunk);
+            Iterator<Record> records = chunk.stream()
+                    .filter(databaseStableIds::contains)
+                    .map(stableId -> record(stableId, Long.parseLong(stableId.substring(6))))
+                    .iterator();
+            Result result = Mockito.mock(Result.class);
+            Mockito.when(result.hasNext()).thenAnswer(hasNext -> records.hasNext());
+            Mockito.when(result.next()).thenAnswer(next -> records.next());
+            return result;
+        });
+    }
+
+    @AfterEach
+    public void resetChunkSize() {
+        PathwayLookup.configure(PathwayLookup.DEFAULT_CHUNK_SIZE);
+    }
+
+    @Test
+    public void stableIdsAreLookedUpInChunks() {
+        PathwayLookup.configure(2);
+
+        List<ResolvedPathway> pathways = PathwayLookup.findAll(mockTransaction,
+                Arrays.asList("R-HSA-1", "R-HSA-2", "R-HSA-3", "R-MMU-4", "R-MMU-5"));
+
+        assertThat(lookups, contains(Arrays.asList("R-HSA-1", "R-HSA-2"), Arrays.asList("R-HSA-3", "R-MMU-4"),
+                Collections.singletonList("R-MMU-5")));
+        assertThat(pathways.size(), is(equalTo(3)));
+        assertThat(pathways.get(2).getStableId(), is(equalTo("R-MMU-4")));
+        assertThat(pathways.get(2).getDbId(), is(equalTo(4L)));
+        assertThat(pathways.get(2).toString(), is(equalTo("[Pathway:4] Pathway 4")));
+    }
+
+    @Test
+    public void unmatchedStableIdsAreReturnedInOrderAndCounted() {
+        List<String> found = new ArrayList<>();
+
+        Set<String> unmatched = PathwayLookup.forEach(mockTransaction,
+                Arrays.asList("R-HSA-9", "R-HSA-1", "R-HSA-3"), pathway -> found.add(pathway.getStableId()));
+        PathwayLookup.reportUnmatched(unmatched, 3);
+
+        assertThat(found, contains("R-HSA-1"));
+        assertThat(unmatched, contains("R-HSA-9", "R-HSA-3"));
+        assertThat(RunMetrics.getCounter(RunMetrics.PATHWAYS_UNMATCHED), is(equalTo(2L)));
+    }
+
+    @Test
+    public void pathwayWithoutDisplayNameIsNamedByItsStableId() {
+        ResolvedPathway pathway = PathwayLookup.fromRecord(record("R-HSA-7", 7L, null));
+
+        assertThat(pathway.toString(), is(equalTo("[Pathway:7] R-HSA-7")));
+    }
+
+    @Test
+    public void chunkSizeMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> PathwayLookup.configure(0));
+    }
+}
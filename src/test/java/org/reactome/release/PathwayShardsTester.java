@@ -0,0 +1,42 @@
+package org.reactome.release;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PathwayShardsTester {
+
+    private final List<String> pathwayStableIds =
+            Arrays.asList("R-MMU-1", "R-HSA-2", "R-HSA-3", "R-RNO-4", "R-HSA-5", "R-MMU-6");
+
+    @Test
+    public void speciesShardsAreOrderedBySize() {
+        Map<String, List<String>> shards = PathwayShards.assign(pathwayStableIds, "species", 2);
+
+        assertThat(shards.keySet(), contains("HSA", "MMU", "RNO"));
+        assertThat(shards.get("HSA"), contains("R-HSA-2", "R-HSA-3", "R-HSA-5"));
+        assertThat(shards.get("MMU"), contains("R-MMU-1", "R-MMU-6"));
+    }
+
+    @Test
+    public void hashShardsCoverEveryPathwayOnce() {
+        Map<String, List<String>> shards = PathwayShards.assign(pathwayStableIds, "hash", 4);
+
+        List<String> assigned = new ArrayList<>();
+        for (List<String> shard : shards.values()) {
+            assigned.addAll(shard);
+        }
+        assertThat(shards.size(), is(lessThanOrEqualTo(4)));
+        assertThat(assigned, containsInAnyOrder(pathwayStableIds.toArray()));
+    }
+
+    @Test
+    public void unknownShardingIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> PathwayShards.assign(pathwayStableIds, "schemaClass", 2));
+        assertThrows(IllegalArgumentException.class, () -> PathwayShards.assign(pathwayStableIds, "hash", 0));
+    }
+}
@@ -0,0 +1,134 @@
+package org.reactome.release;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.async.AsyncTransaction;
+import org.neo4j.driver.async.ResultCursor;
+import org.neo4j.driver.exceptions.ClientException;
+import org.neo4j.driver.summary.ResultSummary;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+
+public class PipelinedBioModelsWriterTester {
+
+    private AsyncTransaction mockTransaction;
+    private ResultCursor mockCursor;
+    private List<CompletableFuture<ResultCursor>> sent;
+
+    @BeforeEach
+    public void setUp() {
+        RunMetrics.reset();
+        mockTransaction = Mockito.mock(AsyncTransaction.class);
+        mockCursor = Mockito.mock(ResultCursor.class);
+        Mockito.when(mockCursor.consumeAsync())
+                .thenReturn(CompletableFuture.completedFuture(Mockito.mock(ResultSummary.class)));
+        sent = new CopyOnWriteArrayList<>();
+        Mockito.when(mockTransaction.runAsync(anyString(), anyMap())).thenAnswer(invocation -> {
+            CompletableFuture<ResultCursor> response = new CompletableFuture<>();
+            sent.add(response);
+            return response;
+        });
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void statementsAreSentInOrderWithoutWaitingForResponses() {
+        PipelinedBioModelsWriter writer = new PipelinedBioModelsWriter(mockTransaction, 4);
+
+        writer.createNode(Collections.singletonList("DatabaseIdentifier"), new HashMap<>());
+        for (int order = 0; order < 3; order++) {
+            writer.createRelationship(1L, 10L + order, "crossReference", order, 1);
+        }
+
+        ArgumentCaptor<String> statements = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Map<String, Object>> parameters = ArgumentCaptor.forClass(Map.class);
+        Mockito.verify(mockTransaction, Mockito.times(4)).runAsync(statements.capture(), parameters.capture());
+        assertThat(statements.getAllValues().get(0), is(equalTo(CypherTemplates.node("DatabaseIdentifier"))));
+        List<Object> orders = new ArrayList<>();
+        for (Map<String, Object> relationshipParameters : parameters.getAllValues().subList(1, 4)) {
+            orders.add(relationshipParameters.get("order"));
+        }
+        assertThat(orders, contains(0, 1, 2));
+        assertThat(RunMetrics.getCounter(RunMetrics.RELATIONSHIPS_CREATED), is(equalTo(0L)));
+    }
+
+    @Test
+    public void flushWaitsForStatementsInFlight() throws Exception {
+        PipelinedBioModelsWriter writer = new PipelinedBioModelsWriter(mockTransaction, 4);
+        writer.createRelationship(1L, 2L, "crossReference", 0, 1);
+        writer.createRelationship(1L, 3L, "crossReference", 1, 1);
+
+        Thread flush = new Thread(writer::flush);
+        flush.start();
+        flush.join(200L);
+        assertThat(flush.isAlive(), is(true));
+
+        for (CompletableFuture<ResultCursor> response : sent) {
+            response.complete(mockCursor);
+        }
+        flush.join(5000L);
+
+        assertThat(flush.isAlive(), is(false));
+        assertThat(RunMetrics.getCounter(RunMetrics.RELATIONSHIPS_CREATED), is(equalTo(2L)));
+    }
+
+    @Test
+    public void writeBlocksWhileMaxInFlightStatementsAreUnanswered() throws Exception {
+        PipelinedBioModelsWriter writer = new PipelinedBioModelsWriter(mockTransaction, 1);
+        writer.createRelationship(1L, 2L, "crossReference", 0, 1);
+
+        Thread secondWrite = new Thread(() -> writer.createRelationship(1L, 3L, "crossReference", 1, 1));
+        secondWrite.start();
+        secondWrite.join(200L);
+        assertThat(sent, hasSize(1));
+
+        sent.get(0).complete(mockCursor);
+        secondWrite.join(5000L);
+
+        assertThat(secondWrite.isAlive(), is(false));
+        assertThat(sent, hasSize(2));
+    }
+
+    @Test
+    public void failedStatementFailsLaterWrites() {
+        PipelinedBioModelsWriter writer = new PipelinedBioModelsWriter(mockTransaction, 4);
+        writer.createRelationship(1L, 2L, "crossReference", 0, 1);
+        sent.get(0).completeExceptionally(new ClientException("Statement failed"));
+
+        assertThrows(ClientException.class, writer::flush);
+        assertThrows(ClientException.class, () -> writer.createRelationship(1L, 3L, "crossReference", 1, 1));
+        assertThat(sent, hasSize(1));
+    }
+
+    @Test
+    public void singleReturnsTheFirstRecordOrNull() {
+        Record record = Mockito.mock(Record.class);
+        Mockito.when(mockTransaction.runAsync(anyString(), anyMap()))
+                .thenReturn(CompletableFuture.completedFuture(mockCursor));
+        Mockito.when(mockCursor.listAsync()).thenReturn(
+                CompletableFuture.completedFuture(Collections.singletonList(record)),
+                CompletableFuture.completedFuture(Collections.emptyList()));
+        PipelinedBioModelsWriter writer = new PipelinedBioModelsWriter(mockTransaction, 4);
+
+        assertThat(writer.single(CypherTemplates.MAX_DBID, Collections.emptyMap()), is(sameInstance(record)));
+        assertThat(writer.single(CypherTemplates.BIOMODELS_REFERENCE_DATABASE, Collections.emptyMap()),
+                is(nullValue()));
+    }
+
+    @Test
+    public void maxInFlightMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new PipelinedBioModelsWriter(mockTransaction, 0));
+    }
+}
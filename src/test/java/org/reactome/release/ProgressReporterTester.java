@@ -0,0 +1,33 @@
+package org.reactome.release;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ProgressReporterTester {
+
+    @Test
+    public void progressHasRatesPercentAndEta() {
+        String progress = ProgressReporter.describe(1200L, 5000L, 3000L, TimeUnit.SECONDS.toNanos(15));
+
+        assertThat(progress, is(equalTo(
+                "Progress: 1200 of 5000 pathways (24.0%), 80.0 pathways/s, 200.0 identifiers/s, ETA 0:00:48")));
+    }
+
+    @Test
+    public void etaIsLeftOutUntilPathwaysAreUpdated() {
+        String progress = ProgressReporter.describe(0L, 5000L, 0L, TimeUnit.SECONDS.toNanos(10));
+
+        assertThat(progress, is(equalTo("Progress: 0 of 5000 pathways (0.0%), 0.0 pathways/s, 0.0 identifiers/s")));
+    }
+
+    @Test
+    public void longEtaIsInHours() {
+        String progress = ProgressReporter.describe(1L, 7202L, 0L, TimeUnit.SECONDS.toNanos(1));
+
+        assertThat(progress, endsWith("ETA 2:00:01"));
+    }
+}
@@ -0,0 +1,101 @@
+package org.reactome.release;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.mockito.Mockito;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Transaction;
+import org.neo4j.driver.summary.Plan;
+import org.neo4j.driver.summary.ResultSummary;
+
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+
+public class QueryPlanPreflightTester {
+
+    private Session mockSession;
+    private Transaction mockTransaction;
+    private Result mockResult;
+    private ResultSummary mockSummary;
+
+    private static Plan plan(String operatorType, Plan... children) {
+        Plan plan = Mockito.mock(Plan.class);
+        Mockito.when(plan.operatorType()).thenReturn(operatorType);
+        Mockito.doReturn(Arrays.asList(children)).when(plan).children();
+        return plan;
+    }
+
+    @BeforeEach
+    public void setUp() {
+        mockSession = Mockito.mock(Session.class);
+        mockTransaction = Mockito.mock(Transaction.class);
+        mockResult = Mockito.mock(Result.class);
+        mockSummary = Mockito.mock(ResultSummary.class);
+        Mockito.when(mockSession.beginTransaction()).thenReturn(mockTransaction);
+        Mockito.when(mockSession.run(anyString())).thenReturn(mockResult);
+        Mockito.when(mockTransaction.run(anyString(), anyMap())).thenReturn(mockResult);
+        Mockito.when(mockResult.consume()).thenReturn(mockSummary);
+    }
+
+    @Test
+    public void scansAreFoundAnywhereInThePlan() {
+        Plan plan = plan("ProduceResults@neo4j",
+                plan("CartesianProduct@neo4j", plan("NodeUniqueIndexSeek@neo4j"), plan("NodeByLabelScan@neo4j")));
+
+        assertThat(QueryPlanPreflight.findScans(plan), contains("NodeByLabelScan"));
+        assertThat(QueryPlanPreflight.describe(plan),
+                is(equalTo("ProduceResults(CartesianProduct(NodeUniqueIndexSeek, NodeByLabelScan))")));
+    }
+
+    @Test
+    public void indexSeekPlanHasNoScans() {
+        assertThat(QueryPlanPreflight.findScans(plan("ProduceResults", plan("NodeIndexSeek"))), is(empty()));
+    }
+
+    @Test
+    public void failModeThrowsWhenStatementIsPlannedWithScan() {
+        Plan scanPlan = plan("ProduceResults", plan("AllNodesScan"));
+        Mockito.when(mockSummary.plan()).thenReturn(scanPlan);
+
+        assertThrows(IllegalStateException.class, () -> QueryPlanPreflight.run(mockSession, "fail", false));
+        Mockito.verify(mockTransaction, Mockito.never()).commit();
+    }
+
+    @Test
+    public void warnModeDoesNotThrowOrCreateIndexes() {
+        Plan scanPlan = plan("ProduceResults", plan("NodeByLabelScan"));
+        Mockito.when(mockSummary.plan()).thenReturn(scanPlan);
+
+        QueryPlanPreflight.run(mockSession, "warn", false);
+
+        Mockito.verify(mockSession, Mockito.never()).run(startsWith("CREATE INDEX"));
+    }
+
+    @Test
+    public void missingIndexesAreCreatedAndStatementsCheckedAgain() {
+        Plan scanPlan = plan("ProduceResults", plan("NodeByLabelScan"));
+        Plan seekPlan = plan("ProduceResults", plan("NodeIndexSeek"));
+        Mockito.when(mockSummary.plan()).thenReturn(scanPlan).thenReturn(seekPlan);
+
+        QueryPlanPreflight.run(mockSession, "fail", true);
+
+        Mockito.verify(mockSession).run(
+                "CREATE INDEX DatabaseObject_dbId IF NOT EXISTS FOR (n:DatabaseObject) ON (n.dbId)");
+        Mockito.verify(mockSession, Mockito.times(2)).beginTransaction();
+    }
+
+    @Test
+    public void offModeDoesNotExplainStatements() {
+        QueryPlanPreflight.run(mockSession, "off", false);
+
+        Mockito.verify(mockSession, Mockito.never()).beginTransaction();
+    }
+}
@@ -0,0 +1,101 @@
+package org.reactome.release;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class RunMetricsTester {
+
+    @BeforeEach
+    public void resetMetrics() {
+        RunMetrics.reset();
+    }
+
+    @Test
+    public void phaseTimeAccumulatesOverCalls() {
+        RunMetrics.recordPhase("createIdentifiers", 1000L);
+        RunMetrics.recordPhase("createIdentifiers", 500L);
+        try (RunMetrics.Phase phase = RunMetrics.startPhase("parse")) {
+            assertThat(RunMetrics.getPhaseNanos("parse"), is(equalTo(0L)));
+        }
+
+        assertThat(RunMetrics.getPhaseNanos("createIdentifiers"), is(equalTo(1500L)));
+        assertThat(RunMetrics.getPhaseNanos("parse"), is(greaterThan(0L)));
+    }
+
+    @Test
+    public void countersStartAtZero() {
+        assertThat(RunMetrics.getCounter(RunMetrics.NODES_CREATED), is(equalTo(0L)));
+
+        RunMetrics.increment(RunMetrics.NODES_CREATED);
+        RunMetrics.add(RunMetrics.NODES_CREATED, 10L);
+
+        assertThat(RunMetrics.getCounter(RunMetrics.NODES_CREATED), is(equalTo(11L)));
+    }
+
+    @Test
+    public void resetClearsAllMetrics() {
+        RunMetrics.recordPhase("parse", 1000L);
+        RunMetrics.increment(RunMetrics.ROWS_PARSED);
+        RunMetrics.recordStatement("maxDbId", 1000L);
+
+        RunMetrics.reset();
+
+        assertThat(RunMetrics.getPhaseNanos("parse"), is(equalTo(0L)));
+        assertThat(RunMetrics.getCounter(RunMetrics.ROWS_PARSED), is(equalTo(0L)));
+        assertThat(RunMetrics.getStatementCount("maxDbId"), is(equalTo(0L)));
+    }
+
+    @Test
+    public void prometheusReportHasCumulativeHistogramBuckets(@TempDir Path tempDir) throws Exception {
+        RunMetrics.recordStatement("relationship:crossReference", TimeUnit.MICROSECONDS.toNanos(200));
+        RunMetrics.recordStatement("relationship:crossReference", TimeUnit.MILLISECONDS.toNanos(3));
+        RunMetrics.recordStatement("relationship:crossReference", TimeUnit.SECONDS.toNanos(20));
+        RunMetrics.add(RunMetrics.IDENTIFIERS_REUSED, 7L);
+        RunMetrics.recordPhase("commit", TimeUnit.MILLISECONDS.toNanos(1500));
+
+        Path reportFile = tempDir.resolve("metrics.prom");
+        RunMetrics.writePrometheus(reportFile);
+        String report = new String(Files.readAllBytes(reportFile), StandardCharsets.UTF_8);
+
+        assertThat(report, containsString("biomodels_phase_seconds_total{phase=\"commit\"} 1.5\n"));
+        assertThat(report, containsString("biomodels_identifiers_reused_total 7\n"));
+        String bucket = "biomodels_statement_duration_seconds_bucket{statement=\"relationship:crossReference\",";
+        assertThat(report, containsString(bucket + "le=\"5.0E-4\"} 1\n"));
+        assertThat(report, containsString(bucket + "le=\"0.005\"} 2\n"));
+        assertThat(report, containsString(bucket + "le=\"10.0\"} 2\n"));
+        assertThat(report, containsString(bucket + "le=\"+Inf\"} 3\n"));
+        assertThat(report, containsString(
+                "biomodels_statement_duration_seconds_count{statement=\"relationship:crossReference\"} 3\n"));
+    }
+
+    @Test
+    public void jsonReportContainsPhasesCountersAndStatements(@TempDir Path tempDir) throws Exception {
+        RunMetrics.recordPhase("parse", TimeUnit.MILLISECONDS.toNanos(250));
+        RunMetrics.add(RunMetrics.ROWS_PARSED, 42L);
+        RunMetrics.recordStatement("node:DatabaseIdentifier", TimeUnit.MILLISECONDS.toNanos(2));
+
+        Path reportFile = tempDir.resolve("reports").resolve("metrics.json");
+        RunMetrics.writeJson(reportFile);
+        String report = new String(Files.readAllBytes(reportFile), StandardCharsets.UTF_8);
+
+        assertThat(report, containsString("\"parse\": {\"seconds\": 0.25, \"calls\": 1}"));
+        assertThat(report, containsString("\"rowsParsed\": 42"));
+        assertThat(report, containsString("\"node:DatabaseIdentifier\": {\"count\": 1, \"seconds\": 0.002"));
+        assertThat(report, containsString("\"+Inf\": 1}}"));
+    }
+
+    @Test
+    public void counterNamesAreConvertedToSnakeCase() {
+        assertThat(RunMetrics.snakeCase("relationshipsCreated"), is(equalTo("relationships_created")));
+        assertThat(RunMetrics.snakeCase("rowsParsed"), is(equalTo("rows_parsed")));
+    }
+}
@@ -0,0 +1,44 @@
+package org.reactome.release;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class StartupTimerTester {
+
+    @Test
+    public void archiveOptionFollowsJavaExecutable() {
+        assertThat(StartupTimer.withArchive(Arrays.asList("java", "-jar", "biomodels-lean.jar"),
+                Paths.get("cds", "biomodels.jsa")),
+                contains("java", "-XX:SharedArchiveFile=" + Paths.get("cds", "biomodels.jsa"), "-jar",
+                        "biomodels-lean.jar"));
+    }
+
+    @Test
+    public void medianIsMiddleValue() {
+        assertThat(StartupTimer.median(new long[] {30L, 10L, 20L}), is(equalTo(20L)));
+        assertThat(StartupTimer.median(new long[] {40L, 10L, 30L, 20L}), is(equalTo(20L)));
+    }
+
+    @Test
+    public void reportHasMediansAndSaving() {
+        String report = StartupTimer.describe(5, TimeUnit.MILLISECONDS.toNanos(1200),
+                TimeUnit.MILLISECONDS.toNanos(720));
+
+        assertThat(report, is(equalTo("Startup (median of 5 runs): 1200 ms without the class-data sharing archive, "
+                + "720 ms with it (40.0% faster)")));
+    }
+
+    @Test
+    public void slowerStartupIsReported() {
+        String report = StartupTimer.describe(3, TimeUnit.MILLISECONDS.toNanos(100),
+                TimeUnit.MILLISECONDS.toNanos(110));
+
+        assertThat(report, endsWith("110 ms with it (10.0% slower)"));
+    }
+}
@@ -0,0 +1,135 @@
+package org.reactome.release;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.mockito.Mockito;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Transaction;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.summary.ProfiledPlan;
+import org.neo4j.driver.summary.ResultSummary;
+import org.neo4j.driver.summary.SummaryCounters;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+
+public class StatementProfilerTester {
+
+    private Transaction mockTransaction;
+    private Result mockResult;
+
+    private static ProfiledPlan plan(String operatorType, long dbHits, long pageCacheHits, ProfiledPlan... children) {
+        ProfiledPlan plan = Mockito.mock(ProfiledPlan.class);
+        Mockito.when(plan.operatorType()).thenReturn(operatorType);
+        Mockito.when(plan.dbHits()).thenReturn(dbHits);
+        Mockito.when(plan.records()).thenReturn(1L);
+        Mockito.when(plan.hasPageCacheStats()).thenReturn(true);
+        Mockito.when(plan.pageCacheHits()).thenReturn(pageCacheHits);
+        Mockito.doReturn(Arrays.asList(children)).when(plan).children();
+        return plan;
+    }
+
+    private static ResultSummary summary(long availableAfterMillis, int relationshipsCreated, ProfiledPlan profile) {
+        SummaryCounters counters = Mockito.mock(SummaryCounters.class);
+        Mockito.when(counters.relationshipsCreated()).thenReturn(relationshipsCreated);
+        ResultSummary summary = Mockito.mock(ResultSummary.class);
+        Mockito.when(summary.counters()).thenReturn(counters);
+        Mockito.when(summary.resultAvailableAfter(TimeUnit.MILLISECONDS)).thenReturn(availableAfterMillis);
+        Mockito.when(summary.resultConsumedAfter(TimeUnit.MILLISECONDS)).thenReturn(1L);
+        Mockito.when(summary.hasProfile()).thenReturn(profile != null);
+        Mockito.when(summary.profile()).thenReturn(profile);
+        return summary;
+    }
+
+    @BeforeEach
+    public void setUp() {
+        mockTransaction = Mockito.mock(Transaction.class);
+        mockResult = Mockito.mock(Result.class);
+        Mockito.when(mockTransaction.run(anyString(), any(Value.class))).thenReturn(mockResult);
+    }
+
+    @AfterEach
+    public void disableProfiling() {
+        StatementProfiler.configure(false, 0);
+    }
+
+    @Test
+    public void everySampleRateRunOfEachStatementIsProfiled() {
+        StatementProfiler.configure(true, 3);
+
+        List<String> sent = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            sent.add(StatementProfiler.textToRun("maxDbId", "MATCH (n) RETURN n"));
+        }
+
+        assertThat(sent, contains("PROFILE MATCH (n) RETURN n", "MATCH (n) RETURN n", "MATCH (n) RETURN n",
+                "PROFILE MATCH (n) RETURN n"));
+        assertThat(StatementProfiler.textToRun("nodeByDbId", "MATCH (n) RETURN n"),
+                is(equalTo("PROFILE MATCH (n) RETURN n")));
+    }
+
+    @Test
+    public void statementsAreSentUnchangedWhenProfilingIsDisabled() {
+        StatementProfiler.configure(false, 1);
+
+        BioModelsUtilities.createRelationship(mockTransaction, 1L, 2L, "crossReference", 0, 1);
+
+        Mockito.verify(mockTransaction).run(eq(CypherTemplates.relationship("crossReference")), any(Value.class));
+        Mockito.verify(mockResult, Mockito.never()).consume();
+        assertThat(StatementProfiler.getProfiles().keySet(), is(empty()));
+    }
+
+    @Test
+    public void summariesOfConsumedResultsAreAggregatedPerStatement() {
+        StatementProfiler.configure(true, 2);
+        ProfiledPlan profile = plan("ProduceResults@neo4j", 0L, 0L,
+                plan("Create@neo4j", 2L, 5L, plan("NodeIndexSeek@neo4j", 4L, 7L)));
+        ResultSummary profiledSummary = summary(3L, 1, profile);
+        ResultSummary summary = summary(2L, 1, null);
+        Mockito.when(mockResult.consume()).thenReturn(profiledSummary, summary);
+
+        BioModelsUtilities.createRelationship(mockTransaction, 1L, 2L, "crossReference", 0, 1);
+        BioModelsUtilities.createRelationship(mockTransaction, 1L, 3L, "crossReference", 1, 1);
+
+        Mockito.verify(mockTransaction).run(eq("PROFILE " + CypherTemplates.relationship("crossReference")),
+                any(Value.class));
+        StatementProfiler.StatementProfile statementProfile =
+                StatementProfiler.getProfiles().get("relationship:crossReference");
+        assertThat(statementProfile.getCalls(), is(equalTo(2L)));
+        assertThat(statementProfile.getServerMillis(), is(equalTo(7L)));
+        assertThat(statementProfile.getRelationshipsCreated(), is(equalTo(2L)));
+        assertThat(statementProfile.getProfiledCalls(), is(equalTo(1L)));
+        assertThat(statementProfile.getDbHits(), is(equalTo(6L)));
+        assertThat(statementProfile.getPageCacheHits(), is(equalTo(12L)));
+        assertThat(statementProfile.getOperators().keySet(), contains("ProduceResults", "Create", "NodeIndexSeek"));
+    }
+
+    @Test
+    public void reportListsStatementsWithLargestClientTimeFirst(@TempDir Path tempDir) throws Exception {
+        StatementProfiler.configure(true, 0);
+        StatementProfiler.recordClientTime("maxDbId", 1000L);
+        StatementProfiler.recordClientTime("relationship:crossReference", 5000L);
+        StatementProfiler.recordClientTime("node:DatabaseIdentifier", 3000L);
+
+        Path reportFile = tempDir.resolve("profile.tsv");
+        StatementProfiler.writeReport(reportFile, 2);
+        List<String> lines = Files.readAllLines(reportFile);
+
+        assertThat(lines.get(0), startsWith("statement\tcalls\tclientMillis\tserverMillis"));
+        assertThat(lines.get(1), startsWith("relationship:crossReference\t"));
+        assertThat(lines.get(2), startsWith("node:DatabaseIdentifier\t"));
+        assertThat(lines.get(4), startsWith("statement\toperator\tdbHits"));
+        assertThat(lines, hasSize(5));
+    }
+}
@@ -0,0 +1,165 @@
+package org.reactome.release;
+
+import org.neo4j.driver.QueryRunner;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Deterministic generator of models2pathways.tsv files and of the Reactome graph they refer to, for benchmarks and
+ * load tests.  Pathways are spread across species like Reactome's (stable id 'R-&lt;species&gt;-&lt;dbId&gt;') and the rows
+ * have the columns of the file published by BioModels, grouped by BioModels id.  The same seed and scale always
+ * produce the same file and graph.
+ */
+public class SyntheticModels2Pathways {
+    public static final long PERSON_DB_ID = 1L;
+    private static final long FIRST_PATHWAY_DB_ID = 1000L;
+    private static final int MAX_PATHWAYS_PER_MODEL = 8;
+    private static final int SEED_BATCH_SIZE = 10000;
+    private static final String[][] SPECIES = {
+            {"HSA", "Homo sapiens"}, {"MMU", "Mus musculus"}, {"RNO", "Rattus norvegicus"}, {"BTA", "Bos taurus"},
+            {"SSC", "Sus scrofa"}, {"CFA", "Canis familiaris"}, {"GGA", "Gallus gallus"},
+            {"XTR", "Xenopus tropicalis"}, {"DRE", "Danio rerio"}, {"DME", "Drosophila melanogaster"},
+            {"CEL", "Caenorhabditis elegans"}, {"SCE", "Saccharomyces cerevisiae"}
+    };
+
+    private final long seed;
+    private final int pathwayCount;
+    private final int bioModelsIdCount;
+
+    /**
+     * Creates a generator
+     *
+     * @param seed Seed of the generated data
+     * @param pathwayCount Number of pathways in the graph
+     * @param bioModelsIdCount Number of distinct BioModels ids in the file
+     */
+    public SyntheticModels2Pathways(long seed, int pathwayCount, int bioModelsIdCount) {
+        if (pathwayCount < 1 || bioModelsIdCount < 1) {
+            throw new IllegalArgumentException("Pathway and BioModels id counts must be positive");
+        }
+        this.seed = seed;
+        this.pathwayCount = pathwayCount;
+        this.bioModelsIdCount = bioModelsIdCount;
+    }
+
+    public int getPathwayCount() {
+        return pathwayCount;
+    }
+
+    public int getBioModelsIdCount() {
+        return bioModelsIdCount;
+    }
+
+    public long pathwayDbId(int pathwayIndex) {
+        return FIRST_PATHWAY_DB_ID + pathwayIndex;
+    }
+
+    public String pathwayStableId(int pathwayIndex) {
+        return "R-" + species(pathwayIndex)[0] + "-" + pathwayDbId(pathwayIndex);
+    }
+
+    public String bioModelsId(int bioModelsIdIndex) {
+        return String.format("BIOMD%010d", bioModelsIdIndex + 1);
+    }
+
+    /**
+     * @return The largest dbId of the generated graph
+     */
+    public long getMaxDbId() {
+        return pathwayDbId(pathwayCount - 1);
+    }
+
+    private static String[] species(int pathwayIndex) {
+        return SPECIES[pathwayIndex % SPECIES.length];
+    }
+
+    /**
+     * Writes a models2pathways file.  Each BioModels id is mapped to between one and eight pathways on consecutive
+     * rows, and the ids cycle when there are more rows than ids.  A file name ending with '.gz' is gzip-compressed.
+     *
+     * @param file Path of the file to write
+     * @param rowCount Number of rows of the file
+     * @throws IOException Thrown if the file can not be written
+     */
+    public void writeTsv(Path file, long rowCount) throws IOException {
+        Random random = new Random(seed);
+        try (Writer writer = newWriter(file)) {
+            StringBuilder row = new StringBuilder(256);
+            long written = 0;
+            int bioModelsIdIndex = 0;
+            while (written < rowCount) {
+                String bioModelsId = bioModelsId(bioModelsIdIndex);
+                String score = Double.toString(random.nextDouble() * 1.0E-3);
+                int modelPathways = 1 + random.nextInt(MAX_PATHWAYS_PER_MODEL);
+                for (int i = 0; i < modelPathways && written < rowCount; i++, written++) {
+                    int pathwayIndex = random.nextInt(pathwayCount);
+                    String stableId = pathwayStableId(pathwayIndex);
+                    row.setLength(0);
+                    row.append(bioModelsId).append('\t')
+                            .append(stableId).append('\t')
+                            .append(score).append('\t')
+                            .append("https://reactome.org/PathwayBrowser/#/").append(stableId).append('\t')
+                            .append("Pathway ").append(pathwayIndex).append('\t')
+                            .append(random.nextBoolean() ? "IEA" : "TAS").append('\t')
+                            .append(species(pathwayIndex)[1]).append('\n');
+                    writer.append(row);
+                }
+                bioModelsIdIndex = (bioModelsIdIndex + 1) % bioModelsIdCount;
+            }
+        }
+    }
+
+    private static Writer newWriter(Path file) throws IOException {
+        if (file.getFileName().toString().endsWith(".gz")) {
+            return new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(Files.newOutputStream(file), 1 << 16), StandardCharsets.UTF_8), 1 << 16);
+        }
+        return Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates the indexes Reactome graph databases have on DatabaseObject dbId and stId, a Person (with dbId
+     * {@link #PERSON_DB_ID}) and the pathways.  The runner must not be a transaction, as the indexes are created
+     * before the nodes.
+     *
+     * @param runner Neo4j Driver Session
+     */
+    public void seedGraph(QueryRunner runner) {
+        runner.run("CREATE INDEX DatabaseObject_dbId IF NOT EXISTS FOR (n:DatabaseObject) ON (n.dbId)").consume();
+        runner.run("CREATE INDEX DatabaseObject_stId IF NOT EXISTS FOR (n:DatabaseObject) ON (n.stId)").consume();
+        runner.run("CALL db.awaitIndexes(300)").consume();
+
+        Map<String, Object> person = new HashMap<>();
+        person.put("dbId", PERSON_DB_ID);
+        person.put("surname", "Synthetic");
+        person.put("firstname", "Curator");
+        person.put("displayName", "Synthetic, Curator");
+        person.put("schemaClass", "Person");
+        runner.run("CREATE (n:DatabaseObject:Person) SET n = $props",
+                Collections.singletonMap("props", person)).consume();
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int pathwayIndex = 0; pathwayIndex < pathwayCount; pathwayIndex++) {
+            Map<String, Object> pathway = new HashMap<>();
+            pathway.put("dbId", pathwayDbId(pathwayIndex));
+            pathway.put("stId", pathwayStableId(pathwayIndex));
+            pathway.put("displayName", "Pathway " + pathwayIndex);
+            pathway.put("speciesName", species(pathwayIndex)[1]);
+            pathway.put("schemaClass", "Pathway");
+            rows.add(pathway);
+            if (rows.size() == SEED_BATCH_SIZE || pathwayIndex == pathwayCount - 1) {
+                runner.run("UNWIND $rows AS row CREATE (n:DatabaseObject:Event:Pathway) SET n = row",
+                        Collections.singletonMap("rows", rows)).consume();
+                rows = new ArrayList<>();
+            }
+        }
+    }
+}